@@ -0,0 +1,169 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.benchmarks.jt808;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.AbstractCodec;
+import cn.linliangjun.its.jt808.protocol.codec.PlatformGenericRespMessageCodec;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalAuthMessageCodec;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalRegisterMessageCodec;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalRegisterRespMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LicensePlateColor;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.protocol.message.TerminalRegisterRespMessage;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2011;
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2013_2019;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2011_2013;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2011;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2013_2019;
+
+/**
+ * 基准测试使用的 JT/T 808 样例消息
+ *
+ * @author linliangjun
+ */
+public final class Samples {
+
+    private static final long TERMINAL_PHONE = 17355012222L;
+
+    private Samples() {
+    }
+
+    /**
+     * 获取编解码器
+     */
+    @SuppressWarnings("unchecked")
+    public static AbstractCodec<Jt808Message> getCodec(Type type) {
+        AbstractCodec<?> codec;
+        switch (type) {
+            case TERMINAL_REGISTER:
+                codec = new TerminalRegisterMessageCodec();
+                break;
+            case TERMINAL_AUTH:
+                codec = new TerminalAuthMessageCodec();
+                break;
+            case PLATFORM_GENERIC_RESP:
+                codec = new PlatformGenericRespMessageCodec();
+                break;
+            case TERMINAL_REGISTER_RESP:
+                codec = new TerminalRegisterRespMessageCodec();
+                break;
+            default:
+                throw new IllegalArgumentException("未适配的消息类型：" + type);
+        }
+        return (AbstractCodec<Jt808Message>) codec;
+    }
+
+    /**
+     * 创建样例消息
+     */
+    public static Jt808Message createMessage(Type type, Version version) {
+        Jt808Message message;
+        switch (type) {
+            case TERMINAL_REGISTER:
+                message = createTerminalRegisterMessage(version);
+                break;
+            case TERMINAL_AUTH:
+                message = createTerminalAuthMessage(version);
+                break;
+            case PLATFORM_GENERIC_RESP:
+                message = createPlatformGenericRespMessage(version);
+                break;
+            case TERMINAL_REGISTER_RESP:
+                var resp = new TerminalRegisterRespMessage(version);
+                resp.setRespSerialNum(4660);
+                resp.setResult(TerminalRegisterRespMessage.Result.SUCCESS);
+                resp.setAuthKey("a1b2c3d4e5f6");
+                message = resp;
+                break;
+            default:
+                throw new IllegalArgumentException("未适配的消息类型：" + type);
+        }
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        message.setTerminalPhone(TERMINAL_PHONE);
+        message.setSerialNum(4660);
+        return message;
+    }
+
+    /**
+     * 编码并还原转义，得到 {@code MessageDecoder} 收到的完整帧（包括起始符、BCC 校验码和结束符）
+     */
+    public static ByteBuf createFrame(AbstractCodec<Jt808Message> codec, Jt808Message message) {
+        var escaped = codec.encode(message);
+        try {
+            return AbstractCodec.unescape(escaped);
+        } finally {
+            escaped.release();
+        }
+    }
+
+    private static Jt808Message createTerminalRegisterMessage(Version version) {
+        if (version == Version.V2011) {
+            var message = new TerminalRegisterMessage_2011();
+            message.setProvinceId(44);
+            message.setCityId(100);
+            message.setManufacturerId("ITS01");
+            message.setTerminalModel("T808");
+            message.setTerminalId("T000001");
+            message.setLicensePlateColor(LicensePlateColor.BLUE);
+            message.setLicensePlateNum("粤B12345");
+            return message;
+        }
+        var message = new TerminalRegisterMessage_2013_2019(version);
+        message.setProvinceId(44);
+        message.setCityId(100);
+        message.setManufacturerId(version == Version.V2019 ? "ITS01000000" : "ITS01");
+        message.setTerminalModel("T808");
+        message.setTerminalId(version == Version.V2019 ? "T00000100000000000000000000000" : "T000001");
+        message.setLicensePlateColor(LicensePlateColor.BLUE);
+        message.setLicensePlateNum("粤B12345");
+        return message;
+    }
+
+    private static Jt808Message createTerminalAuthMessage(Version version) {
+        if (version == Version.V2019) {
+            var message = new TerminalAuthMessage_2019();
+            message.setAuthKey("a1b2c3d4e5f6");
+            message.setImei("123456789012345");
+            message.setSoftwareVersion("1.0.0");
+            return message;
+        }
+        var message = new TerminalAuthMessage_2011_2013(version);
+        message.setAuthKey("a1b2c3d4e5f6");
+        return message;
+    }
+
+    private static Jt808Message createPlatformGenericRespMessage(Version version) {
+        if (version == Version.V2011) {
+            var message = new PlatformGenericRespMessage_2011();
+            message.setRespSerialNum(4660);
+            message.setRespType(Type.TERMINAL_AUTH);
+            message.setResult(PlatformGenericRespMessage_2011.Result.SUCCESS_ACK);
+            return message;
+        }
+        var message = new PlatformGenericRespMessage_2013_2019(version);
+        message.setRespSerialNum(4660);
+        message.setRespType(Type.TERMINAL_AUTH);
+        message.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
+        return message;
+    }
+}
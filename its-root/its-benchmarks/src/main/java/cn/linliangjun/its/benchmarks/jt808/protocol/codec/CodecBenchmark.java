@@ -0,0 +1,151 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.benchmarks.jt808.protocol.codec;
+
+import cn.linliangjun.its.benchmarks.jt808.Samples;
+import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.AbstractCodec;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JT/T 808 编解码器基准测试
+ *
+ * <p>覆盖 {@code cn.linliangjun.its.jt808.protocol.codec} 中的全部编解码器、全部协议版本的编码和解码，以及视图方式解码
+ *
+ * @author linliangjun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"TERMINAL_REGISTER", "TERMINAL_AUTH", "PLATFORM_GENERIC_RESP", "TERMINAL_REGISTER_RESP"})
+    private Type type;
+
+    @Param({"V2011", "V2013", "V2019"})
+    private Version version;
+
+    private AbstractCodec<Jt808Message> codec;
+
+    private ProtocolDefinition protocolDefinition;
+
+    private Jt808Message message;
+
+    /**
+     * 编码的输出缓冲区，模拟 {@code MessageToByteEncoder} 分配的缓冲区
+     */
+    private ByteBuf out;
+
+    /**
+     * 解码的输入帧
+     */
+    private ByteBuf frame;
+
+    @Setup
+    public void setup() {
+        codec = Samples.getCodec(type);
+        protocolDefinition = new ProtocolDefinition(version);
+        message = Samples.createMessage(type, version);
+        out = ByteBufAllocator.DEFAULT.ioBuffer(256);
+        frame = Samples.createFrame(codec, message);
+        // 解码后再编码，结果应与原帧一致
+        var escaped = codec.encode(decode());
+        var expected = codec.encode(message);
+        try {
+            if (!ByteBufUtil.equals(escaped, expected)) {
+                throw new IllegalStateException(String.format("%s %s 编解码结果不一致：%s != %s",
+                        type, version, ByteBufUtil.hexDump(escaped), ByteBufUtil.hexDump(expected)));
+            }
+        } finally {
+            escaped.release();
+            expected.release();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        out.release();
+        frame.release();
+    }
+
+    /**
+     * 编码到可复用的输出缓冲区（服务端的编码路径）
+     */
+    @Benchmark
+    public ByteBuf encode() {
+        out.clear();
+        codec.encode(message, out);
+        return out;
+    }
+
+    /**
+     * 编码到新分配的缓冲区
+     */
+    @Benchmark
+    public int encodeToNewBuffer() {
+        var buf = codec.encode(message);
+        int len = buf.readableBytes();
+        buf.release();
+        return len;
+    }
+
+    /**
+     * 解码完整帧（跳过起始符，与 {@code MessageDecoder} 一致）
+     */
+    @Benchmark
+    public Jt808Message decode() {
+        frame.readerIndex(1);
+        return codec.decode(protocolDefinition, frame);
+    }
+
+    /**
+     * 以视图方式解码完整帧，只访问消息头中的终端手机号，随后释放视图
+     */
+    @Benchmark
+    public long decodeView() {
+        frame.readerIndex(1);
+        var message = codec.decodeView(protocolDefinition, frame);
+        long terminalPhone = message.getTerminalPhone();
+        ReferenceCountUtil.release(message);
+        return terminalPhone;
+    }
+
+    /**
+     * 解码到对象池中的消息，只访问消息头中的终端手机号，随后交还对象池
+     */
+    @Benchmark
+    public long decodePooled() {
+        frame.readerIndex(1);
+        var message = codec.decodePooled(protocolDefinition, frame);
+        long terminalPhone = message.getTerminalPhone();
+        message.recycle();
+        return terminalPhone;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.benchmarks.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.benchmarks.jt808.Samples;
+import cn.linliangjun.its.jt808.protocol.DefinitionLoaderProvider;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.adapter.netty.tcp.ChannelInitializer;
+import cn.linliangjun.its.jt808.server.adapter.netty.tcp.FrameSplitter;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.uniprotocol.DefinitionManager;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+
+/**
+ * JT/T 808 入站流水线基准测试
+ *
+ * <p>通过 {@linkplain EmbeddedChannel} 驱动 {@linkplain ChannelInitializer} 构建的真实处理器链，每次操作写入 {@value #FRAMES} 帧，
+ * 结果为每秒处理的帧数，GC 分析器给出的 gc.alloc.rate.norm 即每帧分配的字节数。
+ *
+ * <p>损坏的帧过多时，{@code DiscardHandler} 会关闭连接，此时重新创建 {@linkplain EmbeddedChannel}，相当于终端重连
+ *
+ * @author linliangjun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /**
+     * 每次操作写入的帧数
+     */
+    private static final int FRAMES = 64;
+
+    /**
+     * 每次读取包含的帧数
+     */
+    private static final int FRAMES_PER_READ = 8;
+
+    /**
+     * 半包场景下每次读取的字节数，刻意不与帧长度对齐
+     */
+    private static final int SPLIT_READ_SIZE = 23;
+
+    /**
+     * 每次读取分配的缓冲区容量，与 {@code AdaptiveRecvByteBufAllocator} 的初始容量一致
+     */
+    private static final int READ_BUFFER_SIZE = 2048;
+
+    /**
+     * 损坏帧场景下，每隔多少帧出现一个 BCC 校验码错误的帧
+     */
+    private static final int CORRUPT_INTERVAL = 4;
+
+    static {
+        try {
+            new DefinitionLoaderProvider().get().load();
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        DefinitionManager.freeze();
+    }
+
+    /**
+     * 流量形态
+     */
+    public enum Shape {
+
+        /**
+         * 一次读取包含多个完整的帧
+         */
+        MULTI_FRAME,
+
+        /**
+         * 帧跨越多次读取（半包）
+         */
+        SPLIT,
+
+        /**
+         * 含有大量转义字节的帧
+         */
+        ESCAPE_HEAVY,
+
+        /**
+         * 夹杂 BCC 校验码错误的帧
+         */
+        CORRUPT
+    }
+
+    @Param
+    private Shape shape;
+
+    @Param({"FUSED", "SEPARATE_COPY", "SEPARATE_SLICE"})
+    private String pipeline;
+
+    /**
+     * 是否统计流水线指标
+     */
+    @Param({"false", "true"})
+    private boolean metrics;
+
+    private ChannelInitializer initializer;
+
+    private final Sink sink = new Sink();
+
+    private EmbeddedChannel channel;
+
+    /**
+     * 每次读取的数据
+     */
+    private List<byte[]> reads;
+
+    /**
+     * 每次操作应解码出的消息数
+     */
+    private int expected;
+
+    @Setup
+    public void setup() {
+        var properties = new Jt808ServerProperties();
+        if (pipeline.equals("FUSED")) {
+            properties.setFrameDecodeMode(Jt808ServerProperties.FrameDecodeMode.FUSED);
+        } else {
+            properties.setFrameDecodeMode(Jt808ServerProperties.FrameDecodeMode.SEPARATE);
+            properties.setFrameSplitterMode(pipeline.equals("SEPARATE_COPY") ? FrameSplitter.Mode.COPY : FrameSplitter.Mode.SLICE);
+        }
+        initializer = new ChannelInitializer(properties, sink, metrics ? new PipelineMetrics(properties.getPipelineMetricsSampleInterval()) : null);
+        channel = newChannel();
+
+        var codec = Samples.getCodec(Type.TERMINAL_AUTH);
+        var message = (TerminalAuthMessage_2019) Samples.createMessage(Type.TERMINAL_AUTH, Version.V2019);
+        if (shape == Shape.ESCAPE_HEAVY) {
+            // '~' 为 0x7e，'}' 为 0x7d
+            message.setAuthKey("~}~}~}~}~}~}~}~}~}~}~}~}~}~}~}~}");
+        }
+        var buf = codec.encode(message);
+        byte[] frame = new byte[buf.readableBytes()];
+        buf.readBytes(frame);
+        buf.release();
+
+        var frames = new ArrayList<byte[]>(FRAMES);
+        expected = 0;
+        for (int i = 0; i < FRAMES; i++) {
+            if (shape == Shape.CORRUPT && i % CORRUPT_INTERVAL == CORRUPT_INTERVAL - 1) {
+                frames.add(corrupt(frame));
+            } else {
+                frames.add(frame);
+                expected++;
+            }
+        }
+        reads = shape == Shape.SPLIT ? split(frames) : group(frames);
+
+        int decoded = pipeline();
+        if (decoded != expected) {
+            throw new IllegalStateException(String.format("%s %s 解码出 %d 条消息，期望 %d 条", shape, pipeline, decoded, expected));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int pipeline() {
+        for (byte[] read : reads) {
+            if (!channel.isOpen()) {
+                channel = newChannel();
+            }
+            channel.writeInbound(channel.alloc().ioBuffer(READ_BUFFER_SIZE).writeBytes(read));
+        }
+        return sink.reset();
+    }
+
+    private EmbeddedChannel newChannel() {
+        var ch = new EmbeddedChannel();
+        initializer.initPipeline(ch.pipeline());
+        return ch;
+    }
+
+    /**
+     * 将多个帧合并为一次读取
+     */
+    private static List<byte[]> group(List<byte[]> frames) {
+        var reads = new ArrayList<byte[]>();
+        var out = new ByteArrayOutputStream();
+        for (int i = 0; i < frames.size(); i++) {
+            out.write(frames.get(i), 0, frames.get(i).length);
+            if ((i + 1) % FRAMES_PER_READ == 0 || i == frames.size() - 1) {
+                reads.add(out.toByteArray());
+                out.reset();
+            }
+        }
+        return reads;
+    }
+
+    /**
+     * 将字节流按固定长度切分，使帧跨越多次读取
+     */
+    private static List<byte[]> split(List<byte[]> frames) {
+        var out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write(frame, 0, frame.length);
+        }
+        byte[] stream = out.toByteArray();
+        var reads = new ArrayList<byte[]>();
+        for (int i = 0; i < stream.length; i += SPLIT_READ_SIZE) {
+            reads.add(Arrays.copyOfRange(stream, i, Math.min(i + SPLIT_READ_SIZE, stream.length)));
+        }
+        return reads;
+    }
+
+    /**
+     * 修改消息体末尾的填充字节，使 BCC 校验失败
+     */
+    private static byte[] corrupt(byte[] frame) {
+        byte[] copy = frame.clone();
+        for (int i = copy.length - 2; i > 0; i--) {
+            if (copy[i] == 0) {
+                copy[i] = 1;
+                return copy;
+            }
+        }
+        throw new IllegalStateException("帧中不存在可修改的填充字节");
+    }
+
+    /**
+     * 位于流水线末尾，统计解码出的消息数
+     */
+    @ChannelHandler.Sharable
+    private static final class Sink extends ChannelInboundHandlerAdapter {
+
+        private int count;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof Jt808Message) {
+                count++;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+
+        private int reset() {
+            int n = count;
+            count = 0;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.benchmarks.uniprotocol.util;
+
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import cn.linliangjun.its.uniprotocol.util.IntList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import lombok.var;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐字节与按字（SWAR）两种 BCC 校验码、字节定位实现的基准测试
+ *
+ * <p>数据中约每 {@value #DENSITY} 个字节出现一个 0x7e，与上报频繁、转义较少的真实流量相近
+ *
+ * @author linliangjun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecUtilsBenchmark {
+
+    private static final byte FLAG = 0x7e;
+
+    private static final int DENSITY = 64;
+
+    @Param({"16", "64", "256", "1024"})
+    private int length;
+
+    @Param({"true", "false"})
+    private boolean direct;
+
+    private ByteBuf buf;
+
+    private final IntList indexes = new IntList();
+
+    @Setup
+    public void setup() {
+        buf = direct ? ByteBufAllocator.DEFAULT.directBuffer(length) : ByteBufAllocator.DEFAULT.heapBuffer(length);
+        var random = new Random(808);
+        for (int i = 0; i < length; i++) {
+            int b = random.nextInt(256);
+            buf.writeByte(b == FLAG || random.nextInt(DENSITY) != 0 ? b ^ 0x01 : FLAG);
+        }
+        // 两种实现的结果应一致
+        if (getBccCode() != getBccCodeSwar()) {
+            throw new IllegalStateException("BCC 校验码不一致");
+        }
+        List<Integer> expected = getIndexes();
+        getIndexesSwar();
+        if (expected.size() != indexes.size()) {
+            throw new IllegalStateException("字节位置不一致：" + expected + " != " + indexes);
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i) != indexes.get(i)) {
+                throw new IllegalStateException("字节位置不一致：" + expected + " != " + indexes);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        buf.release();
+    }
+
+    @Benchmark
+    public byte getBccCode() {
+        return CodecUtils.getBccCode(buf, 0, length);
+    }
+
+    @Benchmark
+    public byte getBccCodeSwar() {
+        return CodecUtils.getBccCodeSwar(buf, 0, length);
+    }
+
+    @Benchmark
+    public List<Integer> getIndexes() {
+        return CodecUtils.getIndexes(buf, FLAG);
+    }
+
+    @Benchmark
+    public IntList getIndexesSwar() {
+        indexes.clear();
+        CodecUtils.getIndexesSwar(buf, 0, length, FLAG, indexes);
+        return indexes;
+    }
+}
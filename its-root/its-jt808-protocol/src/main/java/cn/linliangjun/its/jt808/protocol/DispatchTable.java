@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.uniprotocol.Codec;
+import cn.linliangjun.its.uniprotocol.MessageDefinition;
+import lombok.var;
+
+/**
+ * JT/T 808 分发表，以 {@linkplain Version#ordinal() 版本序号} 作为协议下标
+ *
+ * @author linliangjun
+ */
+public final class DispatchTable extends cn.linliangjun.its.uniprotocol.DispatchTable {
+
+    private static volatile DispatchTable instance;
+
+    private DispatchTable(ProtocolDefinition[] protocolDefinitions) {
+        super(protocolDefinitions);
+    }
+
+    /**
+     * 获取分发表，首次调用时构建
+     *
+     * @throws IllegalStateException 协议定义尚未冻结
+     */
+    public static DispatchTable getInstance() {
+        var table = instance;
+        if (table == null) {
+            synchronized (DispatchTable.class) {
+                table = instance;
+                if (table == null) {
+                    var versions = Version.values();
+                    var definitions = new ProtocolDefinition[versions.length];
+                    for (var version : versions) {
+                        definitions[version.ordinal()] = new ProtocolDefinition(version);
+                    }
+                    table = new DispatchTable(definitions);
+                    instance = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    public ProtocolDefinition getProtocolDefinition(Version version) {
+        return (ProtocolDefinition) getProtocolDefinition(version.ordinal());
+    }
+
+    public MessageDefinition getMessageDefinition(Version version, int messageId) {
+        return getMessageDefinition(version.ordinal(), messageId);
+    }
+
+    public Codec<ProtocolDefinition, Jt808Message> getCodec(Version version, int messageId) {
+        return getCodec(version.ordinal(), messageId);
+    }
+}
@@ -18,13 +18,14 @@ package cn.linliangjun.its.jt808.protocol.codec;
 
 import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
 import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.MessageRecycler;
 import cn.linliangjun.its.jt808.protocol.Version;
 import cn.linliangjun.its.uniprotocol.Codec;
 import cn.linliangjun.its.uniprotocol.CodecException;
 import cn.linliangjun.its.uniprotocol.util.CodecUtils;
-import cn.linliangjun.its.uniprotocol.util.StrUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
 import lombok.var;
 
 import java.nio.charset.Charset;
@@ -34,7 +35,7 @@ import java.nio.charset.Charset;
  *
  * @param <M> JT 808 消息类型
  * @author linliangjun
- * @apiNote 编码时，不会进行转义；解码时，不会解析消息头和尾的魔数，不会进行转义，不会进行 BCC 校验
+ * @apiNote 编码时，会写入消息头和尾的魔数和 BCC 校验码，并进行转义；解码时，不会解析消息头和尾的魔数，不会进行转义，不会进行 BCC 校验
  */
 public abstract class AbstractCodec<M extends Jt808Message> implements Codec<ProtocolDefinition, M> {
 
@@ -42,9 +43,40 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
 
     protected static final ByteBufAllocator ALLOCATOR = ByteBufAllocator.DEFAULT;
 
+    private static final byte FLAG = 0x7e;
+
+    private static final byte ESCAPE = 0x7d;
+
+    private static final int BODY_LENGTH_MASK = 0x03ff;
+
+    private static final int PARTIAL_BIT = 1 << 13;
+
+    private static final int VERSION_BIT = 1 << 14;
+
     private static final Encoder ENCODER = new Encoder();
     private static final Decoder DECODER = new Decoder();
 
+    /**
+     * 消息对象池，按协议版本索引
+     */
+    private final MessageRecycler<M>[] recyclers;
+
+    protected AbstractCodec() {
+        Version[] versions = Version.values();
+        recyclers = newRecyclers(versions.length);
+        for (Version version : versions) {
+            recyclers[version.ordinal()] = new MessageRecycler<>(() -> getMessageTemplate(version));
+        }
+    }
+
+    /**
+     * 创建对象池数组，泛型数组只能以原始类型创建
+     */
+    @SuppressWarnings("unchecked")
+    private static <M extends Jt808Message> MessageRecycler<M>[] newRecyclers(int length) {
+        return (MessageRecycler<M>[]) new MessageRecycler<?>[length];
+    }
+
     /**
      * 编码消息体
      *
@@ -60,6 +92,20 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
      */
     protected abstract M getMessageTemplate(Version version);
 
+    /**
+     * 创建消息视图，消息视图应持有 {@code frame} 中消息体的切片，并在首次访问时解析字段
+     *
+     * @param version 协议版本
+     * @param frame   字节缓冲区
+     * @param index   消息体的位置
+     * @param len     消息体的长度
+     * @return 消息视图，不支持视图时返回 {@code null}
+     * @see cn.linliangjun.its.jt808.protocol.message.view.MessageView
+     */
+    protected M createView(Version version, ByteBuf frame, int index, int len) {
+        return null;
+    }
+
     /**
      * 解码消息体
      *
@@ -71,40 +117,102 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
     @Override
     public final ByteBuf encode(M message) {
         var buf = ALLOCATOR.buffer(32);
-        buf.writeZero(1);       // 预留一个字节的头
         try {
-            ENCODER.encodeHeader(message, buf);
-            int startIndex = buf.writerIndex();
-            encodeBody(message, buf);
-            ENCODER.encodeBodyProperties(message, buf, startIndex);
-            byte code = CodecUtils.getBccCode(buf, buf.readerIndex() + 1, buf.writerIndex() - buf.readerIndex() - 1);
-            buf.writeByte(code);        // BCC 校验码
-            // 转义
-            var indexes = CodecUtils.getIndexes(buf, (byte) 0x7e);
-            indexes.addAll(CodecUtils.getIndexes(buf, (byte) 0x7d));
-            if (!indexes.isEmpty()) {
-                var bufCopy = ALLOCATOR.buffer(buf.writerIndex() + indexes.size());
-                int start = 0;
-                for (var index : indexes) {
-                    bufCopy.writeBytes(buf, start, index - start);
-                    byte b = buf.getByte(index);
-                    bufCopy.writeByte(0x7d);
-                    bufCopy.writeByte(b == 0x7d ? 1 : 2);
-                    start = index + 1;
-                }
-                bufCopy.writeBytes(buf, indexes.get(indexes.size() - 1));
-                buf.release();
-                buf = bufCopy;
-            }
-            buf.setByte(0, 0x7e);
-            buf.writeByte(0x7e);
+            encode(message, buf);
             return buf;
         } catch (Exception e) {
             buf.release();
-            throw new CodecException(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 编码并直接写入 {@code out}，包括起始符、BCC 校验码、转义和结束符，不会创建中间缓冲区
+     *
+     * <p>消息头和消息体写入后，先按字（8 字节）计算 BCC 校验码并统计需要转义的字节数；若存在需要转义的字节，再从后往前原地展开。
+     * 编码失败时，{@code out} 的写索引会被还原
+     */
+    @Override
+    public final void encode(M message, ByteBuf out) {
+        int base = out.writerIndex();
+        try {
+            out.writeByte(FLAG);
+            ENCODER.encodeHeader(message, out);
+            int startIndex = out.writerIndex();
+            encodeBody(message, out);
+            ENCODER.encodeBodyProperties(message, out, base + 1, startIndex);
+            int end = out.writerIndex();
+            byte code = CodecUtils.getBccCodeSwar(out, base + 1, end - base - 1);
+            int escapes = CodecUtils.countSwar(out, base + 1, end, FLAG) + CodecUtils.countSwar(out, base + 1, end, ESCAPE);
+            out.writeByte(code);        // BCC 校验码
+            if (code == FLAG || code == ESCAPE) {
+                escapes++;
+            }
+            if (escapes > 0) {
+                escape(out, base + 1, escapes);
+            }
+            out.writeByte(FLAG);
+        } catch (Exception e) {
+            out.writerIndex(base);
+            throw e instanceof CodecException ? (CodecException) e : new CodecException(e);
         }
     }
 
+    /**
+     * 从后往前原地转义：0x7e 转义为 0x7d02，0x7d 转义为 0x7d01
+     *
+     * @param buf     字节缓冲区
+     * @param start   待转义数据的起始位置，待转义数据截止到写索引
+     * @param escapes 需要转义的字节数
+     */
+    private static void escape(ByteBuf buf, int start, int escapes) {
+        int r = buf.writerIndex() - 1;
+        buf.ensureWritable(escapes);
+        buf.writerIndex(buf.writerIndex() + escapes);
+        int w = r + escapes;
+        // 读写位置重合时，之前的数据均无需转义
+        for (; r >= start && w > r; r--) {
+            byte b = buf.getByte(r);
+            if (b == FLAG) {
+                buf.setByte(w--, 0x02);
+                buf.setByte(w--, ESCAPE);
+            } else if (b == ESCAPE) {
+                buf.setByte(w--, 0x01);
+                buf.setByte(w--, ESCAPE);
+            } else {
+                buf.setByte(w--, b);
+            }
+        }
+    }
+
+    /**
+     * 还原转义，{@linkplain #encode(Jt808Message, ByteBuf)} 的逆过程，不校验 BCC 校验码
+     *
+     * @param escaped 转义后的帧，包括起始符和结束符，读写索引不变
+     * @return 新的缓冲区，包括起始符、BCC 校验码和结束符
+     * @throws CodecException 未知的转义
+     */
+    public static ByteBuf unescape(ByteBuf escaped) {
+        int end = escaped.writerIndex();
+        var frame = ALLOCATOR.buffer(escaped.readableBytes());
+        for (int i = escaped.readerIndex(); i < end; i++) {
+            byte b = escaped.getByte(i);
+            if (b == ESCAPE) {
+                byte next = ++i < end ? escaped.getByte(i) : 0;
+                if (next == 0x01) {
+                    b = ESCAPE;
+                } else if (next == 0x02) {
+                    b = FLAG;
+                } else {
+                    frame.release();
+                    throw new CodecException(String.format("未知的转义：0x7d%02x", next));
+                }
+            }
+            frame.writeByte(b);
+        }
+        return frame;
+    }
+
     @Override
     public final M decode(ProtocolDefinition protocolDefinition, ByteBuf buf) {
         try {
@@ -117,13 +225,109 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
         }
     }
 
+    /**
+     * 解码到对象池中的消息，使用完毕后应调用 {@linkplain Jt808Message#recycle()} 交还
+     *
+     * @see MessageRecycler
+     */
+    @Override
+    public final M decodePooled(ProtocolDefinition protocolDefinition, ByteBuf buf) {
+        M message = null;
+        try {
+            message = recyclers[Version.valueOf(protocolDefinition.getVersion()).ordinal()].get();
+            DECODER.decodeHeader(message, buf);
+            decodeBody(message, buf);
+            return message;
+        } catch (Exception e) {
+            if (message != null) {
+                message.recycle();
+            }
+            throw new CodecException(e);
+        }
+    }
+
+    /**
+     * 以视图方式解码：消息头立即解析，消息体由视图持有，不支持视图时退化为 {@linkplain #decode}
+     */
+    @Override
+    public final M decodeView(ProtocolDefinition protocolDefinition, ByteBuf buf) {
+        M message;
+        int bodyLen;
+        try {
+            var version = Version.valueOf(protocolDefinition.getVersion());
+            int readerIndex = buf.readerIndex();
+            int properties = buf.getUnsignedShort(readerIndex + 2);
+            int headerLen = getHeaderLength(version, properties);
+            bodyLen = properties & BODY_LENGTH_MASK;
+            if ((properties & PARTIAL_BIT) == 0) {
+                bodyLen = getBodyLength(bodyLen, buf.readableBytes() - headerLen);
+            }
+            message = createView(version, buf, readerIndex + headerLen, bodyLen);
+        } catch (Exception e) {
+            throw new CodecException(e);
+        }
+        if (message == null) {
+            return decode(protocolDefinition, buf);
+        }
+        try {
+            DECODER.decodeHeader(message, buf);
+            buf.skipBytes(bodyLen);
+            return message;
+        } catch (Exception e) {
+            ReferenceCountUtil.release(message);
+            throw new CodecException(e);
+        }
+    }
+
+    /**
+     * 获取消息头的字节长度
+     *
+     * @param version    协议版本
+     * @param properties 消息体属性
+     */
+    private static int getHeaderLength(Version version, int properties) {
+        int len = 4 + getTerminalPhoneNumLength(version) + 2;
+        if (version == Version.V2019) {
+            len += 1;
+        }
+        if ((properties & PARTIAL_BIT) != 0) {
+            len += 4;
+        }
+        return len;
+    }
+
+    /**
+     * 获取非分包消息的消息体长度。分包重组后的消息体可能超过消息体属性所能表示的 1023 字节，此时以帧中的实际长度为准
+     *
+     * @param bodyLen   消息体属性中的消息体长度
+     * @param remaining 消息头之后的字节数，包含校验码与结束符
+     */
+    private static int getBodyLength(int bodyLen, int remaining) {
+        int actual = remaining - 2;
+        return actual > BODY_LENGTH_MASK ? actual : bodyLen;
+    }
+
+    /**
+     * 获取终端手机号的字节长度
+     */
+    private static int getTerminalPhoneNumLength(Version version) {
+        return version == Version.V2019 ? 10 : 6;
+    }
+
     private static final class Encoder {
 
         private void encodeHeader(Jt808Message message, ByteBuf buf) {
             buf.writeShort(message.getType().getValue());
             buf.writeZero(2);           // 留空，等消息体编码后再进行编码
-            encodeVersion(message, buf);
-            encodeTerminalPhoneNum(message, buf);
+            var version = message.getVersion();
+            if (version == Version.V2019) {
+                buf.writeByte(1);       // 协议版本号
+            }
+            if (message.isTerminalPhoneOversized()) {
+                CodecUtils.writeBcd8421(buf, message.getTerminalPhoneNum(), getTerminalPhoneNumLength(version), "终端手机号");
+            } else {
+                CodecUtils.writeBcd8421(buf, message.getTerminalPhone(), getTerminalPhoneNumLength(version), "终端手机号");
+            }
             buf.writeShort(message.getSerialNum());
             if (message.isPartial()) {
                 buf.writeShort(message.getPackageTotal());
@@ -131,62 +335,31 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
             }
         }
 
-        private void encodeVersion(Jt808Message message, ByteBuf buf) {
-            var version = message.getVersion();
-            switch (version) {
-                case V2011:
-                case V2013:
-                    return;
-                case V2019:
-                    buf.writeByte(1);
-                    return;
-                default:
-                    throw new IllegalArgumentException("未适配的版本：" + version);
-            }
-        }
-
-        private void encodeTerminalPhoneNum(Jt808Message message, ByteBuf buf) {
-            var version = message.getVersion();
-            int limit;
-            switch (version) {
-                case V2011:
-                case V2013:
-                    limit = 6;
-                    break;
-                case V2019:
-                    limit = 10;
-                    break;
-                default:
-                    throw new IllegalArgumentException("未适配的版本：" + version);
+        /**
+         * 编码消息体属性：bit 0 ~ 9 为消息体长度，bit 10 ~ 12 为加密方式，bit 13 为分包标识，bit 14 为版本标识
+         */
+        private void encodeBodyProperties(Jt808Message message, ByteBuf buf, int headerIndex, int startIndex) {
+            int bodyLen = buf.writerIndex() - startIndex;
+            if (bodyLen > BODY_LENGTH_MASK) {
+                throw new IllegalArgumentException("消息体长度溢出：" + bodyLen + " 字节");
             }
-            byte[] bytes = CodecUtils.decimalToBcd8421(message.getTerminalPhoneNum());
-            CodecUtils.writeMaxLenBytesFillHead(buf, bytes, limit, 0, "终端手机号");
-        }
-
-        private void encodeBodyProperties(Jt808Message message, ByteBuf buf, int startIndex) {
-            var version = message.getVersion();
-            var sb = new StringBuilder(16)
-                    .append("0")
-                    .append(version == Version.V2011 || version == Version.V2013 ? "0" : "1")
-                    .append(message.isPartial() ? "1" : "0");
+            int properties = bodyLen;
             switch (message.getEncryption()) {
                 case NONE:
-                    sb.append("000");
                     break;
                 case RSA:
-                    sb.append("001");
+                    properties |= 0b001 << 10;
                     break;
                 case RESERVE:
-                    sb.append("010");
+                    properties |= 0b010 << 10;
             }
-            int bodyLen = buf.writerIndex() - startIndex;
-            if (bodyLen > 1024) {
-                throw new IllegalArgumentException("消息体长度溢出：" + bodyLen + " 字节");
+            if (message.isPartial()) {
+                properties |= PARTIAL_BIT;
             }
-            String bin = Integer.toBinaryString(bodyLen);
-            sb.append(StrUtils.zerofill(bin, 10));
-            int i = Integer.parseInt(sb.toString(), 2);
-            buf.setShort(3, i);
+            if (message.getVersion() == Version.V2019) {
+                properties |= VERSION_BIT;
+            }
+            buf.setShort(headerIndex + 2, properties);
         }
     }
 
@@ -195,61 +368,47 @@ public abstract class AbstractCodec<M extends Jt808Message> implements Codec<Pro
         private void decodeHeader(Jt808Message message, ByteBuf buf) {
             buf.skipBytes(2);
             decodeBodyProperties(message, buf);
-            decodeVersion(message, buf);
-            decodeTerminalPhoneNum(message, buf);
+            var version = message.getVersion();
+            if (version == Version.V2019) {
+                decodeVersion(buf);
+            }
+            int len = getTerminalPhoneNumLength(version);
+            long terminalPhone = CodecUtils.getBcd8421(buf, buf.readerIndex(), len, Jt808Message.OVERSIZED_TERMINAL_PHONE);
+            if (terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+                // 2019 版本的终端手机号最多 20 位，超出 long 的表示范围时只保留字符串形式
+                message.setTerminalPhoneNum(CodecUtils.getBcd8421String(buf, buf.readerIndex(), len));
+            } else {
+                message.setTerminalPhone(terminalPhone);
+            }
+            buf.skipBytes(len);
             message.setSerialNum(buf.readUnsignedShort());
             if (message.isPartial()) {
                 message.setPackageTotal(buf.readUnsignedShort());
                 message.setPackageNum(buf.readUnsignedShort());
+            } else {
+                message.setBodyLength(getBodyLength(message.getBodyLength(), buf.readableBytes()));
             }
         }
 
         private void decodeBodyProperties(Jt808Message message, ByteBuf buf) {
-            String bin = Integer.toBinaryString(buf.readUnsignedShort());
-            bin = StrUtils.zerofill(bin, 16);
-            message.setBodyLength(Integer.parseInt(bin.substring(6), 2));
-            String subStr = bin.substring(3, 6);
-            if (subStr.equals("000")) {
+            int properties = buf.readUnsignedShort();
+            message.setBodyLength(properties & BODY_LENGTH_MASK);
+            int encryption = properties >>> 10 & 0b111;
+            if (encryption == 0b000) {
                 message.setEncryption(Jt808Message.Encryption.NONE);
-            } else if (subStr.equals("001")) {
+            } else if (encryption == 0b001) {
                 message.setEncryption(Jt808Message.Encryption.RSA);
             } else {
                 message.setEncryption(Jt808Message.Encryption.RESERVE);
             }
-            subStr = bin.substring(2, 3);
-            message.setPartial(subStr.equals("1"));
+            message.setPartial((properties & PARTIAL_BIT) != 0);
         }
 
-        private void decodeVersion(Jt808Message message, ByteBuf buf) {
-            var version = message.getVersion();
-            int ordinal = version.ordinal();
-            if (ordinal < Version.V2019.ordinal()) {
-                return;
-            }
-            int n = buf.readUnsignedByte() + 1;
-            if (ordinal != n) {
-                throw new CodecException(String.format("协议版本号不匹配，期望：%s，实际：%s", version, Version.valueOf(ordinal)));
-            }
-        }
-
-        private void decodeTerminalPhoneNum(Jt808Message message, ByteBuf buf) {
-            var version = message.getVersion();
-            int len;
-            switch (version) {
-                case V2011:
-                case V2013:
-                    len = 6;
-                    break;
-                case V2019:
-                    len = 10;
-                    break;
-                default:
-                    throw new IllegalArgumentException("未知的版本：" + version);
+        private void decodeVersion(ByteBuf buf) {
+            int protocolVersion = buf.readUnsignedByte();
+            if (protocolVersion != 1) {
+                throw new CodecException(String.format("协议版本号不匹配，期望：%d，实际：%d", 1, protocolVersion));
             }
-            byte[] bytes = new byte[len];
-            buf.readBytes(bytes);
-            String terminalPhoneNum = CodecUtils.bcd8421ToDecimal(bytes).trim().replaceFirst("^0*", "");
-            message.setTerminalPhoneNum(terminalPhoneNum);
         }
     }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationBatchUploadMessage;
+import cn.linliangjun.its.jt808.protocol.message.view.LocationBatchUploadMessageView;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+/**
+ * 定位数据批量上传编解码器，解码时只复制并校验数据项，数据项在遍历时才解析
+ *
+ * @author linliangjun
+ * @see LocationBatchUploadMessage#spliterator(cn.linliangjun.its.jt808.protocol.message.LocationReportMessage)
+ */
+public class LocationBatchUploadMessageCodec extends AbstractCodec<LocationBatchUploadMessage> {
+
+    /**
+     * 数据项个数（WORD）与位置数据类型（BYTE）的字节长度
+     */
+    public static final int HEADER_LENGTH = 3;
+
+    @Override
+    protected void encodeBody(LocationBatchUploadMessage message, ByteBuf buf) {
+        var dataType = message.getDataType();
+        if (dataType == null) {
+            throw new CodecException("位置数据类型为 null");
+        }
+        if (message.getCount() > 0xffff) {
+            throw new CodecException("数据项个数超过 65535：" + message.getCount());
+        }
+        buf.writeShort(message.getCount());
+        buf.writeByte(dataType.getValue());
+        buf.writeBytes(message.getEntries());
+    }
+
+    @Override
+    protected LocationBatchUploadMessage getMessageTemplate(Version version) {
+        return new LocationBatchUploadMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(LocationBatchUploadMessage message, ByteBuf buf) {
+        int bodyLength = message.getBodyLength();
+        if (bodyLength < HEADER_LENGTH) {
+            throw new CodecException(String.format("消息体长度过短：%d < %d", bodyLength, HEADER_LENGTH));
+        }
+        int count = buf.readUnsignedShort();
+        message.setDataType(getDataType(buf.readUnsignedByte()));
+        message.copyEntries(count, buf, bodyLength - HEADER_LENGTH);
+    }
+
+    @Override
+    protected LocationBatchUploadMessage createView(Version version, ByteBuf frame, int index, int len) {
+        return new LocationBatchUploadMessageView(version, frame, index, len);
+    }
+
+    /**
+     * 获取位置数据类型
+     *
+     * @throws CodecException 未知的位置数据类型
+     */
+    public static LocationBatchUploadMessage.DataType getDataType(int value) {
+        var dataType = LocationBatchUploadMessage.DataType.getInstance(value);
+        if (dataType == null) {
+            throw new CodecException("未知的位置数据类型：" + value);
+        }
+        return dataType;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationAdditionalInfo;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.view.LocationReportMessageView;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 位置信息汇报编解码器，各版本的位置基本信息格式相同
+ *
+ * @author linliangjun
+ */
+public class LocationReportMessageCodec extends AbstractCodec<LocationReportMessage> {
+
+    /**
+     * 位置基本信息的字节长度
+     */
+    public static final int BASIC_INFO_LENGTH = 28;
+
+    /**
+     * 终端上报的时间为 GMT+8 时间
+     */
+    private static final long ZONE_OFFSET_MILLIS = TimeUnit.HOURS.toMillis(8);
+
+    @Override
+    protected void encodeBody(LocationReportMessage message, ByteBuf buf) {
+        writeBody(message, buf);
+    }
+
+    @Override
+    protected LocationReportMessage getMessageTemplate(Version version) {
+        return new LocationReportMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(LocationReportMessage message, ByteBuf buf) {
+        readBody(message, buf);
+    }
+
+    /**
+     * 写入位置基本信息与附加信息，定位数据批量上传中的位置汇报数据体与此相同
+     */
+    public static void writeBody(LocationReportMessage message, ByteBuf buf) {
+        writeBasicInfo(message, buf);
+        message.getAdditionalInfo().writeTo(buf);
+    }
+
+    /**
+     * 写入位置基本信息
+     */
+    public static void writeBasicInfo(LocationReportMessage message, ByteBuf buf) {
+        buf.writeInt(message.getAlarmFlags());
+        buf.writeInt(message.getStatus());
+        buf.writeInt(message.getLatitude());
+        buf.writeInt(message.getLongitude());
+        buf.writeShort(message.getAltitude());
+        buf.writeShort(message.getSpeed());
+        buf.writeShort(message.getDirection());
+        writeTime(buf, message.getTime());
+    }
+
+    /**
+     * 读取位置基本信息与附加信息，长度为 {@code message} 的消息体长度，定位数据批量上传中的位置汇报数据体与此相同
+     *
+     * @throws CodecException 消息体长度不足位置基本信息的长度
+     */
+    public static void readBody(LocationReportMessage message, ByteBuf buf) {
+        int bodyLength = message.getBodyLength();
+        if (bodyLength < BASIC_INFO_LENGTH) {
+            throw new CodecException(String.format("消息体长度过短：%d < %d", bodyLength, BASIC_INFO_LENGTH));
+        }
+        getBasicInfo(message, buf, buf.readerIndex());
+        buf.skipBytes(BASIC_INFO_LENGTH);
+        // 附加信息只建立索引，不逐项解析
+        if (bodyLength > BASIC_INFO_LENGTH) {
+            message.getAdditionalInfo().copyFrom(buf, bodyLength - BASIC_INFO_LENGTH);
+        } else {
+            message.getAdditionalInfo().clear();
+        }
+    }
+
+    /**
+     * 获取 {@code index} 处的位置基本信息，不会改变读索引
+     */
+    public static void getBasicInfo(LocationReportMessage message, ByteBuf buf, int index) {
+        message.setAlarmFlags(buf.getInt(index));
+        message.setStatus(buf.getInt(index + 4));
+        message.setLatitude(buf.getInt(index + 8));
+        message.setLongitude(buf.getInt(index + 12));
+        message.setAltitude(buf.getUnsignedShort(index + 16));
+        message.setSpeed(buf.getUnsignedShort(index + 18));
+        message.setDirection(buf.getUnsignedShort(index + 20));
+        message.setTime(getTime(buf, index + 22));
+    }
+
+    @Override
+    protected LocationReportMessage createView(Version version, ByteBuf frame, int index, int len) {
+        if (len < BASIC_INFO_LENGTH) {
+            throw new CodecException(String.format("消息体长度过短：%d < %d", len, BASIC_INFO_LENGTH));
+        }
+        // 视图的字段在访问时才读取，这里先做立即解码时会做的检查，使各解码方式接受与拒绝相同的帧
+        if (len - BASIC_INFO_LENGTH > LocationAdditionalInfo.MAX_LENGTH) {
+            throw new CodecException("附加信息过长：" + (len - BASIC_INFO_LENGTH) + " 字节");
+        }
+        getTime(frame, index + 22);
+        return new LocationReportMessageView(version, frame, index, len);
+    }
+
+    /**
+     * 获取 {@code index} 处 BCD[6] 格式的时间，全 0 时返回 0，不会改变读索引
+     */
+    public static long getTime(ByteBuf buf, int index) {
+        if (buf.getShort(index) == 0 && buf.getInt(index + 2) == 0) {
+            return 0;
+        }
+        return CodecUtils.getBcdDateTime(buf, index, ZONE_OFFSET_MILLIS);
+    }
+
+    /**
+     * 写入 BCD[6] 格式的时间，时间戳为 0 时写入全 0
+     */
+    static void writeTime(ByteBuf buf, long time) {
+        if (time == 0) {
+            buf.writeZero(6);
+        } else {
+            CodecUtils.writeBcdDateTime(buf, time, ZONE_OFFSET_MILLIS, "时间");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadMessage;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec.BASIC_INFO_LENGTH;
+
+/**
+ * 多媒体数据上传编解码器，只编解码第一包中多媒体数据包之前的字段，解码时跳过多媒体数据包
+ *
+ * @author linliangjun
+ */
+public class MultimediaDataUploadMessageCodec extends AbstractCodec<MultimediaDataUploadMessage> {
+
+    /**
+     * 获取第一包中多媒体数据包之前的字段的字节长度，2011 版本没有位置信息汇报消息体
+     */
+    public static int getHeaderLength(Version version) {
+        return version == Version.V2011 ? 8 : 8 + BASIC_INFO_LENGTH;
+    }
+
+    @Override
+    protected void encodeBody(MultimediaDataUploadMessage message, ByteBuf buf) {
+        buf.writeInt((int) message.getMediaId());
+        buf.writeByte(message.getMediaType());
+        buf.writeByte(message.getFormatCode());
+        buf.writeByte(message.getEventCode());
+        buf.writeByte(message.getChannelId());
+        if (message.getVersion() != Version.V2011) {
+            var location = message.getLocation();
+            if (location == null) {
+                buf.writeZero(BASIC_INFO_LENGTH);
+            } else {
+                LocationReportMessageCodec.writeBasicInfo(location, buf);
+            }
+        }
+    }
+
+    @Override
+    protected MultimediaDataUploadMessage getMessageTemplate(Version version) {
+        return new MultimediaDataUploadMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(MultimediaDataUploadMessage message, ByteBuf buf) {
+        var version = message.getVersion();
+        int headerLength = getHeaderLength(version);
+        int bodyLength = message.getBodyLength();
+        if (bodyLength < headerLength) {
+            throw new CodecException(String.format("消息体长度过短：%d < %d", bodyLength, headerLength));
+        }
+        message.setMediaId(buf.readUnsignedInt());
+        message.setMediaType(buf.readUnsignedByte());
+        message.setFormatCode(buf.readUnsignedByte());
+        message.setEventCode(buf.readUnsignedByte());
+        message.setChannelId(buf.readUnsignedByte());
+        if (version != Version.V2011) {
+            var location = new LocationReportMessage(version);
+            location.setBodyLength(BASIC_INFO_LENGTH);
+            LocationReportMessageCodec.getBasicInfo(location, buf, buf.readerIndex());
+            buf.skipBytes(BASIC_INFO_LENGTH);
+            message.setLocation(location);
+        }
+        // 多媒体数据包不经过编解码器
+        message.setDataLength(bodyLength - headerLength);
+        buf.skipBytes(bodyLength - headerLength);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadRespMessage;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class MultimediaDataUploadRespMessageCodec extends AbstractCodec<MultimediaDataUploadRespMessage> {
+
+    @Override
+    protected void encodeBody(MultimediaDataUploadRespMessage message, ByteBuf buf) {
+        buf.writeInt(message.getMediaId().intValue());
+        var packageIds = message.getPackageIds();
+        if (packageIds == null || packageIds.isEmpty()) {
+            // 已收到全部数据包，没有后续字段
+            return;
+        }
+        if (packageIds.size() > 255) {
+            throw new CodecException("重传包总数超过 255：" + packageIds.size());
+        }
+        buf.writeByte(packageIds.size());
+        for (var packageId : packageIds) {
+            buf.writeShort(packageId);
+        }
+    }
+
+    @Override
+    protected MultimediaDataUploadRespMessage getMessageTemplate(Version version) {
+        return new MultimediaDataUploadRespMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(MultimediaDataUploadRespMessage message, ByteBuf buf) {
+        message.setMediaId(buf.readUnsignedInt());
+        if (message.getBodyLength() == 4) {
+            message.setPackageIds(Collections.emptyList());
+            return;
+        }
+        int count = buf.readUnsignedByte();
+        var packageIds = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            packageIds.add(buf.readUnsignedShort());
+        }
+        message.setPackageIds(packageIds);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.PlatformRetransmitRequestMessage;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import java.util.ArrayList;
+
+public class PlatformRetransmitRequestMessageCodec extends AbstractCodec<PlatformRetransmitRequestMessage> {
+
+    @Override
+    protected void encodeBody(PlatformRetransmitRequestMessage message, ByteBuf buf) {
+        buf.writeShort(message.getOriginalSerialNum());
+        var packageNums = message.getPackageNums();
+        // 重传包总数，2013 版本为 BYTE，2019 版本为 WORD
+        if (message.getVersion() == Version.V2019) {
+            buf.writeShort(packageNums.size());
+        } else {
+            if (packageNums.size() > 255) {
+                throw new CodecException("重传包总数超过 255：" + packageNums.size());
+            }
+            buf.writeByte(packageNums.size());
+        }
+        for (var packageNum : packageNums) {
+            buf.writeShort(packageNum);
+        }
+    }
+
+    @Override
+    protected PlatformRetransmitRequestMessage getMessageTemplate(Version version) {
+        return new PlatformRetransmitRequestMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(PlatformRetransmitRequestMessage message, ByteBuf buf) {
+        message.setOriginalSerialNum(buf.readUnsignedShort());
+        int count = message.getVersion() == Version.V2019 ? buf.readUnsignedShort() : buf.readUnsignedByte();
+        var packageNums = new ArrayList<Integer>(count);
+        for (int i = 0; i < count; i++) {
+            packageNums.add(buf.readUnsignedShort());
+        }
+        message.setPackageNums(packageNums);
+    }
+}
@@ -24,6 +24,8 @@ import lombok.var;
 
 import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2011_2013;
 import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+import static cn.linliangjun.its.jt808.protocol.message.view.TerminalAuthMessageView.TerminalAuthMessageView_2011_2013;
+import static cn.linliangjun.its.jt808.protocol.message.view.TerminalAuthMessageView.TerminalAuthMessageView_2019;
 import static java.nio.charset.StandardCharsets.US_ASCII;
 
 public class TerminalAuthMessageCodec extends AbstractCodec<TerminalAuthMessage> {
@@ -76,6 +78,14 @@ public class TerminalAuthMessageCodec extends AbstractCodec<TerminalAuthMessage>
         }
     }
 
+    @Override
+    protected TerminalAuthMessage createView(Version version, ByteBuf frame, int index, int len) {
+        if (version == Version.V2019) {
+            return new TerminalAuthMessageView_2019(frame, index, len);
+        }
+        return new TerminalAuthMessageView_2011_2013(version, frame, index, len);
+    }
+
     @Override
     protected void decodeBody(TerminalAuthMessage message, ByteBuf buf) {
         var version = message.getVersion();
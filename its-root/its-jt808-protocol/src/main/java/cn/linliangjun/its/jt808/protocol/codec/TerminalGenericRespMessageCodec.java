@@ -0,0 +1,44 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.TerminalGenericRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBuf;
+
+public class TerminalGenericRespMessageCodec extends AbstractCodec<TerminalGenericRespMessage> {
+
+    @Override
+    protected void encodeBody(TerminalGenericRespMessage message, ByteBuf buf) {
+        buf.writeShort(message.getRespSerialNum());
+        buf.writeShort(message.getRespType().getValue());
+        buf.writeByte(message.getResult().getValue());
+    }
+
+    @Override
+    protected TerminalGenericRespMessage getMessageTemplate(Version version) {
+        return new TerminalGenericRespMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(TerminalGenericRespMessage message, ByteBuf buf) {
+        message.setRespSerialNum(buf.readUnsignedShort());
+        message.setRespType(Type.getType(buf.readUnsignedShort()));
+        message.setResult(TerminalGenericRespMessage.Result.getInstance(buf.readByte()));
+    }
+}
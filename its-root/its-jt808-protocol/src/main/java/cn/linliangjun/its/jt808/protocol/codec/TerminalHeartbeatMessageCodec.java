@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.TerminalHeartbeatMessage;
+import io.netty.buffer.ByteBuf;
+
+public class TerminalHeartbeatMessageCodec extends AbstractCodec<TerminalHeartbeatMessage> {
+
+    @Override
+    protected void encodeBody(TerminalHeartbeatMessage message, ByteBuf buf) {
+    }
+
+    @Override
+    protected TerminalHeartbeatMessage getMessageTemplate(Version version) {
+        return new TerminalHeartbeatMessage(version);
+    }
+
+    @Override
+    protected void decodeBody(TerminalHeartbeatMessage message, ByteBuf buf) {
+    }
+}
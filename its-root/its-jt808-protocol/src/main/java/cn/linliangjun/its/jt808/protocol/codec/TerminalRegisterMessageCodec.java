@@ -25,6 +25,7 @@ import lombok.var;
 
 import static cn.linliangjun.its.jt808.protocol.message.LicensePlateColor.*;
 import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.*;
+import static cn.linliangjun.its.jt808.protocol.message.view.TerminalRegisterMessageView.*;
 import static java.nio.charset.StandardCharsets.*;
 
 public class TerminalRegisterMessageCodec extends AbstractCodec<TerminalRegisterMessage> {
@@ -103,6 +104,14 @@ public class TerminalRegisterMessageCodec extends AbstractCodec<TerminalRegister
         }
     }
 
+    @Override
+    protected TerminalRegisterMessage createView(Version version, ByteBuf frame, int index, int len) {
+        if (version == Version.V2011) {
+            return new TerminalRegisterMessageView_2011(frame, index, len);
+        }
+        return new TerminalRegisterMessageView_2013_2019(version, frame, index, len);
+    }
+
     @Override
     protected void decodeBody(TerminalRegisterMessage message, ByteBuf buf) {
         var version = message.getVersion();
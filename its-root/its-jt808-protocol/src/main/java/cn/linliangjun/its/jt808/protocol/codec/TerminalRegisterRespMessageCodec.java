@@ -36,7 +36,7 @@ public class TerminalRegisterRespMessageCodec extends AbstractCodec<TerminalRegi
 
     @Override
     protected void decodeBody(TerminalRegisterRespMessage message, ByteBuf buf) {
-        message.setSerialNum(buf.readUnsignedShort());
+        message.setRespSerialNum(buf.readUnsignedShort());
         message.setResult(TerminalRegisterRespMessage.Result.getInstance(buf.readByte()));
         message.setAuthKey(buf.readCharSequence(message.getBodyLength() - 3, GBK).toString());
     }
@@ -17,9 +17,13 @@
 package cn.linliangjun.its.jt808.protocol.message;
 
 import cn.linliangjun.its.jt808.protocol.Version;
+import io.netty.util.Recycler;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import lombok.var;
 
 import java.util.StringJoiner;
 
@@ -44,7 +48,7 @@ public abstract class Jt808Message {
     /**
      * 消息体长度
      */
-    private Integer bodyLength;
+    private int bodyLength;
 
     /**
      * 加密方式
@@ -57,24 +61,140 @@ public abstract class Jt808Message {
     private boolean partial;
 
     /**
-     * 终端手机号
+     * 终端手机号（数值形式，不保留前导 0），超出 {@code long} 的表示范围时为 {@linkplain #OVERSIZED_TERMINAL_PHONE}
      */
+    private long terminalPhone;
+
+    /**
+     * 终端手机号（字符串形式），首次调用 {@linkplain #getTerminalPhoneNum()} 时才根据 {@linkplain #terminalPhone} 生成；
+     * 终端手机号超出 {@code long} 的表示范围时，该字段是终端手机号的唯一表示
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
     private String terminalPhoneNum;
 
     /**
      * 消息流水号
      */
-    private Integer serialNum;
+    private int serialNum;
+
+    /**
+     * 消息包总数，当 {@linkplain #partial 分包标识} 为 {@code false} 时，该字段为 0
+     */
+    private int packageTotal;
+
+    /**
+     * 消息包序号，当 {@linkplain #partial 分包标识} 为 {@code false} 时，该字段为 0
+     */
+    private int packageNum;
+
+    /**
+     * 对象池句柄，仅由 {@linkplain MessageRecycler} 创建的消息持有
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    Recycler.Handle<Jt808Message> recyclerHandle;
+
+    /**
+     * 终端手机号超出 {@code long} 的表示范围（2019 版本的终端手机号最多 20 位）时的数值形式，此时只能使用 {@linkplain #getTerminalPhoneNum()}
+     */
+    public static final long OVERSIZED_TERMINAL_PHONE = -2;
+
+    public void setTerminalPhone(long terminalPhone) {
+        if (terminalPhone < 0) {
+            throw new IllegalArgumentException("终端手机号不能为负数：" + terminalPhone);
+        }
+        this.terminalPhone = terminalPhone;
+        this.terminalPhoneNum = null;
+    }
+
+    /**
+     * 获取终端手机号（字符串形式）
+     *
+     * @apiNote 只关心终端手机号数值的场景，应使用 {@linkplain #getTerminalPhone()}，以免创建字符串
+     */
+    public String getTerminalPhoneNum() {
+        if (terminalPhoneNum == null) {
+            terminalPhoneNum = Long.toString(terminalPhone);
+        }
+        return terminalPhoneNum;
+    }
+
+    /**
+     * 设置终端手机号（字符串形式），超出 {@code long} 的表示范围时，数值形式为 {@linkplain #OVERSIZED_TERMINAL_PHONE}
+     *
+     * @throws NumberFormatException 非十进制字符串
+     */
+    public void setTerminalPhoneNum(@NonNull String terminalPhoneNum) {
+        if (terminalPhoneNum.isEmpty()) {
+            throw new NumberFormatException("非法的终端手机号：" + terminalPhoneNum);
+        }
+        long terminalPhone = 0;
+        int start = -1;
+        for (int i = 0; i < terminalPhoneNum.length(); i++) {
+            int n = terminalPhoneNum.charAt(i) - '0';
+            if (n < 0 || n > 9) {
+                throw new NumberFormatException("非法的终端手机号：" + terminalPhoneNum);
+            }
+            if (start < 0 && n != 0) {
+                start = i;
+            }
+            if (terminalPhone >= 0) {
+                terminalPhone = terminalPhone > (Long.MAX_VALUE - n) / 10 ? OVERSIZED_TERMINAL_PHONE : terminalPhone * 10 + n;
+            }
+        }
+        this.terminalPhone = terminalPhone;
+        // 与数值形式保持一致，不保留前导 0
+        this.terminalPhoneNum = start < 0 ? "0" : terminalPhoneNum.substring(start);
+    }
 
     /**
-     * 消息包总数，当 {@linkplain #partial 分包标识} 为 {@code false} 时，该字段为 {@code null}
+     * 终端手机号是否超出 {@code long} 的表示范围
      */
-    private Integer packageTotal;
+    public boolean isTerminalPhoneOversized() {
+        return terminalPhone == OVERSIZED_TERMINAL_PHONE;
+    }
 
     /**
-     * 消息包序号，当 {@linkplain #partial 分包标识} 为 {@code false} 时，该字段为 {@code null}
+     * 复制另一条消息的终端手机号（数值形式与字符串形式）
+     *
+     * @param source 源消息
      */
-    private Integer packageNum;
+    public void copyTerminalPhoneFrom(@NonNull Jt808Message source) {
+        this.terminalPhone = source.terminalPhone;
+        this.terminalPhoneNum = source.terminalPhoneNum;
+    }
+
+    /**
+     * 将消息交还对象池，非池化的消息调用该方法无任何作用
+     *
+     * @return 是否交还对象池
+     * @apiNote 交还后消息会被重置并复用，调用方不能再持有该消息
+     * @see MessageRecycler
+     */
+    public final boolean recycle() {
+        var handle = recyclerHandle;
+        if (handle == null) {
+            return false;
+        }
+        reset();
+        handle.recycle(this);
+        return true;
+    }
+
+    /**
+     * 重置消息头，交还对象池前调用。子类应覆盖该方法并重置消息体字段
+     */
+    protected void reset() {
+        bodyLength = 0;
+        encryption = null;
+        partial = false;
+        terminalPhone = 0;
+        terminalPhoneNum = null;
+        serialNum = 0;
+        packageTotal = 0;
+        packageNum = 0;
+    }
 
     /**
      * 获取（消息体）描述
@@ -90,7 +210,7 @@ public abstract class Jt808Message {
                 .add("version=" + version)
                 .add("bodyLength=" + bodyLength)
                 .add("encryption=" + encryption)
-                .add("terminalPhoneNum=\"" + terminalPhoneNum + '"')
+                .add("terminalPhoneNum=\"" + getTerminalPhoneNum() + '"')
                 .add("serialNum=" + serialNum)
                 .add("partial=" + partial + (partial ? ", packageTotal=" + packageTotal + ", packageNum=" + packageNum : ""))
                 .toString();
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.var;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * 位置附加信息，由若干附加信息项（附加信息 ID：BYTE，附加信息长度：BYTE，附加信息：BYTE[n]）组成
+ *
+ * <p>附加信息不会逐项解析成对象，而是在消息体上建立紧凑的偏移索引：每一项对应 {@code int} 数组中的一个元素，
+ * 依次为附加信息 ID（8 位）、附加信息相对附加信息起始位置的偏移（16 位）、附加信息长度（8 位）。各项的值在访问时才从消息体读取，
+ * 未知的附加信息（例如厂商自定义的附加信息）只占一个索引元素。
+ * 同一 ID 出现多次时，以第一次出现的为准；最后一项不完整时，忽略该项
+ *
+ * <p>本对象不持有消息体的引用计数：消息视图中的附加信息索引建立在视图持有的消息体切片上，随视图释放；
+ * 其他解码方式下，附加信息复制到本对象自有的缓冲区，对象池中的消息会复用该缓冲区与索引数组
+ *
+ * @author linliangjun
+ */
+public final class LocationAdditionalInfo {
+
+    /**
+     * 里程，DWORD，1/10 km，对应车上里程表读数
+     */
+    public static final int MILEAGE = 0x01;
+
+    /**
+     * 油量，WORD，1/10 L，对应车上油量表读数
+     */
+    public static final int FUEL = 0x02;
+
+    /**
+     * 行驶记录功能获取的速度，WORD，1/10 km/h
+     */
+    public static final int RECORDER_SPEED = 0x03;
+
+    /**
+     * 需要人工确认报警事件的 ID，WORD，从 1 开始计数
+     */
+    public static final int ALARM_EVENT_ID = 0x04;
+
+    /**
+     * 扩展车辆信号状态位，DWORD
+     */
+    public static final int EXTENDED_VEHICLE_SIGNAL_STATUS = 0x25;
+
+    /**
+     * IO 状态位，WORD
+     */
+    public static final int IO_STATUS = 0x2a;
+
+    /**
+     * 模拟量，DWORD，bit 0 ~ 15 为 AD0，bit 16 ~ 31 为 AD1
+     */
+    public static final int ANALOG = 0x2b;
+
+    /**
+     * 无线通信网络信号强度，BYTE
+     */
+    public static final int SIGNAL_STRENGTH = 0x30;
+
+    /**
+     * GNSS 定位卫星数，BYTE
+     */
+    public static final int SATELLITE_COUNT = 0x31;
+
+    /**
+     * 附加信息的最大总长度，偏移在索引元素中只占 16 位
+     */
+    public static final int MAX_LENGTH = 0xffff;
+
+    /**
+     * 附加信息所在的缓冲区，未建立索引时为 {@code null}
+     */
+    private ByteBuf data;
+
+    /**
+     * 附加信息在 {@linkplain #data} 中的起始位置
+     */
+    private int base;
+
+    /**
+     * 附加信息索引
+     */
+    private int[] index = new int[8];
+
+    /**
+     * 附加信息项数
+     */
+    private int size;
+
+    /**
+     * 自有缓冲区，首次复制附加信息时创建
+     */
+    private ByteBuf copy;
+
+    /**
+     * 在 {@code buf} 上建立索引，不会复制数据，也不会改变 {@code buf} 的读写索引
+     *
+     * @param buf    消息体
+     * @param offset 附加信息在 {@code buf} 中的位置
+     * @param len    附加信息的总长度
+     */
+    public void index(ByteBuf buf, int offset, int len) {
+        if (len > MAX_LENGTH) {
+            throw new IllegalArgumentException("附加信息过长：" + len + " 字节");
+        }
+        data = buf;
+        base = offset;
+        size = 0;
+        int i = 0;
+        while (i + 2 <= len) {
+            int id = buf.getUnsignedByte(offset + i);
+            int itemLen = buf.getUnsignedByte(offset + i + 1);
+            if (i + 2 + itemLen > len) {
+                break;
+            }
+            if (size == index.length) {
+                index = Arrays.copyOf(index, size << 1);
+            }
+            index[size++] = id << 24 | (i + 2) << 8 | itemLen;
+            i += 2 + itemLen;
+        }
+    }
+
+    /**
+     * 从 {@code buf} 的读索引处读取 {@code len} 字节的附加信息到自有缓冲区，并建立索引
+     *
+     * @param buf 字节缓冲区，读索引前进 {@code len}
+     * @param len 附加信息的总长度
+     */
+    public void copyFrom(ByteBuf buf, int len) {
+        var copy = this.copy;
+        if (copy == null) {
+            copy = this.copy = Unpooled.buffer(len);
+        }
+        copy.clear().writeBytes(buf, len);
+        index(copy, 0, len);
+    }
+
+    /**
+     * 将附加信息原样写入 {@code buf}
+     */
+    public void writeTo(ByteBuf buf) {
+        if (size > 0) {
+            int start = getOffset(index[0]);
+            int end = getOffset(index[size - 1]) + (index[size - 1] & 0xff);
+            buf.writeBytes(data, start - 2, end - start + 2);
+        }
+    }
+
+    /**
+     * 清空索引，保留索引数组与自有缓冲区以便复用
+     */
+    public void clear() {
+        data = null;
+        base = 0;
+        size = 0;
+        if (copy != null) {
+            copy.clear();
+        }
+    }
+
+    /**
+     * 获取附加信息项数，包括未知的附加信息
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 获取第 {@code i} 项附加信息的 ID
+     */
+    public int getId(int i) {
+        if (i >= size) {
+            throw new IndexOutOfBoundsException("index: " + i + ", size: " + size);
+        }
+        return index[i] >>> 24;
+    }
+
+    /**
+     * 是否包含指定 ID 的附加信息
+     */
+    public boolean contains(int id) {
+        return find(id) >= 0;
+    }
+
+    /**
+     * 获取附加信息的长度
+     *
+     * @param id 附加信息 ID
+     * @return 附加信息的长度，不存在时返回 -1
+     */
+    public int getLength(int id) {
+        int i = find(id);
+        return i < 0 ? -1 : index[i] & 0xff;
+    }
+
+    /**
+     * 获取附加信息的切片，用于解析未内置的附加信息
+     *
+     * @param id 附加信息 ID
+     * @return 附加信息切片，不会增加引用计数，不存在时返回 {@code null}
+     */
+    public ByteBuf getValue(int id) {
+        int i = find(id);
+        return i < 0 ? null : data.slice(getOffset(index[i]), index[i] & 0xff);
+    }
+
+    /**
+     * 将附加信息按大端无符号整数读取，长度为 1、2、4 字节
+     *
+     * @param id           附加信息 ID
+     * @param defaultValue 附加信息不存在或长度不符时返回的值
+     */
+    public long getUnsigned(int id, long defaultValue) {
+        int i = find(id);
+        if (i < 0) {
+            return defaultValue;
+        }
+        int offset = getOffset(index[i]);
+        switch (index[i] & 0xff) {
+            case 1:
+                return data.getUnsignedByte(offset);
+            case 2:
+                return data.getUnsignedShort(offset);
+            case 4:
+                return data.getUnsignedInt(offset);
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * 获取里程，单位为 1/10 km，不存在时返回 -1
+     */
+    public long getMileage() {
+        return getUnsigned(MILEAGE, -1);
+    }
+
+    /**
+     * 获取油量，单位为 1/10 L，不存在时返回 -1
+     */
+    public int getFuel() {
+        return (int) getUnsigned(FUEL, -1);
+    }
+
+    /**
+     * 获取行驶记录功能获取的速度，单位为 1/10 km/h，不存在时返回 -1
+     */
+    public int getRecorderSpeed() {
+        return (int) getUnsigned(RECORDER_SPEED, -1);
+    }
+
+    /**
+     * 获取无线通信网络信号强度，不存在时返回 -1
+     */
+    public int getSignalStrength() {
+        return (int) getUnsigned(SIGNAL_STRENGTH, -1);
+    }
+
+    /**
+     * 获取 GNSS 定位卫星数，不存在时返回 -1
+     */
+    public int getSatelliteCount() {
+        return (int) getUnsigned(SATELLITE_COUNT, -1);
+    }
+
+    private int find(int id) {
+        var index = this.index;
+        for (int i = 0; i < size; i++) {
+            if (index[i] >>> 24 == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int getOffset(int entry) {
+        return base + (entry >>> 8 & 0xffff);
+    }
+
+    @Override
+    public String toString() {
+        var joiner = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < size; i++) {
+            joiner.add(String.format("%#04x(%d)", index[i] >>> 24, index[i] & 0xff));
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.LocationBatchUploadMessageCodec;
+import cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.var;
+
+import java.util.Spliterator;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+import static cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec.BASIC_INFO_LENGTH;
+
+/**
+ * JT/T 808 消息——定位数据批量上传，2011 版本无此消息
+ *
+ * <p>解码时只校验各数据项的长度，不会逐项创建位置信息汇报消息；数据项在遍历时才逐个解析，见 {@linkplain #spliterator(LocationReportMessage)}。
+ * 遍历时可以传入一个复用的位置信息汇报消息，每个数据项都解析到该消息中，整个遍历过程不产生新的对象
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2013", "V2019"})
+@Message(id = 0x0704, name = "定位数据批量上传", codecClass = LocationBatchUploadMessageCodec.class)
+public class LocationBatchUploadMessage extends Jt808Message {
+
+    /**
+     * 数据项个数
+     */
+    @Setter(AccessLevel.NONE)
+    private int count;
+
+    /**
+     * 位置数据类型
+     */
+    private DataType dataType;
+
+    /**
+     * 数据项所在的缓冲区，每个数据项依次为位置汇报数据体长度（WORD）与位置汇报数据体，没有数据项时为 {@code null}
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ByteBuf data;
+
+    /**
+     * 数据项在 {@linkplain #data} 中的位置
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int dataIndex;
+
+    /**
+     * 数据项的总长度
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int dataLength;
+
+    /**
+     * 自有缓冲区，首次复制或添加数据项时创建，对象池中的消息会复用该缓冲区
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ByteBuf copy;
+
+    public LocationBatchUploadMessage(Version version) {
+        super(Type.LOCATION_BATCH_UPLOAD, version);
+    }
+
+    /**
+     * 获取数据项的原始字节，可用于直接转发
+     *
+     * @return 数据项切片，不会增加引用计数，没有数据项时为空缓冲区
+     */
+    public ByteBuf getEntries() {
+        return count == 0 ? Unpooled.EMPTY_BUFFER : data.slice(dataIndex, dataLength);
+    }
+
+    /**
+     * 以 {@code buf} 中的数据项作为本消息的数据项，不会复制数据，调用方应保证 {@code buf} 在本消息使用期间有效
+     *
+     * @param count 数据项个数
+     * @param buf   字节缓冲区
+     * @param index 数据项的位置
+     * @param len   数据项的总长度
+     * @throws CodecException 数据项个数与长度不符，或数据项之后有多余的字节
+     */
+    public void setEntries(int count, ByteBuf buf, int index, int len) {
+        checkEntries(count, buf, index, len);
+        this.count = count;
+        this.data = buf;
+        this.dataIndex = index;
+        this.dataLength = len;
+    }
+
+    /**
+     * 从 {@code buf} 的读索引处读取 {@code len} 字节的数据项到自有缓冲区
+     *
+     * @param count 数据项个数
+     * @param buf   字节缓冲区，读索引前进 {@code len}
+     * @param len   数据项的总长度
+     * @throws CodecException 数据项个数与长度不符，或数据项之后有多余的字节
+     */
+    public void copyEntries(int count, ByteBuf buf, int len) {
+        checkEntries(count, buf, buf.readerIndex(), len);
+        var copy = getCopy(len);
+        copy.clear().writeBytes(buf, len);
+        setEntries(count, copy, 0, len);
+    }
+
+    /**
+     * 添加一个数据项，用于编码
+     *
+     * @param entry 位置信息汇报消息，只使用其消息体
+     */
+    public void addEntry(@NonNull LocationReportMessage entry) {
+        if (count > 0 && data != copy) {
+            throw new IllegalStateException("数据项不在自有缓冲区中，不能添加");
+        }
+        var copy = getCopy(64);
+        if (count == 0) {
+            copy.clear();
+        }
+        int lengthIndex = copy.writerIndex();
+        copy.writeZero(2);
+        LocationReportMessageCodec.writeBody(entry, copy);
+        copy.setShort(lengthIndex, copy.writerIndex() - lengthIndex - 2);
+        count++;
+        data = copy;
+        dataIndex = 0;
+        dataLength = copy.writerIndex();
+    }
+
+    /**
+     * 逐个遍历数据项，每个数据项都解析为新的位置信息汇报消息
+     */
+    public void forEachEntry(Consumer<? super LocationReportMessage> action) {
+        spliterator(null).forEachRemaining(action);
+    }
+
+    /**
+     * 逐个遍历数据项，每个数据项都解析到 {@code reused} 中
+     *
+     * @param reused 复用的位置信息汇报消息，协议版本应与本消息相同
+     * @param action 回调，{@code reused} 在回调返回后即被下一个数据项覆盖，回调不能在调用栈之外持有它
+     */
+    public void forEachEntry(@NonNull LocationReportMessage reused, Consumer<? super LocationReportMessage> action) {
+        spliterator(reused).forEachRemaining(action);
+    }
+
+    /**
+     * 获取数据项的分割迭代器，数据项在 {@linkplain Spliterator#tryAdvance} 时才解析，可以通过
+     * {@linkplain java.util.stream.StreamSupport#stream(Spliterator, boolean)} 转为流
+     *
+     * @param reused 复用的位置信息汇报消息，为 {@code null} 时每个数据项都解析为新的消息（附加信息会被复制）；
+     *               否则每个数据项都解析到该消息中（附加信息直接在本消息的数据项上建立索引），使用方不能在回调之外持有它，
+     *               本消息释放或交还对象池后也不能再访问它的附加信息
+     */
+    public Spliterator<LocationReportMessage> spliterator(LocationReportMessage reused) {
+        if (reused != null && reused.getVersion() != getVersion()) {
+            throw new IllegalArgumentException(String.format("协议版本不匹配，期望：%s，实际：%s", getVersion(), reused.getVersion()));
+        }
+        return new EntrySpliterator(this, reused);
+    }
+
+    private ByteBuf getCopy(int initialCapacity) {
+        var copy = this.copy;
+        if (copy == null) {
+            copy = this.copy = Unpooled.buffer(initialCapacity);
+        }
+        return copy;
+    }
+
+    /**
+     * 校验数据项：每个数据项的长度不小于位置基本信息的长度，且 {@code count} 个数据项恰好占满 {@code len}
+     */
+    private static void checkEntries(int count, ByteBuf buf, int index, int len) {
+        int end = index + len;
+        for (int i = 0; i < count; i++) {
+            if (index + 2 > end) {
+                throw new CodecException(String.format("数据项不足：%d < %d", i, count));
+            }
+            int entryLen = buf.getUnsignedShort(index);
+            if (entryLen < BASIC_INFO_LENGTH || index + 2 + entryLen > end) {
+                throw new CodecException(String.format("第 %d 个数据项的长度非法：%d", i + 1, entryLen));
+            }
+            index += 2 + entryLen;
+        }
+        if (index != end) {
+            throw new CodecException(String.format("%d 个数据项之后有多余的字节：%d", count, end - index));
+        }
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        count = 0;
+        dataType = null;
+        data = null;
+        dataIndex = 0;
+        dataLength = 0;
+        if (copy != null) {
+            copy.clear();
+        }
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add("count=" + getCount())
+                .add("dataType=" + getDataType())
+                .toString();
+    }
+
+    /**
+     * 位置数据类型
+     *
+     * @author linliangjun
+     */
+    @RequiredArgsConstructor
+    public enum DataType {
+
+        /**
+         * 正常位置批量汇报
+         */
+        NORMAL(0),
+
+        /**
+         * 盲区补报
+         */
+        BLIND_AREA(1);
+
+        @Getter
+        private final int value;
+
+        public static DataType getInstance(int value) {
+            for (var dataType : DataType.values()) {
+                if (dataType.value == value) {
+                    return dataType;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 数据项的分割迭代器，只读取数据项所在的缓冲区，不会改变其读写索引
+     */
+    private static final class EntrySpliterator implements Spliterator<LocationReportMessage> {
+
+        private final LocationBatchUploadMessage batch;
+
+        private final LocationReportMessage reused;
+
+        private final ByteBuf data;
+
+        private int index;
+
+        private int remaining;
+
+        private EntrySpliterator(LocationBatchUploadMessage batch, LocationReportMessage reused) {
+            this.batch = batch;
+            this.reused = reused;
+            this.data = batch.data;
+            this.index = batch.dataIndex;
+            this.remaining = batch.count;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super LocationReportMessage> action) {
+            if (remaining == 0) {
+                return false;
+            }
+            int len = data.getUnsignedShort(index);
+            var entry = reused != null ? reused : new LocationReportMessage(batch.getVersion());
+            entry.setEncryption(batch.getEncryption());
+            entry.copyTerminalPhoneFrom(batch);
+            entry.setSerialNum(batch.getSerialNum());
+            entry.setBodyLength(len);
+            LocationReportMessageCodec.getBasicInfo(entry, data, index + 2);
+            int additionalIndex = index + 2 + BASIC_INFO_LENGTH;
+            int additionalLen = len - BASIC_INFO_LENGTH;
+            if (reused != null) {
+                entry.getAdditionalInfo().index(data, additionalIndex, additionalLen);
+            } else if (additionalLen > 0) {
+                entry.getAdditionalInfo().copyFrom(data.slice(additionalIndex, additionalLen), additionalLen);
+            }
+            index += 2 + len;
+            remaining--;
+            action.accept(entry);
+            return true;
+        }
+
+        @Override
+        public Spliterator<LocationReportMessage> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | NONNULL;
+        }
+    }
+}
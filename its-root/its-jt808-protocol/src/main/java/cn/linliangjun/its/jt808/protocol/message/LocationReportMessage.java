@@ -0,0 +1,120 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.StringJoiner;
+
+/**
+ * JT/T 808 消息——位置信息汇报
+ *
+ * <p>位置基本信息均为基本类型的字段，解码时不产生装箱和字符串；附加信息只建立偏移索引，各项在访问时才解析，见 {@linkplain LocationAdditionalInfo}
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2011", "V2013", "V2019"})
+@Message(id = 0x0200, name = "位置信息汇报", codecClass = LocationReportMessageCodec.class)
+public class LocationReportMessage extends Jt808Message {
+
+    /**
+     * 报警标志，按位表示
+     */
+    private int alarmFlags;
+
+    /**
+     * 状态，按位表示，其中 bit 2 为 1 时表示南纬，bit 3 为 1 时表示西经
+     */
+    private int status;
+
+    /**
+     * 纬度，以度为单位的值乘以 10 的 6 次方
+     */
+    private int latitude;
+
+    /**
+     * 经度，以度为单位的值乘以 10 的 6 次方
+     */
+    private int longitude;
+
+    /**
+     * 高程，海拔高度，单位为米
+     */
+    private int altitude;
+
+    /**
+     * 速度，单位为 1/10 km/h
+     */
+    private int speed;
+
+    /**
+     * 方向，0 ~ 359，正北为 0，顺时针
+     */
+    private int direction;
+
+    /**
+     * 时间戳（毫秒），终端上报的时间为 GMT+8 时间；终端上报全 0 的时间（例如未定位）时为 0
+     */
+    private long time;
+
+    /**
+     * 附加信息，不会为 {@code null}，没有附加信息时项数为 0
+     */
+    @Setter(AccessLevel.NONE)
+    private final LocationAdditionalInfo additionalInfo = new LocationAdditionalInfo();
+
+    public LocationReportMessage(Version version) {
+        super(Type.LOCATION_REPORT, version);
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        alarmFlags = 0;
+        status = 0;
+        latitude = 0;
+        longitude = 0;
+        altitude = 0;
+        speed = 0;
+        direction = 0;
+        time = 0;
+        additionalInfo.clear();
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add(String.format("alarmFlags=%#010x", getAlarmFlags()))
+                .add(String.format("status=%#010x", getStatus()))
+                .add("latitude=" + getLatitude())
+                .add("longitude=" + getLongitude())
+                .add("altitude=" + getAltitude())
+                .add("speed=" + getSpeed())
+                .add("direction=" + getDirection())
+                .add("time=" + getTime())
+                .add("additionalInfo=" + getAdditionalInfo())
+                .toString();
+    }
+}
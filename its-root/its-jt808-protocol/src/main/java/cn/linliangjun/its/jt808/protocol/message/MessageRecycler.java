@@ -0,0 +1,54 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import io.netty.util.Recycler;
+
+import java.util.function.Supplier;
+
+/**
+ * JT/T 808 消息对象池，基于 {@linkplain Recycler} 实现，每个线程维护各自的空闲消息
+ *
+ * <p>通过 {@linkplain #get()} 获取的消息，使用完毕后应调用 {@linkplain Jt808Message#recycle()} 交还；未交还的消息会被正常回收，不会造成泄漏
+ *
+ * @param <M> JT 808 消息类型
+ * @author linliangjun
+ */
+public final class MessageRecycler<M extends Jt808Message> {
+
+    private final Recycler<M> recycler;
+
+    public MessageRecycler(Supplier<M> factory) {
+        this.recycler = new Recycler<M>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected M newObject(Handle<M> handle) {
+                M message = factory.get();
+                // 句柄只会用于交还创建它的消息，因此放宽为 Jt808Message 是安全的
+                message.recyclerHandle = (Handle<Jt808Message>) handle;
+                return message;
+            }
+        };
+    }
+
+    /**
+     * 从对象池中获取消息，消息头和消息体均为初始状态
+     */
+    public M get() {
+        return recycler.get();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.MultimediaDataUploadMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.util.StringJoiner;
+
+/**
+ * JT/T 808 消息——多媒体数据上传
+ *
+ * <p>多媒体数据通常分为多个分包上传，只有第一包含有多媒体数据 ID 等字段。多媒体数据包不经过编解码器，
+ * 解码时只解析第一包中的字段并跳过多媒体数据包；服务器将各包的多媒体数据直接写入文件，收齐后设置 {@linkplain #file}
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2011", "V2013", "V2019"})
+@Message(id = 0x0801, name = "多媒体数据上传", codecClass = MultimediaDataUploadMessageCodec.class)
+public class MultimediaDataUploadMessage extends Jt808Message {
+
+    /**
+     * 多媒体数据 ID，DWORD
+     */
+    private long mediaId;
+
+    /**
+     * 多媒体类型：0 图像，1 音频，2 视频
+     */
+    private int mediaType;
+
+    /**
+     * 多媒体格式编码：0 JPEG，1 TIF，2 MP3，3 WAV，4 WMV
+     */
+    private int formatCode;
+
+    /**
+     * 事件项编码：0 平台下发指令，1 定时动作，2 抢劫报警触发，3 碰撞侧翻报警触发，其他保留
+     */
+    private int eventCode;
+
+    /**
+     * 通道 ID
+     */
+    private int channelId;
+
+    /**
+     * 位置信息汇报消息体，只有位置基本信息，2011 版本无此字段
+     */
+    private LocationReportMessage location;
+
+    /**
+     * 多媒体数据的字节数
+     */
+    private long dataLength;
+
+    /**
+     * 多媒体数据文件，由服务器在收齐全部分包后设置，解码得到的消息为 {@code null}
+     */
+    private Path file;
+
+    public MultimediaDataUploadMessage(Version version) {
+        super(Type.MULTIMEDIA_DATA_UPLOAD, version);
+    }
+
+    /**
+     * 获取多媒体格式对应的文件扩展名，未知格式为 {@code bin}
+     */
+    public String getFileExtension() {
+        switch (formatCode) {
+            case 0:
+                return "jpg";
+            case 1:
+                return "tif";
+            case 2:
+                return "mp3";
+            case 3:
+                return "wav";
+            case 4:
+                return "wmv";
+            default:
+                return "bin";
+        }
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        mediaId = 0;
+        mediaType = 0;
+        formatCode = 0;
+        eventCode = 0;
+        channelId = 0;
+        location = null;
+        dataLength = 0;
+        file = null;
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add("mediaId=" + mediaId)
+                .add("mediaType=" + mediaType)
+                .add("formatCode=" + formatCode)
+                .add("eventCode=" + eventCode)
+                .add("channelId=" + channelId)
+                .add("location=" + (location == null ? null : location.getDescription()))
+                .add("dataLength=" + dataLength)
+                .add("file=" + file)
+                .toString();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.MultimediaDataUploadRespMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * JT/T 808 消息——多媒体数据上传应答，重传包 ID 列表为空时表示已收到全部数据包
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2011", "V2013", "V2019"})
+@Message(id = 0x8800, name = "多媒体数据上传应答", codecClass = MultimediaDataUploadRespMessageCodec.class)
+public class MultimediaDataUploadRespMessage extends Jt808Message {
+
+    /**
+     * 多媒体数据 ID
+     */
+    private Long mediaId;
+
+    /**
+     * 重传包 ID 列表，最多 255 个
+     */
+    private List<Integer> packageIds;
+
+    public MultimediaDataUploadRespMessage(Version version) {
+        super(Type.MULTIMEDIA_DATA_UPLOAD_RESP, version);
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        mediaId = null;
+        packageIds = null;
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add("mediaId=" + mediaId)
+                .add("packageIds=" + packageIds)
+                .toString();
+    }
+}
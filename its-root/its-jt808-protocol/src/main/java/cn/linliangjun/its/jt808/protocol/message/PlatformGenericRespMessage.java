@@ -50,6 +50,13 @@ public abstract class PlatformGenericRespMessage extends Jt808Message {
         super(Type.PLATFORM_GENERIC_RESP, version);
     }
 
+    @Override
+    protected void reset() {
+        super.reset();
+        respSerialNum = null;
+        respType = null;
+    }
+
     @Getter
     @Setter
     @Protocol(name = "JT/T808", version = "V2011")
@@ -65,6 +72,12 @@ public abstract class PlatformGenericRespMessage extends Jt808Message {
             super(Version.V2011);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            result = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", "{", "}")
@@ -113,6 +126,12 @@ public abstract class PlatformGenericRespMessage extends Jt808Message {
             super(version);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            result = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", "{", "}")
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.PlatformRetransmitRequestMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * JT/T 808 消息——平台补传分包请求，2011 版本无此消息
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2013", "V2019"})
+@Message(id = 0x8003, name = "平台补传分包请求", codecClass = PlatformRetransmitRequestMessageCodec.class)
+public class PlatformRetransmitRequestMessage extends Jt808Message {
+
+    /**
+     * 原始消息流水号，即第一包的消息流水号
+     */
+    private Integer originalSerialNum;
+
+    /**
+     * 重传包序号列表，2013 版本最多 255 个
+     */
+    private List<Integer> packageNums;
+
+    public PlatformRetransmitRequestMessage(Version version) {
+        super(Type.PLATFORM_RETRANSMIT_REQUEST, version);
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        originalSerialNum = null;
+        packageNums = null;
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add("originalSerialNum=" + originalSerialNum)
+                .add("packageNums=" + packageNums)
+                .toString();
+    }
+}
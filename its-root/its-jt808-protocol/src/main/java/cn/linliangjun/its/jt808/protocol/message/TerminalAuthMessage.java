@@ -45,7 +45,7 @@ public abstract class TerminalAuthMessage extends Jt808Message {
     @Setter
     @Protocol(name = "JT/T808", version = {"V2011", "V2013"})
     @Message(id = 0x0102, name = "终端鉴权", codecClass = TerminalAuthMessageCodec.class)
-    public static final class TerminalAuthMessage_2011_2013 extends TerminalAuthMessage {
+    public static class TerminalAuthMessage_2011_2013 extends TerminalAuthMessage {
 
         /**
          * 鉴权码
@@ -56,6 +56,12 @@ public abstract class TerminalAuthMessage extends Jt808Message {
             super(version);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            authKey = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", "{", "}")
@@ -73,7 +79,7 @@ public abstract class TerminalAuthMessage extends Jt808Message {
     @Setter
     @Protocol(name = "JT/T808", version = "V2019")
     @Message(id = 0x0102, name = "终端鉴权", codecClass = TerminalAuthMessageCodec.class)
-    public static final class TerminalAuthMessage_2019 extends TerminalAuthMessage {
+    public static class TerminalAuthMessage_2019 extends TerminalAuthMessage {
 
         /**
          * 鉴权码
@@ -94,6 +100,14 @@ public abstract class TerminalAuthMessage extends Jt808Message {
             super(Version.V2019);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            authKey = null;
+            imei = null;
+            softwareVersion = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", "{", "}")
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalGenericRespMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.StringJoiner;
+
+/**
+ * JT/T 808 消息——终端通用应答
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Protocol(name = "JT/T808", version = {"V2011", "V2013", "V2019"})
+@Message(id = 0x0001, name = "终端通用应答", codecClass = TerminalGenericRespMessageCodec.class)
+public class TerminalGenericRespMessage extends Jt808Message {
+
+    /**
+     * （平台）消息流水号
+     */
+    private Integer respSerialNum;
+
+    /**
+     * （平台）消息类型
+     */
+    private Type respType;
+
+    /**
+     * 结果
+     */
+    private Result result;
+
+    public TerminalGenericRespMessage(Version version) {
+        super(Type.TERMINAL_GENERIC_RESP, version);
+    }
+
+    @Override
+    protected void reset() {
+        super.reset();
+        respSerialNum = null;
+        respType = null;
+        result = null;
+    }
+
+    @Override
+    protected String getDescription() {
+        return new StringJoiner(", ", "{", "}")
+                .add("respSerialNum=" + respSerialNum)
+                .add("respType=" + respType)
+                .add("result=" + result)
+                .toString();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Result {
+
+        SUCCESS_ACK(0),
+        FAILURE(1),
+        MESSAGE_ERROR(2),
+        UNSUPPORTED(3);
+
+        private final int value;
+
+        public static Result getInstance(int value) {
+            for (Result result : Result.values()) {
+                if (result.value == value) {
+                    return result;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalHeartbeatMessageCodec;
+import cn.linliangjun.its.uniprotocol.Message;
+import cn.linliangjun.its.uniprotocol.Protocol;
+
+/**
+ * JT/T 808 消息——终端心跳，消息体为空
+ *
+ * @author linliangjun
+ */
+@Protocol(name = "JT/T808", version = {"V2011", "V2013", "V2019"})
+@Message(id = 0x0002, name = "终端心跳", codecClass = TerminalHeartbeatMessageCodec.class)
+public class TerminalHeartbeatMessage extends Jt808Message {
+
+    public TerminalHeartbeatMessage(Version version) {
+        super(Type.TERMINAL_HEARTBEAT, version);
+    }
+
+    @Override
+    protected String getDescription() {
+        return "{}";
+    }
+}
@@ -81,6 +81,18 @@ public abstract class TerminalRegisterMessage extends Jt808Message {
             super(Version.V2011);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            provinceId = null;
+            cityId = null;
+            manufacturerId = null;
+            terminalModel = null;
+            terminalId = null;
+            licensePlateColor = null;
+            licensePlateNum = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", TerminalRegisterMessage_2011.class.getSimpleName() + "{", "}")
@@ -145,6 +157,19 @@ public abstract class TerminalRegisterMessage extends Jt808Message {
             super(version);
         }
 
+        @Override
+        protected void reset() {
+            super.reset();
+            provinceId = null;
+            cityId = null;
+            manufacturerId = null;
+            terminalModel = null;
+            terminalId = null;
+            licensePlateColor = null;
+            licensePlateNum = null;
+            vin = null;
+        }
+
         @Override
         protected String getDescription() {
             return new StringJoiner(", ", "{", "}")
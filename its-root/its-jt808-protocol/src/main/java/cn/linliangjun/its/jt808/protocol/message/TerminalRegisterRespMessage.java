@@ -56,6 +56,14 @@ public class TerminalRegisterRespMessage extends Jt808Message {
         super(Type.TERMINAL_REGISTER_RESP, version);
     }
 
+    @Override
+    protected void reset() {
+        super.reset();
+        respSerialNum = null;
+        result = null;
+        authKey = null;
+    }
+
     @Override
     protected String getDescription() {
         return new StringJoiner(", ", "{", "}")
@@ -26,9 +26,16 @@ import java.util.StringJoiner;
 @RequiredArgsConstructor
 public enum Type {
 
+    TERMINAL_GENERIC_RESP(0x0001),
+    TERMINAL_HEARTBEAT(0x0002),
     TERMINAL_REGISTER(0x0100),
     TERMINAL_AUTH(0x0102),
+    LOCATION_REPORT(0x0200),
+    LOCATION_BATCH_UPLOAD(0x0704),
+    MULTIMEDIA_DATA_UPLOAD(0x0801),
     PLATFORM_GENERIC_RESP(0x8001),
+    PLATFORM_RETRANSMIT_REQUEST(0x8003),
+    MULTIMEDIA_DATA_UPLOAD_RESP(0x8800),
     TERMINAL_REGISTER_RESP(0x08100);
 
     @Getter
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.LocationBatchUploadMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.LocationBatchUploadMessage;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.codec.LocationBatchUploadMessageCodec.HEADER_LENGTH;
+
+/**
+ * JT/T 808 消息视图——定位数据批量上传
+ *
+ * <p>数据项个数与位置数据类型在创建视图时解析并校验各数据项的长度；数据项直接在消息体切片上遍历，不会复制
+ *
+ * @author linliangjun
+ */
+public final class LocationBatchUploadMessageView extends LocationBatchUploadMessage implements MessageView {
+
+    private final ByteBuf body;
+
+    /**
+     * @param version 协议版本
+     * @param frame   未转义的帧
+     * @param index   消息体在帧中的位置
+     * @param len     消息体长度
+     * @throws CodecException 消息体格式错误，此时不会持有消息体
+     */
+    public LocationBatchUploadMessageView(Version version, ByteBuf frame, int index, int len) {
+        super(version);
+        if (len < HEADER_LENGTH) {
+            throw new CodecException(String.format("消息体长度过短：%d < %d", len, HEADER_LENGTH));
+        }
+        var body = frame.slice(index, len);
+        setDataType(LocationBatchUploadMessageCodec.getDataType(body.getUnsignedByte(2)));
+        setEntries(body.getUnsignedShort(0), body, HEADER_LENGTH, len - HEADER_LENGTH);
+        // 校验通过后再增加引用计数
+        this.body = body.retain();
+    }
+
+    @Override
+    public ByteBuf getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.LocationAdditionalInfo;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import io.netty.buffer.ByteBuf;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec.BASIC_INFO_LENGTH;
+
+/**
+ * JT/T 808 消息视图——位置信息汇报
+ *
+ * <p>位置基本信息直接从消息体的固定偏移处读取；附加信息在首次访问时才在消息体切片上建立索引，不会复制
+ *
+ * @author linliangjun
+ */
+public final class LocationReportMessageView extends LocationReportMessage implements MessageView {
+
+    private final ByteBuf body;
+
+    /**
+     * 附加信息是否已建立索引
+     */
+    private boolean indexed;
+
+    /**
+     * @param version 协议版本
+     * @param frame   未转义的帧
+     * @param index   消息体在帧中的位置
+     * @param len     消息体长度
+     */
+    public LocationReportMessageView(Version version, ByteBuf frame, int index, int len) {
+        super(version);
+        body = frame.retainedSlice(index, len);
+    }
+
+    @Override
+    public int getAlarmFlags() {
+        return body.getInt(0);
+    }
+
+    @Override
+    public int getStatus() {
+        return body.getInt(4);
+    }
+
+    @Override
+    public int getLatitude() {
+        return body.getInt(8);
+    }
+
+    @Override
+    public int getLongitude() {
+        return body.getInt(12);
+    }
+
+    @Override
+    public int getAltitude() {
+        return body.getUnsignedShort(16);
+    }
+
+    @Override
+    public int getSpeed() {
+        return body.getUnsignedShort(18);
+    }
+
+    @Override
+    public int getDirection() {
+        return body.getUnsignedShort(20);
+    }
+
+    @Override
+    public long getTime() {
+        return LocationReportMessageCodec.getTime(body, 22);
+    }
+
+    @Override
+    public LocationAdditionalInfo getAdditionalInfo() {
+        var additionalInfo = super.getAdditionalInfo();
+        if (!indexed) {
+            additionalInfo.index(body, BASIC_INFO_LENGTH, body.capacity() - BASIC_INFO_LENGTH);
+            indexed = true;
+        }
+        return additionalInfo;
+    }
+
+    @Override
+    public ByteBuf getBody() {
+        return body;
+    }
+}
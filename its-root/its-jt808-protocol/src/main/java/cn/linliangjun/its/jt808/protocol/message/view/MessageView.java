@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * JT/T 808 消息视图
+ *
+ * <p>消息视图持有未转义帧中消息体的切片（引用计数 +1），消息头在解码时立即解析，消息体字段在首次访问时才从固定偏移处解析。
+ * 使用完毕后必须调用 {@linkplain #release()}，释放后不能再访问消息体字段；若需在当前调用栈之外使用，应先调用 {@linkplain #retain()}
+ *
+ * @author linliangjun
+ */
+public interface MessageView extends ReferenceCounted {
+
+    /**
+     * 获取消息体，可用于直接转发，无需解析字段
+     *
+     * @return 消息体切片，不会增加引用计数
+     */
+    ByteBuf getBody();
+
+    /**
+     * 消息视图的引用计数即消息体切片的引用计数，以下方法均委托给 {@linkplain #getBody()}
+     */
+    @Override
+    default int refCnt() {
+        return getBody().refCnt();
+    }
+
+    @Override
+    default MessageView retain() {
+        getBody().retain();
+        return this;
+    }
+
+    @Override
+    default MessageView retain(int increment) {
+        getBody().retain(increment);
+        return this;
+    }
+
+    @Override
+    default MessageView touch() {
+        getBody().touch(this);
+        return this;
+    }
+
+    @Override
+    default MessageView touch(Object hint) {
+        getBody().touch(hint);
+        return this;
+    }
+
+    @Override
+    default boolean release() {
+        return getBody().release();
+    }
+
+    @Override
+    default boolean release(int decrement) {
+        return getBody().release(decrement);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import io.netty.buffer.ByteBuf;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.Charset;
+
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2011_2013;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * JT/T 808 消息视图——终端鉴权
+ *
+ * @author linliangjun
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TerminalAuthMessageView {
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    /**
+     * JT/T 808 消息视图——终端鉴权，2011、2013 版
+     */
+    public static final class TerminalAuthMessageView_2011_2013 extends TerminalAuthMessage_2011_2013 implements MessageView {
+
+        private final ByteBuf body;
+
+        /**
+         * @param version 协议版本
+         * @param frame   未转义的帧
+         * @param index   消息体在帧中的位置
+         * @param len     消息体长度
+         */
+        public TerminalAuthMessageView_2011_2013(Version version, ByteBuf frame, int index, int len) {
+            super(version);
+            body = frame.retainedSlice(index, len);
+        }
+
+        @Override
+        public String getAuthKey() {
+            if (super.getAuthKey() == null) {
+                setAuthKey(body.toString(GBK));
+            }
+            return super.getAuthKey();
+        }
+
+        @Override
+        protected String getDescription() {
+            getAuthKey();
+            return super.getDescription();
+        }
+
+        @Override
+        public ByteBuf getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * JT/T 808 消息视图——终端鉴权，2019 版
+     */
+    public static final class TerminalAuthMessageView_2019 extends TerminalAuthMessage_2019 implements MessageView {
+
+        private final ByteBuf body;
+
+        /**
+         * @param frame 未转义的帧
+         * @param index 消息体在帧中的位置
+         * @param len   消息体长度
+         */
+        public TerminalAuthMessageView_2019(ByteBuf frame, int index, int len) {
+            body = frame.retainedSlice(index, len);
+        }
+
+        @Override
+        public String getAuthKey() {
+            if (super.getAuthKey() == null) {
+                setAuthKey(body.toString(1, body.getUnsignedByte(0), GBK));
+            }
+            return super.getAuthKey();
+        }
+
+        @Override
+        public String getImei() {
+            if (super.getImei() == null) {
+                setImei(body.toString(1 + body.getUnsignedByte(0), 15, US_ASCII));
+            }
+            return super.getImei();
+        }
+
+        @Override
+        public String getSoftwareVersion() {
+            if (super.getSoftwareVersion() == null) {
+                setSoftwareVersion(body.toString(16 + body.getUnsignedByte(0), 20, US_ASCII).trim());
+            }
+            return super.getSoftwareVersion();
+        }
+
+        @Override
+        protected String getDescription() {
+            getAuthKey();
+            getImei();
+            getSoftwareVersion();
+            return super.getDescription();
+        }
+
+        @Override
+        public ByteBuf getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LicensePlateColor;
+import io.netty.buffer.ByteBuf;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.var;
+
+import java.nio.charset.Charset;
+
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2011;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2013_2019;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * JT/T 808 消息视图——终端注册
+ *
+ * @author linliangjun
+ * @apiNote 字段在首次访问时才解析，因此消息体格式错误（例如 2011 版不支持的绿色车牌）也在首次访问时才抛出异常
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class TerminalRegisterMessageView {
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    /**
+     * JT/T 808 消息视图——终端注册，2011 版
+     */
+    public static final class TerminalRegisterMessageView_2011 extends TerminalRegisterMessage_2011 implements MessageView {
+
+        private final ByteBuf body;
+
+        /**
+         * @param frame 未转义的帧
+         * @param index 消息体在帧中的位置
+         * @param len   消息体长度
+         */
+        public TerminalRegisterMessageView_2011(ByteBuf frame, int index, int len) {
+            body = frame.retainedSlice(index, len);
+        }
+
+        @Override
+        public Integer getProvinceId() {
+            if (super.getProvinceId() == null) {
+                setProvinceId(body.getUnsignedShort(0));
+            }
+            return super.getProvinceId();
+        }
+
+        @Override
+        public Integer getCityId() {
+            if (super.getCityId() == null) {
+                setCityId(body.getUnsignedShort(2));
+            }
+            return super.getCityId();
+        }
+
+        @Override
+        public String getManufacturerId() {
+            if (super.getManufacturerId() == null) {
+                setManufacturerId(body.toString(4, 5, US_ASCII));
+            }
+            return super.getManufacturerId();
+        }
+
+        @Override
+        public String getTerminalModel() {
+            if (super.getTerminalModel() == null) {
+                setTerminalModel(body.toString(9, 8, US_ASCII).trim());
+            }
+            return super.getTerminalModel();
+        }
+
+        @Override
+        public String getTerminalId() {
+            if (super.getTerminalId() == null) {
+                setTerminalId(body.toString(17, 7, US_ASCII));
+            }
+            return super.getTerminalId();
+        }
+
+        @Override
+        public LicensePlateColor getLicensePlateColor() {
+            if (super.getLicensePlateColor() == null) {
+                var plateColor = LicensePlateColor.getInstance(body.getByte(24));
+                if (plateColor == LicensePlateColor.GREEN) {
+                    throw new IllegalArgumentException("不支持的车牌颜色：" + plateColor);
+                }
+                setLicensePlateColor(plateColor);
+            }
+            return super.getLicensePlateColor();
+        }
+
+        @Override
+        public String getLicensePlateNum() {
+            if (super.getLicensePlateNum() == null) {
+                setLicensePlateNum(body.toString(25, body.readableBytes() - 25, GBK));
+            }
+            return super.getLicensePlateNum();
+        }
+
+        @Override
+        protected String getDescription() {
+            getProvinceId();
+            getCityId();
+            getManufacturerId();
+            getTerminalModel();
+            getTerminalId();
+            getLicensePlateColor();
+            getLicensePlateNum();
+            return super.getDescription();
+        }
+
+        @Override
+        public ByteBuf getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * JT/T 808 消息视图——终端注册，2013、2019 版
+     */
+    public static final class TerminalRegisterMessageView_2013_2019 extends TerminalRegisterMessage_2013_2019 implements MessageView {
+
+        private final ByteBuf body;
+
+        /**
+         * 制造商 ID 的长度
+         */
+        private final int manufacturerIdLen;
+
+        /**
+         * 终端型号、终端 ID 的长度
+         */
+        private final int terminalModelLen, terminalIdLen;
+
+        /**
+         * @param version 协议版本
+         * @param frame   未转义的帧
+         * @param index   消息体在帧中的位置
+         * @param len     消息体长度
+         */
+        public TerminalRegisterMessageView_2013_2019(Version version, ByteBuf frame, int index, int len) {
+            super(version);
+            if (version == Version.V2019) {
+                manufacturerIdLen = 11;
+                terminalModelLen = 30;
+                terminalIdLen = 30;
+            } else {
+                manufacturerIdLen = 5;
+                terminalModelLen = 20;
+                terminalIdLen = 7;
+            }
+            body = frame.retainedSlice(index, len);
+        }
+
+        @Override
+        public Integer getProvinceId() {
+            if (super.getProvinceId() == null) {
+                setProvinceId(body.getUnsignedShort(0));
+            }
+            return super.getProvinceId();
+        }
+
+        @Override
+        public Integer getCityId() {
+            if (super.getCityId() == null) {
+                setCityId(body.getUnsignedShort(2));
+            }
+            return super.getCityId();
+        }
+
+        @Override
+        public String getManufacturerId() {
+            if (super.getManufacturerId() == null) {
+                setManufacturerId(body.toString(4, manufacturerIdLen, US_ASCII));
+            }
+            return super.getManufacturerId();
+        }
+
+        @Override
+        public String getTerminalModel() {
+            if (super.getTerminalModel() == null) {
+                setTerminalModel(body.toString(4 + manufacturerIdLen, terminalModelLen, US_ASCII).trim());
+            }
+            return super.getTerminalModel();
+        }
+
+        @Override
+        public String getTerminalId() {
+            if (super.getTerminalId() == null) {
+                String terminalId = body.toString(4 + manufacturerIdLen + terminalModelLen, terminalIdLen, US_ASCII);
+                setTerminalId(getVersion() == Version.V2019 ? terminalId : terminalId.trim());
+            }
+            return super.getTerminalId();
+        }
+
+        @Override
+        public LicensePlateColor getLicensePlateColor() {
+            if (super.getLicensePlateColor() == null) {
+                setLicensePlateColor(LicensePlateColor.getInstance(body.getByte(getPlateColorIndex())));
+            }
+            return super.getLicensePlateColor();
+        }
+
+        /**
+         * 获取车牌号，车牌颜色为 0 时（使用车辆识别码）返回 {@code null}
+         */
+        @Override
+        public String getLicensePlateNum() {
+            int index = getPlateColorIndex();
+            if (super.getLicensePlateNum() == null && body.getByte(index) != 0) {
+                setLicensePlateNum(body.toString(index + 1, body.readableBytes() - index - 1, GBK));
+            }
+            return super.getLicensePlateNum();
+        }
+
+        /**
+         * 获取车辆识别码，车牌颜色不为 0 时返回 {@code null}
+         */
+        @Override
+        public String getVin() {
+            int index = getPlateColorIndex();
+            if (super.getVin() == null && body.getByte(index) == 0) {
+                setVin(body.toString(index + 1, 17, US_ASCII));
+            }
+            return super.getVin();
+        }
+
+        private int getPlateColorIndex() {
+            return 4 + manufacturerIdLen + terminalModelLen + terminalIdLen;
+        }
+
+        @Override
+        protected String getDescription() {
+            getProvinceId();
+            getCityId();
+            getManufacturerId();
+            getTerminalModel();
+            getTerminalId();
+            getLicensePlateColor();
+            getLicensePlateNum();
+            getVin();
+            return super.getDescription();
+        }
+
+        @Override
+        public ByteBuf getBody() {
+            return body;
+        }
+    }
+}
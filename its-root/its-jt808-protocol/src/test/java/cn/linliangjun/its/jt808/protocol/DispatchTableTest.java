@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.protocol;
+
+import cn.linliangjun.its.jt808.protocol.codec.LocationReportMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.uniprotocol.DefinitionManager;
+import cn.linliangjun.its.uniprotocol.MessageDefinition;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatchTableTest {
+
+    /**
+     * 冻结是进程级别的，本模块中只有该测试加载定义
+     */
+    @BeforeAll
+    static void loadDefinitions() throws Exception {
+        if (!DefinitionManager.isFrozen()) {
+            assertThrows(IllegalStateException.class, DispatchTable::getInstance);
+            for (var provider : ServiceLoader.load(cn.linliangjun.its.uniprotocol.DefinitionLoaderProvider.class)) {
+                provider.get().load();
+            }
+            DefinitionManager.freeze();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(Version.class)
+    void lookup(Version version) {
+        var table = DispatchTable.getInstance();
+        assertSame(table, DispatchTable.getInstance());
+        assertEquals(new ProtocolDefinition(version), table.getProtocolDefinition(version));
+        var definition = table.getMessageDefinition(version, Type.LOCATION_REPORT.getValue());
+        assertSame(DefinitionManager.getMessageDefinition(new ProtocolDefinition(version), Type.LOCATION_REPORT.getValue()), definition);
+        assertEquals(LocationReportMessage.class, definition.getMessageClass());
+        assertInstanceOf(LocationReportMessageCodec.class, table.getCodec(version, Type.LOCATION_REPORT.getValue()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0x7fff, 0xffff, 0x10000, -1, Integer.MIN_VALUE})
+    void unknownId(int messageId) {
+        var table = DispatchTable.getInstance();
+        for (var version : Version.values()) {
+            assertNull(table.getMessageDefinition(version, messageId));
+            assertNull(table.getCodec(version, messageId));
+        }
+    }
+
+    /**
+     * 冻结后注册定义失败，分发表保持不变
+     */
+    @Test
+    void registerAfterFreeze() {
+        var protocol = new ProtocolDefinition(Version.V2019);
+        var definition = new MessageDefinition(0x7fff, "测试消息", Jt808Message.class, LocationReportMessageCodec.class);
+        assertThrows(IllegalStateException.class, () -> DefinitionManager.registerMessageDefinition(protocol, definition));
+        assertThrows(IllegalStateException.class, () -> DefinitionManager.getProtocolDefinition(protocol).addMessageDefinition(definition));
+        assertThrows(IllegalStateException.class, () -> DefinitionManager.registerProtocolDefinition(new cn.linliangjun.its.uniprotocol.ProtocolDefinition("test", "1")));
+        assertNull(DefinitionManager.getMessageDefinition(protocol, 0x7fff));
+        assertNull(DispatchTable.getInstance().getMessageDefinition(Version.V2019, 0x7fff));
+        DefinitionManager.freeze();
+        assertTrue(DefinitionManager.isFrozen());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2013_2019;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 原地转义编码的往返测试：编码、还原转义、解码
+ */
+class AbstractCodecTest {
+
+    private static final PlatformGenericRespMessageCodec codec = new PlatformGenericRespMessageCodec();
+
+    private static final byte[] PREFIX = {0x7e, 0x7d, 0x01};
+
+    /**
+     * 消息头和消息体中的 0x7e、0x7d 被转义
+     */
+    @ParameterizedTest
+    @EnumSource(value = Version.class, names = {"V2013", "V2019"})
+    void escapedBody(Version version) {
+        var message = createMessage(version, 0x7e7d);
+        message.setSerialNum(0x7d7e);
+        assertRoundTrip(message, 4);
+    }
+
+    /**
+     * BCC 校验码本身为 0x7e 或 0x7d 时同样被转义
+     */
+    @ParameterizedTest
+    @ValueSource(bytes = {0x7e, 0x7d})
+    void escapedBcc(byte code) {
+        for (int respSerialNum = 0; respSerialNum <= 0xffff; respSerialNum++) {
+            var message = createMessage(Version.V2019, respSerialNum);
+            var frame = ByteBufUtil.decodeHexDump(encodeUnescaped(message));
+            if (frame[frame.length - 2] == code) {
+                assertRoundTrip(message, -1);
+                return;
+            }
+        }
+        fail("未找到校验码为 " + code + " 的消息");
+    }
+
+    @Test
+    void noEscape() {
+        assertRoundTrip(createMessage(Version.V2013, 0x0102), 0);
+    }
+
+    /**
+     * 编码失败时，写索引还原，之前写入的数据不受影响
+     */
+    @Test
+    void encodeFailure() {
+        var message = createMessage(Version.V2013, 0x7e7e);
+        message.setRespType(null);
+        var out = Unpooled.buffer().writeBytes(PREFIX);
+        assertThrows(CodecException.class, () -> codec.encode(message, out));
+        assertEquals(PREFIX.length, out.writerIndex());
+        assertEquals(ByteBufUtil.hexDump(PREFIX), ByteBufUtil.hexDump(out));
+        out.release();
+    }
+
+    @Test
+    void unknownEscape() {
+        var escaped = Unpooled.wrappedBuffer(new byte[]{0x7e, 0x01, 0x7d, 0x03, 0x7e});
+        assertThrows(CodecException.class, () -> AbstractCodec.unescape(escaped));
+        assertEquals(0, escaped.readerIndex());
+    }
+
+    /**
+     * 编码到已有数据之后，校验线路字节、BCC 校验码以及解码结果
+     *
+     * @param escapes 期望的转义字节数，为 -1 时不检查
+     */
+    private static void assertRoundTrip(PlatformGenericRespMessage message, int escapes) {
+        var out = Unpooled.buffer(4).writeBytes(PREFIX);
+        codec.encode(message, out);
+        assertEquals(ByteBufUtil.hexDump(PREFIX), ByteBufUtil.hexDump(out, 0, PREFIX.length));
+        var escaped = out.slice(PREFIX.length, out.writerIndex() - PREFIX.length);
+        assertEquals(0x7e, escaped.getByte(0));
+        assertEquals(0x7e, escaped.getByte(escaped.writerIndex() - 1));
+        assertEquals(-1, escaped.indexOf(1, escaped.writerIndex() - 1, (byte) 0x7e));
+
+        var frame = AbstractCodec.unescape(escaped);
+        if (escapes >= 0) {
+            assertEquals(escapes, escaped.readableBytes() - frame.readableBytes());
+        }
+        assertEquals(0, CodecUtils.getBccCode(frame, 1, frame.writerIndex() - 2));
+        assertEquals(ByteBufUtil.hexDump(frame), encodeUnescaped(message));
+
+        var decoded = (PlatformGenericRespMessage_2013_2019) codec.decode(new ProtocolDefinition(message.getVersion()), frame.readerIndex(1));
+        assertEquals(frame.writerIndex() - 2, frame.readerIndex());
+        assertEquals(message.getTerminalPhone(), decoded.getTerminalPhone());
+        assertEquals(message.getSerialNum(), decoded.getSerialNum());
+        assertEquals(message.getRespSerialNum(), decoded.getRespSerialNum());
+        assertEquals(message.getRespType(), decoded.getRespType());
+        assertEquals(((PlatformGenericRespMessage_2013_2019) message).getResult(), decoded.getResult());
+        frame.release();
+        out.release();
+    }
+
+    /**
+     * 经由 {@linkplain AbstractCodec#encode(Jt808Message)} 编码后还原转义，与写入已有数据之后的结果应一致
+     */
+    private static String encodeUnescaped(PlatformGenericRespMessage message) {
+        ByteBuf escaped = codec.encode(message);
+        var frame = AbstractCodec.unescape(escaped);
+        escaped.release();
+        var hex = ByteBufUtil.hexDump(frame);
+        frame.release();
+        return hex;
+    }
+
+    private static PlatformGenericRespMessage createMessage(Version version, int respSerialNum) {
+        var message = new PlatformGenericRespMessage_2013_2019(version);
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        message.setTerminalPhone(17355012222L);
+        message.setSerialNum(0x1234);
+        message.setRespSerialNum(respSerialNum);
+        message.setRespType(Type.LOCATION_REPORT);
+        message.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
+        return message;
+    }
+}
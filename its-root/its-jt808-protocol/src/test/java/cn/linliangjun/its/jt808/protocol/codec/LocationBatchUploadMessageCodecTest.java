@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LocationBatchUploadMessage;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.protocol.message.view.LocationBatchUploadMessageView;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationBatchUploadMessageCodecTest {
+
+    private static final LocationBatchUploadMessageCodec codec = new LocationBatchUploadMessageCodec();
+
+    private static final ProtocolDefinition PROTOCOL_DEFINITION = new ProtocolDefinition(Version.V2019);
+
+    protected static final ByteBufAllocator ALLOCATOR = ByteBufAllocator.DEFAULT;
+
+    private static final int COUNT = 300;
+
+    @Test
+    void decode() {
+        var buf = encodeBatch();
+        var message = codec.decode(PROTOCOL_DEFINITION, buf);
+        buf.release();
+        assertEquals(Type.LOCATION_BATCH_UPLOAD, message.getType());
+        assertEquals(Version.V2019, message.getVersion());
+        assertEquals(17355012222L, message.getTerminalPhone());
+        assertEquals(1, message.getSerialNum());
+        assertEquals(COUNT, message.getCount());
+        assertEquals(LocationBatchUploadMessage.DataType.BLIND_AREA, message.getDataType());
+
+        var entries = new ArrayList<LocationReportMessage>();
+        message.forEachEntry(entries::add);
+        assertEquals(COUNT, entries.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEntry(i, entries.get(i));
+        }
+        for (var entry : entries) {
+            assertEquals(17355012222L, entry.getTerminalPhone());
+            assertEquals(1, entry.getSerialNum());
+        }
+    }
+
+    @Test
+    void reused() {
+        var buf = encodeBatch();
+        var message = codec.decodePooled(PROTOCOL_DEFINITION, buf);
+        buf.release();
+
+        var reused = new LocationReportMessage(Version.V2019);
+        int[] i = {0};
+        message.forEachEntry(reused, entry -> {
+            assertSame(reused, entry);
+            assertEntry(i[0]++, entry);
+        });
+        assertEquals(COUNT, i[0]);
+        assertTrue(message.recycle());
+        assertEquals(0, message.getCount());
+    }
+
+    @Test
+    void decodeView() {
+        var buf = encodeBatch();
+        var message = codec.decodeView(PROTOCOL_DEFINITION, buf);
+        assertInstanceOf(LocationBatchUploadMessageView.class, message);
+        buf.release();
+
+        var spliterator = message.spliterator(new LocationReportMessage(Version.V2019));
+        assertEquals(COUNT, spliterator.estimateSize());
+        assertEquals(COUNT / 3, StreamSupport.stream(spliterator, false)
+                .filter(entry -> entry.getAdditionalInfo().contains(0x01))
+                .count());
+        assertTrue(((LocationBatchUploadMessageView) message).release());
+    }
+
+    @Test
+    void truncated() {
+        var buf = encodeBatch();
+        // 去掉最后一个字节，最后一个数据项不完整
+        buf.writerIndex(buf.writerIndex() - 1);
+        assertThrows(CodecException.class, () -> codec.decode(PROTOCOL_DEFINITION, buf.markReaderIndex()));
+        assertThrows(CodecException.class, () -> codec.decodeView(PROTOCOL_DEFINITION, buf.resetReaderIndex()));
+        assertEquals(1, buf.refCnt());
+        buf.release();
+    }
+
+    @Test
+    void trailingBytes() {
+        var buf = encodeBatch();
+        // 数据项个数少 1，最后一个数据项成为多余的字节
+        buf.setShort(17, COUNT - 1);
+        assertThrows(CodecException.class, () -> codec.decode(PROTOCOL_DEFINITION, buf.markReaderIndex()));
+        assertThrows(CodecException.class, () -> codec.decodePooled(PROTOCOL_DEFINITION, buf.resetReaderIndex()));
+        assertThrows(CodecException.class, () -> codec.decodeView(PROTOCOL_DEFINITION, buf.resetReaderIndex()));
+        assertEquals(1, buf.refCnt());
+        buf.release();
+    }
+
+    @Test
+    void encodeWithoutDataType() {
+        var batch = new LocationBatchUploadMessage(Version.V2019);
+        batch.setTerminalPhoneNum("17355012222");
+        batch.setEncryption(Jt808Message.Encryption.NONE);
+        var out = ALLOCATOR.buffer();
+        var e = assertThrows(CodecException.class, () -> codec.encode(batch, out));
+        assertEquals("位置数据类型为 null", e.getMessage());
+        assertEquals(0, out.writerIndex());
+        out.release();
+    }
+
+    private static void assertEntry(int i, LocationReportMessage entry) {
+        assertEquals(30_000_000 + i, entry.getLatitude());
+        assertEquals(112_000_000, entry.getLongitude());
+        assertEquals(i % 3 == 0 ? i : -1, entry.getAdditionalInfo().getMileage());
+    }
+
+    /**
+     * 编码定位数据批量上传，返回的缓冲区已跳过起始符，解码时不校验 BCC 校验码与结束符
+     */
+    private static ByteBuf encodeBatch() {
+        var batch = new LocationBatchUploadMessage(Version.V2019);
+        batch.setTerminalPhoneNum("17355012222");
+        batch.setEncryption(Jt808Message.Encryption.NONE);
+        batch.setSerialNum(1);
+        batch.setDataType(LocationBatchUploadMessage.DataType.BLIND_AREA);
+        var entry = new LocationReportMessage(Version.V2019);
+        var additionalInfo = ALLOCATOR.buffer();
+        for (int i = 0; i < COUNT; i++) {
+            entry.setLatitude(30_000_000 + i);
+            entry.setLongitude(112_000_000);
+            if (i % 3 == 0) {
+                additionalInfo.clear().writeByte(0x01).writeByte(4).writeInt(i);
+                entry.getAdditionalInfo().index(additionalInfo, 0, additionalInfo.readableBytes());
+            } else {
+                entry.getAdditionalInfo().clear();
+            }
+            batch.addEntry(entry);
+        }
+        additionalInfo.release();
+        // 数据项超过 1023 字节，以分包重组后的消息编码
+        var buf = ALLOCATOR.buffer();
+        buf.writeShort(0x0704).writeShort(1 << 14).writeByte(1)
+                .writeBytes(ByteBufUtil.decodeHexDump("00000000017355012222")).writeShort(1)
+                .writeShort(COUNT).writeByte(batch.getDataType().getValue()).writeBytes(batch.getEntries())
+                .writeZero(2);
+        return buf;
+    }
+}
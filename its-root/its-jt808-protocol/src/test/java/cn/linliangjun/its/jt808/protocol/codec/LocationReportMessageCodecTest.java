@@ -0,0 +1,189 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.codec;
+
+import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LocationAdditionalInfo;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.protocol.message.view.LocationReportMessageView;
+import cn.linliangjun.its.uniprotocol.CodecException;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationReportMessageCodecTest {
+
+    private static final LocationReportMessageCodec codec = new LocationReportMessageCodec();
+
+    protected static final ByteBufAllocator ALLOCATOR = ByteBufAllocator.DEFAULT;
+
+    private static final ZoneOffset GMT_8 = ZoneOffset.ofHours(8);
+
+    @ParameterizedTest
+    @CsvSource({"0200001c01735501222200010000000000000002 01c9c38006acfc000032 0064005a230115083000, -1",
+            "0200002201735501222200010000000000000002 01c9c38006acfc000032 0064005a230115083000 01040000000a, 10"})
+    void decode(String hex, long mileage) {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(hex.replace(" ", "")));
+        var message = codec.decode(new ProtocolDefinition(Version.V2013), buf);
+        assertEquals(0, buf.readableBytes());
+        assertEquals(Type.LOCATION_REPORT, message.getType());
+        assertEquals(17355012222L, message.getTerminalPhone());
+        assertEquals(1, message.getSerialNum());
+        assertFalse(message.isPartial());
+        assertEquals(0, message.getAlarmFlags());
+        assertEquals(2, message.getStatus());
+        assertEquals(30_000_000, message.getLatitude());
+        assertEquals(112_000_000, message.getLongitude());
+        assertEquals(50, message.getAltitude());
+        assertEquals(100, message.getSpeed());
+        assertEquals(90, message.getDirection());
+        assertEquals(LocalDateTime.of(2023, 1, 15, 8, 30).toInstant(GMT_8).toEpochMilli(), message.getTime());
+        assertEquals(mileage, message.getAdditionalInfo().getMileage());
+        buf.release();
+    }
+
+    @Test
+    void time() {
+        var message = newMessage();
+        for (var date = LocalDate.of(2000, 1, 1); date.getYear() < 2100; date = date.plusDays(1)) {
+            long time = date.atTime(23, 59, 58).toInstant(GMT_8).toEpochMilli();
+            message.setTime(time);
+            var buf = codec.encode(message);
+            // 跳过起始符，解码时不校验 BCC 校验码与结束符
+            buf.skipBytes(1);
+            assertEquals(time, codec.decode(new ProtocolDefinition(Version.V2019), buf).getTime(), date::toString);
+            buf.release();
+        }
+    }
+
+    @Test
+    void zeroTime() {
+        var message = newMessage();
+        var buf = codec.encode(message);
+        buf.skipBytes(1);
+        assertEquals(0, codec.decode(new ProtocolDefinition(Version.V2019), buf).getTime());
+        buf.release();
+    }
+
+    @Test
+    void decodePooled() {
+        var message = newMessage();
+        message.setLatitude(30_000_000);
+        message.setTime(LocalDateTime.of(2024, 2, 29, 12, 0).toInstant(GMT_8).toEpochMilli());
+        var buf = codec.encode(message);
+        var protocolDefinition = new ProtocolDefinition(Version.V2019);
+        var expected = codec.decode(protocolDefinition, buf.skipBytes(1).markReaderIndex()).toString();
+
+        var pooled = codec.decodePooled(protocolDefinition, buf.resetReaderIndex());
+        assertEquals(expected, pooled.toString());
+        assertTrue(pooled.recycle());
+        assertEquals(0, pooled.getLatitude());
+        assertEquals(0, pooled.getTime());
+        buf.release();
+    }
+
+    /**
+     * 附加信息：里程、厂商自定义（0xe1）、信号强度、卫星数，最后一项不完整
+     */
+    private static final String ADDITIONAL_INFO_HEX = "0200003601735501222200010000000000000002 01c9c38006acfc000032 0064005a230115083000" +
+            " 01040000000a e10a00112233445566778899 300119 31010c 2504";
+
+    @Test
+    void additionalInfo() {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(ADDITIONAL_INFO_HEX.replace(" ", "")));
+        var message = codec.decode(new ProtocolDefinition(Version.V2013), buf);
+        assertEquals(0, buf.readableBytes());
+        buf.release();
+
+        var additionalInfo = message.getAdditionalInfo();
+        assertEquals(4, additionalInfo.size());
+        assertEquals(0xe1, additionalInfo.getId(1));
+        assertEquals(10, additionalInfo.getMileage());
+        assertEquals(25, additionalInfo.getSignalStrength());
+        assertEquals(12, additionalInfo.getSatelliteCount());
+        assertEquals(-1, additionalInfo.getFuel());
+        assertEquals(10, additionalInfo.getLength(0xe1));
+        assertEquals(0x8899, additionalInfo.getValue(0xe1).getUnsignedShort(8));
+        assertFalse(additionalInfo.contains(LocationAdditionalInfo.EXTENDED_VEHICLE_SIGNAL_STATUS));
+
+        // 附加信息原样编码，不完整的最后一项除外
+        var encoded = codec.encode(message).skipBytes(1);
+        var decoded = codec.decodePooled(new ProtocolDefinition(Version.V2013), encoded);
+        assertEquals(52, decoded.getBodyLength());
+        assertEquals(body(message), body(decoded));
+        assertTrue(decoded.recycle());
+        assertEquals(0, decoded.getAdditionalInfo().size());
+        encoded.release();
+    }
+
+    @Test
+    void decodeView() {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(ADDITIONAL_INFO_HEX.replace(" ", "")));
+        var protocolDefinition = new ProtocolDefinition(Version.V2013);
+        var expected = body(codec.decode(protocolDefinition, buf.markReaderIndex()));
+        var message = codec.decodeView(protocolDefinition, buf.resetReaderIndex());
+        assertInstanceOf(LocationReportMessageView.class, message);
+        assertEquals(0, buf.readableBytes());
+        buf.release();
+
+        assertEquals(expected, body(message));
+        assertEquals(10, message.getAdditionalInfo().getMileage());
+        assertTrue(((LocationReportMessageView) message).release());
+    }
+
+    /**
+     * 视图的字段在访问时才读取，但与立即解码、池化解码一样，在解码时拒绝非法的帧
+     */
+    @ParameterizedTest
+    @CsvSource({"0200001c01735501222200010000000000000002 01c9c38006acfc000032 0064005a231315083000",
+            "0200001c01735501222200010000000000000002 01c9c38006acfc000032 0064005a2301150830a0",
+            "0200001b01735501222200010000000000000002 01c9c38006acfc000032 0064005a2301150830"})
+    void malformed(String hex) {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(hex.replace(" ", "")));
+        var protocolDefinition = new ProtocolDefinition(Version.V2013);
+        assertThrows(CodecException.class, () -> codec.decode(protocolDefinition, buf.resetReaderIndex()));
+        assertThrows(CodecException.class, () -> codec.decodePooled(protocolDefinition, buf.resetReaderIndex()));
+        assertThrows(CodecException.class, () -> codec.decodeView(protocolDefinition, buf.resetReaderIndex()));
+        assertEquals(1, buf.refCnt());
+        buf.release();
+    }
+
+    private static String body(Jt808Message message) {
+        var s = message.toString();
+        return s.substring(s.indexOf("body="));
+    }
+
+    private static LocationReportMessage newMessage() {
+        var message = new LocationReportMessage(Version.V2019);
+        message.setTerminalPhoneNum("17355012222");
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        message.setSerialNum(1);
+        return message;
+    }
+}
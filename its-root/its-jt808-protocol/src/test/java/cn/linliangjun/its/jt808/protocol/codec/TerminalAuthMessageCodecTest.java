@@ -18,6 +18,7 @@ package cn.linliangjun.its.jt808.protocol.codec;
 
 import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
 import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
 import lombok.var;
@@ -27,6 +28,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.Encryption;
 import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+import static org.junit.jupiter.api.Assertions.*;
 
 class TerminalAuthMessageCodecTest {
 
@@ -56,4 +58,77 @@ class TerminalAuthMessageCodecTest {
         System.out.println(message);
         buf.release();
     }
+
+    /**
+     * 2019 版本的终端手机号最多 20 位，超出 long 的表示范围时以字符串形式解码，并能原样编码
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0102402701123456789012345678900037034f42443132333435363738393031323334350000000000000000000000000000000000000000",
+            "0102402701999999999999999999990037034f42443132333435363738393031323334350000000000000000000000000000000000000000",
+            "0102402701092233720368547758080037034f42443132333435363738393031323334350000000000000000000000000000000000000000"
+    })
+    void decodeOversizedTerminalPhone(String hex) {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(hex));
+        var message = (TerminalAuthMessage_2019) codec.decode(new ProtocolDefinition(Version.V2019), buf);
+        buf.release();
+        assertTrue(message.isTerminalPhoneOversized());
+        assertEquals(Jt808Message.OVERSIZED_TERMINAL_PHONE, message.getTerminalPhone());
+        assertEquals(hex.substring(10, 30).replaceFirst("^0+", ""), message.getTerminalPhoneNum());
+        assertEquals("OBD", message.getAuthKey());
+        assertEquals(0x37, message.getSerialNum());
+
+        var encoded = codec.encode(message);
+        // 编码结果含起始符、校验码与结束符
+        assertEquals(hex, ByteBufUtil.hexDump(encoded, 1, encoded.readableBytes() - 3));
+        encoded.release();
+    }
+
+    /**
+     * 未超出 long 表示范围的最大终端手机号仍以数值形式解码
+     */
+    @Test
+    void decodeMaxTerminalPhone() {
+        var hex = "0102402701092233720368547758070037034f42443132333435363738393031323334350000000000000000000000000000000000000000";
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(hex));
+        var message = codec.decode(new ProtocolDefinition(Version.V2019), buf);
+        buf.release();
+        assertFalse(message.isTerminalPhoneOversized());
+        assertEquals(Long.MAX_VALUE, message.getTerminalPhone());
+        assertEquals(Long.toString(Long.MAX_VALUE), message.getTerminalPhoneNum());
+    }
+
+    @Test
+    void setTerminalPhoneNum() {
+        var message = new TerminalAuthMessage_2019();
+        message.setTerminalPhoneNum("012345678901234567890");
+        assertTrue(message.isTerminalPhoneOversized());
+        assertEquals("12345678901234567890", message.getTerminalPhoneNum());
+        message.setTerminalPhoneNum("0017355012222");
+        assertEquals(17355012222L, message.getTerminalPhone());
+        assertEquals("17355012222", message.getTerminalPhoneNum());
+        assertThrows(NumberFormatException.class, () -> message.setTerminalPhoneNum("1735501222a"));
+        assertThrows(NumberFormatException.class, () -> message.setTerminalPhoneNum(""));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0102402701000000000173550122220037034f42443132333435363738393031323334350000000000000000000000000000000000000000"})
+    void decodePooled(String hex) {
+        var buf = ALLOCATOR.buffer().writeBytes(ByteBufUtil.decodeHexDump(hex));
+        var protocolDefinition = new ProtocolDefinition(Version.V2019);
+        var expected = codec.decode(protocolDefinition, buf.markReaderIndex()).toString();
+        assertFalse(codec.decode(protocolDefinition, buf.resetReaderIndex()).recycle());
+
+        var message = (TerminalAuthMessage_2019) codec.decodePooled(protocolDefinition, buf.resetReaderIndex());
+        assertEquals(expected, message.toString());
+        assertTrue(message.recycle());
+        assertNull(message.getAuthKey());
+        assertEquals(0, message.getSerialNum());
+
+        // 同一线程中再次获取，复用已交还的消息
+        assertSame(message, codec.decodePooled(protocolDefinition, buf.resetReaderIndex()));
+        assertEquals(expected, message.toString());
+        message.recycle();
+        buf.release();
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.protocol.message.view;
+
+import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.AbstractCodec;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalAuthMessageCodec;
+import cn.linliangjun.its.jt808.protocol.codec.TerminalRegisterMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LicensePlateColor;
+import cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage;
+import cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage;
+import lombok.var;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2011_2013;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage.TerminalAuthMessage_2019;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2011;
+import static cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage.TerminalRegisterMessage_2013_2019;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageViewTest {
+
+    private static final TerminalRegisterMessageCodec registerCodec = new TerminalRegisterMessageCodec();
+
+    private static final TerminalAuthMessageCodec authCodec = new TerminalAuthMessageCodec();
+
+    @ParameterizedTest
+    @EnumSource(Version.class)
+    void terminalRegister(Version version) {
+        TerminalRegisterMessage message;
+        if (version == Version.V2011) {
+            var msg = new TerminalRegisterMessage_2011();
+            msg.setProvinceId(44);
+            msg.setCityId(100);
+            msg.setManufacturerId("ITS01");
+            msg.setTerminalModel("T808");
+            msg.setTerminalId("T000001");
+            msg.setLicensePlateColor(LicensePlateColor.BLUE);
+            msg.setLicensePlateNum("粤B12345");
+            message = msg;
+        } else {
+            var msg = new TerminalRegisterMessage_2013_2019(version);
+            msg.setProvinceId(44);
+            msg.setCityId(100);
+            msg.setManufacturerId(version == Version.V2019 ? "ITS01000000" : "ITS01");
+            msg.setTerminalModel("T808");
+            msg.setTerminalId(version == Version.V2019 ? "T00000100000000000000000000000" : "T000001");
+            msg.setVin("LSVAU2180N2123456");
+            message = msg;
+        }
+        assertViewEquals(registerCodec, message);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Version.class)
+    void terminalAuth(Version version) {
+        TerminalAuthMessage message;
+        if (version == Version.V2019) {
+            var msg = new TerminalAuthMessage_2019();
+            msg.setAuthKey("鉴权码");
+            msg.setImei("123456789012345");
+            msg.setSoftwareVersion("1.0.0");
+            message = msg;
+        } else {
+            var msg = new TerminalAuthMessage_2011_2013(version);
+            msg.setAuthKey("鉴权码");
+            message = msg;
+        }
+        assertViewEquals(authCodec, message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M extends Jt808Message> void assertViewEquals(AbstractCodec<M> codec, Jt808Message message) {
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        message.setTerminalPhone(17355012222L);
+        message.setSerialNum(0x1234);
+        var escaped = codec.encode((M) message);
+        var frame = AbstractCodec.unescape(escaped);
+        escaped.release();
+        var protocolDefinition = new ProtocolDefinition(message.getVersion());
+
+        var expected = codec.decode(protocolDefinition, frame.readerIndex(1));
+        var view = codec.decodeView(protocolDefinition, frame.readerIndex(1));
+        assertEquals(frame.writerIndex() - 2, frame.readerIndex());
+        assertInstanceOf(MessageView.class, view);
+        assertEquals(2, frame.refCnt());
+        // 类名不同，只比较字段
+        assertEquals(fields(expected), fields(view));
+
+        ((MessageView) view).release();
+        assertEquals(1, frame.refCnt());
+        frame.release();
+    }
+
+    private static String fields(Jt808Message message) {
+        String str = message.toString();
+        return str.substring(str.indexOf('{'));
+    }
+}
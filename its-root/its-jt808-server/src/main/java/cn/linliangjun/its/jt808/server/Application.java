@@ -16,10 +16,13 @@
 
 package cn.linliangjun.its.jt808.server;
 
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(Jt808ServerProperties.class)
 public class Application {
 
     public static void main(String[] args) {
@@ -17,6 +17,7 @@
 package cn.linliangjun.its.jt808.server.adapter;
 
 import cn.linliangjun.its.jt808.server.adapter.netty.ChannelAttrUtils;
+import cn.linliangjun.its.jt808.server.session.Session;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -29,8 +30,26 @@ public final class CtxUtils {
     public static void setLogin(Object ctx) {
         if (ctx instanceof ChannelHandlerContext) {
             ChannelAttrUtils.setLogin(((ChannelHandlerContext) ctx));
+        } else if (ctx instanceof Session) {
+            ((Session) ctx).setLogin(true);
         }else {
             log.error("无法设置上下文，原因：不支持的 channel 上下文，{}", ctx);
         }
     }
+
+    /**
+     * 获取上下文对应的会话，UDP 终端的上下文即为会话
+     *
+     * @return 会话，不支持的上下文返回 {@code null}
+     */
+    public static Session getSession(Object ctx) {
+        if (ctx instanceof ChannelHandlerContext) {
+            return ChannelAttrUtils.getSession((ChannelHandlerContext) ctx);
+        }
+        if (ctx instanceof Session) {
+            return (Session) ctx;
+        }
+        log.error("无法获取会话，原因：不支持的 channel 上下文，{}", ctx);
+        return null;
+    }
 }
@@ -16,21 +16,46 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.util.ReferenceCountUtil;
+import lombok.Setter;
 import lombok.var;
 
 public abstract class AbstractInboundByteBufWrapperHandler extends SimpleChannelInboundHandler<ByteBufWrapper> {
 
     private final boolean autoRelease;
 
-    public AbstractInboundByteBufWrapperHandler(boolean autoRelease) {
+    private final PipelineMetrics.Stage stage;
+
+    /**
+     * 流水线指标，为 {@code null} 时不统计
+     */
+    @Setter
+    private PipelineMetrics metrics;
+
+    public AbstractInboundByteBufWrapperHandler(boolean autoRelease, PipelineMetrics.Stage stage) {
         super(autoRelease);
         this.autoRelease = autoRelease;
+        this.stage = stage;
     }
 
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        var metrics = this.metrics;
+        if (metrics == null) {
+            read(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        try {
+            read(ctx, msg);
+        } finally {
+            metrics.stop(stage, start);
+        }
+    }
+
+    private void read(ChannelHandlerContext ctx, Object msg) throws Exception {
         boolean release = true;
         try {
             if (msg instanceof ByteBufWrapper) {
@@ -17,8 +17,17 @@
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
 import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
 import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.session.Session;
+import cn.linliangjun.its.jt808.server.session.SessionReaper;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.var;
 
 import static io.netty.channel.ChannelHandler.Sharable;
@@ -26,13 +35,61 @@ import static io.netty.channel.ChannelHandler.Sharable;
 /**
  * JT/T 808 准入处理器
  *
+ * <p>从帧的消息头中读取终端手机号，记录到连接的会话中；同一连接上终端手机号不一致的帧将被丢弃。
+ * 会话由终端注册、鉴权端点登记到 {@linkplain SessionRegistry}，连接关闭时由本处理器移除；连接建立时交由 {@linkplain SessionReaper} 检查鉴权超时。
+ * 帧所属的会话记录在 {@linkplain ByteBufWrapper} 中，供下游处理器使用
+ *
+ * <p>未鉴权的会话只接受注册与鉴权消息。启用执行通道时，鉴权消息在执行通道中处理，终端紧随鉴权发送的帧到达这里时会话可能尚未标记为已鉴权，
+ * 因此收到鉴权消息后放行这些帧，由 {@linkplain MessageHandler} 在执行通道中、鉴权处理完之后再检查
+ *
  * @author linliangjun
  */
 @Sharable
 public class AccessHandler extends AbstractInboundByteBufWrapperHandler {
 
+    /**
+     * 消息体属性中的版本标识
+     */
+    private static final int VERSION_BIT = 1 << 14;
+
+    @Getter
+    private final SessionRegistry sessionRegistry;
+
+    /**
+     * 会话清理器，为 {@code null} 时不清理超时未鉴权的连接
+     */
+    @Getter
+    @Setter
+    private SessionReaper sessionReaper;
+
+    /**
+     * 是否将已收到鉴权消息的会话的鉴权检查推迟到执行通道，启用执行通道时应为 {@code true}
+     */
+    @Setter
+    private boolean deferLoginCheck;
+
     public AccessHandler() {
-        super(false);
+        this(new SessionRegistry());
+    }
+
+    public AccessHandler(SessionRegistry sessionRegistry) {
+        super(false, PipelineMetrics.Stage.ACCESS_HANDLER);
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        var session = ChannelAttrUtils.getSession(ctx);
+        if (sessionReaper != null) {
+            sessionReaper.watch(session);
+        }
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        sessionRegistry.remove(ChannelAttrUtils.getSession(ctx));
+        super.channelInactive(ctx);
     }
 
     @Override
@@ -47,6 +104,19 @@ public class AccessHandler extends AbstractInboundByteBufWrapperHandler {
         }
         wrapper.setType(type);
         int len = buf.writerIndex() - buf.readerIndex();
+        Session session;
+        try {
+            long terminalPhone = getTerminalPhone(buf, len);
+            // 超出 long 表示范围的终端手机号极少见，只有此时才创建字符串
+            var terminalPhoneNum = terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE ? getTerminalPhoneNum(buf) : null;
+            session = getSession(ctx, wrapper, terminalPhone, terminalPhoneNum);
+        } catch (IllegalArgumentException e) {
+            wrapper.discard(e.getMessage());
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        session.touch(System.currentTimeMillis());
+        wrapper.setSession(session);
         if (type == Type.TERMINAL_REGISTER) {
             Version version;
             if (len < 50) {
@@ -56,22 +126,72 @@ public class AccessHandler extends AbstractInboundByteBufWrapperHandler {
             } else {
                 version = Version.V2019;
             }
-            ChannelAttrUtils.setVersion(ctx, version);
+            session.setVersion(version);
             ctx.fireChannelRead(wrapper);
             return;
         }
         if (type == Type.TERMINAL_AUTH) {
-            var version = ChannelAttrUtils.getVersion(ctx);
+            var version = session.getVersion();
             if (version == null) {
                 version = len > 50 ? Version.V2019 : Version.V2013;
             }
-            ChannelAttrUtils.setVersion(ctx, version);
+            session.setVersion(version);
+            session.setAuthRequested(true);
             ctx.fireChannelRead(wrapper);
             return;
         }
-        if (!ChannelAttrUtils.login(ctx)) {
+        if (!session.isLogin() && !(deferLoginCheck && session.isAuthRequested())) {
             wrapper.discard("终端未鉴权");
         }
         ctx.fireChannelRead(wrapper);
     }
+
+    /**
+     * 获取帧所属的会话，即连接的会话，首次收到帧时记录终端手机号
+     *
+     * @param ctx           channel 上下文
+     * @param wrapper       帧
+     * @param terminalPhone    帧的终端手机号（数值形式）
+     * @param terminalPhoneNum 帧的终端手机号（字符串形式），仅当数值形式为 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE} 时有值
+     * @return 会话
+     * @throws IllegalArgumentException 帧不属于该会话时抛出，异常信息为丢弃原因
+     */
+    protected Session getSession(ChannelHandlerContext ctx, ByteBufWrapper wrapper, long terminalPhone, String terminalPhoneNum) {
+        var session = ChannelAttrUtils.getSession(ctx);
+        if (!session.setTerminalPhone(terminalPhone, terminalPhoneNum)) {
+            throw new IllegalArgumentException(String.format("终端手机号 %s 与会话的终端手机号 %s 不一致",
+                    terminalPhoneNum != null ? terminalPhoneNum : terminalPhone, session.getTerminalPhoneNum()));
+        }
+        return session;
+    }
+
+    /**
+     * 读取消息头中的终端手机号（数值形式），超出 {@code long} 的表示范围时返回 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE}
+     *
+     * @throws IllegalArgumentException 帧过短或终端手机号非法时抛出，异常信息为丢弃原因
+     */
+    private static long getTerminalPhone(ByteBuf buf, int len) {
+        int index = buf.readerIndex();
+        boolean v2019 = (buf.getUnsignedShort(index + 3) & VERSION_BIT) != 0;
+        // 2019 版本在终端手机号之前有 1 字节的协议版本号，终端手机号为 10 字节；其他版本为 6 字节
+        int phoneIndex = index + (v2019 ? 6 : 5), phoneLen = v2019 ? 10 : 6;
+        // 终端手机号之后至少还有流水号、校验码和结束符
+        if (phoneIndex + phoneLen + 4 > index + len) {
+            throw new IllegalArgumentException("长度过短");
+        }
+        try {
+            return CodecUtils.getBcd8421(buf, phoneIndex, phoneLen, Jt808Message.OVERSIZED_TERMINAL_PHONE);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("非法的终端手机号，具体原因：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取消息头中的终端手机号（字符串形式），帧的长度与终端手机号已由 {@linkplain #getTerminalPhone} 检查
+     */
+    private static String getTerminalPhoneNum(ByteBuf buf) {
+        int index = buf.readerIndex();
+        boolean v2019 = (buf.getUnsignedShort(index + 3) & VERSION_BIT) != 0;
+        return CodecUtils.getBcd8421String(buf, index + (v2019 ? 6 : 5), v2019 ? 10 : 6);
+    }
 }
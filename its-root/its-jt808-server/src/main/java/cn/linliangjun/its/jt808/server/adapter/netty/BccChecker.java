@@ -16,6 +16,7 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
 import cn.linliangjun.its.uniprotocol.util.CodecUtils;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
@@ -33,7 +34,7 @@ import static io.netty.channel.ChannelHandler.Sharable;
 public class BccChecker extends AbstractInboundByteBufWrapperHandler {
 
     public BccChecker() {
-        super(false);
+        super(false, PipelineMetrics.Stage.BCC_CHECKER);
     }
 
     @Override
@@ -41,7 +42,7 @@ public class BccChecker extends AbstractInboundByteBufWrapperHandler {
         var buf = wrapper.getBuf();
         int writerIndex = buf.writerIndex(), readerIndex = buf.readerIndex();
         int len = writerIndex - readerIndex;
-        byte code = CodecUtils.getBccCode(buf, readerIndex + 1, len - 3);
+        byte code = CodecUtils.getBccCodeSwar(buf, readerIndex + 1, len - 3);
         byte b = buf.getByte(writerIndex - 2);
         if (code != b) {
             wrapper.discard(String.format("BCC 校验码不正确，应为：%0#4x，实际：%0#4x", code, b));
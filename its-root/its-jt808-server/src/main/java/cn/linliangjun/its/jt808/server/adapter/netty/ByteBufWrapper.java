@@ -17,11 +17,13 @@
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
 import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.session.Session;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCounted;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.net.InetSocketAddress;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -53,6 +55,25 @@ public class ByteBufWrapper implements ReferenceCounted {
         attr.put("type", type);
     }
 
+    public Session getSession() {
+        return ((Session) attr.get("session"));
+    }
+
+    public void setSession(Session session) {
+        attr.put("session", session);
+    }
+
+    /**
+     * @return 数据报的发送方地址，仅 UDP 有效
+     */
+    public InetSocketAddress getSender() {
+        return ((InetSocketAddress) attr.get("sender"));
+    }
+
+    public void setSender(InetSocketAddress sender) {
+        attr.put("sender", sender);
+    }
+
     @Override
     public int refCnt() {
         return buf.refCnt();
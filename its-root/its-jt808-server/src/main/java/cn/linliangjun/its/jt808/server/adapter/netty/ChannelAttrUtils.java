@@ -17,29 +17,44 @@
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
 import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.server.session.Session;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.AttributeKey;
+import lombok.var;
 
 public final class ChannelAttrUtils {
 
-    private static final AttributeKey<Version> VERSION = AttributeKey.newInstance("version");
-
-    private static final AttributeKey<Boolean> LOGIN = AttributeKey.newInstance("login");
+    private static final AttributeKey<Session> SESSION = AttributeKey.newInstance("session");
+
+    /**
+     * 获取连接的会话，不存在时创建
+     */
+    public static Session getSession(ChannelHandlerContext ctx) {
+        var attr = ctx.channel().attr(SESSION);
+        var session = attr.get();
+        if (session == null) {
+            session = new Session(ctx.channel());
+            var old = attr.setIfAbsent(session);
+            if (old != null) {
+                session = old;
+            }
+        }
+        return session;
+    }
 
     public static Version getVersion(ChannelHandlerContext ctx) {
-        return ctx.channel().attr(VERSION).get();
+        return getSession(ctx).getVersion();
     }
 
     public static void setVersion(ChannelHandlerContext ctx, Version version) {
-        ctx.channel().attr(VERSION).set(version);
+        getSession(ctx).setVersion(version);
     }
 
     public static boolean login(ChannelHandlerContext ctx) {
-        Boolean login = ctx.channel().attr(LOGIN).get();
-        return login != null && login;
+        return getSession(ctx).isLogin();
     }
 
     public static void setLogin(ChannelHandlerContext ctx) {
-        ctx.channel().attr(LOGIN).set(true);
+        getSession(ctx).setLogin(true);
     }
 }
@@ -16,10 +16,10 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
-import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 import lombok.var;
 
@@ -29,8 +29,44 @@ public class DiscardHandler extends ChannelInboundHandlerAdapter {
     private static final int MAX_DISCARD_COUNT = 10;
     private int discardCount;
 
+    /**
+     * 丢弃大量数据时是否关闭连接，UDP 的 channel 为所有终端共用，不能关闭
+     */
+    private final boolean closeOnExcess;
+
+    /**
+     * 流水线指标，为 {@code null} 时不统计
+     */
+    private final PipelineMetrics metrics;
+
+    public DiscardHandler() {
+        this(null);
+    }
+
+    public DiscardHandler(PipelineMetrics metrics) {
+        this(metrics, true);
+    }
+
+    public DiscardHandler(PipelineMetrics metrics, boolean closeOnExcess) {
+        this.metrics = metrics;
+        this.closeOnExcess = closeOnExcess;
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (metrics == null) {
+            read(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        try {
+            read(ctx, msg);
+        } finally {
+            metrics.stop(PipelineMetrics.Stage.DISCARD_HANDLER, start);
+        }
+    }
+
+    private void read(ChannelHandlerContext ctx, Object msg) {
         var channel = ctx.channel();
         if (msg instanceof ByteBufWrapper) {
             var wrapper = (ByteBufWrapper) msg;
@@ -41,11 +77,12 @@ public class DiscardHandler extends ChannelInboundHandlerAdapter {
             }else {
                 log.warn("{} 入站流水线已结束，数据却仍未处理，默认丢弃。原始数据：{}", ctx.channel(), hexDump);
             }
+            wrapper.release();
         } else {
+            // 其余消息的所有权随之转移给下游
             ctx.fireChannelRead(msg);
         }
-        ReferenceCountUtil.release(msg);
-        if (discardCount >= MAX_DISCARD_COUNT) {
+        if (closeOnExcess && discardCount >= MAX_DISCARD_COUNT) {
             log.info("{} 检测到大量异常数据，关闭连接...", channel);
             channel.close().awaitUninterruptibly();
         }
@@ -16,17 +16,19 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
 import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import cn.linliangjun.its.uniprotocol.util.IntList;
 import cn.linliangjun.its.uniprotocol.util.Segment;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.DecoderException;
+import io.netty.util.concurrent.FastThreadLocal;
 import lombok.extern.slf4j.Slf4j;
 import lombok.var;
 
 import java.util.LinkedHashMap;
-import java.util.List;
 
 import static io.netty.channel.ChannelHandler.Sharable;
 
@@ -39,14 +41,26 @@ import static io.netty.channel.ChannelHandler.Sharable;
 @Sharable
 public class EscapeHandler extends AbstractInboundByteBufWrapperHandler {
 
+    /**
+     * 0x7d 的位置，处理器是共享的，因此每个线程复用各自的列表
+     */
+    private static final FastThreadLocal<IntList> INDEXES = new FastThreadLocal<IntList>() {
+        @Override
+        protected IntList initialValue() {
+            return new IntList();
+        }
+    };
+
     public EscapeHandler() {
-        super(false);
+        super(false, PipelineMetrics.Stage.ESCAPE_HANDLER);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
         var buf = wrapper.getBuf();
-        var indexes = CodecUtils.getIndexes(buf, (byte) 0x7d);
+        var indexes = INDEXES.get();
+        indexes.clear();
+        CodecUtils.getIndexesSwar(buf, buf.readerIndex(), buf.writerIndex(), (byte) 0x7d, indexes);
         if (indexes.isEmpty()) {
             ctx.fireChannelRead(wrapper);
             return;
@@ -71,10 +85,11 @@ public class EscapeHandler extends AbstractInboundByteBufWrapperHandler {
         ctx.fireChannelRead(wrapper);
     }
 
-    private LinkedHashMap<Segment, Byte> getSegments(ByteBuf buf, List<Integer> indexes) {
+    private LinkedHashMap<Segment, Byte> getSegments(ByteBuf buf, IntList indexes) {
         var segments = new LinkedHashMap<Segment, Byte>();
         int fromIndex = 0;
-        for (int index : indexes) {
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
             byte b = getEscapeByte(buf, index);
             segments.put(new Segment(fromIndex, index - fromIndex), b);
             fromIndex = index + 2;
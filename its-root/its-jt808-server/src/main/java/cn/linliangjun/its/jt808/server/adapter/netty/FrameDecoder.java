@@ -0,0 +1,186 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import lombok.var;
+
+import java.util.List;
+
+/**
+ * JT/T 808 帧解码器
+ *
+ * <p>将帧分割、转义和 BCC 校验融合为一次线性遍历：找到 0x7e ... 0x7e 形式的帧后，原地还原 0x7d01、0x7d02，同时计算 BCC 校验码。
+ * 第一个 0x7d 之前的数据按字（8 字节）计算 BCC 校验码。
+ * 输出的帧是累积缓冲区的切片，只有当帧跨越多次读取时，才会由 {@linkplain ByteToMessageDecoder} 复制到累积缓冲区中。
+ *
+ * <p>输出的帧与 {@linkplain cn.linliangjun.its.jt808.server.adapter.netty.tcp.FrameSplitter FrameSplitter}、{@linkplain EscapeHandler}、{@linkplain BccChecker} 依次处理后的结果一致。
+ *
+ * @author linliangjun
+ */
+public class FrameDecoder extends ByteToMessageDecoder {
+
+    public static final byte FLAG = 0x7e;
+
+    private static final byte ESCAPE = 0x7d;
+
+    /**
+     * 帧的最小长度（转义前）
+     */
+    public static final int MIN_FRAME_LENGTH = 12;
+
+    private final int maxFrameLength;
+
+    /**
+     * 流水线指标，为 {@code null} 时不统计
+     */
+    private final PipelineMetrics metrics;
+
+    /**
+     * 本次读取分割出的帧数
+     */
+    private int frames;
+
+    public FrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, null);
+    }
+
+    public FrameDecoder(int maxFrameLength, PipelineMetrics metrics) {
+        if (maxFrameLength < MIN_FRAME_LENGTH) {
+            throw new IllegalArgumentException("最大帧长度不能小于 " + MIN_FRAME_LENGTH + "：" + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (metrics == null) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        frames = 0;
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            metrics.recordFramesPerRead(frames);
+            metrics.stop(PipelineMetrics.Stage.FRAME_DECODER, start);
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        int readerIndex = in.readerIndex(), writerIndex = in.writerIndex();
+        int start = in.indexOf(readerIndex, writerIndex, FLAG);
+        if (start == -1) {
+            // 不存在 0x7e，则丢弃
+            out.add(discard(in.readRetainedSlice(writerIndex - readerIndex), String.format("未找到起始符 %#4x", FLAG)));
+            return;
+        }
+        int end = in.indexOf(start + 1, writerIndex, FLAG);
+        if (end == -1) {
+            if (writerIndex - start > maxFrameLength) {
+                in.readerIndex(writerIndex);
+                out.add(discard(in.retainedSlice(start, writerIndex - start), "长度溢出"));
+            } else {
+                // 半包，跳过起始符之前的数据，等待下次数据入站
+                in.readerIndex(start);
+            }
+            return;
+        }
+        if (end == start + 1) {
+            // 连续的两个 0x7e，前一个是上一帧的结束符，从后一个开始重新分割
+            in.readerIndex(end);
+            return;
+        }
+        int len = end - start + 1;
+        in.readerIndex(end + 1);
+        if (len > maxFrameLength) {
+            out.add(discard(in.retainedSlice(start, len), "长度溢出"));
+            return;
+        }
+        if (metrics != null) {
+            frames++;
+            metrics.recordFrameBytes(len);
+        }
+        if (len < MIN_FRAME_LENGTH) {
+            out.add(discard(in.retainedSlice(start, len), "长度过短"));
+            return;
+        }
+        if (in.isReadOnly()) {
+            // 只读缓冲区无法原地转义，复制一份
+            var copy = ctx.alloc().buffer(len);
+            copy.writeBytes(in, start, len);
+            out.add(unescape(copy, 0, len - 1));
+            copy.release();
+        } else {
+            out.add(unescape(in, start, end));
+        }
+    }
+
+    /**
+     * 原地转义并进行 BCC 校验，UDP 的数据报解码器也使用该方法
+     *
+     * @param buf   字节缓冲区
+     * @param start 起始符的位置
+     * @param end   结束符的位置
+     * @return 帧，是字节缓冲区的切片
+     */
+    public static ByteBufWrapper unescape(ByteBuf buf, int start, int end) {
+        // 第一个 0x7d 之前的数据无需还原，按字（8 字节）计算 BCC 校验码；大部分帧不含 0x7d，此时无需逐字节处理
+        int escapeIndex = buf.indexOf(start + 1, end, ESCAPE);
+        int w = escapeIndex == -1 ? end : escapeIndex;
+        byte code = CodecUtils.getBccCodeSwar(buf, start + 1, w - start - 1);
+        for (int r = w; r < end; r++, w++) {
+            byte b = buf.getByte(r);
+            if (b == ESCAPE) {
+                byte next = buf.getByte(++r);
+                if (next == 0x01) {
+                    b = ESCAPE;
+                } else if (next == 0x02) {
+                    b = FLAG;
+                } else {
+                    // 此时帧可能已被部分还原
+                    return discard(buf.retainedSlice(start, end - start + 1), String.format("未知的转义：0x7d%02x", next));
+                }
+            }
+            if (w != r) {
+                buf.setByte(w, b);
+            }
+            code ^= b;
+        }
+        buf.setByte(w, FLAG);
+        var wrapper = new ByteBufWrapper(buf.retainedSlice(start, w - start + 1));
+        // 校验码本身也参与了异或，校验通过时结果为 0
+        if (code != 0) {
+            byte b = buf.getByte(w - 1);
+            wrapper.discard(String.format("BCC 校验码不正确，应为：%0#4x，实际：%0#4x", (byte) (code ^ b), b));
+        }
+        return wrapper;
+    }
+
+    public static ByteBufWrapper discard(ByteBuf buf, String message) {
+        var wrapper = new ByteBufWrapper(buf);
+        wrapper.discard(message);
+        return wrapper;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2013_2019;
+import static io.netty.channel.ChannelHandler.Sharable;
+
+/**
+ * 终端心跳（0x0002）处理器，位于 {@linkplain AccessHandler} 之后，在事件循环中直接应答心跳
+ *
+ * <p>心跳没有消息体，{@linkplain AccessHandler} 已刷新会话的最后一次收到数据的时间，剩下的只有平台通用应答。
+ * 本处理器不解码消息、不创建消息对象、不经过消息处理器与消息端点：应答在启动时以编解码器预先编码为模版（终端手机号与流水号均为 0），
+ * 每次应答时复制模版，填入心跳帧中的终端手机号（BCD 码，无需转义）、平台流水号与应答流水号，并据此增量计算校验码，只有流水号与校验码需要转义。
+ * 应答经 {@linkplain OutboundHandler} 在本次读取结束时合并刷新。
+ *
+ * <p>分包或加密的心跳交给下游按普通消息处理
+ *
+ * @author linliangjun
+ */
+@Sharable
+public class HeartbeatHandler extends AbstractInboundByteBufWrapperHandler {
+
+    private static final byte FLAG = 0x7e;
+
+    private static final byte ESCAPE = 0x7d;
+
+    private static final int PARTIAL_BIT = 1 << 13;
+
+    private static final int VERSION_BIT = 1 << 14;
+
+    private static final int ENCRYPTION_MASK = 0b111 << 10;
+
+    public HeartbeatHandler() {
+        super(false, PipelineMetrics.Stage.HEARTBEAT_HANDLER);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
+        var buf = wrapper.getBuf();
+        int index = buf.readerIndex();
+        int properties = buf.getUnsignedShort(index + 3);
+        if (wrapper.getType() != Type.TERMINAL_HEARTBEAT || (properties & (PARTIAL_BIT | ENCRYPTION_MASK)) != 0) {
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        var template = (properties & VERSION_BIT) != 0 ? Templates.V2019 : Templates.V2013;
+        // 心跳帧与应答帧的终端手机号位于相同的位置
+        int phoneIndex = index + 1 + template.phoneOffset;
+        int respSerialNum = buf.getUnsignedShort(phoneIndex + template.phoneLength);
+        var session = wrapper.getSession();
+        int serialNum = session.nextSerialNum();
+
+        // 流水号与校验码最多 5 个字节需要转义
+        var out = ctx.alloc().ioBuffer(template.bytes.length + 3 + 5);
+        out.writeByte(FLAG);
+        out.writeBytes(template.bytes, 0, template.phoneOffset);
+        out.writeBytes(buf, phoneIndex, template.phoneLength);
+        int code = template.code;
+        for (int i = 0; i < template.phoneLength; i++) {
+            code ^= buf.getByte(phoneIndex + i);
+        }
+        code ^= writeShortEscaped(out, serialNum);
+        code ^= writeShortEscaped(out, respSerialNum);
+        int tailIndex = template.phoneOffset + template.phoneLength + 4;
+        out.writeBytes(template.bytes, tailIndex, template.bytes.length - tailIndex);
+        writeEscaped(out, (byte) code);
+        out.writeByte(FLAG);
+        wrapper.release();
+        OutboundHandler.write(session, out);
+    }
+
+    /**
+     * 写入 WORD 并转义
+     *
+     * @return 两个字节的异或值，用于计算校验码
+     */
+    private static int writeShortEscaped(ByteBuf out, int value) {
+        byte high = (byte) (value >>> 8);
+        byte low = (byte) value;
+        writeEscaped(out, high);
+        writeEscaped(out, low);
+        return high ^ low;
+    }
+
+    private static void writeEscaped(ByteBuf out, byte b) {
+        if (b == FLAG) {
+            out.writeByte(ESCAPE).writeByte(0x02);
+        } else if (b == ESCAPE) {
+            out.writeByte(ESCAPE).writeByte(0x01);
+        } else {
+            out.writeByte(b);
+        }
+    }
+
+    /**
+     * 平台通用应答模版（不含起始符、校验码与结束符，未转义），2013 版本的模版同样适用于 2011 版本。
+     * 编码依赖冻结后的协议定义，因此在首次收到心跳时才构建，而不是在处理器创建时
+     */
+    private static final class Templates {
+
+        private static final Template V2013 = new Template(Version.V2013);
+
+        private static final Template V2019 = new Template(Version.V2019);
+    }
+
+    /**
+     * 平台通用应答模版
+     */
+    private static final class Template {
+
+        /**
+         * 消息 ID、消息体属性、（协议版本号）、终端手机号（全 0）、流水号（0）、应答流水号（0）、应答 ID、结果
+         */
+        private final byte[] bytes;
+
+        /**
+         * 终端手机号在模版中的位置
+         */
+        private final int phoneOffset;
+
+        private final int phoneLength;
+
+        /**
+         * 模版的校验码
+         */
+        private final int code;
+
+        private Template(Version version) {
+            phoneOffset = version == Version.V2019 ? 5 : 4;
+            phoneLength = version == Version.V2019 ? 10 : 6;
+            var message = new PlatformGenericRespMessage_2013_2019(version);
+            message.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
+            message.setEncryption(Jt808Message.Encryption.NONE);
+            message.setTerminalPhone(0);
+            message.setPartial(false);
+            message.setSerialNum(0);
+            message.setRespSerialNum(0);
+            message.setRespType(Type.TERMINAL_HEARTBEAT);
+            var buf = DispatchTable.getInstance().getCodec(version, Type.PLATFORM_GENERIC_RESP.getValue()).encode(message);
+            try {
+                // 可变字段均为 0，编码结果中只有校验码可能被转义，而校验码不在模版中
+                int len = phoneOffset + phoneLength + 2 + 2 + 2 + 1;
+                bytes = ByteBufUtil.getBytes(buf, 1, len);
+                int code = 0;
+                for (var b : bytes) {
+                    code ^= b;
+                }
+                this.code = code;
+            } finally {
+                buf.release();
+            }
+        }
+    }
+}
@@ -16,14 +16,15 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
-import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
 import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
 import cn.linliangjun.its.jt808.protocol.message.Type;
-import cn.linliangjun.its.uniprotocol.Codec;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
 import cn.linliangjun.its.uniprotocol.CodecException;
-import cn.linliangjun.its.uniprotocol.DefinitionManager;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
 import lombok.var;
 
 import static io.netty.channel.ChannelHandler.Sharable;
@@ -31,49 +32,64 @@ import static io.netty.channel.ChannelHandler.Sharable;
 /**
  * JT/T 808 消息解码器
  *
+ * <p>以视图方式解码时，消息视图持有帧的切片；以池化方式解码时，消息来自对象池。两者均由下游的 {@linkplain MessageHandler} 在处理完成后释放或交还
+ *
  * @author linliangjun
  */
 @Sharable
 public class MessageDecoder extends AbstractInboundByteBufWrapperHandler {
 
+    private final Jt808ServerProperties.MessageDecodeMode mode;
+
     public MessageDecoder() {
-        super(false);
+        this(Jt808ServerProperties.MessageDecodeMode.EAGER);
+    }
+
+    public MessageDecoder(Jt808ServerProperties.MessageDecodeMode mode) {
+        super(false, PipelineMetrics.Stage.MESSAGE_DECODER);
+        this.mode = mode;
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
-        var version = ChannelAttrUtils.getVersion(ctx);
+        // UDP 终端共用同一个 channel，版本只能从帧所属的会话中获取
+        var session = wrapper.getSession();
+        var version = session != null ? session.getVersion() : ChannelAttrUtils.getVersion(ctx);
         if (version == null) {
             wrapper.discard("版本为 null");
             ctx.fireChannelRead(wrapper);
             return;
         }
 
-        var protocol = new ProtocolDefinition(version);
-        var pm = DefinitionManager.getProtocolDefinition(protocol);
-        if (pm == null) {
-            wrapper.discard(String.format("协议定义 %s 未注册", protocol));
-            ctx.fireChannelRead(wrapper);
-            return;
-        }
-
+        var table = DispatchTable.getInstance();
+        var protocol = table.getProtocolDefinition(version);
         Type type = wrapper.getType();
-        var messageDefinition = DefinitionManager.getMessageDefinition(pm, type.getValue());
-        if (messageDefinition == null) {
+        var codec = table.getCodec(version, type.getValue());
+        if (codec == null) {
             wrapper.discard(String.format("协议定义 %s 未适配的消息类型 %s", protocol, type));
             ctx.fireChannelRead(wrapper);
             return;
         }
 
-        Codec<cn.linliangjun.its.uniprotocol.ProtocolDefinition, Jt808Message> codec = messageDefinition.getCodec();
-
         try {
             ByteBuf buf = wrapper.getBuf();
             buf.markReaderIndex();
             buf.skipBytes(1);
-            var message = codec.decode(protocol, buf);
+            Jt808Message message;
+            switch (mode) {
+                case VIEW:
+                    message = codec.decodeView(protocol, buf);
+                    break;
+                case POOLED:
+                    message = codec.decodePooled(protocol, buf);
+                    break;
+                default:
+                    message = codec.decode(protocol, buf);
+            }
             if (buf.readerIndex() != buf.writerIndex() - 2) {
                 buf.resetReaderIndex();
+                ReferenceCountUtil.release(message);
+                message.recycle();
                 throw new CodecException("字节缓冲区未读取完");
             }
             wrapper.release();
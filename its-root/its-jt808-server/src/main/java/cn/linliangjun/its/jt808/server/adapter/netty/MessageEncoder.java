@@ -16,10 +16,8 @@
 
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
-import cn.linliangjun.its.jt808.protocol.ProtocolDefinition;
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
 import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
-import cn.linliangjun.its.uniprotocol.Codec;
-import cn.linliangjun.its.uniprotocol.DefinitionManager;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -35,15 +33,11 @@ public class MessageEncoder extends MessageToByteEncoder<Jt808Message> {
     protected void encode(ChannelHandlerContext ctx, Jt808Message msg, ByteBuf out) {
         var version = ChannelAttrUtils.getVersion(ctx);
 
-        var protocol = new ProtocolDefinition(version);
-        var pm = DefinitionManager.getProtocolDefinition(protocol);
+        var table = DispatchTable.getInstance();
+        var codec = table.getCodec(version, msg.getType().getValue());
 
-        var messageDefinition = DefinitionManager.getMessageDefinition(pm, msg.getType().getValue());
+        Assert.notNull(codec, () -> String.format("协议定义 %s 未适配的消息类型 %s", table.getProtocolDefinition(version), msg.getType()));
 
-        Assert.notNull(messageDefinition, String.format("协议定义 %s 未适配的消息类型 %s", protocol, msg.getType()));
-        Codec<cn.linliangjun.its.uniprotocol.ProtocolDefinition, Jt808Message> codec = messageDefinition.getCodec();
-
-        var buf = codec.encode(msg);
-        out.writeBytes(buf);
+        codec.encode(msg, out);
     }
 }
@@ -17,9 +17,21 @@
 package cn.linliangjun.its.jt808.server.adapter.netty;
 
 import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.dispatch.MessageDispatcher;
+import cn.linliangjun.its.jt808.server.dispatch.StripedExecutor;
+import cn.linliangjun.its.jt808.server.session.Session;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.util.ReferenceCountUtil;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import lombok.var;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.stereotype.Component;
@@ -27,6 +39,19 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Resource;
 
 import static io.netty.channel.ChannelHandler.Sharable;
+
+/**
+ * JT/T 808 消息处理器，将消息交给消息分发器，未启用消息分发器时发送到消息请求通道
+ *
+ * <p>消息分发器和消息请求通道都是同步的，返回时消息已处理完毕，随后将池化的消息交还对象池，并释放消息（例如消息视图）。
+ * 启用执行通道时，消息按终端手机号提交到 {@linkplain StripedExecutor}，在执行通道中分发，分发完毕后再交还和释放；执行通道已满时丢弃消息，
+ * 溢出策略为 {@linkplain Jt808ServerProperties.OverflowPolicy#CLOSE} 时同时关闭连接。
+ * 鉴权在执行通道中处理，{@linkplain AccessHandler} 放行了鉴权之后、鉴权处理完之前到达的帧，这些消息在执行通道中（即鉴权处理之后）检查会话是否已鉴权。
+ * UDP 终端共用同一个 channel，端点的上下文为终端的 {@linkplain Session 会话}，而不是 channel 上下文
+ *
+ * @author linliangjun
+ */
+@Slf4j
 @Sharable
 @Component
 public class MessageHandler extends SimpleChannelInboundHandler<Jt808Message> {
@@ -34,12 +59,130 @@ public class MessageHandler extends SimpleChannelInboundHandler<Jt808Message> {
     @Resource
     private MessageChannel messageRequestChannel;
 
+    @Resource
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * 消息分发器，分发方式为 {@linkplain cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties.DispatchMode#INTEGRATION} 时为 {@code null}
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private MessageDispatcher dispatcher;
+
+    /**
+     * 执行通道，未启用时为 {@code null}，此时在事件循环中分发消息
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private StripedExecutor executor;
+
+    /**
+     * 流水线指标，未启用时为 {@code null}
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private PipelineMetrics metrics;
+
+    public MessageHandler() {
+        // 启用执行通道时，消息在执行通道中释放
+        super(false);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        var metrics = this.metrics;
+        if (metrics == null) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            metrics.stop(PipelineMetrics.Stage.MESSAGE_HANDLER, start);
+        }
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Jt808Message msg) {
-        var message = MessageBuilder
-                .withPayload(msg)
-                .setHeader("ctx", ctx)
-                .build();
-        messageRequestChannel.send(message);
+        // UDP 终端共用同一个 channel，以会话作为端点的上下文
+        Object endpointCtx = ctx;
+        if (ctx.channel() instanceof DatagramChannel) {
+            endpointCtx = sessionRegistry.get(msg);
+            if (endpointCtx == null) {
+                log.warn("终端 {} 的会话已被移除，丢弃消息：{}", msg.getTerminalPhoneNum(), msg.getType());
+                release(msg);
+                return;
+            }
+        }
+        var executor = this.executor;
+        if (executor == null) {
+            dispatch(endpointCtx, msg);
+            return;
+        }
+        Object finalCtx = endpointCtx;
+        // 同一终端的消息进入同一执行通道；超出 long 表示范围的终端手机号以字符串的哈希值选择通道
+        long key = msg.isTerminalPhoneOversized() ? msg.getTerminalPhoneNum().hashCode() : msg.getTerminalPhone();
+        boolean accepted = executor.execute(key, () -> {
+            try {
+                if (!isAccessible(ctx, finalCtx, msg)) {
+                    log.debug("终端 {} 未鉴权，丢弃消息：{}", msg.getTerminalPhoneNum(), msg.getType());
+                    release(msg);
+                    return;
+                }
+                dispatch(finalCtx, msg);
+            } catch (Throwable e) {
+                ctx.fireExceptionCaught(e);
+            }
+        });
+        if (!accepted) {
+            release(msg);
+            if (executor.getOverflowPolicy() == Jt808ServerProperties.OverflowPolicy.CLOSE) {
+                log.warn("执行通道已满，丢弃消息并关闭连接：{}", ctx.channel());
+                closeSession(ctx, finalCtx);
+            } else {
+                log.warn("执行通道已满，丢弃消息：{}", ctx.channel());
+            }
+        }
+    }
+
+    private void dispatch(Object ctx, Jt808Message msg) {
+        var dispatcher = this.dispatcher;
+        try {
+            if (dispatcher != null) {
+                dispatcher.dispatch(ctx, msg);
+            } else {
+                messageRequestChannel.send(MessageBuilder
+                        .withPayload(msg)
+                        .setHeader("ctx", ctx)
+                        .build());
+            }
+        } finally {
+            release(msg);
+        }
+    }
+
+    /**
+     * 在执行通道中检查会话是否已鉴权，注册与鉴权消息总是放行
+     */
+    private static boolean isAccessible(ChannelHandlerContext ctx, Object endpointCtx, Jt808Message msg) {
+        var type = msg.getType();
+        if (type == Type.TERMINAL_REGISTER || type == Type.TERMINAL_AUTH) {
+            return true;
+        }
+        var session = endpointCtx instanceof Session ? (Session) endpointCtx : ChannelAttrUtils.getSession(ctx);
+        return session.isLogin();
+    }
+
+    private void closeSession(ChannelHandlerContext ctx, Object endpointCtx) {
+        if (endpointCtx instanceof Session) {
+            var session = (Session) endpointCtx;
+            session.close();
+            sessionRegistry.remove(session);
+        } else {
+            ctx.close();
+        }
+    }
+
+    private static void release(Jt808Message msg) {
+        msg.recycle();
+        ReferenceCountUtil.release(msg);
     }
 }
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.codec.MultimediaDataUploadMessageCodec;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadMessage;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.PlatformRetransmitRequestMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.multimedia.MultimediaUpload;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.collection.IntObjectHashMap;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多媒体数据上传（0x0801）处理器，位于 {@linkplain AccessHandler} 与 {@linkplain ReassemblyHandler} 之间，每个连接一个实例
+ *
+ * <p>多媒体数据上传不经过分包重组：每个分包到达时，其中的多媒体数据直接从帧中写入该次上传的临时文件，随后立即释放帧，
+ * 不在内存中保留消息体，见 {@linkplain MultimediaUpload}。第一包中的多媒体数据 ID 等字段由编解码器解析。
+ * 收齐后发送多媒体数据上传应答（0x8800），并将带有文件路径的 {@linkplain MultimediaDataUploadMessage} 交给下游的消息处理器。
+ *
+ * <p>超过超时时间未收到新的分包时请求重传：已收到第一包时发送多媒体数据上传应答，否则发送平台补传分包请求（0x8003，2011 版本无此消息）；
+ * 重传次数用尽仍未收齐则丢弃并删除临时文件。
+ *
+ * <p>每次上传占用一个临时文件及按分包总数分配的分包索引，因此限制单个连接（即单个终端）同时进行的上传数，超过后拒绝新的上传；
+ * 并限制进行中的上传已写入临时文件的总字节数，超过后丢弃写入该分包的上传并删除其临时文件。
+ *
+ * <p>文件写入在连接的事件循环中进行，写入的是页缓存，通常不会阻塞；存储较慢时，应将 {@linkplain #directory} 放在本地磁盘上
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public class MultimediaHandler extends AbstractInboundByteBufWrapperHandler {
+
+    private static final int PARTIAL_BIT = 1 << 13;
+
+    private static final int VERSION_BIT = 1 << 14;
+
+    /**
+     * 多媒体数据上传应答最多包含的重传包数
+     */
+    private static final int MAX_RETRANSMIT_PACKAGES = 255;
+
+    /**
+     * 2013 版本的补传请求最多包含的分包数
+     */
+    private static final int MAX_RETRANSMIT_PACKAGES_V2013 = 255;
+
+    /**
+     * 多媒体文件的存储目录
+     */
+    private final Path directory;
+
+    /**
+     * 同时进行的上传数上限
+     */
+    private final int maxUploads;
+
+    /**
+     * 进行中的上传已写入的字节数上限
+     */
+    private final long maxBytes;
+
+    /**
+     * 定时器，为 {@code null} 时不检查超时，未收齐的上传保留到连接关闭
+     */
+    private final Timer timer;
+
+    private final long timeoutMillis;
+
+    private final int maxRetries;
+
+    /**
+     * 进行中的上传，键为第一包的消息流水号
+     */
+    private final IntObjectHashMap<PendingUpload> uploads = new IntObjectHashMap<>(4);
+
+    /**
+     * 进行中的上传已写入的字节数
+     */
+    private long usedBytes;
+
+    private ChannelHandlerContext ctx;
+
+    /**
+     * @param directory     多媒体文件的存储目录
+     * @param maxUploads    同时进行的上传数上限
+     * @param maxBytes      进行中的上传已写入的字节数上限
+     * @param timer         定时器，为 {@code null} 时不检查超时
+     * @param timeoutMillis 超时时间（毫秒），超过该时间未收到新的分包时请求重传
+     * @param maxRetries    最大重传请求次数
+     */
+    public MultimediaHandler(Path directory, int maxUploads, long maxBytes, Timer timer, long timeoutMillis, int maxRetries) {
+        super(false, PipelineMetrics.Stage.MULTIMEDIA_HANDLER);
+        this.directory = directory;
+        this.maxUploads = maxUploads;
+        this.maxBytes = maxBytes;
+        this.timer = timer;
+        this.timeoutMillis = timeoutMillis;
+        this.maxRetries = maxRetries;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        for (var pending : new ArrayList<>(uploads.values())) {
+            drop(pending);
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
+        if (wrapper.getType() != Type.MULTIMEDIA_DATA_UPLOAD) {
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        var version = ChannelAttrUtils.getVersion(ctx);
+        if (version == null) {
+            wrapper.discard("版本为 null");
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        var buf = wrapper.getBuf();
+        int index = buf.readerIndex();
+        int properties = buf.getUnsignedShort(index + 3);
+        boolean partial = (properties & PARTIAL_BIT) != 0;
+        // 起始符、消息 ID、消息体属性、（协议版本号）、终端手机号
+        int serialIndex = index + ((properties & VERSION_BIT) != 0 ? 16 : 11);
+        int bodyIndex = serialIndex + (partial ? 6 : 2);
+        int bodyLen = buf.writerIndex() - 2 - bodyIndex;
+        if (bodyLen < 0) {
+            wrapper.discard("长度过短");
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        int serialNum = buf.getUnsignedShort(serialIndex);
+        int total = partial ? buf.getUnsignedShort(serialIndex + 2) : 1;
+        int num = partial ? buf.getUnsignedShort(serialIndex + 4) : 1;
+        if (num < 1 || num > total) {
+            wrapper.discard(String.format("分包序号 %d 超出分包总数 %d", num, total));
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+
+        int firstSerialNum = (serialNum - num + 1) & 0xffff;
+        var pending = uploads.get(firstSerialNum);
+        if (pending != null && pending.upload.getTotal() != total) {
+            wrapper.discard(String.format("分包总数 %d 与之前的分包总数 %d 不一致", total, pending.upload.getTotal()));
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        if (pending != null && pending.upload.isReceived(num)) {
+            log.debug("{} 重复的多媒体数据分包，忽略：{}/{}", ctx.channel(), num, total);
+            wrapper.release();
+            return;
+        }
+        if (pending == null && uploads.size() >= maxUploads) {
+            wrapper.discard(String.format("进行中的多媒体数据上传数超过上限 %d", maxUploads));
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+
+        MultimediaDataUploadMessage message = null;
+        int dataIndex = bodyIndex;
+        int dataLen = bodyLen;
+        if (num == 1) {
+            try {
+                message = decode(version, buf);
+            } catch (Exception e) {
+                wrapper.discard("解码消息异常，具体原因：" + e.getMessage());
+                ctx.fireChannelRead(wrapper);
+                return;
+            }
+            int headerLen = MultimediaDataUploadMessageCodec.getHeaderLength(version);
+            dataIndex += headerLen;
+            dataLen -= headerLen;
+        }
+
+        if (pending == null) {
+            var session = ChannelAttrUtils.getSession(ctx);
+            try {
+                pending = new PendingUpload(firstSerialNum, MultimediaUpload.create(getTerminalDirectory(session.getTerminalPhoneNum()), total));
+            } catch (IOException e) {
+                log.warn("{} 创建多媒体临时文件失败", ctx.channel(), e);
+                wrapper.release();
+                return;
+            }
+            uploads.put(firstSerialNum, pending);
+            pending.schedule(timeoutMillis);
+        }
+        if (message != null) {
+            pending.upload.setMessage(message);
+        }
+        if (usedBytes + dataLen > maxBytes) {
+            log.info("{} 进行中的多媒体数据上传超过 {} 字节，丢弃：消息流水号 {}，已收到 {}/{}", ctx.channel(), maxBytes,
+                    pending.firstSerialNum, pending.upload.getReceivedCount(), pending.upload.getTotal());
+            drop(pending);
+            wrapper.release();
+            return;
+        }
+        try {
+            pending.upload.write(num, buf, dataIndex, dataLen);
+        } catch (IOException e) {
+            log.warn("{} 写入多媒体数据失败，丢弃本次上传", ctx.channel(), e);
+            drop(pending);
+            wrapper.release();
+            return;
+        }
+        usedBytes += dataLen;
+        pending.lastReceiveTime = System.currentTimeMillis();
+        wrapper.release();
+        if (pending.upload.isComplete()) {
+            complete(pending, version);
+        }
+    }
+
+    private static MultimediaDataUploadMessage decode(Version version, ByteBuf buf) {
+        var table = DispatchTable.getInstance();
+        int readerIndex = buf.readerIndex();
+        try {
+            return (MultimediaDataUploadMessage) table.getCodec(version, Type.MULTIMEDIA_DATA_UPLOAD.getValue())
+                    .decode(table.getProtocolDefinition(version), buf.skipBytes(1));
+        } finally {
+            buf.readerIndex(readerIndex);
+        }
+    }
+
+    private Path getTerminalDirectory(String terminalPhoneNum) {
+        return directory.resolve(terminalPhoneNum);
+    }
+
+    private void complete(PendingUpload pending, Version version) {
+        uploads.remove(pending.firstSerialNum);
+        usedBytes -= pending.upload.getDataLength();
+        pending.cancel();
+        var upload = pending.upload;
+        var message = upload.getMessage();
+        var target = getTerminalDirectory(message.getTerminalPhoneNum())
+                .resolve(message.getMediaId() + "." + message.getFileExtension());
+        try {
+            message.setFile(upload.complete(target));
+        } catch (IOException e) {
+            // 临时文件已删除，要求终端重传全部数据包
+            log.warn("{} 保存多媒体文件失败，要求终端重传：{}", ctx.channel(), target, e);
+            respond(version, message.getMediaId(), getAllNums(upload.getTotal()));
+            return;
+        }
+        // 收齐后视为一条不分包的消息
+        message.setPartial(false);
+        message.setPackageTotal(0);
+        message.setPackageNum(0);
+        message.setDataLength(upload.getDataLength());
+        message.setBodyLength((int) Math.min(Integer.MAX_VALUE, MultimediaDataUploadMessageCodec.getHeaderLength(version) + upload.getDataLength()));
+        respond(version, message.getMediaId(), Collections.emptyList());
+        ctx.fireChannelRead(message);
+    }
+
+    /**
+     * 获取全部分包序号，最多 {@value #MAX_RETRANSMIT_PACKAGES} 个
+     */
+    private static List<Integer> getAllNums(int total) {
+        int count = Math.min(total, MAX_RETRANSMIT_PACKAGES);
+        var nums = new ArrayList<Integer>(count);
+        for (int i = 1; i <= count; i++) {
+            nums.add(i);
+        }
+        return nums;
+    }
+
+    /**
+     * 超时检查，在连接的事件循环中执行
+     */
+    private void expire(PendingUpload pending) {
+        if (uploads.get(pending.firstSerialNum) != pending) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - pending.lastReceiveTime;
+        if (idle < timeoutMillis) {
+            pending.schedule(timeoutMillis - idle);
+            return;
+        }
+        var upload = pending.upload;
+        var version = ChannelAttrUtils.getVersion(ctx);
+        var message = upload.getMessage();
+        boolean retransmittable = version != null && (message != null || version != Version.V2011);
+        if (pending.retries >= maxRetries || !retransmittable) {
+            log.info("{} 多媒体数据上传超时，丢弃：消息流水号 {}，已收到 {}/{}", ctx.channel(),
+                    pending.firstSerialNum, upload.getReceivedCount(), upload.getTotal());
+            drop(pending);
+            return;
+        }
+        pending.retries++;
+        pending.lastReceiveTime = System.currentTimeMillis();
+        if (message != null) {
+            respond(version, message.getMediaId(), upload.getMissingNums(MAX_RETRANSMIT_PACKAGES));
+        } else {
+            requestRetransmit(version, pending);
+        }
+        pending.schedule(timeoutMillis);
+    }
+
+    /**
+     * 发送多媒体数据上传应答
+     *
+     * @param packageIds 重传包 ID 列表，为空时表示已收到全部数据包
+     */
+    private void respond(Version version, long mediaId, List<Integer> packageIds) {
+        var session = ChannelAttrUtils.getSession(ctx);
+        var resp = new MultimediaDataUploadRespMessage(version);
+        resp.setEncryption(Jt808Message.Encryption.NONE);
+        session.copyTerminalPhoneTo(resp);
+        resp.setPartial(false);
+        resp.setSerialNum(session.nextSerialNum());
+        resp.setMediaId(mediaId);
+        resp.setPackageIds(packageIds);
+        log.debug("{} 多媒体数据上传应答：{}", ctx.channel(), resp);
+        OutboundHandler.write(ctx.channel(), resp);
+    }
+
+    /**
+     * 未收到第一包，不知道多媒体数据 ID，以平台补传分包请求要求重传
+     */
+    private void requestRetransmit(Version version, PendingUpload pending) {
+        int max = version == Version.V2019 ? Integer.MAX_VALUE : MAX_RETRANSMIT_PACKAGES_V2013;
+        var session = ChannelAttrUtils.getSession(ctx);
+        var message = new PlatformRetransmitRequestMessage(version);
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        session.copyTerminalPhoneTo(message);
+        message.setPartial(false);
+        message.setSerialNum(session.nextSerialNum());
+        message.setOriginalSerialNum(pending.firstSerialNum);
+        message.setPackageNums(pending.upload.getMissingNums(max));
+        log.debug("{} 请求补传多媒体数据分包：{}", ctx.channel(), message);
+        OutboundHandler.write(ctx.channel(), message);
+    }
+
+    private void drop(PendingUpload pending) {
+        uploads.remove(pending.firstSerialNum);
+        usedBytes -= pending.upload.getDataLength();
+        pending.cancel();
+        pending.upload.close();
+    }
+
+    /**
+     * 进行中的上传及其超时状态
+     */
+    private final class PendingUpload implements TimerTask {
+
+        private final int firstSerialNum;
+
+        private final MultimediaUpload upload;
+
+        private long lastReceiveTime = System.currentTimeMillis();
+
+        private int retries;
+
+        private Timeout timeout;
+
+        private PendingUpload(int firstSerialNum, MultimediaUpload upload) {
+            this.firstSerialNum = firstSerialNum;
+            this.upload = upload;
+        }
+
+        private void schedule(long delayMillis) {
+            if (timer != null) {
+                timeout = timer.newTimeout(this, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            ctx.executor().execute(() -> expire(this));
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.session.Session;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 出站处理器，位于 {@linkplain MessageEncoder} 与消息处理器之间，每个连接一个实例
+ *
+ * <ul>
+ *     <li>其他线程通过 {@linkplain #write(Channel, Object)} 写出的消息先进入连接的 MPSC 队列，每批只向事件循环提交一次排空任务，而不是每条消息一个任务</li>
+ *     <li>合并刷新：读取过程中写出的消息在 {@code channelReadComplete} 时统一刷新，其余情况每次排空刷新一次</li>
+ *     <li>连接不可写（出站缓冲区超过高水位线）时，消息暂存在积压队列中，恢复可写后再写出；
+ *     积压超过上限时按 {@linkplain Jt808ServerProperties.UnwritablePolicy 不可写策略} 处理，避免慢终端使出站缓冲区无限增长</li>
+ * </ul>
+ *
+ * <p>UDP 服务器的所有终端共用一个数据报连接，因此积压队列与上限由所有终端共享；关闭数据报连接会关闭整个服务器，
+ * 数据报连接的 {@linkplain Jt808ServerProperties.UnwritablePolicy#CLOSE CLOSE} 策略按 {@linkplain Jt808ServerProperties.UnwritablePolicy#DROP DROP} 处理。
+ * 合并积压时，数据报只与发往同一地址的同类型消息合并
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public class OutboundHandler extends ChannelDuplexHandler {
+
+    private static final AttributeKey<OutboundHandler> OUTBOUND = AttributeKey.newInstance("outbound");
+
+    private static final AtomicIntegerFieldUpdater<OutboundHandler> DRAIN_SCHEDULED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(OutboundHandler.class, "drainScheduled");
+
+    private final Jt808ServerProperties.UnwritablePolicy policy;
+
+    private final int backlogLimit;
+
+    /**
+     * 其他线程写出的消息
+     */
+    private final Queue<PendingWrite> queue = PlatformDependent.newMpscQueue();
+
+    /**
+     * 连接不可写时积压的消息，只在事件循环中访问
+     */
+    private final ArrayDeque<PendingWrite> backlog = new ArrayDeque<>();
+
+    private final Runnable drainTask = this::drain;
+
+    private final Runnable flushTask = this::flushIfNeeded;
+
+    private volatile int drainScheduled;
+
+    private ChannelHandlerContext ctx;
+
+    private boolean readInProgress;
+
+    private boolean needFlush;
+
+    private boolean flushScheduled;
+
+    public OutboundHandler(Jt808ServerProperties.UnwritablePolicy policy, int backlogLimit) {
+        this(policy, backlogLimit, false);
+    }
+
+    /**
+     * @param policy       不可写策略
+     * @param backlogLimit 积压上限
+     * @param datagram     是否为数据报连接，数据报连接从不关闭
+     */
+    public OutboundHandler(Jt808ServerProperties.UnwritablePolicy policy, int backlogLimit, boolean datagram) {
+        this.policy = datagram && policy == Jt808ServerProperties.UnwritablePolicy.CLOSE ? Jt808ServerProperties.UnwritablePolicy.DROP : policy;
+        this.backlogLimit = backlogLimit;
+    }
+
+    /**
+     * 写出消息并在稍后合并刷新，可在任意线程调用。连接没有出站处理器时，直接写出并刷新
+     *
+     * @param channel 连接
+     * @param msg     消息
+     * @return 写出结果
+     */
+    public static ChannelFuture write(Channel channel, Object msg) {
+        var handler = channel.attr(OUTBOUND).get();
+        if (handler == null) {
+            return channel.writeAndFlush(msg);
+        }
+        return handler.send(msg);
+    }
+
+    /**
+     * 向会话的终端写出消息，UDP 会话的消息发往终端最后一次发送数据报的地址，可在任意线程调用
+     *
+     * @param session 会话
+     * @param msg     消息
+     * @return 写出结果
+     */
+    public static ChannelFuture write(Session session, Object msg) {
+        if (session.isDatagram()) {
+            return write(session.getChannel(), new DefaultAddressedEnvelope<>(msg, session.getRemoteAddress()));
+        }
+        return write(session.getChannel(), msg);
+    }
+
+    /**
+     * 写出消息并在稍后合并刷新，可在任意线程调用
+     */
+    public ChannelFuture send(Object msg) {
+        var promise = ctx.newPromise();
+        if (ctx.executor().inEventLoop()) {
+            enqueue(msg, promise);
+            scheduleFlush();
+        } else {
+            queue.offer(new PendingWrite(msg, promise));
+            if (DRAIN_SCHEDULED_UPDATER.compareAndSet(this, 0, 1)) {
+                ctx.executor().execute(drainTask);
+            }
+        }
+        return promise;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        ctx.channel().attr(OUTBOUND).set(this);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        ctx.channel().attr(OUTBOUND).set(null);
+        failAll(new ClosedChannelException());
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        readInProgress = true;
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        readInProgress = false;
+        flushIfNeeded();
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable()) {
+            writeBacklog();
+            flushIfNeeded();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failAll(new ClosedChannelException());
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 经流水线写出的消息同样受不可写策略约束
+     */
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        enqueue(msg, promise);
+    }
+
+    /**
+     * 合并刷新
+     */
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        needFlush = true;
+        scheduleFlush();
+    }
+
+    private void drain() {
+        drainScheduled = 0;
+        PendingWrite pending;
+        while ((pending = queue.poll()) != null) {
+            enqueue(pending.msg, pending.promise);
+        }
+        flushIfNeeded();
+    }
+
+    private void enqueue(Object msg, ChannelPromise promise) {
+        if (backlog.isEmpty() && ctx.channel().isWritable()) {
+            ctx.write(msg, promise);
+            needFlush = true;
+            return;
+        }
+        var pending = new PendingWrite(msg, promise);
+        if (policy == Jt808ServerProperties.UnwritablePolicy.COALESCE) {
+            coalesce(pending);
+        }
+        backlog.add(pending);
+        if (backlog.size() <= backlogLimit) {
+            return;
+        }
+        switch (policy) {
+            case DROP:
+                backlog.pollLast().fail("连接不可写，积压超过上限，丢弃最新的消息");
+                break;
+            case COALESCE:
+                backlog.pollFirst().fail("连接不可写，积压超过上限，丢弃最早的消息");
+                break;
+            case CLOSE:
+                log.info("{} 连接持续不可写，积压 {} 条消息，关闭连接", ctx.channel(), backlog.size());
+                failAll(new ClosedChannelException());
+                ctx.close();
+                break;
+        }
+    }
+
+    /**
+     * 移除积压中与之类型相同（数据报还需发往同一地址）的消息，只保留最新的一条
+     */
+    private void coalesce(PendingWrite pending) {
+        if (!(unwrap(pending.msg) instanceof Jt808Message)) {
+            return;
+        }
+        for (Iterator<PendingWrite> it = backlog.iterator(); it.hasNext(); ) {
+            var p = it.next();
+            if (isCoalescible(p.msg, pending.msg)) {
+                it.remove();
+                p.fail("连接不可写，被同类型的新消息合并");
+            }
+        }
+    }
+
+    private static boolean isCoalescible(Object queued, Object msg) {
+        var queuedMessage = unwrap(queued);
+        if (!(queuedMessage instanceof Jt808Message) || ((Jt808Message) queuedMessage).getType() != ((Jt808Message) unwrap(msg)).getType()) {
+            return false;
+        }
+        if (queued instanceof AddressedEnvelope || msg instanceof AddressedEnvelope) {
+            return queued instanceof AddressedEnvelope && msg instanceof AddressedEnvelope
+                    && Objects.equals(((AddressedEnvelope<?, ?>) queued).recipient(), ((AddressedEnvelope<?, ?>) msg).recipient());
+        }
+        return true;
+    }
+
+    private static Object unwrap(Object msg) {
+        return msg instanceof AddressedEnvelope ? ((AddressedEnvelope<?, ?>) msg).content() : msg;
+    }
+
+    private void writeBacklog() {
+        PendingWrite pending;
+        while (ctx.channel().isWritable() && (pending = backlog.poll()) != null) {
+            ctx.write(pending.msg, pending.promise);
+            needFlush = true;
+        }
+    }
+
+    private void scheduleFlush() {
+        // 读取过程中的写出在 channelReadComplete 时刷新
+        if (readInProgress || flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        ctx.executor().execute(flushTask);
+    }
+
+    private void flushIfNeeded() {
+        flushScheduled = false;
+        if (needFlush) {
+            needFlush = false;
+            ctx.flush();
+        }
+    }
+
+    private void failAll(Throwable cause) {
+        PendingWrite pending;
+        while ((pending = backlog.poll()) != null) {
+            pending.fail(cause);
+        }
+        while ((pending = queue.poll()) != null) {
+            pending.fail(cause);
+        }
+    }
+
+    private static final class PendingWrite {
+
+        private final Object msg;
+
+        private final ChannelPromise promise;
+
+        private PendingWrite(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+
+        private void fail(String cause) {
+            fail(new IllegalStateException(cause));
+        }
+
+        private void fail(Throwable cause) {
+            ReferenceCountUtil.release(msg);
+            promise.tryFailure(cause);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分包重组的内存预算，所有连接共用
+ *
+ * <p>全局预算由本类以 CAS 计数；单个终端的预算由各连接的 {@linkplain ReassemblyHandler} 自行计数
+ *
+ * @author linliangjun
+ */
+@Component
+public class ReassemblyBudget implements MeterBinder {
+
+    /**
+     * 全部连接的重组缓冲字节数上限
+     */
+    @Getter
+    private final long maxBytes;
+
+    /**
+     * 单个终端的重组缓冲字节数上限
+     */
+    @Getter
+    private final long maxBytesPerTerminal;
+
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public ReassemblyBudget(Jt808ServerProperties properties) {
+        this(properties.getReassemblyMaxBytes().toBytes(), properties.getReassemblyMaxBytesPerTerminal().toBytes());
+    }
+
+    public ReassemblyBudget(long maxBytes, long maxBytesPerTerminal) {
+        this.maxBytes = maxBytes;
+        this.maxBytesPerTerminal = maxBytesPerTerminal;
+    }
+
+    /**
+     * 申请预算
+     *
+     * @param bytes 字节数
+     * @return 是否申请成功
+     */
+    public boolean tryAcquire(long bytes) {
+        for (;;) {
+            long used = usedBytes.get();
+            if (used + bytes > maxBytes) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还预算
+     *
+     * @param bytes 字节数
+     */
+    public void release(long bytes) {
+        usedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * 记录一次因单个终端的预算不足而拒绝的分包
+     */
+    void reject() {
+        rejected.incrementAndGet();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("its.jt808.reassembly.bytes", usedBytes, AtomicLong::get)
+                .description("分包重组占用的字节数")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.reassembly.rejected", rejected, AtomicLong::get)
+                .description("因内存预算不足而拒绝的分包数")
+                .register(registry);
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.PlatformRetransmitRequestMessage;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.collection.IntObjectHashMap;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JT/T 808 分包重组处理器，位于 {@linkplain AccessHandler} 与 {@linkplain MessageDecoder} 之间，每个连接一个实例
+ *
+ * <p>分包的消息体无法单独解码，因此在帧上重组：按（消息类型，第一包的消息流水号）收集各包的消息体，收齐后以
+ * {@linkplain io.netty.buffer.CompositeByteBuf CompositeByteBuf} 拼接为一个不分包的帧交给下游解码，消息体不复制。
+ * 同一连接的终端手机号是确定的，因此键中无需包含终端手机号。补传的分包应沿用原始的消息流水号。
+ * 重组帧的校验码由各包消息体的校验码与新消息头的校验码异或得出，与逐字节计算的结果相同。
+ *
+ * <p>内存受 {@linkplain ReassemblyBudget} 限制，消息体、复制的消息头以及按分包总数分配的记录均计入预算：超出全局或单个终端的预算时，分包被直接释放，视为未收到，稍后请求补传。
+ * 同一连接同时重组的消息数也有上限，超出时新消息的分包同样被释放。
+ * 若帧所在的缓冲区远大于消息体（例如一次读取了大量数据），则复制消息体，避免小切片钉住大缓冲区。
+ *
+ * <p>超过重组超时时间未收到新的分包时，发送平台补传分包请求（0x8003）；补传次数用尽仍未收齐则丢弃。2011 版本没有补传请求，超时后直接丢弃
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public class ReassemblyHandler extends AbstractInboundByteBufWrapperHandler {
+
+    private static final byte FLAG = 0x7e;
+
+    private static final int BODY_LENGTH_MASK = 0x03ff;
+
+    private static final int PARTIAL_BIT = 1 << 13;
+
+    private static final int VERSION_BIT = 1 << 14;
+
+    /**
+     * 帧所在缓冲区的容量超过消息体长度的该倍数时，复制消息体
+     */
+    private static final int COPY_RATIO = 4;
+
+    /**
+     * 2013 版本的补传请求最多包含的分包数
+     */
+    private static final int MAX_RETRANSMIT_PACKAGES_V2013 = 255;
+
+    /**
+     * 每组分包的固定开销（分包组对象、定时任务与映射表的条目），按保守估计计入预算
+     */
+    private static final int SET_OVERHEAD = 128;
+
+    /**
+     * 消息体数组中每个引用计入预算的字节数
+     */
+    private static final int REFERENCE_SIZE = 8;
+
+    private final ReassemblyBudget budget;
+
+    /**
+     * 定时器，为 {@code null} 时不检查超时，未收齐的分包保留到连接关闭
+     */
+    private final Timer timer;
+
+    private final long timeoutMillis;
+
+    private final int maxRetries;
+
+    /**
+     * 同时重组的消息数上限
+     */
+    private final int maxSets;
+
+    /**
+     * 重组中的分包，键为消息类型左移 16 位后与第一包的消息流水号合并
+     */
+    private final IntObjectHashMap<PackageSet> sets = new IntObjectHashMap<>(4);
+
+    /**
+     * 本连接占用的重组缓冲字节数
+     */
+    private long bytes;
+
+    private ChannelHandlerContext ctx;
+
+    /**
+     * @param budget        内存预算
+     * @param timer         定时器，为 {@code null} 时不检查超时
+     * @param timeoutMillis 重组超时时间（毫秒），超过该时间未收到新的分包时请求补传
+     * @param maxRetries    最大补传请求次数
+     * @param maxSets       同时重组的消息数上限
+     */
+    public ReassemblyHandler(ReassemblyBudget budget, Timer timer, long timeoutMillis, int maxRetries, int maxSets) {
+        super(false, PipelineMetrics.Stage.REASSEMBLY_HANDLER);
+        this.budget = budget;
+        this.timer = timer;
+        this.timeoutMillis = timeoutMillis;
+        this.maxRetries = maxRetries;
+        this.maxSets = maxSets;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        for (var set : new ArrayList<>(sets.values())) {
+            drop(set);
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
+        var buf = wrapper.getBuf();
+        int index = buf.readerIndex();
+        int properties = buf.getUnsignedShort(index + 3);
+        if ((properties & PARTIAL_BIT) == 0) {
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        // 起始符、消息 ID、消息体属性、（协议版本号）、终端手机号
+        int serialIndex = index + ((properties & VERSION_BIT) != 0 ? 16 : 11);
+        int bodyIndex = serialIndex + 6;
+        int bodyLen = buf.writerIndex() - 2 - bodyIndex;
+        if (bodyLen < 0) {
+            wrapper.discard("长度过短");
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        int serialNum = buf.getUnsignedShort(serialIndex);
+        int total = buf.getUnsignedShort(serialIndex + 2);
+        int num = buf.getUnsignedShort(serialIndex + 4);
+        if (num < 1 || num > total) {
+            wrapper.discard(String.format("分包序号 %d 超出分包总数 %d", num, total));
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+
+        int firstSerialNum = (serialNum - num + 1) & 0xffff;
+        int key = wrapper.getType().getValue() << 16 | firstSerialNum;
+        var set = sets.get(key);
+        if (set != null && set.total != total) {
+            wrapper.discard(String.format("分包总数 %d 与之前的分包总数 %d 不一致", total, set.total));
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        if (set != null && set.bodies[num - 1] != null) {
+            log.debug("{} 重复的分包，忽略：{}/{}", ctx.channel(), num, total);
+            wrapper.release();
+            return;
+        }
+        if (set == null && sets.size() >= maxSets) {
+            log.debug("{} 同时重组的消息数已达上限 {}，忽略：{}/{}", ctx.channel(), maxSets, num, total);
+            budget.reject();
+            wrapper.release();
+            return;
+        }
+        // 第一个收到的分包还需复制消息头（起始符至终端手机号，加上消息流水号），并分配分包组
+        int setLen = set == null ? serialIndex - index + 2 + getSetOverhead(total) : 0;
+        if (!acquire(bodyLen + setLen)) {
+            log.debug("{} 分包重组超出内存预算，忽略：{}/{}", ctx.channel(), num, total);
+            wrapper.release();
+            return;
+        }
+        if (set == null) {
+            set = new PackageSet(key, firstSerialNum, total, newHeader(buf, index, serialIndex, firstSerialNum));
+            set.bytes = setLen;
+            sets.put(key, set);
+            set.schedule(timeoutMillis);
+        }
+
+        set.bodies[num - 1] = sliceBody(buf, bodyIndex, bodyLen);
+        set.received++;
+        set.bytes += bodyLen;
+        set.bodyLen += bodyLen;
+        set.bodyCode ^= CodecUtils.getBccCodeSwar(buf, bodyIndex, bodyLen);
+        set.lastReceiveTime = System.currentTimeMillis();
+        if (set.received < total) {
+            wrapper.release();
+            return;
+        }
+
+        // 收齐
+        sets.remove(key);
+        set.cancel();
+        release(set.bytes);
+        var frame = set.assemble(ctx);
+        var assembled = new ByteBufWrapper(frame);
+        assembled.setType(wrapper.getType());
+        wrapper.release();
+        ctx.fireChannelRead(assembled);
+    }
+
+    /**
+     * 分包组除消息头与消息体之外计入预算的字节数，消息体数组按分包总数分配
+     */
+    static int getSetOverhead(int total) {
+        return SET_OVERHEAD + total * REFERENCE_SIZE;
+    }
+
+    private boolean acquire(int len) {
+        if (bytes + len > budget.getMaxBytesPerTerminal()) {
+            budget.reject();
+            return false;
+        }
+        if (!budget.tryAcquire(len)) {
+            return false;
+        }
+        bytes += len;
+        return true;
+    }
+
+    private void release(long len) {
+        bytes -= len;
+        budget.release(len);
+    }
+
+    /**
+     * 复制第一个收到的分包的消息头，改为不分包的消息头：清除分包标识，去掉分包项，消息流水号改为第一包的
+     */
+    private ByteBuf newHeader(ByteBuf buf, int index, int serialIndex, int firstSerialNum) {
+        int len = serialIndex - index;
+        var header = ctx.alloc().buffer(len + 2);
+        header.writeBytes(buf, index, len);
+        header.writeShort(firstSerialNum);
+        header.setShort(3, header.getUnsignedShort(3) & ~PARTIAL_BIT & ~BODY_LENGTH_MASK);
+        return header;
+    }
+
+    private ByteBuf sliceBody(ByteBuf buf, int bodyIndex, int bodyLen) {
+        var root = buf.unwrap() == null ? buf : buf.unwrap();
+        if (root.capacity() > (long) bodyLen * COPY_RATIO) {
+            var copy = ctx.alloc().buffer(bodyLen);
+            copy.writeBytes(buf, bodyIndex, bodyLen);
+            return copy;
+        }
+        return buf.retainedSlice(bodyIndex, bodyLen);
+    }
+
+    /**
+     * 超时检查，在连接的事件循环中执行
+     */
+    private void expire(PackageSet set) {
+        if (sets.get(set.key) != set) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - set.lastReceiveTime;
+        if (idle < timeoutMillis) {
+            set.schedule(timeoutMillis - idle);
+            return;
+        }
+        var version = ChannelAttrUtils.getVersion(ctx);
+        if (set.retries >= maxRetries || version == null || version == Version.V2011) {
+            log.info("{} 分包重组超时，丢弃：消息类型 {}，消息流水号 {}，已收到 {}/{}", ctx.channel(),
+                    String.format("%0#6x", set.key >>> 16), set.firstSerialNum, set.received, set.total);
+            drop(set);
+            return;
+        }
+        set.retries++;
+        set.lastReceiveTime = System.currentTimeMillis();
+        requestRetransmit(set, version);
+        set.schedule(timeoutMillis);
+    }
+
+    private void requestRetransmit(PackageSet set, Version version) {
+        int max = version == Version.V2019 ? Integer.MAX_VALUE : MAX_RETRANSMIT_PACKAGES_V2013;
+        List<Integer> packageNums = new ArrayList<>();
+        for (int i = 0; i < set.total && packageNums.size() < max; i++) {
+            if (set.bodies[i] == null) {
+                packageNums.add(i + 1);
+            }
+        }
+        var session = ChannelAttrUtils.getSession(ctx);
+        var message = new PlatformRetransmitRequestMessage(version);
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        session.copyTerminalPhoneTo(message);
+        message.setPartial(false);
+        message.setSerialNum(session.nextSerialNum());
+        message.setOriginalSerialNum(set.firstSerialNum);
+        message.setPackageNums(packageNums);
+        log.debug("{} 请求补传分包：{}", ctx.channel(), message);
+        // 从出站处理器写出，以经过消息编码器
+        OutboundHandler.write(ctx.channel(), message);
+    }
+
+    private void drop(PackageSet set) {
+        sets.remove(set.key);
+        set.cancel();
+        set.release();
+        release(set.bytes);
+    }
+
+    /**
+     * 同一条消息的分包
+     */
+    private final class PackageSet implements TimerTask {
+
+        private final int key;
+
+        private final int firstSerialNum;
+
+        private final int total;
+
+        /**
+         * 重组帧的起始符与消息头
+         */
+        private final ByteBuf header;
+
+        /**
+         * 各分包的消息体，按分包序号索引
+         */
+        private final ByteBuf[] bodies;
+
+        private int received;
+
+        /**
+         * 计入预算的字节数，即消息头、分包组的开销与已收到的消息体的长度之和
+         */
+        private long bytes;
+
+        /**
+         * 已收到的消息体的长度之和
+         */
+        private long bodyLen;
+
+        /**
+         * 已收到的消息体的校验码
+         */
+        private byte bodyCode;
+
+        private long lastReceiveTime;
+
+        private int retries;
+
+        private Timeout timeout;
+
+        private PackageSet(int key, int firstSerialNum, int total, ByteBuf header) {
+            this.key = key;
+            this.firstSerialNum = firstSerialNum;
+            this.total = total;
+            this.header = header;
+            this.bodies = new ByteBuf[total];
+        }
+
+        private void schedule(long delayMillis) {
+            if (timer != null) {
+                timeout = timer.newTimeout(this, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            ctx.executor().execute(() -> expire(this));
+        }
+
+        /**
+         * 拼接为不分包的帧，消息体的所有权转移给返回的缓冲区
+         */
+        private ByteBuf assemble(ChannelHandlerContext ctx) {
+            var frame = ctx.alloc().compositeBuffer(total + 2);
+            int bodyLen = (int) Math.min(this.bodyLen, BODY_LENGTH_MASK);
+            header.setShort(3, header.getUnsignedShort(3) | bodyLen);
+            // 校验范围不含起始符
+            byte code = (byte) (bodyCode ^ CodecUtils.getBccCodeSwar(header, 1, header.readableBytes() - 1));
+            frame.addComponent(true, header);
+            for (var body : bodies) {
+                frame.addComponent(true, body);
+            }
+            frame.addComponent(true, ctx.alloc().buffer(2).writeByte(code).writeByte(FLAG));
+            return frame;
+        }
+
+        private void release() {
+            header.release();
+            for (var body : bodies) {
+                if (body != null) {
+                    body.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.metrics;
+
+/**
+ * 单线程写入的数值分布
+ *
+ * <p>桶按 2 的幂次划分，每个幂次再等分为 {@value #SUB_BUCKETS} 个子桶，相对误差不超过 25%。
+ * 字段由所属线程写入，其他线程读取时可能读到稍旧的值，用于监控统计已足够
+ *
+ * @author linliangjun
+ */
+final class Distribution {
+
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    long count;
+
+    long total;
+
+    long max;
+
+    final long[] buckets = new long[BUCKETS];
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        count++;
+        total += value;
+        if (value > max) {
+            max = value;
+        }
+        buckets[getBucket(value)]++;
+    }
+
+    /**
+     * 累加另一个分布，调用方负责同步
+     */
+    void add(Distribution other) {
+        count += other.count;
+        total += other.total;
+        if (other.max > max) {
+            max = other.max;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] += other.buckets[i];
+        }
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * 获取桶的上界（含）
+     */
+    static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.Getter;
+import lombok.var;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * JT/T 808 入站流水线指标
+ *
+ * <p>统计各处理器的调用次数与耗时分布，以及每次读取的帧数、每帧的字节数分布。每个线程（事件循环）写入各自的记录器，互不竞争，
+ * 读取指标时再汇总所有线程的记录器。
+ *
+ * <p>处理器在 {@code channelRead} 中调用下游是同步的，因此记录的耗时是处理器的自身耗时，已扣除了下游受统计的处理器的耗时。
+ * 读取时钟的开销不可忽略，因此调用次数逐次统计，耗时则按读取采样：每 {@code sampleInterval} 次入站读取，对其中一次的整条处理器链计时
+ *
+ * @author linliangjun
+ */
+public class PipelineMetrics implements MeterBinder {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * 处理器嵌套的最大深度，超出时不再记录
+     */
+    private static final int MAX_DEPTH = 16;
+
+    private final int sampleMask;
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已退出的线程的记录器汇总于此，避免线程反复创建时记录器无限增长
+     */
+    private final Recorder retired = new Recorder();
+
+    private final FastThreadLocal<Recorder> recorder = new FastThreadLocal<Recorder>() {
+        @Override
+        protected Recorder initialValue() {
+            var recorder = new Recorder();
+            recorders.add(recorder);
+            return recorder;
+        }
+
+        @Override
+        protected void onRemoval(Recorder recorder) {
+            retire(recorder);
+        }
+    };
+
+    public PipelineMetrics() {
+        this(1);
+    }
+
+    /**
+     * @param sampleInterval 耗时的采样间隔（入站读取次数），必须是 2 的幂，为 1 时每次都计时
+     */
+    public PipelineMetrics(int sampleInterval) {
+        if (sampleInterval <= 0 || (sampleInterval & (sampleInterval - 1)) != 0) {
+            throw new IllegalArgumentException("采样间隔必须是 2 的幂：" + sampleInterval);
+        }
+        this.sampleMask = sampleInterval - 1;
+        recorders.add(retired);
+    }
+
+    /**
+     * 处理器开始处理，须与 {@linkplain #stop} 成对调用
+     *
+     * @return 开始时间，未采样时为 0
+     */
+    public long start() {
+        var r = recorder.get();
+        int depth = r.depth++;
+        if (depth == 0) {
+            r.sampling = (++r.reads & sampleMask) == 0;
+        }
+        if (!r.sampling) {
+            return 0;
+        }
+        if (depth < MAX_DEPTH) {
+            r.children[depth] = 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * 处理器结束处理，累加调用次数，采样时记录自身耗时
+     *
+     * @param stage 处理阶段
+     * @param start {@linkplain #start()} 的返回值
+     */
+    public void stop(Stage stage, long start) {
+        var r = recorder.get();
+        int depth = --r.depth;
+        r.invocations[stage.ordinal()]++;
+        if (!r.sampling) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (depth < MAX_DEPTH) {
+            r.stages[stage.ordinal()].record(elapsed - r.children[depth]);
+        }
+        if (depth > 0 && depth <= MAX_DEPTH) {
+            r.children[depth - 1] += elapsed;
+        }
+    }
+
+    /**
+     * 记录一次读取分割出的帧数
+     */
+    public void recordFramesPerRead(int frames) {
+        recorder.get().framesPerRead.record(frames);
+    }
+
+    /**
+     * 记录一帧的字节数（转义前，含首尾标识位）
+     */
+    public void recordFrameBytes(int bytes) {
+        recorder.get().frameBytes.record(bytes);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (var stage : Stage.values()) {
+            var tag = stage.getTag();
+            Function<Recorder, Distribution> distribution = r -> r.stages[stage.ordinal()];
+            int i = stage.ordinal();
+            FunctionTimer.builder("its.jt808.pipeline.handler", this,
+                            m -> m.sumInvocations(i), m -> m.estimateTotalTime(i, distribution), TimeUnit.NANOSECONDS)
+                    .description("入站处理器的调用次数与自身耗时（由采样估算）")
+                    .tag("stage", tag)
+                    .register(registry);
+            bindDistribution(registry, "its.jt808.pipeline.handler.latency", "入站处理器的自身耗时", "seconds", 1e-9,
+                    distribution, "stage", tag);
+        }
+        Function<Recorder, Distribution> framesPerRead = r -> r.framesPerRead;
+        FunctionCounter.builder("its.jt808.pipeline.reads", this, m -> m.sum(framesPerRead, d -> d.count))
+                .description("入站读取的次数")
+                .register(registry);
+        bindDistribution(registry, "its.jt808.pipeline.read.frames", "每次读取分割出的帧数", "frames", 1, framesPerRead);
+
+        Function<Recorder, Distribution> frameBytes = r -> r.frameBytes;
+        FunctionCounter.builder("its.jt808.pipeline.frames", this, m -> m.sum(frameBytes, d -> d.count))
+                .description("分割出的帧数")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.pipeline.frame.bytes", this, m -> m.sum(frameBytes, d -> d.total))
+                .description("分割出的帧的总字节数")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        bindDistribution(registry, "its.jt808.pipeline.frame.size", "每帧的字节数", BaseUnits.BYTES, 1, frameBytes);
+    }
+
+    /**
+     * 注册分布的分位数与最大值
+     */
+    private void bindDistribution(MeterRegistry registry, String name, String description, String baseUnit, double scale,
+                                  Function<Recorder, Distribution> distribution, String... tags) {
+        for (double quantile : QUANTILES) {
+            Gauge.builder(name, this, m -> m.getQuantile(distribution, quantile) * scale)
+                    .description(description + "的分位数")
+                    .tags(tags)
+                    .tag("quantile", Double.toString(quantile))
+                    .baseUnit(baseUnit)
+                    .register(registry);
+        }
+        Gauge.builder(name + ".max", this, m -> m.max(distribution) * scale)
+                .description(description + "的最大值")
+                .tags(tags)
+                .baseUnit(baseUnit)
+                .register(registry);
+    }
+
+    /**
+     * 线程退出（Netty 线程退出时会移除所有 {@linkplain FastThreadLocal}）后，将其记录器累加到汇总中并移除
+     */
+    private void retire(Recorder recorder) {
+        synchronized (retired) {
+            for (int i = 0; i < retired.invocations.length; i++) {
+                retired.invocations[i] += recorder.invocations[i];
+                retired.stages[i].add(recorder.stages[i]);
+            }
+            retired.framesPerRead.add(recorder.framesPerRead);
+            retired.frameBytes.add(recorder.frameBytes);
+        }
+        recorders.remove(recorder);
+    }
+
+    /**
+     * 当前的记录器数量，包括已退出线程的汇总
+     */
+    int getRecorderCount() {
+        return recorders.size();
+    }
+
+    private long sumInvocations(int stage) {
+        long sum = 0;
+        for (var r : recorders) {
+            sum += r.invocations[stage];
+        }
+        return sum;
+    }
+
+    /**
+     * 按采样的平均耗时估算总耗时
+     */
+    private double estimateTotalTime(int stage, Function<Recorder, Distribution> distribution) {
+        long sampled = sum(distribution, d -> d.count);
+        return sampled == 0 ? 0 : (double) sum(distribution, d -> d.total) / sampled * sumInvocations(stage);
+    }
+
+    private long sum(Function<Recorder, Distribution> distribution, ToLongFunction<Distribution> field) {
+        long sum = 0;
+        for (var r : recorders) {
+            sum += field.applyAsLong(distribution.apply(r));
+        }
+        return sum;
+    }
+
+    private long max(Function<Recorder, Distribution> distribution) {
+        long max = 0;
+        for (var r : recorders) {
+            max = Math.max(max, distribution.apply(r).max);
+        }
+        return max;
+    }
+
+    /**
+     * 汇总所有线程的桶，获取分位数（所在桶的上界，不超过最大值）
+     */
+    private long getQuantile(Function<Recorder, Distribution> distribution, double quantile) {
+        var buckets = new long[Distribution.BUCKETS];
+        long count = 0;
+        for (var r : recorders) {
+            var d = distribution.apply(r);
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += d.buckets[i];
+            }
+        }
+        for (long n : buckets) {
+            count += n;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(Distribution.getUpperBound(i), max(distribution));
+            }
+        }
+        return max(distribution);
+    }
+
+    /**
+     * 处理阶段
+     *
+     * @author linliangjun
+     */
+    public enum Stage {
+
+        FRAME_DECODER,
+        FRAME_SPLITTER,
+        ESCAPE_HANDLER,
+        BCC_CHECKER,
+        ACCESS_HANDLER,
+        HEARTBEAT_HANDLER,
+        MULTIMEDIA_HANDLER,
+        REASSEMBLY_HANDLER,
+        MESSAGE_DECODER,
+        DISCARD_HANDLER,
+        MESSAGE_HANDLER;
+
+        /**
+         * 指标标签值，例如 frame-decoder
+         */
+        @Getter
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    /**
+     * 线程私有的记录器
+     */
+    private static final class Recorder {
+
+        private final long[] invocations = new long[Stage.values().length];
+
+        /**
+         * 各处理器的自身耗时（采样）
+         */
+        private final Distribution[] stages = new Distribution[Stage.values().length];
+
+        private final Distribution framesPerRead = new Distribution();
+
+        private final Distribution frameBytes = new Distribution();
+
+        /**
+         * 各嵌套层级中，下游受统计的处理器的累计耗时
+         */
+        private final long[] children = new long[MAX_DEPTH];
+
+        private int depth;
+
+        /**
+         * 入站读取次数，用于采样
+         */
+        private int reads;
+
+        /**
+         * 本次读取是否计时
+         */
+        private boolean sampling;
+
+        private Recorder() {
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new Distribution();
+            }
+        }
+    }
+}
@@ -17,9 +17,21 @@
 package cn.linliangjun.its.jt808.server.adapter.netty.tcp;
 
 import cn.linliangjun.its.jt808.server.adapter.netty.*;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.session.SessionReaper;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.util.Timer;
+import lombok.Setter;
+import lombok.var;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 
 @Component
@@ -29,26 +41,129 @@ public class ChannelInitializer extends io.netty.channel.ChannelInitializer<Sock
 
     private final EscapeHandler escapeHandler = new EscapeHandler();
 
-    private final AccessHandler accessHandler = new AccessHandler();
+    private AccessHandler accessHandler;
 
-    private final MessageDecoder messageDecoder = new MessageDecoder();
+    private final HeartbeatHandler heartbeatHandler = new HeartbeatHandler();
+
+    private MessageDecoder messageDecoder;
 
     private final MessageEncoder messageEncoder = new MessageEncoder();
 
+    /**
+     * 消息处理器，位于流水线末尾，接收解码后的消息
+     */
+    @Resource
+    private ChannelHandler messageHandler;
+
     @Resource
-    private MessageHandler messageHandler;
+    private Jt808ServerProperties properties;
+
+    @Resource
+    private SessionRegistry sessionRegistry;
+
+    @Resource
+    private ReassemblyBudget reassemblyBudget;
+
+    /**
+     * 定时器，为 {@code null} 时不检查分包重组与多媒体数据上传超时
+     */
+    @Resource
+    private Timer jt808Timer;
+
+    /**
+     * 流水线指标，未启用时为 {@code null}
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private PipelineMetrics metrics;
+
+    /**
+     * 会话清理器，为 {@code null} 时不清理超时未鉴权的连接
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private SessionReaper sessionReaper;
+
+    public ChannelInitializer() {
+    }
+
+    /**
+     * 不依赖 Spring 容器创建，例如用于基准测试
+     *
+     * @param properties     JT/T 808 服务配置
+     * @param messageHandler 消息处理器
+     */
+    public ChannelInitializer(Jt808ServerProperties properties, ChannelHandler messageHandler) {
+        this(properties, messageHandler, null);
+    }
+
+    /**
+     * 不依赖 Spring 容器创建，例如用于基准测试
+     *
+     * @param properties     JT/T 808 服务配置
+     * @param messageHandler 消息处理器
+     * @param metrics        流水线指标，为 {@code null} 时不统计
+     */
+    public ChannelInitializer(Jt808ServerProperties properties, ChannelHandler messageHandler, PipelineMetrics metrics) {
+        this.properties = properties;
+        this.messageHandler = messageHandler;
+        this.metrics = metrics;
+        this.sessionRegistry = new SessionRegistry();
+        this.reassemblyBudget = new ReassemblyBudget(properties);
+        init();
+    }
+
+    @PostConstruct
+    private void init() {
+        accessHandler = new AccessHandler(sessionRegistry);
+        accessHandler.setSessionReaper(sessionReaper);
+        accessHandler.setDeferLoginCheck(properties.isExecutionEnabled());
+        messageDecoder = new MessageDecoder(properties.getMessageDecodeMode());
+        bccChecker.setMetrics(metrics);
+        escapeHandler.setMetrics(metrics);
+        accessHandler.setMetrics(metrics);
+        heartbeatHandler.setMetrics(metrics);
+        messageDecoder.setMetrics(metrics);
+    }
 
     @Override
     protected void initChannel(SocketChannel ch) {
+        ch.config().setWriteBufferWaterMark(new WriteBufferWaterMark(
+                (int) properties.getOutboundLowWaterMark().toBytes(), (int) properties.getOutboundHighWaterMark().toBytes()));
+        initPipeline(ch.pipeline());
+    }
+
+    /**
+     * 初始化流水线
+     *
+     * @param pipeline 流水线
+     */
+    public void initPipeline(ChannelPipeline pipeline) {
         // 入站是从上往下找入站处理器，出站是从下往上找出站处理器
-        ch.pipeline()
-                .addLast(new FrameSplitter())
-                .addLast(escapeHandler)
-                .addLast(bccChecker)
-                .addLast(accessHandler)
+        if (properties.getFrameDecodeMode() == Jt808ServerProperties.FrameDecodeMode.FUSED) {
+            pipeline.addLast(new FrameDecoder(properties.getMaxFrameLength(), metrics));
+        } else {
+            pipeline.addLast(new FrameSplitter(properties.getMaxFrameLength(), properties.getFrameSplitterMode(), metrics))
+                    .addLast(escapeHandler)
+                    .addLast(bccChecker);
+        }
+        var reassemblyHandler = new ReassemblyHandler(reassemblyBudget, jt808Timer,
+                properties.getReassemblyTimeout().toMillis(), properties.getReassemblyMaxRetries(), properties.getReassemblyMaxSetsPerTerminal());
+        reassemblyHandler.setMetrics(metrics);
+        pipeline.addLast(accessHandler);
+        if (properties.isHeartbeatFastPathEnabled()) {
+            pipeline.addLast(heartbeatHandler);
+        }
+        if (properties.isMultimediaEnabled()) {
+            var multimediaHandler = new MultimediaHandler(properties.getMultimediaDirectory(),
+                    properties.getMultimediaMaxUploadsPerTerminal(), properties.getMultimediaMaxBytesPerTerminal().toBytes(),
+                    jt808Timer, properties.getMultimediaTimeout().toMillis(), properties.getMultimediaMaxRetries());
+            multimediaHandler.setMetrics(metrics);
+            pipeline.addLast(multimediaHandler);
+        }
+        pipeline.addLast(reassemblyHandler)
                 .addLast(messageDecoder)
-                .addLast(new DiscardHandler())
+                .addLast(new DiscardHandler(metrics))
                 .addLast(messageEncoder)
+                .addLast(new OutboundHandler(properties.getOutboundUnwritablePolicy(), properties.getOutboundBacklogLimit()))
                 .addLast(messageHandler);
     }
 }
@@ -17,7 +17,9 @@
 package cn.linliangjun.its.jt808.server.adapter.netty.tcp;
 
 import cn.linliangjun.its.jt808.server.adapter.netty.ByteBufWrapper;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
 import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import cn.linliangjun.its.uniprotocol.util.IntList;
 import cn.linliangjun.its.uniprotocol.util.Segment;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -33,73 +35,152 @@ import java.util.List;
  *
  * <p>将二进制数据流分割为 0x7e ... 0x7e 形式的帧。
  *
+ * <p>{@linkplain Mode#SLICE} 模式下，完整落在单次入站数据中的帧以切片的形式直接传递给下游，
+ * 只有跨越多次入站的帧（半包）才会复制到缓存中。
+ *
  * @author linliangjun
  */
 @Slf4j
 public class FrameSplitter extends ChannelInboundHandlerAdapter {
 
+    private final int maxFrameLength;
+
+    private final Mode mode;
+
+    /**
+     * 流水线指标，为 {@code null} 时不统计
+     */
+    private final PipelineMetrics metrics;
+
+    /**
+     * 本次读取分割出的帧数
+     */
+    private int frames;
+
     private ByteBuf cache;
 
+    /**
+     * 0x7e 的位置，每次入站时复用
+     */
+    private final IntList indexes = new IntList();
+
+    public FrameSplitter() {
+        this(2048, Mode.COPY);
+    }
+
+    public FrameSplitter(int maxFrameLength, Mode mode) {
+        this(maxFrameLength, mode, null);
+    }
+
+    public FrameSplitter(int maxFrameLength, Mode mode, PipelineMetrics metrics) {
+        this.maxFrameLength = maxFrameLength;
+        this.mode = mode;
+        this.metrics = metrics;
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (metrics == null) {
+            read(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        frames = 0;
+        try {
+            read(ctx, msg);
+        } finally {
+            metrics.recordFramesPerRead(frames);
+            metrics.stop(PipelineMetrics.Stage.FRAME_SPLITTER, start);
+        }
+    }
+
+    private void read(ChannelHandlerContext ctx, Object msg) {
         ByteBuf buf = (ByteBuf) msg;
         // 获取 buf 中，0x7e 的位置
-        var indexes = CodecUtils.getIndexes(buf, (byte) 0x7e);
+        indexes.clear();
+        CodecUtils.getIndexesSwar(buf, buf.readerIndex(), buf.writerIndex(), (byte) 0x7e, indexes);
         if (indexes.isEmpty()) {
             if (cache == null) {
                 // 不存在 0x7e，且 cache 也不存在，则丢弃
                 discard(ctx, buf, String.format("未找到起始符 %#4x", 0x7e));
             } else {
-                // 将 buf 中的数据全数追加到 cache
-                appendCache(ctx, buf, -1);
+                // 将 buf 中的数据全数追加到 cache，等待下次数据入站
+                appendCache(ctx, buf, buf.readerIndex(), buf.readableBytes());
+                buf.release();
             }
-            // 直接返回，等待下次数据入站
             return;
         }
-        // 根据 0x7e 的位置，获取每一段的位置（起始位置，长度）
-        for (var segment : getSegments(indexes)) {
-            try {
+        try {
+            // 根据 0x7e 的位置，获取每一段的位置（起始位置，长度）
+            for (var segment : getSegments(buf, indexes)) {
+                if (ctx.isRemoved()) {
+                    // 下游关闭了连接，剩余数据无需再处理
+                    break;
+                }
                 int base = segment.getBase();
                 int len = segment.getLen();
                 if (base == -1) {
                     // 当前段是后半段数据（半包）
-                    if (!appendCache(ctx, buf, len)) {
-                        continue;
+                    if (appendCache(ctx, buf, buf.readerIndex(), len)) {
+                        fireFrame(ctx, takeCache());
                     }
-                    fireCacheChannelRead(ctx);
-                } else {
-                    cache = ctx.alloc().buffer(256, 2048);
-                    buf.readerIndex(base);
-                    if (!appendCache(ctx, buf, len)) {
-                        continue;
+                } else if (len == -1) {
+                    // 当前段是前半段数据（半包），需要等待下次数据入站
+                    cache = ctx.alloc().buffer(Math.min(256, maxFrameLength), maxFrameLength);
+                    appendCache(ctx, buf, base, buf.writerIndex() - base);
+                } else if (mode == Mode.SLICE) {
+                    if (len > maxFrameLength) {
+                        discard(ctx, buf.retainedSlice(base, len), "长度溢出");
+                    } else {
+                        fireFrame(ctx, buf.retainedSlice(base, len));
                     }
-                    // len == -1 表示当前段是前半段数据（半包），需要等待下次数据入站
-                    if (len != -1) {
-                        fireCacheChannelRead(ctx);
+                } else {
+                    cache = ctx.alloc().buffer(Math.min(256, maxFrameLength), maxFrameLength);
+                    if (appendCache(ctx, buf, base, len)) {
+                        fireFrame(ctx, takeCache());
                     }
                 }
-            } catch (Exception e) {
-                log.error(e.getMessage());
             }
+        } catch (Exception e) {
+            log.error(e.getMessage());
+        } finally {
+            buf.release();
         }
-        buf.release();
     }
 
-    private boolean appendCache(ChannelHandlerContext ctx, ByteBuf buf, int len) {
-        try {
-            if (len == -1) {
-                cache.writeBytes(buf);
-                buf.release();
-            } else {
-                cache.writeBytes(buf, len);
-            }
-            return true;
-        } catch (IndexOutOfBoundsException ignored) {
-            buf = ctx.alloc().compositeBuffer().addComponents(true, cache, len == -1 ? buf : buf.readBytes(len));
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        if (cache != null) {
+            cache.release();
             cache = null;
-            discard(ctx, buf, "长度溢出");
+        }
+    }
+
+    /**
+     * 取出 cache，所有权随之转移给调用方
+     *
+     * <p>必须在传递给下游之前置空，否则下游关闭连接时，{@linkplain #handlerRemoved} 会重复释放
+     */
+    private ByteBuf takeCache() {
+        var frame = cache;
+        cache = null;
+        return frame;
+    }
+
+    /**
+     * 追加数据到 cache，若长度溢出，则丢弃 cache 及追加的数据
+     *
+     * @return 是否追加成功
+     */
+    private boolean appendCache(ChannelHandlerContext ctx, ByteBuf buf, int index, int len) {
+        if (len > cache.maxWritableBytes()) {
+            var overflow = ctx.alloc().compositeBuffer().addComponents(true, cache, buf.retainedSlice(index, len));
+            cache = null;
+            discard(ctx, overflow, "长度溢出");
             return false;
         }
+        cache.writeBytes(buf, index, len);
+        return true;
     }
 
     private void discard(ChannelHandlerContext ctx, ByteBuf buf, String message) {
@@ -108,25 +189,25 @@ public class FrameSplitter extends ChannelInboundHandlerAdapter {
         ctx.fireChannelRead(wrapper);
     }
 
-    private void fireCacheChannelRead(ChannelHandlerContext ctx) {
-        var wrapper = new ByteBufWrapper(cache);
-        try {
-            if (cache.writerIndex() - cache.readerIndex() < 12) {
-                wrapper.discard("长度过短");
-            }
-            ctx.fireChannelRead(wrapper);
-        } finally {
-            cache = null;
+    private void fireFrame(ChannelHandlerContext ctx, ByteBuf frame) {
+        if (metrics != null) {
+            frames++;
+            metrics.recordFrameBytes(frame.readableBytes());
+        }
+        var wrapper = new ByteBufWrapper(frame);
+        if (frame.readableBytes() < 12) {
+            wrapper.discard("长度过短");
         }
+        ctx.fireChannelRead(wrapper);
     }
 
-    private List<Segment> getSegments(List<Integer> indexes) {
+    private List<Segment> getSegments(ByteBuf buf, IntList indexes) {
         var segments = new ArrayList<Segment>();
         int size = indexes.size();
         for (int i = 0; i < size; i++) {
             int index = indexes.get(i);
             if (i == 0 && cache != null) {
-                segments.add(new Segment(-1, index + 1));
+                segments.add(new Segment(-1, index - buf.readerIndex() + 1));
                 continue;
             }
             i++;
@@ -135,4 +216,22 @@ public class FrameSplitter extends ChannelInboundHandlerAdapter {
         }
         return segments;
     }
+
+    /**
+     * 帧分割模式
+     *
+     * @author linliangjun
+     */
+    public enum Mode {
+
+        /**
+         * 每一帧都复制到新的缓冲区中
+         */
+        COPY,
+
+        /**
+         * 完整的帧以入站缓冲区切片的形式传递，仅半包时复制
+         */
+        SLICE
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.udp;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.DiscardHandler;
+import cn.linliangjun.its.jt808.server.adapter.netty.HeartbeatHandler;
+import cn.linliangjun.its.jt808.server.adapter.netty.MessageDecoder;
+import cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.session.SessionReaper;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.socket.DatagramChannel;
+import lombok.Setter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+/**
+ * JT/T 808 UDP 流水线初始化器，将 {@code its.unisocket.server.impl-class} 配置为
+ * {@linkplain cn.linliangjun.its.unisocket.server.impl.NettyUdpServer NettyUdpServer} 时使用
+ *
+ * <p>所有终端共用同一个 channel，会话以终端手机号区分，见 {@linkplain DatagramAccessHandler}
+ *
+ * @author linliangjun
+ */
+@Component("udpChannelInitializer")
+public class ChannelInitializer extends io.netty.channel.ChannelInitializer<DatagramChannel> {
+
+    private final DatagramEncoder datagramEncoder = new DatagramEncoder();
+
+    private DatagramDecoder datagramDecoder;
+
+    private DatagramAccessHandler accessHandler;
+
+    private final HeartbeatHandler heartbeatHandler = new HeartbeatHandler();
+
+    private MessageDecoder messageDecoder;
+
+    /**
+     * 消息处理器，位于流水线末尾，接收解码后的消息
+     */
+    @Resource
+    private ChannelHandler messageHandler;
+
+    @Resource
+    private Jt808ServerProperties properties;
+
+    @Resource
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * 流水线指标，未启用时为 {@code null}
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private PipelineMetrics metrics;
+
+    /**
+     * 会话清理器，为 {@code null} 时不清理超时未鉴权和空闲的会话
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private SessionReaper sessionReaper;
+
+    public ChannelInitializer() {
+    }
+
+    /**
+     * 不依赖 Spring 容器创建，例如用于基准测试
+     *
+     * @param properties      JT/T 808 服务配置
+     * @param messageHandler  消息处理器
+     * @param sessionRegistry 会话注册表，需与消息处理器使用的一致
+     */
+    public ChannelInitializer(Jt808ServerProperties properties, ChannelHandler messageHandler, SessionRegistry sessionRegistry) {
+        this.properties = properties;
+        this.messageHandler = messageHandler;
+        this.sessionRegistry = sessionRegistry;
+        init();
+    }
+
+    @PostConstruct
+    private void init() {
+        datagramDecoder = new DatagramDecoder(properties.getMaxFrameLength(), metrics);
+        accessHandler = new DatagramAccessHandler(sessionRegistry);
+        accessHandler.setSessionReaper(sessionReaper);
+        accessHandler.setDeferLoginCheck(properties.isExecutionEnabled());
+        accessHandler.setMetrics(metrics);
+        messageDecoder = new MessageDecoder(properties.getMessageDecodeMode());
+        heartbeatHandler.setMetrics(metrics);
+        messageDecoder.setMetrics(metrics);
+    }
+
+    @Override
+    protected void initChannel(DatagramChannel ch) {
+        initPipeline(ch.pipeline());
+    }
+
+    /**
+     * 初始化流水线
+     *
+     * @param pipeline 流水线
+     */
+    public void initPipeline(ChannelPipeline pipeline) {
+        // 入站是从上往下找入站处理器，出站是从下往上找出站处理器
+        pipeline.addLast(datagramDecoder)
+                .addLast(accessHandler);
+        if (properties.isHeartbeatFastPathEnabled()) {
+            pipeline.addLast(heartbeatHandler);
+        }
+        pipeline.addLast(messageDecoder)
+                .addLast(new DiscardHandler(metrics, false))
+                .addLast(datagramEncoder)
+                .addLast(new OutboundHandler(properties.getOutboundUnwritablePolicy(), properties.getOutboundBacklogLimit(), true))
+                .addLast(messageHandler);
+    }
+}
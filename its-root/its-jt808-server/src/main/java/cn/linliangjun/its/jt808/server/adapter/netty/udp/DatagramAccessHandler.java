@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.udp;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.AccessHandler;
+import cn.linliangjun.its.jt808.server.adapter.netty.ByteBufWrapper;
+import cn.linliangjun.its.jt808.server.session.Session;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static io.netty.channel.ChannelHandler.Sharable;
+
+/**
+ * JT/T 808 UDP 准入处理器
+ *
+ * <p>UDP 终端共用同一个 channel，会话不保存在 channel 的属性中，而是以终端手机号为键保存在 {@linkplain SessionRegistry} 中：
+ * 只有注册与鉴权数据报才会为没有会话的终端创建并登记会话，交由会话清理器检查鉴权超时，其他数据报直接丢弃。
+ * 数据报的发送方地址可以伪造，因此未鉴权的会话只随注册与鉴权数据报更新地址；已鉴权的会话只记录鉴权数据报的地址，
+ * 待鉴权通过后才作为下行消息的地址（见 {@linkplain Session#setLogin}），其他数据报不会改变会话的地址。
+ * 终端已通过 TCP 连接接入时，该终端的数据报将被丢弃，直到 TCP 会话失效。
+ *
+ * <p>数据报可能乱序或丢失，暂不支持分包，分包的帧将被丢弃
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@Sharable
+public class DatagramAccessHandler extends AccessHandler {
+
+    /**
+     * 消息体属性中的分包标识
+     */
+    private static final int PARTIAL_BIT = 1 << 13;
+
+    public DatagramAccessHandler(SessionRegistry sessionRegistry) {
+        super(sessionRegistry);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        // 共用的 channel 不属于任何终端，无需检查鉴权超时
+        ctx.fireChannelActive();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        // 移除该 channel 上的所有会话
+        List<Session> sessions = new ArrayList<>();
+        getSessionRegistry().forEach(session -> {
+            if (session.getChannel() == ctx.channel()) {
+                sessions.add(session);
+            }
+        });
+        for (var session : sessions) {
+            session.close();
+            getSessionRegistry().remove(session);
+        }
+        ctx.fireChannelInactive();
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, ByteBufWrapper wrapper) {
+        var buf = wrapper.getBuf();
+        if ((buf.getUnsignedShort(buf.readerIndex() + 3) & PARTIAL_BIT) != 0) {
+            wrapper.discard("UDP 不支持分包");
+            ctx.fireChannelRead(wrapper);
+            return;
+        }
+        super.channelRead0(ctx, wrapper);
+    }
+
+    @Override
+    protected Session getSession(ChannelHandlerContext ctx, ByteBufWrapper wrapper, long terminalPhone, String terminalPhoneNum) {
+        var sender = wrapper.getSender();
+        var type = wrapper.getType();
+        boolean enroll = type == Type.TERMINAL_REGISTER || type == Type.TERMINAL_AUTH;
+        var registry = getSessionRegistry();
+        var session = terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE ? registry.get(terminalPhoneNum) : registry.get(terminalPhone);
+        if (session == null) {
+            if (!enroll) {
+                throw new IllegalArgumentException("终端未鉴权");
+            }
+            session = registry.computeIfAbsent(terminalPhone, terminalPhoneNum, () -> {
+                var s = new Session(ctx.channel(), terminalPhone, terminalPhoneNum, sender);
+                var reaper = getSessionReaper();
+                if (reaper != null) {
+                    reaper.watch(s);
+                }
+                return s;
+            });
+        }
+        if (session.getChannel() != ctx.channel()) {
+            throw new IllegalArgumentException("终端已通过其他连接接入：" + session);
+        }
+        if (!Objects.equals(session.getRemoteAddress(), sender)) {
+            if (!enroll) {
+                log.debug("终端 {} 的数据报来自 {}，与会话的地址 {} 不一致，不更新地址", session.getTerminalPhoneNum(), sender, session.getRemoteAddress());
+            } else if (session.isLogin()) {
+                // 已鉴权的会话待本次鉴权通过后再更新地址
+                if (type == Type.TERMINAL_AUTH) {
+                    session.setAuthAddress(sender);
+                }
+            } else {
+                log.debug("终端 {} 的地址变化：{} -> {}", session.getTerminalPhoneNum(), session.getRemoteAddress(), sender);
+                session.setRemoteAddress(sender);
+            }
+        }
+        return session;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.udp;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.ByteBufWrapper;
+import cn.linliangjun.its.jt808.server.adapter.netty.FrameDecoder;
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import lombok.var;
+
+import java.util.List;
+
+import static cn.linliangjun.its.jt808.server.adapter.netty.FrameDecoder.FLAG;
+import static cn.linliangjun.its.jt808.server.adapter.netty.FrameDecoder.MIN_FRAME_LENGTH;
+import static io.netty.channel.ChannelHandler.Sharable;
+
+/**
+ * JT/T 808 数据报解码器
+ *
+ * <p>每个数据报包含一个或多个完整的帧，无需分割器和累积缓冲区：直接在数据报中查找 0x7e ... 0x7e 形式的帧，
+ * 按 {@linkplain FrameDecoder} 的方式原地转义并进行 BCC 校验，输出的帧记录了数据报的发送方地址。不完整的帧直接丢弃
+ *
+ * @author linliangjun
+ */
+@Sharable
+public class DatagramDecoder extends MessageToMessageDecoder<DatagramPacket> {
+
+    private final int maxFrameLength;
+
+    /**
+     * 流水线指标，为 {@code null} 时不统计
+     */
+    private final PipelineMetrics metrics;
+
+    public DatagramDecoder(int maxFrameLength) {
+        this(maxFrameLength, null);
+    }
+
+    public DatagramDecoder(int maxFrameLength, PipelineMetrics metrics) {
+        if (maxFrameLength < MIN_FRAME_LENGTH) {
+            throw new IllegalArgumentException("最大帧长度不能小于 " + MIN_FRAME_LENGTH + "：" + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (metrics == null) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        long start = metrics.start();
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            metrics.stop(PipelineMetrics.Stage.FRAME_DECODER, start);
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, DatagramPacket packet, List<Object> out) {
+        var in = packet.content();
+        int readerIndex = in.readerIndex(), writerIndex = in.writerIndex();
+        int frames = 0;
+        while (readerIndex < writerIndex) {
+            int start = in.indexOf(readerIndex, writerIndex, FLAG);
+            int end = start == -1 ? -1 : in.indexOf(start + 1, writerIndex, FLAG);
+            if (end == -1) {
+                // 数据报中剩余的数据不是完整的帧
+                out.add(discard(packet, in.retainedSlice(readerIndex, writerIndex - readerIndex), "不完整的帧"));
+                break;
+            }
+            readerIndex = end + 1;
+            if (end == start + 1) {
+                // 连续的两个 0x7e，从后一个开始重新查找
+                readerIndex = end;
+                continue;
+            }
+            int len = end - start + 1;
+            frames++;
+            if (metrics != null) {
+                metrics.recordFrameBytes(len);
+            }
+            if (len > maxFrameLength) {
+                out.add(discard(packet, in.retainedSlice(start, len), "长度溢出"));
+            } else if (len < MIN_FRAME_LENGTH) {
+                out.add(discard(packet, in.retainedSlice(start, len), "长度过短"));
+            } else {
+                out.add(unescape(ctx, packet, in, start, end));
+            }
+        }
+        if (metrics != null) {
+            metrics.recordFramesPerRead(frames);
+        }
+    }
+
+    private static ByteBufWrapper unescape(ChannelHandlerContext ctx, DatagramPacket packet, ByteBuf in, int start, int end) {
+        ByteBufWrapper wrapper;
+        if (in.isReadOnly()) {
+            // 只读缓冲区无法原地转义，复制一份
+            int len = end - start + 1;
+            var copy = ctx.alloc().buffer(len);
+            copy.writeBytes(in, start, len);
+            wrapper = FrameDecoder.unescape(copy, 0, len - 1);
+            copy.release();
+        } else {
+            wrapper = FrameDecoder.unescape(in, start, end);
+        }
+        wrapper.setSender(packet.sender());
+        return wrapper;
+    }
+
+    private static ByteBufWrapper discard(DatagramPacket packet, ByteBuf buf, String message) {
+        var wrapper = FrameDecoder.discard(buf, message);
+        wrapper.setSender(packet.sender());
+        return wrapper;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty.udp;
+
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import lombok.var;
+import org.springframework.util.Assert;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static io.netty.channel.ChannelHandler.Sharable;
+
+/**
+ * JT/T 808 数据报编码器，将发往终端地址的消息编码为数据报
+ *
+ * <p>UDP 终端共用同一个 channel，按消息自身的版本选择编解码器
+ *
+ * @author linliangjun
+ * @see cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler#write(cn.linliangjun.its.jt808.server.session.Session, Object)
+ */
+@Sharable
+public class DatagramEncoder extends MessageToMessageEncoder<AddressedEnvelope<Jt808Message, InetSocketAddress>> {
+
+    @Override
+    public boolean acceptOutboundMessage(Object msg) throws Exception {
+        return super.acceptOutboundMessage(msg) && ((AddressedEnvelope<?, ?>) msg).content() instanceof Jt808Message;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, AddressedEnvelope<Jt808Message, InetSocketAddress> envelope, List<Object> out) {
+        var msg = envelope.content();
+        var version = msg.getVersion();
+
+        var table = DispatchTable.getInstance();
+        var codec = table.getCodec(version, msg.getType().getValue());
+
+        Assert.notNull(codec, () -> String.format("协议定义 %s 未适配的消息类型 %s", table.getProtocolDefinition(version), msg.getType()));
+
+        var buf = ctx.alloc().ioBuffer();
+        try {
+            codec.encode(msg, buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        out.add(new DatagramPacket(buf, envelope.recipient()));
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.configure;
+
+import cn.linliangjun.its.jt808.server.dispatch.StripedExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 执行通道配置，启用后消息端点在执行通道中调用，不再占用 Netty 的事件循环
+ *
+ * @author linliangjun
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "its.jt808.server", name = "execution-enabled", havingValue = "true")
+public class ExecutionConfiguration {
+
+    @Bean(destroyMethod = "shutdown")
+    public StripedExecutor jt808StripedExecutor(Jt808ServerProperties properties) {
+        return new StripedExecutor(properties.getExecutionLanes(), properties.getExecutionLaneCapacity(),
+                properties.getExecutionOverflowPolicy(), properties.isExecutionVirtualThreads());
+    }
+}
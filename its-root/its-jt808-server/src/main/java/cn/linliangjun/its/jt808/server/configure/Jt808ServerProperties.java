@@ -0,0 +1,441 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.configure;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.tcp.FrameSplitter;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * JT/T 808 服务器属性
+ *
+ * @author linliangjun
+ */
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties("its.jt808.server")
+public class Jt808ServerProperties {
+
+    /**
+     * 入站帧解码方式，默认为 {@linkplain FrameDecodeMode#FUSED}
+     */
+    @NotNull
+    private FrameDecodeMode frameDecodeMode = FrameDecodeMode.FUSED;
+
+    /**
+     * 最大帧长度（转义前，含首尾标识位），默认为 2048
+     */
+    @NotNull
+    @Min(12)
+    private Integer maxFrameLength = 2048;
+
+    /**
+     * 帧分割模式，仅当入站帧解码方式为 {@linkplain FrameDecodeMode#SEPARATE} 时有效，默认为 {@linkplain FrameSplitter.Mode#COPY}
+     */
+    @NotNull
+    private FrameSplitter.Mode frameSplitterMode = FrameSplitter.Mode.COPY;
+
+    /**
+     * 消息解码方式，默认为 {@linkplain MessageDecodeMode#EAGER}
+     */
+    @NotNull
+    private MessageDecodeMode messageDecodeMode = MessageDecodeMode.EAGER;
+
+    /**
+     * 消息分发方式，默认为 {@linkplain DispatchMode#DIRECT}
+     */
+    @NotNull
+    private DispatchMode dispatchMode = DispatchMode.DIRECT;
+
+    /**
+     * 是否在执行通道中调用消息端点，默认为 {@code false}，即在 Netty 的事件循环中调用。端点中有阻塞操作（如数据库访问）时应启用
+     *
+     * @see cn.linliangjun.its.jt808.server.dispatch.StripedExecutor
+     */
+    private boolean executionEnabled = false;
+
+    /**
+     * 执行通道数，同一终端的消息总在同一条通道上按顺序执行，默认为 CPU 核数的 2 倍
+     */
+    @NotNull
+    @Min(1)
+    private Integer executionLanes = Runtime.getRuntime().availableProcessors() * 2;
+
+    /**
+     * 每条执行通道的队列容量，默认为 1024
+     */
+    @NotNull
+    @Min(1)
+    private Integer executionLaneCapacity = 1024;
+
+    /**
+     * 执行通道的队列已满时的处理策略，默认为 {@linkplain OverflowPolicy#DISCARD}
+     */
+    @NotNull
+    private OverflowPolicy executionOverflowPolicy = OverflowPolicy.DISCARD;
+
+    /**
+     * 是否使用虚拟线程执行各通道，仅在支持虚拟线程的 JVM 上有效，默认为 {@code false}
+     */
+    private boolean executionVirtualThreads = false;
+
+    /**
+     * 是否统计入站流水线指标（各处理器的调用次数与耗时、每次读取的帧数、每帧的字节数），默认为 {@code true}
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics
+     */
+    private boolean pipelineMetricsEnabled = true;
+
+    /**
+     * 入站流水线耗时的采样间隔（入站读取次数），默认为 16。调用次数不受采样影响。
+     * 采样以位掩码判断，不是 2 的幂时向上取整为 2 的幂（例如 100 取 128）
+     */
+    @NotNull
+    @Min(1)
+    @Max(1 << 30)
+    private Integer pipelineMetricsSampleInterval = 16;
+
+    /**
+     * 定时器的时间轮刻度，即定时任务的精度，默认为 100 毫秒
+     */
+    @NotNull
+    private Duration timerTickDuration = Duration.ofMillis(100);
+
+    /**
+     * 下行指令等待终端通用应答的默认超时时间，默认为 10 秒
+     *
+     * @see cn.linliangjun.its.jt808.server.downlink.DownlinkService
+     */
+    @NotNull
+    private Duration downlinkTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 鉴权超时时间，连接建立后超过该时间仍未鉴权则关闭连接，默认为 60 秒
+     *
+     * @see cn.linliangjun.its.jt808.server.session.SessionReaper
+     */
+    @NotNull
+    private Duration authTimeout = Duration.ofSeconds(60);
+
+    /**
+     * 空闲超时时间，超过该时间未收到任何数据（包括终端心跳）则关闭连接，应大于终端心跳间隔的数倍，默认为 180 秒
+     *
+     * @see cn.linliangjun.its.jt808.server.session.SessionReaper
+     */
+    @NotNull
+    private Duration idleTimeout = Duration.ofSeconds(180);
+
+    /**
+     * 空闲会话的检查间隔，默认为 10 秒
+     */
+    @NotNull
+    private Duration idleSweepInterval = Duration.ofSeconds(10);
+
+    /**
+     * 分包重组超时时间，超过该时间未收到新的分包时请求补传，默认为 10 秒
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.ReassemblyHandler
+     */
+    @NotNull
+    private Duration reassemblyTimeout = Duration.ofSeconds(10);
+
+    /**
+     * 分包重组的最大补传请求次数，用尽后仍未收齐则丢弃，默认为 2
+     */
+    @NotNull
+    @Min(0)
+    private Integer reassemblyMaxRetries = 2;
+
+    /**
+     * 全部连接的分包重组缓冲上限，默认为 64MB
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.ReassemblyBudget
+     */
+    @NotNull
+    private DataSize reassemblyMaxBytes = DataSize.ofMegabytes(64);
+
+    /**
+     * 单个终端的分包重组缓冲上限，默认为 2MB
+     */
+    @NotNull
+    private DataSize reassemblyMaxBytesPerTerminal = DataSize.ofMegabytes(2);
+
+    /**
+     * 单个终端同时重组的消息数上限，超出时新消息的分包视为未收到，默认为 16
+     */
+    @NotNull
+    @Min(1)
+    private Integer reassemblyMaxSetsPerTerminal = 16;
+
+    /**
+     * 是否在事件循环中直接应答终端心跳，不经过消息解码器与消息端点，默认为 {@code true}
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.HeartbeatHandler
+     */
+    private boolean heartbeatFastPathEnabled = true;
+
+    /**
+     * 是否将多媒体数据上传（0x0801）的各分包直接写入文件，默认为 {@code false}。不启用时多媒体数据与其他消息一样在内存中重组，且数据包不会保存。
+     * 启用时终端上传的数据写入 {@linkplain #multimediaDirectory}，应同时配置该目录
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.MultimediaHandler
+     */
+    private boolean multimediaEnabled;
+
+    /**
+     * 多媒体文件的存储目录，收齐的多媒体文件保存为 {@code 目录/终端手机号/多媒体数据 ID.扩展名}，默认为临时目录下的 its-jt808-multimedia
+     */
+    @NotNull
+    private Path multimediaDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "its-jt808-multimedia");
+
+    /**
+     * 多媒体数据上传超时时间，超过该时间未收到新的分包时请求重传，默认为 30 秒
+     */
+    @NotNull
+    private Duration multimediaTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 多媒体数据上传的最大重传请求次数，用尽后仍未收齐则丢弃，默认为 2
+     */
+    @NotNull
+    @Min(0)
+    private Integer multimediaMaxRetries = 2;
+
+    /**
+     * 单个终端同时进行的多媒体数据上传数上限，超过后拒绝新的上传，默认为 4
+     */
+    @NotNull
+    @Min(1)
+    private Integer multimediaMaxUploadsPerTerminal = 4;
+
+    /**
+     * 单个终端进行中的多媒体数据上传已写入临时文件的字节数上限，超过后丢弃写入该分包的上传，默认为 64MB
+     */
+    @NotNull
+    private DataSize multimediaMaxBytesPerTerminal = DataSize.ofMegabytes(64);
+
+    /**
+     * 是否将位置信息汇报（0x0200）与定位数据批量上传（0x0704）中的位置写入本节点的位置日志，默认为 {@code false}
+     *
+     * @see cn.linliangjun.its.jt808.server.storage.LocationLog
+     */
+    private boolean locationLogEnabled = false;
+
+    /**
+     * 位置日志的存储目录，默认为临时目录下的 its-jt808-location-log
+     */
+    @NotNull
+    private Path locationLogDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "its-jt808-location-log");
+
+    /**
+     * 位置日志每段文件的大小，不超过 2GB，默认为 256MB（约 559 万条记录）。段文件创建时即映射为该大小，未写入的部分在支持稀疏文件的文件系统上不占用磁盘空间
+     */
+    @NotNull
+    private DataSize locationLogSegmentSize = DataSize.ofMegabytes(256);
+
+    /**
+     * 位置日志的滚动间隔，段写满或到达按该间隔对齐的时间点时滚动到新的段，默认为 1 小时
+     */
+    @NotNull
+    private Duration locationLogRollInterval = Duration.ofHours(1);
+
+    /**
+     * 位置日志写入队列的容量（记录数），向上取整为 2 的幂，队列已满时丢弃新的位置，默认为 65536
+     */
+    @NotNull
+    @Min(1)
+    private Integer locationLogQueueCapacity = 65536;
+
+    /**
+     * 位置日志稀疏索引的间隔，每个终端在每个段中每写入该数量的记录建立一个索引项，默认为 64
+     */
+    @NotNull
+    @Min(1)
+    private Integer locationLogIndexInterval = 64;
+
+    /**
+     * 出站缓冲区的低水位线，出站缓冲区降至该值以下时连接恢复可写，默认为 32KB
+     *
+     * @see io.netty.channel.WriteBufferWaterMark
+     */
+    @NotNull
+    private DataSize outboundLowWaterMark = DataSize.ofKilobytes(32);
+
+    /**
+     * 出站缓冲区的高水位线，出站缓冲区超过该值时连接不可写，默认为 64KB
+     */
+    @NotNull
+    private DataSize outboundHighWaterMark = DataSize.ofKilobytes(64);
+
+    /**
+     * 连接不可写时最多积压的消息数，超过后按 {@linkplain #outboundUnwritablePolicy} 处理，默认为 64。
+     * UDP 服务器的所有终端共用一个数据报连接，该上限由所有终端共享
+     *
+     * @see cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler
+     */
+    @NotNull
+    @Min(0)
+    private Integer outboundBacklogLimit = 64;
+
+    /**
+     * 连接持续不可写、积压超过上限时的处理策略，默认为 {@linkplain UnwritablePolicy#DROP}。
+     * UDP 服务器的数据报连接从不关闭，{@linkplain UnwritablePolicy#CLOSE} 按 {@linkplain UnwritablePolicy#DROP} 处理
+     */
+    @NotNull
+    private UnwritablePolicy outboundUnwritablePolicy = UnwritablePolicy.DROP;
+
+    public void setPipelineMetricsSampleInterval(Integer pipelineMetricsSampleInterval) {
+        Integer interval = pipelineMetricsSampleInterval;
+        // 超出范围的值原样保留，由校验注解报告
+        if (interval != null && interval > 1 && interval <= 1 << 30) {
+            interval = Integer.highestOneBit(interval - 1) << 1;
+        }
+        this.pipelineMetricsSampleInterval = interval;
+    }
+
+    /**
+     * 入站帧解码方式
+     *
+     * @author linliangjun
+     */
+    public enum FrameDecodeMode {
+
+        /**
+         * 单次遍历完成帧分割、转义和 BCC 校验
+         *
+         * @see cn.linliangjun.its.jt808.server.adapter.netty.FrameDecoder
+         */
+        FUSED,
+
+        /**
+         * 依次经过帧分割器、转义处理器、BCC 校验器
+         *
+         * @see cn.linliangjun.its.jt808.server.adapter.netty.tcp.FrameSplitter
+         * @see cn.linliangjun.its.jt808.server.adapter.netty.EscapeHandler
+         * @see cn.linliangjun.its.jt808.server.adapter.netty.BccChecker
+         */
+        SEPARATE
+    }
+
+    /**
+     * 消息解码方式
+     *
+     * @author linliangjun
+     */
+    public enum MessageDecodeMode {
+
+        /**
+         * 解码时解析全部字段
+         */
+        EAGER,
+
+        /**
+         * 支持视图的消息以视图方式解码，消息体字段在首次访问时才解析，适用于大部分消息只需转发或计数的场景。
+         * 消息视图持有入站缓冲区的切片，在消息处理器返回后释放，端点若需异步使用，应先调用 {@code retain()}
+         *
+         * @see cn.linliangjun.its.jt808.protocol.message.view.MessageView
+         */
+        VIEW,
+
+        /**
+         * 解析全部字段，消息从对象池中获取，在消息处理器返回后交还，适用于大量终端周期性上报的场景。
+         * 端点不能在调用栈之外持有消息，需要异步使用的字段应先复制
+         *
+         * @see cn.linliangjun.its.jt808.protocol.message.MessageRecycler
+         */
+        POOLED
+    }
+
+    /**
+     * 消息分发方式
+     *
+     * @author linliangjun
+     */
+    public enum DispatchMode {
+
+        /**
+         * 通过启动时绑定的方法句柄直接调用消息端点
+         *
+         * @see cn.linliangjun.its.jt808.server.dispatch.MessageDispatcher
+         */
+        DIRECT,
+
+        /**
+         * 发送到消息请求通道，由 Spring Integration 路由到消息端点，适用于需要拦截器、异步通道等 Spring Integration 特性的场景
+         *
+         * @see cn.linliangjun.its.jt808.server.configure.integration.MessageRouter
+         */
+        INTEGRATION
+    }
+
+    /**
+     * 连接持续不可写、积压超过上限时的处理策略
+     *
+     * @author linliangjun
+     */
+    public enum UnwritablePolicy {
+
+        /**
+         * 丢弃最新的消息
+         */
+        DROP,
+
+        /**
+         * 同类型的消息只保留最新的一条，仍超过上限时丢弃最早的消息，适用于状态类的下行消息
+         */
+        COALESCE,
+
+        /**
+         * 关闭连接，由终端重连；UDP 服务器按 {@linkplain #DROP} 处理
+         */
+        CLOSE
+    }
+
+    /**
+     * 执行通道的队列已满时的处理策略
+     *
+     * @author linliangjun
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * 丢弃新的消息
+         */
+        DISCARD,
+
+        /**
+         * 阻塞事件循环直到队列有空位，同一事件循环上的其他连接也会被阻塞，适用于不允许丢失消息的场景
+         */
+        BLOCK,
+
+        /**
+         * 丢弃新的消息并关闭连接，由终端重连
+         */
+        CLOSE
+    }
+}
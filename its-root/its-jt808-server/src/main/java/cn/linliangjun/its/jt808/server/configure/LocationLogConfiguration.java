@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.configure;
+
+import cn.linliangjun.its.jt808.server.storage.LocationLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * 位置日志配置，启用后位置信息汇报与定位数据批量上传中的位置写入本节点的位置日志
+ *
+ * @author linliangjun
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "its.jt808.server", name = "location-log-enabled", havingValue = "true")
+public class LocationLogConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public LocationLog jt808LocationLog(Jt808ServerProperties properties) throws IOException {
+        return new LocationLog(properties.getLocationLogDirectory(), properties.getLocationLogSegmentSize().toBytes(),
+                properties.getLocationLogRollInterval(), properties.getLocationLogQueueCapacity(), properties.getLocationLogIndexInterval());
+    }
+}
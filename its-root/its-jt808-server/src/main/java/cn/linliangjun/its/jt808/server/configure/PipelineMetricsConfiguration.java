@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.configure;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.metrics.PipelineMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 入站流水线指标配置，指标通过 Micrometer 注册，可在 {@code /actuator/metrics} 中查看
+ *
+ * @author linliangjun
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "its.jt808.server", name = "pipeline-metrics-enabled", havingValue = "true", matchIfMissing = true)
+public class PipelineMetricsConfiguration {
+
+    @Bean
+    public PipelineMetrics pipelineMetrics(Jt808ServerProperties properties) {
+        return new PipelineMetrics(properties.getPipelineMetricsSampleInterval());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.configure;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时器配置
+ *
+ * @author linliangjun
+ */
+@Configuration
+public class TimerConfiguration {
+
+    /**
+     * JT/T 808 服务共用的时间轮定时器，用于下行指令超时等精度要求不高的大量定时任务，只占用一个线程
+     */
+    @Bean(destroyMethod = "stop")
+    public Timer jt808Timer(Jt808ServerProperties properties) {
+        return new HashedWheelTimer(new DefaultThreadFactory("jt808-timer", true),
+                properties.getTimerTickDuration().toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -18,6 +18,8 @@ package cn.linliangjun.its.jt808.server.configure.integration;
 
 import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
 import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler;
+import cn.linliangjun.its.jt808.server.session.Session;
 import io.netty.channel.ChannelHandlerContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.integration.annotation.MessageEndpoint;
@@ -30,6 +32,9 @@ import org.springframework.messaging.handler.annotation.Header;
 /**
  * JT/T 808 消息路由器
  *
+ * <p>仅当分发方式为 {@linkplain cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties.DispatchMode#INTEGRATION} 时，消息才会进入消息请求通道；
+ * 消息响应通道在两种分发方式下均可用
+ *
  * @author linliangjun
  */
 @Slf4j
@@ -59,7 +64,9 @@ public class MessageRouter {
     @ServiceActivator(inputChannel = "messageResponseChannel")
     public void sendService(@Header Object ctx, Jt808Message message) {
         if (ctx instanceof ChannelHandlerContext) {
-            ((ChannelHandlerContext) ctx).writeAndFlush(message);
+            OutboundHandler.write(((ChannelHandlerContext) ctx).channel(), message);
+        } else if (ctx instanceof Session) {
+            OutboundHandler.write((Session) ctx, message);
         } else {
             log.error("无法发送数据，原因：不支持的 channel 上下文，{}", ctx);
         }
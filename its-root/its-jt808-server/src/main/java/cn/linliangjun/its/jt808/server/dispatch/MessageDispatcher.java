@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.dispatch;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler;
+import cn.linliangjun.its.jt808.server.session.Session;
+import io.netty.channel.ChannelHandlerContext;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.Resource;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * JT/T 808 消息分发器，不经过 Spring Integration 直接调用消息端点
+ *
+ * <p>启动时扫描 {@linkplain MessageEndpoint} 中输入通道为 {@value #REQUEST_CHANNEL_PREFIX}{@code 0x....} 的 {@linkplain ServiceActivator} 方法，
+ * 绑定为 {@code (Object ctx, Jt808Message message)Object} 形式的 {@linkplain MethodHandle}，存放在以消息类型值为下标的数组中。
+ * 分发时只需一次数组访问和一次方法句柄调用，无需格式化通道名、查找通道以及构建 {@linkplain org.springframework.messaging.Message}。
+ *
+ * <p>端点方法的参数只能是 {@code @Header Object ctx}（TCP 终端为 {@linkplain ChannelHandlerContext}，UDP 终端为 {@linkplain Session}）和消息本身，输出通道为 {@value #RESPONSE_CHANNEL} 时，返回值直接写入连接，
+ * 为其他通道时，返回值发送到该通道。不满足上述约定的端点需使用 {@linkplain cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties.DispatchMode#INTEGRATION} 分发方式
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "its.jt808.server", name = "dispatch-mode", havingValue = "DIRECT", matchIfMissing = true)
+public class MessageDispatcher implements SmartInitializingSingleton {
+
+    /**
+     * 消息请求通道名的前缀，后接十六进制的消息类型值
+     */
+    public static final String REQUEST_CHANNEL_PREFIX = "messageRequestChannel_";
+
+    /**
+     * 消息响应通道名
+     */
+    public static final String RESPONSE_CHANNEL = "messageResponseChannel";
+
+    private static final String CTX_HEADER = "ctx";
+
+    private static final MethodType ENDPOINT_TYPE = MethodType.methodType(Object.class, Object.class, Jt808Message.class);
+
+    /**
+     * 以消息类型值为下标的端点
+     */
+    private final Endpoint[] endpoints = new Endpoint[0x10000];
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    /**
+     * 分发消息，调用方需保证消息在返回前有效
+     *
+     * @param ctx     channel 上下文
+     * @param message JT/T 808 消息
+     */
+    @SneakyThrows
+    public void dispatch(Object ctx, Jt808Message message) {
+        var endpoint = endpoints[message.getType().getValue()];
+        if (endpoint == null) {
+            log.error("未找到可用的消息端点，丢弃请求数据：{}", message);
+            return;
+        }
+        var result = (Object) endpoint.handle.invokeExact(ctx, message);
+        if (result == null || endpoint.responseType == ResponseType.NONE) {
+            return;
+        }
+        if (endpoint.responseType == ResponseType.CHANNEL) {
+            endpoint.outputChannel.send(MessageBuilder.withPayload(result).setHeader(CTX_HEADER, ctx).build());
+        } else if (ctx instanceof ChannelHandlerContext) {
+            OutboundHandler.write(((ChannelHandlerContext) ctx).channel(), result);
+        } else if (ctx instanceof Session) {
+            OutboundHandler.write((Session) ctx, result);
+        } else {
+            log.error("无法发送数据，原因：不支持的 channel 上下文，{}", ctx);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int count = 0;
+        for (var bean : applicationContext.getBeansWithAnnotation(MessageEndpoint.class).values()) {
+            Class<?> userClass = ClassUtils.getUserClass(bean);
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(userClass, ReflectionUtils.USER_DECLARED_METHODS)) {
+                var activator = AnnotatedElementUtils.findMergedAnnotation(method, ServiceActivator.class);
+                if (activator == null || !activator.inputChannel().startsWith(REQUEST_CHANNEL_PREFIX)) {
+                    continue;
+                }
+                int type = Integer.decode(activator.inputChannel().substring(REQUEST_CHANNEL_PREFIX.length()));
+                var name = userClass.getSimpleName() + "#" + method.getName();
+                if (endpoints[type] != null) {
+                    throw new IllegalStateException(String.format("消息类型 %#06x 存在多个消息端点：%s、%s", type, endpoints[type].name, name));
+                }
+                endpoints[type] = new Endpoint(name, bind(bean, method), activator.outputChannel());
+                count++;
+            }
+        }
+        log.info("已绑定 {} 个消息端点", count);
+    }
+
+    /**
+     * 将端点方法绑定为 {@code (Object ctx, Jt808Message message)Object} 形式的方法句柄
+     */
+    private static MethodHandle bind(Object bean, Method method) {
+        var invocable = AopUtils.selectInvocableMethod(method, bean.getClass());
+        ReflectionUtils.makeAccessible(invocable);
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(invocable).bindTo(bean);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法访问消息端点：" + method, e);
+        }
+
+        // 每个参数对应 (ctx, message) 中的一个，先将参数类型放宽，再重排
+        var discoverer = new DefaultParameterNameDiscoverer();
+        int count = method.getParameterCount();
+        var types = new Class<?>[count];
+        var reorder = new int[count];
+        for (int i = 0; i < count; i++) {
+            var parameter = new MethodParameter(method, i);
+            parameter.initParameterNameDiscovery(discoverer);
+            var header = parameter.getParameterAnnotation(Header.class);
+            if (header != null) {
+                var headerName = StringUtils.hasText(header.name()) ? header.name() : parameter.getParameterName();
+                if (!CTX_HEADER.equals(headerName)) {
+                    throw new IllegalStateException(String.format("消息端点 %s 的参数 %d 为不支持的消息头：%s", method, i, headerName));
+                }
+                types[i] = Object.class;
+                reorder[i] = 0;
+            } else if (Jt808Message.class.isAssignableFrom(parameter.getParameterType())) {
+                types[i] = Jt808Message.class;
+                reorder[i] = 1;
+            } else {
+                throw new IllegalStateException(String.format("消息端点 %s 的参数 %d 类型不受支持：%s", method, i, parameter.getParameterType()));
+            }
+        }
+        handle = handle.asType(MethodType.methodType(Object.class, types));
+        return MethodHandles.permuteArguments(handle, ENDPOINT_TYPE, reorder);
+    }
+
+    /**
+     * 端点返回值的去向
+     */
+    private enum ResponseType {
+
+        /**
+         * 丢弃
+         */
+        NONE,
+
+        /**
+         * 直接写入连接
+         */
+        WRITE,
+
+        /**
+         * 发送到输出通道
+         */
+        CHANNEL
+    }
+
+    private final class Endpoint {
+
+        private final String name;
+
+        private final MethodHandle handle;
+
+        private final ResponseType responseType;
+
+        private final MessageChannel outputChannel;
+
+        private Endpoint(String name, MethodHandle handle, String outputChannel) {
+            this.name = name;
+            this.handle = handle;
+            if (!StringUtils.hasText(outputChannel)) {
+                this.responseType = ResponseType.NONE;
+                this.outputChannel = null;
+            } else if (RESPONSE_CHANNEL.equals(outputChannel)) {
+                this.responseType = ResponseType.WRITE;
+                this.outputChannel = null;
+            } else {
+                this.responseType = ResponseType.CHANNEL;
+                this.outputChannel = applicationContext.getBean(outputChannel, MessageChannel.class);
+            }
+        }
+    }
+}
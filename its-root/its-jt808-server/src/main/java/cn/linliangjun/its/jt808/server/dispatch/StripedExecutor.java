@@ -0,0 +1,162 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.dispatch;
+
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 条带化执行器，将任务按键（终端手机号）散列到 N 条单线程的执行通道上
+ *
+ * <p>同一个键的任务总在同一条通道上按提交顺序执行，因此同一终端的消息不会乱序；不同终端的消息分散在各通道上并行执行，
+ * 端点中的阻塞操作（如数据库访问）只会阻塞所在的通道，不会阻塞 Netty 的事件循环。
+ *
+ * <p>每条通道的队列是有界的，队列已满时按 {@linkplain Jt808ServerProperties.OverflowPolicy 溢出策略} 处理。
+ * 运行在支持虚拟线程的 JVM（Java 21 及以上）上时，可以用虚拟线程执行各通道，此时通道数可以远大于 CPU 核数
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public class StripedExecutor implements MeterBinder {
+
+    private final ThreadPoolExecutor[] lanes;
+
+    @Getter
+    private final Jt808ServerProperties.OverflowPolicy overflowPolicy;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param laneCount      通道数
+     * @param laneCapacity   每条通道的队列容量
+     * @param overflowPolicy 溢出策略
+     * @param virtualThreads 是否使用虚拟线程，JVM 不支持时使用平台线程
+     */
+    public StripedExecutor(int laneCount, int laneCapacity, Jt808ServerProperties.OverflowPolicy overflowPolicy, boolean virtualThreads) {
+        if (laneCount <= 0) {
+            throw new IllegalArgumentException("通道数必须大于 0：" + laneCount);
+        }
+        if (laneCapacity <= 0) {
+            throw new IllegalArgumentException("通道的队列容量必须大于 0：" + laneCapacity);
+        }
+        this.overflowPolicy = overflowPolicy;
+        ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory() : null;
+        if (threadFactory == null) {
+            if (virtualThreads) {
+                log.warn("当前 JVM 不支持虚拟线程，执行通道使用平台线程");
+            }
+            threadFactory = new DefaultThreadFactory("jt808-lane", true);
+        }
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(laneCapacity), threadFactory);
+        }
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param key  键，相同键的任务按提交顺序执行
+     * @param task 任务
+     * @return 是否已接受，队列已满且溢出策略不为 {@linkplain Jt808ServerProperties.OverflowPolicy#BLOCK} 或执行器已关闭时返回 {@code false}
+     */
+    public boolean execute(long key, Runnable task) {
+        var lane = lanes[laneIndex(key)];
+        try {
+            lane.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (overflowPolicy == Jt808ServerProperties.OverflowPolicy.BLOCK && !lane.isShutdown()) {
+                try {
+                    // 直接放入队列绕过了执行器的状态检查，等待期间执行器可能已关闭，通道线程退出后任务将无人执行
+                    lane.getQueue().put(task);
+                    if (!lane.isShutdown() || !lane.getQueue().remove(task)) {
+                        return true;
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * 关闭执行器，已提交的任务会执行完毕
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * @return 各通道中等待执行的任务数之和
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (ThreadPoolExecutor lane : lanes) {
+            count += lane.getQueue().size();
+        }
+        return count;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("its.jt808.execution.queued", this, StripedExecutor::getQueuedCount)
+                .description("执行通道中等待执行的消息数")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.execution.rejected", rejectedCount, AtomicLong::get)
+                .description("执行通道已满而被拒绝的消息数")
+                .register(registry);
+    }
+
+    private int laneIndex(long key) {
+        // 终端手机号的低位分布不均匀，先打散再取高位
+        return (int) (((key * 0x9e3779b97f4a7c15L) >>> 32) % lanes.length);
+    }
+
+    /**
+     * @return 虚拟线程工厂，JVM 不支持时返回 {@code null}
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            // Thread.ofVirtual().name("jt808-lane-", 0).factory()，编译目标为 Java 8，只能反射调用
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "jt808-lane-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
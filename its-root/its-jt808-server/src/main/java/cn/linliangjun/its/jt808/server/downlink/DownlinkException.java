@@ -0,0 +1,35 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.downlink;
+
+/**
+ * 下行指令异常，例如终端不在线、写出失败
+ *
+ * @author linliangjun
+ */
+public class DownlinkException extends RuntimeException {
+
+    private static final long serialVersionUID = 3725036114570923127L;
+
+    public DownlinkException(String message) {
+        super(message);
+    }
+
+    public DownlinkException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.downlink;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.TerminalGenericRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.OutboundHandler;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.session.Session;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 下行指令服务，向终端发送平台消息，并异步等待终端通用应答（0x0001）
+ *
+ * <p>发送时从终端的会话分配消息流水号，将指令登记到以（终端手机号，消息流水号）为键的 {@linkplain PendingCommandTable}，
+ * 并在 {@linkplain Timer} 上登记超时。收到终端通用应答、超时、写出失败或调用方取消时，指令从表中移除，返回的 {@linkplain CompletableFuture} 随之完成。
+ * 等待期间不占用线程，每条待应答的指令只有指令对象与一个 {@linkplain Timeout}
+ *
+ * <p>返回的 {@linkplain CompletableFuture} 以应答结果完成，而不是应答消息本身：消息以池化方式解码时，应答消息在端点返回后即被交还
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@Component
+public class DownlinkService implements MeterBinder {
+
+    private final PendingCommandTable table = new PendingCommandTable();
+
+    @Resource
+    private SessionRegistry sessionRegistry;
+
+    @Resource
+    private Timer jt808Timer;
+
+    @Resource
+    private Jt808ServerProperties properties;
+
+    public DownlinkService() {
+    }
+
+    DownlinkService(SessionRegistry sessionRegistry, Timer jt808Timer, Jt808ServerProperties properties) {
+        this.sessionRegistry = sessionRegistry;
+        this.jt808Timer = jt808Timer;
+        this.properties = properties;
+    }
+
+    /**
+     * 向终端发送消息，以默认的超时时间等待终端通用应答
+     *
+     * @param terminalPhone 终端手机号（数值形式）
+     * @param message       平台消息，版本应与终端一致，终端手机号与消息流水号由本方法设置
+     * @return 终端通用应答的结果；终端不在线、写出失败时以 {@linkplain DownlinkException} 异常完成，超时时以 {@linkplain TimeoutException} 异常完成
+     * @see Jt808ServerProperties#getDownlinkTimeout()
+     */
+    public CompletableFuture<TerminalGenericRespMessage.Result> send(long terminalPhone, Jt808Message message) {
+        return send(terminalPhone, message, properties.getDownlinkTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 向终端发送消息，并等待终端通用应答
+     *
+     * @param terminalPhone 终端手机号（数值形式）
+     * @param message       平台消息，版本应与终端一致，终端手机号与消息流水号由本方法设置
+     * @param timeout       超时时间
+     * @param unit          超时时间的单位
+     * @return 终端通用应答的结果；终端不在线、写出失败时以 {@linkplain DownlinkException} 异常完成，超时时以 {@linkplain TimeoutException} 异常完成
+     */
+    public CompletableFuture<TerminalGenericRespMessage.Result> send(long terminalPhone, Jt808Message message, long timeout, TimeUnit unit) {
+        return send(sessionRegistry.get(terminalPhone), terminalPhone, message, timeout, unit);
+    }
+
+    /**
+     * 向终端发送消息，并等待终端通用应答，适用于超出 {@code long} 表示范围的终端手机号（2019 版本最多 20 位）
+     *
+     * @param terminalPhoneNum 终端手机号（字符串形式）
+     * @param message          平台消息，版本应与终端一致，终端手机号与消息流水号由本方法设置
+     * @param timeout          超时时间
+     * @param unit             超时时间的单位
+     * @return 终端通用应答的结果；终端不在线、写出失败时以 {@linkplain DownlinkException} 异常完成，超时时以 {@linkplain TimeoutException} 异常完成
+     */
+    public CompletableFuture<TerminalGenericRespMessage.Result> send(String terminalPhoneNum, Jt808Message message, long timeout, TimeUnit unit) {
+        return send(sessionRegistry.get(terminalPhoneNum), terminalPhoneNum, message, timeout, unit);
+    }
+
+    private CompletableFuture<TerminalGenericRespMessage.Result> send(Session session, Object terminalPhone, Jt808Message message, long timeout, TimeUnit unit) {
+        if (session == null || !session.isActive()) {
+            var future = new CompletableFuture<TerminalGenericRespMessage.Result>();
+            future.completeExceptionally(new DownlinkException("终端不在线：" + terminalPhone));
+            return future;
+        }
+        return send(session, message, timeout, unit);
+    }
+
+    /**
+     * 通过会话向终端发送消息，并等待终端通用应答
+     *
+     * @param session 终端会话
+     * @param message 平台消息，版本应与终端一致，终端手机号与消息流水号由本方法设置
+     * @param timeout 超时时间
+     * @param unit    超时时间的单位
+     * @return 终端通用应答的结果
+     */
+    public CompletableFuture<TerminalGenericRespMessage.Result> send(Session session, Jt808Message message, long timeout, TimeUnit unit) {
+        session.copyTerminalPhoneTo(message);
+        message.setSerialNum(session.nextSerialNum());
+        var command = new PendingCommand(message.getTerminalPhone(), message.isTerminalPhoneOversized() ? message.getTerminalPhoneNum() : null,
+                message.getSerialNum(), message.getType());
+        // 先登记超时再发布到表中，此后在其他线程完成指令时总能取消超时
+        var commandTimeout = jt808Timer.newTimeout(command, timeout, unit);
+        command.timeout = commandTimeout;
+        if (!table.put(command)) {
+            commandTimeout.cancel();
+            command.completeExceptionally(new DownlinkException(String.format("终端 %s 的消息流水号 %d 仍有待应答的指令", command.getTerminalPhoneNum(), command.serialNum)));
+            return command;
+        }
+        if (commandTimeout.isExpired()) {
+            // 超时任务可能在指令登记到表中之前已执行，此时未能移除指令，需再次执行
+            command.run(commandTimeout);
+            return command;
+        }
+        OutboundHandler.write(session, message).addListener(command);
+        return command;
+    }
+
+    /**
+     * 以终端通用应答完成对应的指令
+     *
+     * @param message 终端通用应答
+     * @return 是否找到对应的指令
+     */
+    public boolean complete(TerminalGenericRespMessage message) {
+        var command = table.remove(message.getTerminalPhone(), message.isTerminalPhoneOversized() ? message.getTerminalPhoneNum() : null,
+                message.getRespSerialNum());
+        if (command == null) {
+            return false;
+        }
+        if (command.type != message.getRespType()) {
+            log.warn("终端通用应答的消息类型与指令不一致，指令：{}，应答：{}", command.type, message);
+        }
+        command.cancelTimeout();
+        command.complete(message.getResult());
+        return true;
+    }
+
+    /**
+     * 待应答的指令数
+     */
+    public int getPendingCount() {
+        return table.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("its.jt808.downlink.pending", this, DownlinkService::getPendingCount)
+                .description("待应答的下行指令数")
+                .register(registry);
+    }
+
+    /**
+     * 待应答的指令，同时作为超时任务和写出监听器，以减少每条指令的对象数
+     */
+    @Getter
+    final class PendingCommand extends CompletableFuture<TerminalGenericRespMessage.Result> implements TimerTask, ChannelFutureListener {
+
+        private final long terminalPhone;
+
+        /**
+         * 终端手机号（字符串形式），仅当终端手机号超出 {@code long} 的表示范围时有值
+         */
+        @Getter(AccessLevel.PACKAGE)
+        private final String oversizedTerminalPhone;
+
+        private final int serialNum;
+
+        private final Type type;
+
+        private volatile Timeout timeout;
+
+        /**
+         * {@linkplain PendingCommandTable} 中键相同的下一条指令，由表的锁保护
+         */
+        @Getter(AccessLevel.NONE)
+        PendingCommand next;
+
+        private PendingCommand(long terminalPhone, String oversizedTerminalPhone, int serialNum, Type type) {
+            this.terminalPhone = terminalPhone;
+            this.oversizedTerminalPhone = oversizedTerminalPhone;
+            this.serialNum = serialNum;
+            this.type = type;
+        }
+
+        /**
+         * 获取终端手机号（字符串形式）
+         */
+        String getTerminalPhoneNum() {
+            return oversizedTerminalPhone != null ? oversizedTerminalPhone : Long.toString(terminalPhone);
+        }
+
+        /**
+         * 是否为发往该终端、该流水号的指令
+         */
+        boolean matches(long terminalPhone, String oversizedTerminalPhone, int serialNum) {
+            return this.terminalPhone == terminalPhone && this.serialNum == serialNum
+                    && (this.oversizedTerminalPhone == null || this.oversizedTerminalPhone.equals(oversizedTerminalPhone));
+        }
+
+        /**
+         * 超时
+         */
+        @Override
+        public void run(Timeout timeout) {
+            if (table.remove(this)) {
+                completeExceptionally(new TimeoutException(String.format("等待终端 %s 应答超时，消息类型：%s，消息流水号：%d", getTerminalPhoneNum(), type, serialNum)));
+            }
+        }
+
+        /**
+         * 写出完成
+         */
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            if (!future.isSuccess() && table.remove(this)) {
+                cancelTimeout();
+                completeExceptionally(new DownlinkException(String.format("向终端 %s 写出消息失败，消息类型：%s", getTerminalPhoneNum(), type), future.cause()));
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (table.remove(this)) {
+                cancelTimeout();
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        private void cancelTimeout() {
+            var timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
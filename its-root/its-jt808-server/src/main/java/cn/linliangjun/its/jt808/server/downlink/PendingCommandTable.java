@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.downlink;
+
+import io.netty.util.collection.LongObjectHashMap;
+import lombok.var;
+
+/**
+ * 待应答的下行指令表，以（终端手机号，消息流水号）为键
+ *
+ * <p>键打包为 {@code long}：终端手机号左移 16 位后与流水号合并；手机号超过 48 位时可能重叠，超出 {@code long} 表示范围的手机号则以字符串的哈希值代替。
+ * 键相同的指令通过 {@linkplain DownlinkService.PendingCommand#next} 链接在一起，取出时比对完整的手机号与流水号，因此重叠不会导致登记失败或错配。
+ * 与 {@linkplain cn.linliangjun.its.jt808.server.session.SessionRegistry SessionRegistry} 一样分段加锁
+ *
+ * @author linliangjun
+ */
+class PendingCommandTable {
+
+    private static final int STRIPES = 64;
+
+    private final LongObjectHashMap<DownlinkService.PendingCommand>[] maps;
+
+    @SuppressWarnings("unchecked")
+    PendingCommandTable() {
+        maps = new LongObjectHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            maps[i] = new LongObjectHashMap<>();
+        }
+    }
+
+    /**
+     * 登记指令
+     *
+     * @return 是否登记成功，该终端的同一流水号已有待应答的指令时返回 {@code false}
+     */
+    boolean put(DownlinkService.PendingCommand command) {
+        long key = key(command);
+        var map = getMap(key);
+        synchronized (map) {
+            var head = map.get(key);
+            for (var c = head; c != null; c = c.next) {
+                if (c.matches(command.getTerminalPhone(), command.getOversizedTerminalPhone(), command.getSerialNum())) {
+                    return false;
+                }
+            }
+            command.next = head;
+            map.put(key, command);
+            return true;
+        }
+    }
+
+    /**
+     * 按终端手机号与消息流水号移除指令
+     *
+     * @param terminalPhone          终端手机号（数值形式）
+     * @param oversizedTerminalPhone 终端手机号（字符串形式），仅当终端手机号超出 {@code long} 的表示范围时有值
+     * @param serialNum              消息流水号
+     * @return 移除的指令，不存在时返回 {@code null}
+     */
+    DownlinkService.PendingCommand remove(long terminalPhone, String oversizedTerminalPhone, int serialNum) {
+        long key = key(terminalPhone, oversizedTerminalPhone, serialNum);
+        var map = getMap(key);
+        synchronized (map) {
+            DownlinkService.PendingCommand prev = null;
+            for (var c = map.get(key); c != null; prev = c, c = c.next) {
+                if (c.matches(terminalPhone, oversizedTerminalPhone, serialNum)) {
+                    unlink(map, key, prev, c);
+                    return c;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 移除指令，只有当表中仍有该指令时才移除
+     *
+     * @return 是否移除
+     */
+    boolean remove(DownlinkService.PendingCommand command) {
+        long key = key(command);
+        var map = getMap(key);
+        synchronized (map) {
+            DownlinkService.PendingCommand prev = null;
+            for (var c = map.get(key); c != null; prev = c, c = c.next) {
+                if (c == command) {
+                    unlink(map, key, prev, c);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (var map : maps) {
+            synchronized (map) {
+                for (var head : map.values()) {
+                    for (var c = head; c != null; c = c.next) {
+                        size++;
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void unlink(LongObjectHashMap<DownlinkService.PendingCommand> map, long key,
+                               DownlinkService.PendingCommand prev, DownlinkService.PendingCommand command) {
+        if (prev != null) {
+            prev.next = command.next;
+        } else if (command.next != null) {
+            map.put(key, command.next);
+        } else {
+            map.remove(key);
+        }
+        command.next = null;
+    }
+
+    private LongObjectHashMap<DownlinkService.PendingCommand> getMap(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return maps[(int) (h >>> 58)];
+    }
+
+    private static long key(DownlinkService.PendingCommand command) {
+        return key(command.getTerminalPhone(), command.getOversizedTerminalPhone(), command.getSerialNum());
+    }
+
+    private static long key(long terminalPhone, String oversizedTerminalPhone, int serialNum) {
+        long phone = oversizedTerminalPhone != null ? oversizedTerminalPhone.hashCode() : terminalPhone;
+        return phone << 16 | serialNum;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.endpoint;
+
+import cn.linliangjun.its.jt808.protocol.message.LocationBatchUploadMessage;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage;
+import cn.linliangjun.its.jt808.server.adapter.CtxUtils;
+import cn.linliangjun.its.jt808.server.storage.LocationLog;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.handler.annotation.Header;
+
+@Slf4j
+@MessageEndpoint
+public class LocationEndpoint {
+
+    /**
+     * 位置日志，未启用时为 {@code null}
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private LocationLog locationLog;
+
+    @ServiceActivator(inputChannel = "messageRequestChannel_0x0200", outputChannel = "messageResponseChannel")
+    public PlatformGenericRespMessage report(@Header Object ctx, LocationReportMessage message) {
+        if (log.isDebugEnabled()) {
+            log.debug("接收到位置信息汇报消息：{}", message);
+        }
+        var locationLog = this.locationLog;
+        if (locationLog != null) {
+            locationLog.append(message);
+        }
+        return RespUtils.newGenericSuccessResp(CtxUtils.getSession(ctx), message);
+    }
+
+    @ServiceActivator(inputChannel = "messageRequestChannel_0x0704", outputChannel = "messageResponseChannel")
+    public PlatformGenericRespMessage batchUpload(@Header Object ctx, LocationBatchUploadMessage message) {
+        if (log.isDebugEnabled()) {
+            log.debug("接收到定位数据批量上传消息：{}", message);
+        }
+        var locationLog = this.locationLog;
+        if (locationLog != null || log.isTraceEnabled()) {
+            // 数据项逐个解析到同一个消息中，不会为每个数据项创建消息；数据项的终端手机号与批量消息相同
+            message.forEachEntry(new LocationReportMessage(message.getVersion()), entry -> {
+                log.trace("数据项：{}", entry);
+                if (locationLog != null) {
+                    locationLog.append(entry);
+                }
+            });
+        }
+        return RespUtils.newGenericSuccessResp(CtxUtils.getSession(ctx), message);
+    }
+}
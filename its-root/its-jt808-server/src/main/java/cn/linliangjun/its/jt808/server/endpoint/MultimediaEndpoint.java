@@ -0,0 +1,38 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.endpoint;
+
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+
+/**
+ * 多媒体数据上传端点，收到的消息已收齐全部分包并保存为文件，多媒体数据上传应答已由
+ * {@linkplain cn.linliangjun.its.jt808.server.adapter.netty.MultimediaHandler} 发送
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@MessageEndpoint
+public class MultimediaEndpoint {
+
+    @ServiceActivator(inputChannel = "messageRequestChannel_0x0801")
+    public void upload(MultimediaDataUploadMessage message) {
+        log.info("接收到多媒体数据：{}", message);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.endpoint;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage;
+import cn.linliangjun.its.jt808.server.session.Session;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.var;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.*;
+
+/**
+ * 应答消息工具
+ *
+ * @author linliangjun
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RespUtils {
+
+    /**
+     * 创建表示成功的平台通用应答
+     *
+     * @param session 会话，为 {@code null} 时流水号为 0
+     * @param message 应答的终端消息
+     */
+    public static PlatformGenericRespMessage newGenericSuccessResp(Session session, Jt808Message message) {
+        PlatformGenericRespMessage resp;
+        Version version = message.getVersion();
+        if (version == Version.V2011) {
+            var msg = new PlatformGenericRespMessage_2011();
+            msg.setResult(PlatformGenericRespMessage_2011.Result.SUCCESS_ACK);
+            resp = msg;
+        }else {
+            var msg = new PlatformGenericRespMessage_2013_2019(version);
+            msg.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
+            resp = msg;
+        }
+        resp.setEncryption(message.getEncryption());
+        resp.copyTerminalPhoneFrom(message);
+        resp.setPartial(false);
+        resp.setSerialNum(nextSerialNum(session));
+        resp.setRespSerialNum(message.getSerialNum());
+        resp.setRespType(message.getType());
+        return resp;
+    }
+
+    /**
+     * 分配会话的下一个（平台）消息流水号
+     *
+     * @param session 会话，为 {@code null} 时返回 0
+     */
+    public static int nextSerialNum(Session session) {
+        return session == null ? 0 : session.nextSerialNum();
+    }
+}
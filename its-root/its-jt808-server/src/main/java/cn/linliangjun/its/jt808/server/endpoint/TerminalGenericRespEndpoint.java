@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.endpoint;
+
+import cn.linliangjun.its.jt808.protocol.message.TerminalGenericRespMessage;
+import cn.linliangjun.its.jt808.server.downlink.DownlinkService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+
+import javax.annotation.Resource;
+
+/**
+ * 终端通用应答端点，将应答交给 {@linkplain DownlinkService} 完成对应的下行指令
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@MessageEndpoint
+public class TerminalGenericRespEndpoint {
+
+    @Resource
+    private DownlinkService downlinkService;
+
+    @ServiceActivator(inputChannel = "messageRequestChannel_0x0001")
+    public void genericResp(TerminalGenericRespMessage message) {
+        if (!downlinkService.complete(message)) {
+            log.warn("未找到待应答的下行指令，可能已超时：{}", message);
+        }
+    }
+}
@@ -16,19 +16,20 @@
 
 package cn.linliangjun.its.jt808.server.endpoint;
 
-import cn.linliangjun.its.jt808.protocol.Version;
 import cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage;
 import cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage;
+import cn.linliangjun.its.jt808.protocol.message.TerminalHeartbeatMessage;
 import cn.linliangjun.its.jt808.protocol.message.TerminalRegisterMessage;
 import cn.linliangjun.its.jt808.protocol.message.TerminalRegisterRespMessage;
 import cn.linliangjun.its.jt808.server.adapter.CtxUtils;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
 import lombok.extern.slf4j.Slf4j;
 import lombok.var;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.handler.annotation.Header;
 
-import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.*;
+import javax.annotation.Resource;
 
 /**
  * 终端管理端点
@@ -39,16 +40,25 @@ import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessa
 @MessageEndpoint
 public class TerminalManagerEndpoint {
 
+    @Resource
+    private SessionRegistry sessionRegistry;
+
     @ServiceActivator(inputChannel = "messageRequestChannel_0x0100", outputChannel = "messageResponseChannel")
-    public TerminalRegisterRespMessage register(TerminalRegisterMessage message) {
+    public TerminalRegisterRespMessage register(@Header Object ctx, TerminalRegisterMessage message) {
         log.info("接收到终端注册消息：{}", message);
 
+        // 登记会话，不顶替已鉴权的会话
+        var session = CtxUtils.getSession(ctx);
+        if (session != null && !sessionRegistry.register(session)) {
+            log.warn("终端 {} 已有鉴权的会话，本次注册的会话未登记：{}", message.getTerminalPhoneNum(), session);
+        }
+
         // 直接发送注册应答
         var resp = new TerminalRegisterRespMessage(message.getVersion());
         resp.setEncryption(message.getEncryption());
-        resp.setTerminalPhoneNum(message.getTerminalPhoneNum());
+        resp.copyTerminalPhoneFrom(message);
         resp.setPartial(false);
-        resp.setSerialNum(1);
+        resp.setSerialNum(RespUtils.nextSerialNum(session));
         resp.setRespSerialNum(message.getSerialNum());
         resp.setResult(TerminalRegisterRespMessage.Result.SUCCESS);
         resp.setAuthKey("HX");
@@ -60,25 +70,26 @@ public class TerminalManagerEndpoint {
         log.info("接收到终端鉴权消息：{}", message);
 
         CtxUtils.setLogin(ctx);
+        // 登记会话，顶替旧会话
+        var session = CtxUtils.getSession(ctx);
+        if (session != null) {
+            var old = sessionRegistry.bind(session);
+            if (old != null) {
+                // 通常是终端重连后旧连接（例如失效的 NAT 映射）未关闭，旧连接不再登记，不会被空闲检查关闭，因此直接关闭
+                log.info("终端 {} 的会话被顶替，关闭旧连接：{}", message.getTerminalPhoneNum(), old);
+                old.close();
+            }
+        }
 
         // 直接发送平台通用应答
-        PlatformGenericRespMessage resp;
-        Version version = message.getVersion();
-        if (version == Version.V2011) {
-            var msg = new PlatformGenericRespMessage_2011();
-            msg.setResult(PlatformGenericRespMessage_2011.Result.SUCCESS_ACK);
-            resp = msg;
-        }else {
-            var msg = new PlatformGenericRespMessage_2013_2019(version);
-            msg.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
-            resp = msg;
-        }
-        resp.setEncryption(message.getEncryption());
-        resp.setTerminalPhoneNum(message.getTerminalPhoneNum());
-        resp.setPartial(false);
-        resp.setSerialNum(1);
-        resp.setRespSerialNum(message.getSerialNum());
-        resp.setRespType(message.getType());
-        return resp;
+        return RespUtils.newGenericSuccessResp(session, message);
+    }
+
+    @ServiceActivator(inputChannel = "messageRequestChannel_0x0002", outputChannel = "messageResponseChannel")
+    public PlatformGenericRespMessage heartbeat(@Header Object ctx, TerminalHeartbeatMessage message) {
+        log.debug("接收到终端心跳消息：{}", message);
+
+        // 会话的最后一次收到数据的时间已在入站时刷新，这里只需应答；启用心跳快速路径时，心跳由 HeartbeatHandler 直接应答，不会到达这里
+        return RespUtils.newGenericSuccessResp(CtxUtils.getSession(ctx), message);
     }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.multimedia;
+
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadMessage;
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 一次多媒体数据上传，非线程安全，由所属连接的事件循环访问
+ *
+ * <p>各分包的多媒体数据按到达顺序追加写入临时文件：数据直接从 {@linkplain ByteBuf} 写入 {@linkplain FileChannel}，
+ * 直接缓冲区无需经过堆内存复制，内存中只保存已收到的分包序号（位图）与各分包在临时文件中的位置。
+ * 收齐后，若分包按序号顺序到达，临时文件直接重命名为多媒体文件；否则按分包序号以 {@linkplain FileChannel#transferTo} 整理到多媒体文件，数据不经过用户态
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public final class MultimediaUpload implements Closeable {
+
+    private final Path tempFile;
+
+    private final FileChannel channel;
+
+    /**
+     * 分包总数
+     */
+    @Getter
+    private final int total;
+
+    /**
+     * 已收到的分包，第 {@code i} 位对应分包序号 {@code i + 1}
+     */
+    private final BitSet received;
+
+    /**
+     * 各分包的多媒体数据在临时文件中的位置，按分包序号索引
+     */
+    private final long[] offsets;
+
+    /**
+     * 各分包的多媒体数据长度，按分包序号索引
+     */
+    private final int[] lengths;
+
+    /**
+     * 已收到的分包数
+     */
+    @Getter
+    private int receivedCount;
+
+    /**
+     * 临时文件的写入位置，即已写入的多媒体数据字节数
+     */
+    private long position;
+
+    /**
+     * 上一个收到的分包序号
+     */
+    private int lastNum;
+
+    /**
+     * 分包是否按序号顺序到达
+     */
+    private boolean ordered = true;
+
+    /**
+     * 第一包中解析出的多媒体数据上传消息，未收到第一包时为 {@code null}
+     */
+    @Getter
+    @Setter
+    private MultimediaDataUploadMessage message;
+
+    private MultimediaUpload(Path tempFile, FileChannel channel, int total) {
+        this.tempFile = tempFile;
+        this.channel = channel;
+        this.total = total;
+        this.received = new BitSet(total);
+        this.offsets = new long[total];
+        this.lengths = new int[total];
+    }
+
+    /**
+     * 在 {@code directory} 中创建临时文件，开始一次上传
+     *
+     * @param directory 临时文件所在的目录，不存在时创建
+     * @param total     分包总数
+     */
+    public static MultimediaUpload create(Path directory, int total) throws IOException {
+        Files.createDirectories(directory);
+        var tempFile = Files.createTempFile(directory, ".upload-", ".part");
+        try {
+            return new MultimediaUpload(tempFile, FileChannel.open(tempFile, READ, WRITE), total);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 是否已收到该分包
+     *
+     * @param num 分包序号，从 1 开始
+     */
+    public boolean isReceived(int num) {
+        return received.get(num - 1);
+    }
+
+    /**
+     * 是否已收齐全部分包
+     */
+    public boolean isComplete() {
+        return receivedCount == total;
+    }
+
+    /**
+     * 获取已写入的多媒体数据字节数
+     */
+    public long getDataLength() {
+        return position;
+    }
+
+    /**
+     * 获取未收到的分包序号
+     *
+     * @param max 最多返回的个数
+     */
+    public List<Integer> getMissingNums(int max) {
+        var nums = new ArrayList<Integer>(Math.min(max, total - receivedCount));
+        for (int i = received.nextClearBit(0); i < total && nums.size() < max; i = received.nextClearBit(i + 1)) {
+            nums.add(i + 1);
+        }
+        return nums;
+    }
+
+    /**
+     * 将分包的多媒体数据追加写入临时文件，不会改变 {@code buf} 的读写索引
+     *
+     * @param num   分包序号，从 1 开始
+     * @param buf   分包所在的缓冲区
+     * @param index 多媒体数据在 {@code buf} 中的位置
+     * @param len   多媒体数据的长度
+     */
+    public void write(int num, ByteBuf buf, int index, int len) throws IOException {
+        long start = position;
+        int written = 0;
+        while (written < len) {
+            int n = buf.getBytes(index + written, channel, start + written, len - written);
+            if (n <= 0) {
+                throw new IOException(String.format("写入临时文件无进展：%s，已写入 %d/%d 字节", tempFile, written, len));
+            }
+            written += n;
+        }
+        offsets[num - 1] = start;
+        lengths[num - 1] = len;
+        position += len;
+        received.set(num - 1);
+        receivedCount++;
+        if (num != lastNum + 1) {
+            ordered = false;
+        }
+        lastNum = num;
+    }
+
+    /**
+     * 完成上传，按分包序号将多媒体数据保存到 {@code target}，已存在时覆盖。无论成功与否，临时文件都会被删除
+     *
+     * @param target 多媒体文件，所在的目录不存在时创建
+     * @return {@code target}
+     * @throws IllegalStateException 未收齐全部分包
+     */
+    public Path complete(Path target) throws IOException {
+        if (!isComplete()) {
+            throw new IllegalStateException(String.format("未收齐全部分包：%d/%d", receivedCount, total));
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            if (ordered) {
+                channel.close();
+                Files.move(tempFile, target, REPLACE_EXISTING);
+                return target;
+            }
+            try (var out = FileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING)) {
+                for (int i = 0; i < total; i++) {
+                    long transferred = 0;
+                    while (transferred < lengths[i]) {
+                        // 临时文件被截断等情况下 transferTo 返回 0，不能一直重试
+                        long n = channel.transferTo(offsets[i] + transferred, lengths[i] - transferred, out);
+                        if (n <= 0) {
+                            throw new IOException(String.format("整理第 %d 包无进展：%s，已整理 %d/%d 字节", i + 1, tempFile, transferred, lengths[i]));
+                        }
+                        transferred += n;
+                    }
+                }
+            }
+            return target;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 关闭并删除临时文件，用于放弃上传
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            log.warn("删除多媒体临时文件失败：{}", tempFile, e);
+        }
+    }
+}
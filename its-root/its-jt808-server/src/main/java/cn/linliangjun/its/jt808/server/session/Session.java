@@ -0,0 +1,261 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.session;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import io.netty.channel.Channel;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.var;
+
+import java.net.InetSocketAddress;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * 终端会话，连接建立时创建，随连接关闭而失效
+ *
+ * <p>UDP 终端共用同一个 channel，会话以终端手机号为键登记在 {@linkplain SessionRegistry} 中，收到终端的注册或鉴权数据报时创建，
+ * 下行消息发往会话记录的终端地址。数据报的发送方地址可以伪造，因此已鉴权的会话只在终端重新鉴权并通过后才更新地址，
+ * 终端的 NAT 映射变化后需重新鉴权；关闭 UDP 会话不会关闭共用的 channel
+ *
+ * <p>字段由连接所属的事件循环写入，其他线程（例如下行指令、会话清理）可以随时读取
+ *
+ * @author linliangjun
+ */
+@Getter
+public class Session {
+
+    /**
+     * 未知的终端手机号
+     */
+    public static final long UNKNOWN_TERMINAL_PHONE = -1;
+
+    private static final AtomicIntegerFieldUpdater<Session> SERIAL_NUM_UPDATER = AtomicIntegerFieldUpdater.newUpdater(Session.class, "serialNum");
+
+    private final Channel channel;
+
+    /**
+     * 是否为 UDP 会话
+     */
+    private final boolean datagram;
+
+    /**
+     * 终端的地址，下行消息发往该地址，仅 UDP 会话有效
+     */
+    @Setter
+    private volatile InetSocketAddress remoteAddress;
+
+    /**
+     * 终端发送鉴权消息的地址，鉴权通过后替换 {@linkplain #remoteAddress}，仅 UDP 会话有效
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile InetSocketAddress authAddress;
+
+    /**
+     * 连接建立的时间（毫秒）
+     */
+    private final long createTime = System.currentTimeMillis();
+
+    /**
+     * 终端手机号（数值形式），收到第一帧之前为 {@linkplain #UNKNOWN_TERMINAL_PHONE}，
+     * 超出 {@code long} 的表示范围时为 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE}
+     */
+    private volatile long terminalPhone = UNKNOWN_TERMINAL_PHONE;
+
+    /**
+     * 终端手机号（字符串形式，不保留前导 0），仅当终端手机号超出 {@code long} 的表示范围时有值，先于 {@linkplain #terminalPhone} 写入
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile String oversizedTerminalPhone;
+
+    /**
+     * 协议版本
+     */
+    @Setter
+    private volatile Version version;
+
+    /**
+     * 是否已鉴权
+     */
+    private volatile boolean login;
+
+    /**
+     * 是否已收到终端鉴权消息，由 {@linkplain cn.linliangjun.its.jt808.server.adapter.netty.AccessHandler AccessHandler} 在事件循环中设置。
+     * 启用执行通道时，鉴权在执行通道中处理，此时可能已收到鉴权消息而尚未鉴权
+     */
+    @Setter
+    private volatile boolean authRequested;
+
+    /**
+     * 最后一次收到数据的时间（毫秒）
+     */
+    private volatile long lastReadTime = createTime;
+
+    /**
+     * 已分配的（平台）消息流水号，通过 {@linkplain #nextSerialNum()} 分配
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile int serialNum = -1;
+
+    /**
+     * UDP 会话是否已关闭
+     */
+    @Getter(AccessLevel.NONE)
+    private volatile boolean closed;
+
+    public Session(Channel channel) {
+        this.channel = channel;
+        this.datagram = false;
+    }
+
+    /**
+     * 创建 UDP 会话
+     *
+     * @param channel       共用的 channel
+     * @param terminalPhone 终端手机号
+     * @param remoteAddress 终端的地址
+     */
+    public Session(Channel channel, long terminalPhone, String terminalPhoneNum, InetSocketAddress remoteAddress) {
+        this.channel = channel;
+        this.datagram = true;
+        setTerminalPhone(terminalPhone, terminalPhoneNum);
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * 设置终端手机号，只能设置一次
+     *
+     * @param terminalPhone    终端手机号（数值形式）
+     * @param terminalPhoneNum 终端手机号（字符串形式，不保留前导 0），仅当数值形式为 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE} 时使用
+     * @return 是否与会话的终端手机号一致
+     */
+    public boolean setTerminalPhone(long terminalPhone, String terminalPhoneNum) {
+        boolean oversized = terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE;
+        if (oversized && terminalPhoneNum == null) {
+            throw new IllegalArgumentException("终端手机号超出 long 的表示范围时，必须提供字符串形式");
+        }
+        if (this.terminalPhone == UNKNOWN_TERMINAL_PHONE) {
+            if (oversized) {
+                this.oversizedTerminalPhone = terminalPhoneNum;
+            }
+            this.terminalPhone = terminalPhone;
+            return true;
+        }
+        return this.terminalPhone == terminalPhone && (!oversized || oversizedTerminalPhone.equals(terminalPhoneNum));
+    }
+
+    /**
+     * 终端手机号是否超出 {@code long} 的表示范围，此时应以 {@linkplain #getTerminalPhoneNum()} 区分终端
+     */
+    public boolean isTerminalPhoneOversized() {
+        return terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE;
+    }
+
+    /**
+     * 获取终端手机号（字符串形式，不保留前导 0），终端手机号未知时返回 {@code null}
+     */
+    public String getTerminalPhoneNum() {
+        long terminalPhone = this.terminalPhone;
+        if (terminalPhone == UNKNOWN_TERMINAL_PHONE) {
+            return null;
+        }
+        return terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE ? oversizedTerminalPhone : Long.toString(terminalPhone);
+    }
+
+    /**
+     * 将会话的终端手机号设置到消息中
+     *
+     * @param message 发往终端的消息
+     */
+    public void copyTerminalPhoneTo(Jt808Message message) {
+        if (isTerminalPhoneOversized()) {
+            message.setTerminalPhoneNum(oversizedTerminalPhone);
+        } else {
+            message.setTerminalPhone(terminalPhone);
+        }
+    }
+
+    /**
+     * 设置是否已鉴权，鉴权通过时以终端发送鉴权消息的地址作为会话的地址
+     */
+    public void setLogin(boolean login) {
+        if (login) {
+            var authAddress = this.authAddress;
+            if (authAddress != null) {
+                this.remoteAddress = authAddress;
+                this.authAddress = null;
+            }
+        }
+        this.login = login;
+    }
+
+    /**
+     * 记录终端发送鉴权消息的地址，鉴权通过后才作为会话的地址，仅 UDP 会话有效
+     *
+     * @param authAddress 鉴权数据报的发送方地址
+     */
+    public void setAuthAddress(InetSocketAddress authAddress) {
+        this.authAddress = authAddress;
+    }
+
+    /**
+     * 刷新最后一次收到数据的时间
+     */
+    public void touch(long now) {
+        lastReadTime = now;
+    }
+
+    /**
+     * 分配下一个（平台）消息流水号，从 0 开始循环累加，线程安全
+     */
+    public int nextSerialNum() {
+        return SERIAL_NUM_UPDATER.incrementAndGet(this) & 0xffff;
+    }
+
+    /**
+     * 连接是否仍可用
+     */
+    public boolean isActive() {
+        return !closed && channel.isActive();
+    }
+
+    /**
+     * 关闭会话：关闭会话的连接；UDP 会话只标记为已关闭，由调用方从注册表中移除
+     */
+    public void close() {
+        if (datagram) {
+            closed = true;
+        } else {
+            channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", Session.class.getSimpleName() + "{", "}")
+                .add("channel=" + channel)
+                .add("remoteAddress=" + remoteAddress)
+                .add("terminalPhone=" + getTerminalPhoneNum())
+                .add("version=" + version)
+                .add("login=" + login)
+                .add("lastReadTime=" + lastReadTime)
+                .toString();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.session;
+
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话清理器，关闭超时未鉴权和长时间未收到数据的连接
+ *
+ * <p>不为每个连接单独调度空闲检测（如 {@linkplain io.netty.handler.timeout.IdleStateHandler IdleStateHandler}），而是借助共用的时间轮定时器：
+ * <ul>
+ *     <li>连接建立时登记一个鉴权超时任务，到期时若仍未鉴权则关闭连接。同一时刻只有最近 {@linkplain Jt808ServerProperties#getAuthTimeout() 鉴权超时时间} 内建立的连接持有任务</li>
+ *     <li>以固定间隔遍历 {@linkplain SessionRegistry}，关闭最后一次收到数据的时间早于 {@linkplain Jt808ServerProperties#getIdleTimeout() 空闲超时时间} 的连接。
+ *     任何入站数据（包括终端心跳）都会刷新会话的最后一次收到数据的时间</li>
+ * </ul>
+ * 已鉴权但未登记在注册表中的会话只能是被同一终端的新会话顶替的，由鉴权端点直接关闭
+ *
+ * @author linliangjun
+ */
+@Slf4j
+@Component
+public class SessionReaper implements MeterBinder {
+
+    private final AtomicLong authTimeoutCount = new AtomicLong();
+
+    private final AtomicLong idleTimeoutCount = new AtomicLong();
+
+    @Resource
+    private SessionRegistry sessionRegistry;
+
+    @Resource
+    private Timer jt808Timer;
+
+    @Resource
+    private Jt808ServerProperties properties;
+
+    private volatile boolean stopped;
+
+    public SessionReaper() {
+    }
+
+    SessionReaper(SessionRegistry sessionRegistry, Timer jt808Timer, Jt808ServerProperties properties) {
+        this.sessionRegistry = sessionRegistry;
+        this.jt808Timer = jt808Timer;
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    void init() {
+        scheduleSweep();
+    }
+
+    @PreDestroy
+    void destroy() {
+        stopped = true;
+    }
+
+    /**
+     * 登记新建立的连接，超过鉴权超时时间仍未鉴权时关闭连接
+     *
+     * @param session 会话
+     */
+    public void watch(Session session) {
+        jt808Timer.newTimeout(new AuthTimeoutTask(session), properties.getAuthTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭空闲超时的会话
+     *
+     * @return 关闭的会话数
+     */
+    public int sweep() {
+        long deadline = System.currentTimeMillis() - properties.getIdleTimeout().toMillis();
+        List<Session> idleSessions = new ArrayList<>();
+        sessionRegistry.forEach(session -> {
+            if (session.getLastReadTime() < deadline) {
+                idleSessions.add(session);
+            }
+        });
+        // 在注册表的锁之外关闭，连接关闭时也会从注册表中移除会话，UDP 会话没有连接，需直接移除
+        for (var session : idleSessions) {
+            log.info("会话空闲超时，关闭连接：{}", session);
+            session.close();
+            sessionRegistry.remove(session);
+        }
+        idleTimeoutCount.addAndGet(idleSessions.size());
+        return idleSessions.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("its.jt808.reaper.closed", authTimeoutCount, AtomicLong::get)
+                .description("会话清理器关闭的连接数")
+                .tag("cause", "auth-timeout")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.reaper.closed", idleTimeoutCount, AtomicLong::get)
+                .description("会话清理器关闭的连接数")
+                .tag("cause", "idle-timeout")
+                .register(registry);
+    }
+
+    private void scheduleSweep() {
+        if (stopped) {
+            return;
+        }
+        jt808Timer.newTimeout(timeout -> {
+            try {
+                sweep();
+            } catch (Exception e) {
+                log.error("清理空闲会话异常", e);
+            }
+            scheduleSweep();
+        }, properties.getIdleSweepInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private final class AuthTimeoutTask implements TimerTask {
+
+        private final Session session;
+
+        private AuthTimeoutTask(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void run(Timeout timeout) {
+            if (!session.isLogin() && session.isActive()) {
+                log.info("会话鉴权超时，关闭连接：{}", session);
+                authTimeoutCount.incrementAndGet();
+                session.close();
+                sessionRegistry.remove(session);
+            }
+        }
+    }
+}
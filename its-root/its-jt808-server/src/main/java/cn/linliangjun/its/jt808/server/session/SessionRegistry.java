@@ -0,0 +1,287 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.session;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.collection.LongObjectHashMap;
+import lombok.NonNull;
+import lombok.var;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 终端会话注册表，以终端手机号（数值形式）为键，O(1) 查找终端的会话
+ *
+ * <p>键为基本类型 {@code long}，按手机号分为 {@value #STRIPES} 段，每段是一个由各自的锁保护的 {@linkplain LongObjectHashMap}，
+ * 既不装箱，也避免了不同事件循环之间的竞争。超出 {@code long} 表示范围的终端手机号（2019 版本最多 20 位）极少见，
+ * 这些终端的会话以字符串形式为键，登记在单独的、由自身的锁保护的 {@linkplain HashMap} 中
+ *
+ * <p>终端注册时以 {@linkplain #register} 登记，不会顶替已鉴权的会话；终端鉴权后以 {@linkplain #bind} 登记，顶替同一终端的旧会话。
+ * 连接关闭时以 {@linkplain #remove} 移除
+ *
+ * @author linliangjun
+ */
+@Component
+public class SessionRegistry implements MeterBinder {
+
+    private static final int STRIPES = 64;
+
+    private final LongObjectHashMap<Session>[] maps;
+
+    /**
+     * 终端手机号超出 {@code long} 表示范围的会话，以终端手机号（字符串形式，不保留前导 0）为键
+     */
+    private final Map<String, Session> oversizedMap = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public SessionRegistry() {
+        maps = new LongObjectHashMap[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            maps[i] = new LongObjectHashMap<>();
+        }
+    }
+
+    /**
+     * 获取终端的会话
+     *
+     * @param terminalPhone 终端手机号（数值形式）
+     * @return 会话，不存在时返回 {@code null}
+     */
+    public Session get(long terminalPhone) {
+        if (terminalPhone < 0) {
+            return null;
+        }
+        var map = getMap(terminalPhone);
+        synchronized (map) {
+            return map.get(terminalPhone);
+        }
+    }
+
+    /**
+     * 获取终端的会话
+     *
+     * @param terminalPhoneNum 终端手机号（字符串形式），可超出 {@code long} 的表示范围
+     * @return 会话，不存在或终端手机号非法时返回 {@code null}
+     */
+    public Session get(@NonNull String terminalPhoneNum) {
+        long terminalPhone = 0;
+        int start = -1;
+        for (int i = 0; i < terminalPhoneNum.length(); i++) {
+            int n = terminalPhoneNum.charAt(i) - '0';
+            if (n < 0 || n > 9) {
+                return null;
+            }
+            if (start < 0 && n != 0) {
+                start = i;
+            }
+            if (terminalPhone >= 0) {
+                terminalPhone = terminalPhone > (Long.MAX_VALUE - n) / 10 ? Jt808Message.OVERSIZED_TERMINAL_PHONE : terminalPhone * 10 + n;
+            }
+        }
+        if (terminalPhoneNum.isEmpty()) {
+            return null;
+        }
+        if (terminalPhone != Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+            return get(terminalPhone);
+        }
+        synchronized (oversizedMap) {
+            return oversizedMap.get(terminalPhoneNum.substring(start));
+        }
+    }
+
+    /**
+     * 获取消息所属终端的会话
+     *
+     * @param message 终端消息
+     * @return 会话，不存在时返回 {@code null}
+     */
+    public Session get(@NonNull Jt808Message message) {
+        if (message.isTerminalPhoneOversized()) {
+            synchronized (oversizedMap) {
+                return oversizedMap.get(message.getTerminalPhoneNum());
+            }
+        }
+        return get(message.getTerminalPhone());
+    }
+
+    /**
+     * 获取终端的会话，不存在时创建并登记，用于以终端手机号区分会话的 UDP 终端
+     *
+     * @param terminalPhone    终端手机号（数值形式）
+     * @param terminalPhoneNum 终端手机号（字符串形式），仅当数值形式为 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE} 时使用
+     * @param factory          会话工厂，在持有锁时调用，应尽快返回
+     * @return 已登记的会话
+     */
+    public Session computeIfAbsent(long terminalPhone, String terminalPhoneNum, Supplier<Session> factory) {
+        if (terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+            synchronized (oversizedMap) {
+                return oversizedMap.computeIfAbsent(terminalPhoneNum, k -> factory.get());
+            }
+        }
+        var map = getMap(terminalPhone);
+        synchronized (map) {
+            var session = map.get(terminalPhone);
+            if (session == null) {
+                session = factory.get();
+                map.put(terminalPhone, session);
+            }
+            return session;
+        }
+    }
+
+    /**
+     * 登记会话，若终端已有其他可用且已鉴权的会话，则不登记
+     *
+     * @return 是否登记成功
+     */
+    public boolean register(Session session) {
+        long terminalPhone = checkTerminalPhone(session);
+        if (terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+            var terminalPhoneNum = session.getTerminalPhoneNum();
+            synchronized (oversizedMap) {
+                if (!isReplaceable(oversizedMap.get(terminalPhoneNum), session)) {
+                    return false;
+                }
+                oversizedMap.put(terminalPhoneNum, session);
+                return true;
+            }
+        }
+        var map = getMap(terminalPhone);
+        synchronized (map) {
+            if (!isReplaceable(map.get(terminalPhone), session)) {
+                return false;
+            }
+            map.put(terminalPhone, session);
+            return true;
+        }
+    }
+
+    /**
+     * 登记会话，顶替终端的旧会话
+     *
+     * @return 旧会话，不存在时返回 {@code null}
+     */
+    public Session bind(Session session) {
+        long terminalPhone = checkTerminalPhone(session);
+        Session old;
+        if (terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+            synchronized (oversizedMap) {
+                old = oversizedMap.put(session.getTerminalPhoneNum(), session);
+            }
+        } else {
+            var map = getMap(terminalPhone);
+            synchronized (map) {
+                old = map.put(terminalPhone, session);
+            }
+        }
+        return old == session ? null : old;
+    }
+
+    /**
+     * 移除会话，只有当终端当前登记的正是该会话时才移除
+     *
+     * @return 是否移除
+     */
+    public boolean remove(Session session) {
+        long terminalPhone = session.getTerminalPhone();
+        if (terminalPhone == Session.UNKNOWN_TERMINAL_PHONE) {
+            return false;
+        }
+        if (terminalPhone == Jt808Message.OVERSIZED_TERMINAL_PHONE) {
+            synchronized (oversizedMap) {
+                return oversizedMap.remove(session.getTerminalPhoneNum(), session);
+            }
+        }
+        var map = getMap(terminalPhone);
+        synchronized (map) {
+            if (map.get(terminalPhone) != session) {
+                return false;
+            }
+            map.remove(terminalPhone);
+            return true;
+        }
+    }
+
+    /**
+     * 已登记的会话数
+     */
+    public int size() {
+        int size = 0;
+        for (var map : maps) {
+            synchronized (map) {
+                size += map.size();
+            }
+        }
+        synchronized (oversizedMap) {
+            size += oversizedMap.size();
+        }
+        return size;
+    }
+
+    /**
+     * 遍历已登记的会话，遍历时持有分段的锁，{@code action} 应尽快返回
+     */
+    public void forEach(Consumer<Session> action) {
+        for (var map : maps) {
+            synchronized (map) {
+                for (var session : map.values()) {
+                    action.accept(session);
+                }
+            }
+        }
+        synchronized (oversizedMap) {
+            for (var session : oversizedMap.values()) {
+                action.accept(session);
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("its.jt808.sessions", this, SessionRegistry::size)
+                .description("已登记的终端会话数")
+                .register(registry);
+    }
+
+    /**
+     * 已登记的会话能否被新会话顶替：不存在、正是新会话、未鉴权或已失效
+     */
+    private static boolean isReplaceable(Session old, Session session) {
+        return old == null || old == session || !old.isLogin() || !old.isActive();
+    }
+
+    private LongObjectHashMap<Session> getMap(long terminalPhone) {
+        // 手机号的低位通常是连续的，混合高低位后再取段
+        long h = terminalPhone * 0x9e3779b97f4a7c15L;
+        return maps[(int) (h >>> 58)];
+    }
+
+    private static long checkTerminalPhone(Session session) {
+        long terminalPhone = session.getTerminalPhone();
+        if (terminalPhone == Session.UNKNOWN_TERMINAL_PHONE) {
+            throw new IllegalArgumentException("会话的终端手机号未知：" + session);
+        }
+        return terminalPhone;
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import lombok.var;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 位置日志，将位置以定长的 {@linkplain LocationRecord 位置记录} 追加写入本节点的内存映射文件，热路径上不访问数据库
+ *
+ * <p>位置日志由按序号首尾相接的 {@linkplain Segment 段} 组成，段写满或到达滚动时间（按滚动间隔对齐）时滚动到新的段，段文件以起始序号命名。
+ * 入队（{@linkplain #append}）只是将位置编码到 {@linkplain RecordRing 无锁环形队列} 的槽位中，相当于一次记录大小的内存复制；
+ * 唯一的写线程整批取出队列中的记录，复制到当前段的映射缓冲区并提交。队列已满时丢弃新的位置，不阻塞调用方。
+ *
+ * <p>读取与写入并发进行：{@linkplain #read} 借助各段的稀疏索引按终端与时间范围读取，{@linkplain #tail} 创建的追踪器按序号顺序读取新提交的记录，
+ * 两者都只读到已提交的记录。
+ *
+ * <p>映射缓冲区在段滚动和关闭时刷新到磁盘，进程崩溃不会丢失已提交的记录，操作系统崩溃可能丢失当前段中尚未刷新的记录。
+ * 启动时恢复目录中已有的段（只读），新的记录写入新的段，序号接续。无法恢复的段重命名为 {@code .corrupt} 后缀隔离，
+ * 新的序号越过目录中所有段文件名对应的序号，不会与隔离的段重名，也不会复用其中可能已被读取的序号
+ *
+ * @author linliangjun
+ */
+@Slf4j
+public class LocationLog implements MeterBinder, Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".loc";
+
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    /**
+     * 写线程每批最多复制的记录数
+     */
+    private static final int MAX_BATCH = 4096;
+
+    /**
+     * 队列为空时写线程的休眠时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final Segment[] EMPTY = new Segment[0];
+
+    /**
+     * 终端手机号的最大位数，即 2019 版本 BCD[10] 的位数
+     */
+    private static final int MAX_TERMINAL_PHONE_LENGTH = 20;
+
+    @Getter
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final long rollIntervalMillis;
+
+    private final int indexInterval;
+
+    private final RecordRing ring;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    /**
+     * 全部的段，按起始序号升序，写线程滚动时整体替换
+     */
+    private volatile Segment[] segments;
+
+    /**
+     * 新的段的最小起始序号，由恢复时目录中的段文件名确定
+     */
+    private long minBaseSequence;
+
+    /**
+     * 当前写入的段及其滚动时间，只由写线程访问
+     */
+    private Segment active;
+
+    private long rollTime;
+
+    private final AtomicLong appendedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * @param directory     存储目录，不存在时创建
+     * @param segmentSize   段文件的大小（字节）
+     * @param rollInterval  滚动间隔
+     * @param queueCapacity 写入队列的容量（记录数），向上取整为 2 的幂
+     * @param indexInterval 稀疏索引的间隔，每个终端每写入该数量的记录建立一个索引项
+     */
+    public LocationLog(Path directory, long segmentSize, Duration rollInterval, int queueCapacity, int indexInterval) throws IOException {
+        if (segmentSize < Segment.HEADER_SIZE + LocationRecord.SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("段文件的大小必须在 " + (Segment.HEADER_SIZE + LocationRecord.SIZE) + " ~ " + Integer.MAX_VALUE + " 字节之间：" + segmentSize);
+        }
+        if (rollInterval.toMillis() <= 0) {
+            throw new IllegalArgumentException("滚动间隔必须大于 0：" + rollInterval);
+        }
+        if (indexInterval <= 0) {
+            throw new IllegalArgumentException("稀疏索引的间隔必须大于 0：" + indexInterval);
+        }
+        this.directory = directory;
+        this.segmentSize = (int) segmentSize;
+        this.rollIntervalMillis = rollInterval.toMillis();
+        this.indexInterval = indexInterval;
+        this.ring = new RecordRing(queueCapacity);
+        Files.createDirectories(directory);
+        this.segments = recover();
+        this.writer = new DefaultThreadFactory("jt808-location-log", true).newThread(this::run);
+        writer.start();
+    }
+
+    /**
+     * 将位置追加到位置日志，可由多个线程并发调用。位置在调用时即编码到队列中，返回后消息可以交还或释放
+     *
+     * @param message 位置信息汇报，或定位数据批量上传中的数据项，记录其终端手机号
+     * @return 是否已入队，队列已满、位置日志已关闭、终端手机号超过 20 位或位置的字段非法时返回 {@code false}
+     */
+    public boolean append(LocationReportMessage message) {
+        try {
+            if (running && (!message.isTerminalPhoneOversized() || message.getTerminalPhoneNum().length() <= MAX_TERMINAL_PHONE_LENGTH)
+                    && ring.offer(message)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            // 消息视图的字段在读取时才解析
+            log.warn("位置的字段非法，丢弃：{}", e.getMessage());
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 按终端与时间范围读取已提交的记录，各段按先后顺序、段内按写入顺序回调
+     *
+     * @param terminalPhone 终端手机号（数值形式）
+     * @param from          起始时间（毫秒，含）
+     * @param to            结束时间（毫秒，含）
+     * @param action        回调，参数为复用的记录视图
+     * @return 读取的记录数
+     */
+    public int read(long terminalPhone, long from, long to, Consumer<? super LocationRecord> action) {
+        if (terminalPhone < 0) {
+            return 0;
+        }
+        return read(LocationRecord.getTerminalPhoneHigh(terminalPhone), LocationRecord.getTerminalPhoneLow(terminalPhone), from, to, action);
+    }
+
+    /**
+     * 按终端与时间范围读取已提交的记录，适用于超出 {@code long} 表示范围的终端手机号（2019 版本最多 20 位）
+     *
+     * @param terminalPhoneNum 终端手机号（字符串形式）
+     * @param from             起始时间（毫秒，含）
+     * @param to               结束时间（毫秒，含）
+     * @param action           回调，参数为复用的记录视图
+     * @return 读取的记录数，终端手机号非法时返回 0
+     */
+    public int read(String terminalPhoneNum, long from, long to, Consumer<? super LocationRecord> action) {
+        int start = 0;
+        while (start < terminalPhoneNum.length() - 1 && terminalPhoneNum.charAt(start) == '0') {
+            start++;
+        }
+        int len = terminalPhoneNum.length() - start;
+        if (len == 0 || len > MAX_TERMINAL_PHONE_LENGTH) {
+            return 0;
+        }
+        for (int i = start; i < terminalPhoneNum.length(); i++) {
+            char c = terminalPhoneNum.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+        }
+        int split = Math.max(start, terminalPhoneNum.length() - 18);
+        int high = split == start ? 0 : Integer.parseInt(terminalPhoneNum.substring(start, split));
+        return read(high, Long.parseLong(terminalPhoneNum.substring(split)), from, to, action);
+    }
+
+    private int read(int terminalPhoneHigh, long terminalPhoneLow, long from, long to, Consumer<? super LocationRecord> action) {
+        var record = new LocationRecord();
+        int read = 0;
+        for (var segment : segments) {
+            read += segment.read(terminalPhoneHigh, terminalPhoneLow, from, to, record, action);
+        }
+        return read;
+    }
+
+    /**
+     * 创建追踪器，从 {@code sequence} 开始按序号顺序读取记录；追踪器非线程安全，每个读取方各自创建
+     *
+     * @param sequence 起始序号，小于最早的记录时从最早的记录开始
+     */
+    public Tailer tail(long sequence) {
+        return new Tailer(Math.max(sequence, getStartSequence()));
+    }
+
+    /**
+     * @return 最早的记录的序号
+     */
+    public long getStartSequence() {
+        var segments = this.segments;
+        return segments.length == 0 ? 0 : segments[0].getBaseSequence();
+    }
+
+    /**
+     * @return 最后一条已提交的记录的下一个序号，以此创建的追踪器只读取之后提交的记录
+     */
+    public long getEndSequence() {
+        var segments = this.segments;
+        return segments.length == 0 ? minBaseSequence : Math.max(segments[segments.length - 1].getEndSequence(), minBaseSequence);
+    }
+
+    /**
+     * 关闭位置日志，队列中已有的记录会写入完毕，之后不再接受新的位置。已提交的记录仍可读取
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("its.jt808.location-log.queued", ring, RecordRing::size)
+                .description("位置日志队列中等待写入的记录数")
+                .register(registry);
+        Gauge.builder("its.jt808.location-log.segments", this, locationLog -> locationLog.segments.length)
+                .description("位置日志的段数")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.location-log.appended", appendedCount, AtomicLong::get)
+                .description("已写入位置日志的记录数")
+                .register(registry);
+        FunctionCounter.builder("its.jt808.location-log.dropped", droppedCount, AtomicLong::get)
+                .description("队列已满或写入失败而丢弃的记录数")
+                .register(registry);
+    }
+
+    private Segment[] recover() throws IOException {
+        List<Path> files;
+        try (var stream = Files.list(directory)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        var recovered = new ArrayList<Segment>(files.size());
+        for (var file : files) {
+            Segment segment;
+            try {
+                segment = Segment.open(file, indexInterval);
+            } catch (IOException e) {
+                // 无法读取记录数，按文件大小估计段中最多的记录数
+                long capacity = Math.max(1, (Files.size(file) - Segment.HEADER_SIZE) / LocationRecord.SIZE);
+                minBaseSequence = Math.max(minBaseSequence, getBaseSequence(file) + capacity);
+                quarantine(file, e);
+                continue;
+            }
+            minBaseSequence = Math.max(minBaseSequence, segment.getEndSequence());
+            if (segment.getCount() == 0) {
+                Files.delete(file);
+                continue;
+            }
+            recovered.add(segment);
+        }
+        if (!recovered.isEmpty()) {
+            log.info("已恢复 {} 个位置日志段，序号 [{}, {})", recovered.size(),
+                    recovered.get(0).getBaseSequence(), recovered.get(recovered.size() - 1).getEndSequence());
+        }
+        return recovered.toArray(EMPTY);
+    }
+
+    /**
+     * @return 段文件名对应的起始序号，文件名不是序号时返回 0
+     */
+    private static long getBaseSequence(Path file) {
+        var name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 将无法恢复的段重命名，不再参与恢复
+     */
+    private static void quarantine(Path file, IOException cause) {
+        var target = file.resolveSibling(file.getFileName() + CORRUPT_SUFFIX);
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("无法恢复位置日志段，已隔离为：{}", target, cause);
+        } catch (IOException e) {
+            log.warn("无法恢复位置日志段，且隔离失败，已跳过：{}", file, cause);
+        }
+    }
+
+    private void run() {
+        // 队列缓冲区的副本，复制时需要修改位置
+        var src = ring.buffer().duplicate();
+        long head = ring.head();
+        while (true) {
+            // 先读取运行状态，再检查队列，关闭前入队的记录不会遗漏
+            boolean running = this.running;
+            int n = ring.available(head, MAX_BATCH);
+            if (n == 0) {
+                if (!running) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            write(src, head, n);
+            head += n;
+            ring.release(head);
+        }
+        if (active != null) {
+            active.seal();
+        }
+    }
+
+    /**
+     * 将队列中从 {@code head} 开始的 {@code n} 条记录写入段中，跨段时分为多次提交
+     */
+    private void write(ByteBuffer src, long head, int n) {
+        int written = 0;
+        try {
+            while (written < n) {
+                var segment = activeSegment();
+                int len = Math.min(n - written, segment.remaining());
+                // 记录在队列中可能折返到开头
+                int slot = ring.slot(head + written);
+                int first = Math.min(len, ring.capacity() - slot);
+                segment.write(src, slot * LocationRecord.SIZE, first);
+                if (first < len) {
+                    segment.write(src, 0, len - first);
+                }
+                segment.commit();
+                written += len;
+            }
+        } catch (IOException e) {
+            log.error("无法创建位置日志段，丢弃 {} 条记录", n - written, e);
+            droppedCount.addAndGet(n - written);
+        }
+        appendedCount.addAndGet(written);
+    }
+
+    /**
+     * @return 当前写入的段，写满或到达滚动时间时滚动到新的段
+     */
+    private Segment activeSegment() throws IOException {
+        var segment = active;
+        long now = System.currentTimeMillis();
+        if (segment != null && segment.remaining() > 0 && now < rollTime) {
+            return segment;
+        }
+        long baseSequence = getEndSequence();
+        if (segment != null) {
+            segment.seal();
+            active = null;
+        }
+        var file = directory.resolve(String.format("%020d%s", baseSequence, SEGMENT_SUFFIX));
+        segment = Segment.create(file, baseSequence, now, segmentSize, indexInterval);
+        rollTime = (now / rollIntervalMillis + 1) * rollIntervalMillis;
+        active = segment;
+        var segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+        segments[segments.length - 1] = segment;
+        this.segments = segments;
+        log.debug("位置日志滚动到新的段：{}", file);
+        return segment;
+    }
+
+    /**
+     * 追踪器，按序号顺序读取已提交的记录，读到末尾后可以继续读取之后提交的记录
+     *
+     * @author linliangjun
+     */
+    public final class Tailer {
+
+        private final LocationRecord record = new LocationRecord();
+
+        /**
+         * 下一条待读取的记录的序号
+         */
+        @Getter
+        private long sequence;
+
+        private Tailer(long sequence) {
+            this.sequence = sequence;
+        }
+
+        /**
+         * 读取已提交的记录
+         *
+         * @param max    最大记录数
+         * @param action 回调，参数为复用的记录视图
+         * @return 读取的记录数，没有新的记录时返回 0
+         */
+        public int poll(int max, Consumer<? super LocationRecord> action) {
+            var segments = LocationLog.this.segments;
+            int polled = 0;
+            int i = find(segments, sequence);
+            while (polled < max && i >= 0 && i < segments.length) {
+                var segment = segments[i];
+                if (sequence < segment.getBaseSequence()) {
+                    // 恢复时跳过了损坏的段
+                    sequence = segment.getBaseSequence();
+                }
+                int n = segment.read((int) (sequence - segment.getBaseSequence()), max - polled, record, action);
+                sequence += n;
+                polled += n;
+                if (sequence < segment.getEndSequence()) {
+                    break;
+                }
+                i++;
+            }
+            return polled;
+        }
+
+        /**
+         * @return 包含 {@code sequence} 的段，即起始序号不大于 {@code sequence} 的最后一个段的下标
+         */
+        private int find(Segment[] segments, long sequence) {
+            int low = 0;
+            int high = segments.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (segments[mid].getBaseSequence() <= sequence) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return Math.max(high, 0);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import lombok.Getter;
+import lombok.var;
+
+import java.nio.ByteBuffer;
+import java.util.StringJoiner;
+
+/**
+ * 位置记录，位置日志中定长 {@value #SIZE} 字节的二进制记录
+ *
+ * <pre>
+ * 偏移  长度  字段
+ * 0     8     终端手机号的低 18 位十进制数
+ * 8     8     时间戳（毫秒），与 {@linkplain LocationReportMessage#getTime()} 相同
+ * 16    4     报警标志
+ * 20    4     状态
+ * 24    4     纬度
+ * 28    4     经度
+ * 32    4     里程（附加信息 0x01），不存在时为 -1
+ * 36    2     高程
+ * 38    2     速度
+ * 40    2     方向
+ * 42    2     终端手机号的高位（第 19、20 位十进制数），通常为 0
+ * 44    4     同一终端在本段中的上一条记录的段内序号，没有时为 -1，由写线程填写
+ * </pre>
+ *
+ * <p>2019 版本的终端手机号最多 20 位，超出 {@code long} 的表示范围，因此终端手机号拆为高低两部分保存，
+ * 两部分按十进制合并后即为完整的终端手机号，不会溢出
+ *
+ * <p>本类的实例是记录的只读视图，指向段的映射缓冲区，读取时不复制。视图由读取方复用，回调返回后会指向其他记录，需要保留的字段应先复制
+ *
+ * @author linliangjun
+ */
+public final class LocationRecord {
+
+    /**
+     * 记录的字节长度
+     */
+    public static final int SIZE = 48;
+
+    /**
+     * 终端手机号低位部分的模
+     */
+    private static final long PHONE_LOW_MODULUS = 1_000_000_000_000_000_000L;
+
+    private static final int TERMINAL_PHONE = 0;
+
+    private static final int TIME = 8;
+
+    private static final int ALARM_FLAGS = 16;
+
+    private static final int STATUS = 20;
+
+    private static final int LATITUDE = 24;
+
+    private static final int LONGITUDE = 28;
+
+    private static final int MILEAGE = 32;
+
+    private static final int ALTITUDE = 36;
+
+    private static final int SPEED = 38;
+
+    private static final int DIRECTION = 40;
+
+    private static final int TERMINAL_PHONE_HIGH = 42;
+
+    private static final int PREV = 44;
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    /**
+     * 记录在位置日志中的序号，从 0 开始连续递增
+     */
+    @Getter
+    private long sequence;
+
+    LocationRecord() {
+    }
+
+    void wrap(ByteBuffer buffer, int offset, long sequence) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return 终端手机号（数值形式），超出 {@code long} 的表示范围时返回 {@linkplain Jt808Message#OVERSIZED_TERMINAL_PHONE}
+     */
+    public long getTerminalPhone() {
+        int high = getTerminalPhoneHigh(buffer, offset);
+        long low = getTerminalPhone(buffer, offset);
+        if (high > Long.MAX_VALUE / PHONE_LOW_MODULUS || high * PHONE_LOW_MODULUS > Long.MAX_VALUE - low) {
+            return Jt808Message.OVERSIZED_TERMINAL_PHONE;
+        }
+        return high * PHONE_LOW_MODULUS + low;
+    }
+
+    /**
+     * @return 终端手机号（字符串形式，不保留前导 0）
+     */
+    public String getTerminalPhoneNum() {
+        int high = getTerminalPhoneHigh(buffer, offset);
+        long low = getTerminalPhone(buffer, offset);
+        return high == 0 ? Long.toString(low) : high + String.format("%018d", low);
+    }
+
+    public long getTime() {
+        return buffer.getLong(offset + TIME);
+    }
+
+    public int getAlarmFlags() {
+        return buffer.getInt(offset + ALARM_FLAGS);
+    }
+
+    public int getStatus() {
+        return buffer.getInt(offset + STATUS);
+    }
+
+    public int getLatitude() {
+        return buffer.getInt(offset + LATITUDE);
+    }
+
+    public int getLongitude() {
+        return buffer.getInt(offset + LONGITUDE);
+    }
+
+    /**
+     * @return 里程，单位为 1/10 km，位置信息汇报中没有里程时返回 -1
+     */
+    public long getMileage() {
+        int mileage = buffer.getInt(offset + MILEAGE);
+        return mileage == -1 ? -1 : mileage & 0xffffffffL;
+    }
+
+    public int getAltitude() {
+        return buffer.getShort(offset + ALTITUDE) & 0xffff;
+    }
+
+    public int getSpeed() {
+        return buffer.getShort(offset + SPEED) & 0xffff;
+    }
+
+    public int getDirection() {
+        return buffer.getShort(offset + DIRECTION) & 0xffff;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", LocationRecord.class.getSimpleName() + "{", "}")
+                .add("sequence=" + sequence)
+                .add("terminalPhone=" + getTerminalPhoneNum())
+                .add("time=" + getTime())
+                .add(String.format("alarmFlags=%#010x", getAlarmFlags()))
+                .add(String.format("status=%#010x", getStatus()))
+                .add("latitude=" + getLatitude())
+                .add("longitude=" + getLongitude())
+                .add("mileage=" + getMileage())
+                .add("altitude=" + getAltitude())
+                .add("speed=" + getSpeed())
+                .add("direction=" + getDirection())
+                .toString();
+    }
+
+    /**
+     * 将位置信息汇报写入 {@code offset} 处，上一条记录的序号留给写线程填写
+     */
+    static void write(ByteBuffer buffer, int offset, LocationReportMessage message) {
+        if (message.isTerminalPhoneOversized()) {
+            var terminalPhoneNum = message.getTerminalPhoneNum();
+            int split = terminalPhoneNum.length() - 18;
+            buffer.putLong(offset + TERMINAL_PHONE, Long.parseLong(terminalPhoneNum.substring(split)));
+            buffer.putShort(offset + TERMINAL_PHONE_HIGH, Short.parseShort(terminalPhoneNum.substring(0, split)));
+        } else {
+            long terminalPhone = message.getTerminalPhone();
+            buffer.putLong(offset + TERMINAL_PHONE, terminalPhone % PHONE_LOW_MODULUS);
+            buffer.putShort(offset + TERMINAL_PHONE_HIGH, (short) (terminalPhone / PHONE_LOW_MODULUS));
+        }
+        buffer.putLong(offset + TIME, message.getTime());
+        buffer.putInt(offset + ALARM_FLAGS, message.getAlarmFlags());
+        buffer.putInt(offset + STATUS, message.getStatus());
+        buffer.putInt(offset + LATITUDE, message.getLatitude());
+        buffer.putInt(offset + LONGITUDE, message.getLongitude());
+        buffer.putInt(offset + MILEAGE, (int) message.getAdditionalInfo().getMileage());
+        buffer.putShort(offset + ALTITUDE, (short) message.getAltitude());
+        buffer.putShort(offset + SPEED, (short) message.getSpeed());
+        buffer.putShort(offset + DIRECTION, (short) message.getDirection());
+        buffer.putInt(offset + PREV, -1);
+    }
+
+    /**
+     * 获取终端手机号的低位部分
+     */
+    static long getTerminalPhone(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TERMINAL_PHONE);
+    }
+
+    /**
+     * 获取终端手机号的高位部分
+     */
+    static int getTerminalPhoneHigh(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset + TERMINAL_PHONE_HIGH);
+    }
+
+    /**
+     * 获取终端手机号（数值形式）的低位部分
+     */
+    static long getTerminalPhoneLow(long terminalPhone) {
+        return terminalPhone % PHONE_LOW_MODULUS;
+    }
+
+    /**
+     * 获取终端手机号（数值形式）的高位部分
+     */
+    static int getTerminalPhoneHigh(long terminalPhone) {
+        return (int) (terminalPhone / PHONE_LOW_MODULUS);
+    }
+
+    /**
+     * 段内索引的键：高低两部分按十进制合并，超出 {@code long} 的表示范围时回绕，因此不同终端可能共用一个键，读取时需逐条比对终端手机号
+     */
+    static long getIndexKey(int terminalPhoneHigh, long terminalPhoneLow) {
+        return terminalPhoneHigh * PHONE_LOW_MODULUS + terminalPhoneLow;
+    }
+
+    /**
+     * 记录是否属于该终端
+     */
+    static boolean isTerminal(ByteBuffer buffer, int offset, int terminalPhoneHigh, long terminalPhoneLow) {
+        return getTerminalPhone(buffer, offset) == terminalPhoneLow && getTerminalPhoneHigh(buffer, offset) == terminalPhoneHigh;
+    }
+
+    static long getTime(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + TIME);
+    }
+
+    static int getPrev(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + PREV);
+    }
+
+    static void setPrev(ByteBuffer buffer, int offset, int prev) {
+        buffer.putInt(offset + PREV, prev);
+    }
+}
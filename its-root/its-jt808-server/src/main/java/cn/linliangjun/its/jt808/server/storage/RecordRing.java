@@ -0,0 +1,161 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import io.netty.util.concurrent.FastThreadLocal;
+import lombok.var;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 位置记录的环形队列，多生产者单消费者，无锁
+ *
+ * <p>队列是一块划分为定长槽位的直接缓冲区，不存放对象：生产者（事件循环或执行通道）先将位置编码到线程的暂存区，再以 CAS 占用下一个序号并复制到对应的槽位，
+ * 再以序号标记槽位已发布；消费者（写线程）从队头开始，按槽位的发布标记取出连续的一批记录，整批复制到段中后才归还槽位。
+ * 入队既不分配内存，也不会因为其他生产者尚未写完而阻塞
+ *
+ * @author linliangjun
+ */
+final class RecordRing {
+
+    /**
+     * 编码暂存区，每个生产者线程一个
+     */
+    private static final FastThreadLocal<ByteBuffer> SCRATCH = new FastThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(LocationRecord.SIZE);
+        }
+    };
+
+    private final ByteBuffer buffer;
+
+    private final int capacity;
+
+    private final int mask;
+
+    /**
+     * 各槽位最近一次发布的序号
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * 下一个可被占用的序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待消费的序号，只由消费者写入
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 容量（记录数），向上取整为 2 的幂
+     */
+    RecordRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 24) {
+            throw new IllegalArgumentException("队列容量必须在 1 ~ 16777216 之间：" + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = ByteBuffer.allocateDirect(this.capacity * LocationRecord.SIZE);
+        this.published = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * 将位置编码入队，可由多个线程并发调用
+     *
+     * <p>先编码到线程的暂存区，成功后才占用序号并复制到槽位。消息视图的字段在读取时才解析，可能抛出异常，
+     * 若占用序号后才编码，该序号将永远不会发布，消费者会一直停在它前面
+     *
+     * @return 是否已入队，队列已满时返回 {@code false}
+     * @throws RuntimeException 读取消息的字段失败，此时未占用序号
+     */
+    boolean offer(LocationReportMessage message) {
+        var scratch = SCRATCH.get();
+        LocationRecord.write(scratch, 0, message);
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        int slot = slot(sequence);
+        int offset = slot * LocationRecord.SIZE;
+        for (int i = 0; i < LocationRecord.SIZE; i += Long.BYTES) {
+            buffer.putLong(offset + i, scratch.getLong(i));
+        }
+        published.lazySet(slot, sequence);
+        return true;
+    }
+
+    /**
+     * 获取从 {@code sequence} 开始连续已发布的记录数，只由消费者调用
+     *
+     * @param max 最大记录数
+     */
+    int available(long sequence, int max) {
+        int count = 0;
+        while (count < max && published.get(slot(sequence + count)) == sequence + count) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 归还 {@code sequence} 之前的槽位，只由消费者调用
+     */
+    void release(long sequence) {
+        head.lazySet(sequence);
+    }
+
+    /**
+     * @return 下一个待消费的序号
+     */
+    long head() {
+        return head.get();
+    }
+
+    /**
+     * @return 队列中的记录数（近似值）
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int slot(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 队列的缓冲区，消费者应使用其副本
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+}
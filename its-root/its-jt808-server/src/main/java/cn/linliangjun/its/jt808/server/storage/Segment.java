@@ -0,0 +1,407 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import io.netty.util.collection.LongObjectHashMap;
+import lombok.Getter;
+import lombok.var;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * 位置日志的段，一个内存映射的只追加文件，由 {@value #HEADER_SIZE} 字节的段头与定长的 {@linkplain LocationRecord 位置记录} 组成
+ *
+ * <pre>
+ * 段头偏移  长度  字段
+ * 0         4     魔数 "ITSL"
+ * 4         4     记录长度
+ * 8         8     起始序号，即段中第一条记录在位置日志中的序号
+ * 16        8     创建时间（毫秒）
+ * 24        4     已提交的记录数
+ * </pre>
+ *
+ * <p>记录只由写线程追加：整批复制到映射缓冲区后，在持有索引的锁时填写各记录的上一条记录、更新稀疏索引，最后发布已提交的记录数。
+ * 读取方只访问已提交的记录，已提交的记录不会再改变，因此读取记录本身不需要加锁。
+ *
+ * <p>同一终端的记录以“上一条记录”串成链表，稀疏索引只为每个终端每 {@code indexInterval} 条记录保存一项（该块最后一条记录的位置、块内的最早和最晚时间），
+ * 按时间范围读取时跳过时间不重叠的块，再沿链表读取重叠的块，不会扫描其他终端的记录。终端上报的时间不一定单调（例如盲区补传），因此按块的时间范围而不是按时间二分查找
+ *
+ * @author linliangjun
+ */
+final class Segment {
+
+    static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC = 0x4954534c;
+
+    private static final int MAGIC_OFFSET = 0;
+
+    private static final int RECORD_SIZE_OFFSET = 4;
+
+    private static final int BASE_SEQUENCE_OFFSET = 8;
+
+    private static final int CREATE_TIME_OFFSET = 16;
+
+    private static final int COUNT_OFFSET = 24;
+
+    @Getter
+    private final Path file;
+
+    /**
+     * 起始序号
+     */
+    @Getter
+    private final long baseSequence;
+
+    /**
+     * 最多可容纳的记录数
+     */
+    private final int capacity;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * 写线程复制记录时使用的副本，只由写线程访问
+     */
+    private final ByteBuffer writeBuffer;
+
+    private final int indexInterval;
+
+    /**
+     * 终端手机号 - 终端在本段中的索引，同时作为索引与提交的锁
+     */
+    private final LongObjectHashMap<TerminalIndex> index = new LongObjectHashMap<>();
+
+    /**
+     * 索引是否已建立，恢复的段在首次按时间范围读取时才建立
+     */
+    private boolean indexed;
+
+    /**
+     * 段中记录的最早和最晚时间，由索引的锁保护
+     */
+    private long minTime = Long.MAX_VALUE;
+
+    private long maxTime = Long.MIN_VALUE;
+
+    /**
+     * 已提交的记录数
+     */
+    private volatile int count;
+
+    /**
+     * 已复制但尚未提交的记录数，只由写线程访问
+     */
+    private int pending;
+
+    private Segment(Path file, long baseSequence, MappedByteBuffer buffer, int count, boolean writable, int indexInterval) {
+        this.file = file;
+        this.baseSequence = baseSequence;
+        this.capacity = (buffer.capacity() - HEADER_SIZE) / LocationRecord.SIZE;
+        this.buffer = buffer;
+        this.writeBuffer = writable ? buffer.duplicate() : null;
+        this.count = count;
+        this.indexInterval = indexInterval;
+        this.indexed = writable;
+    }
+
+    /**
+     * 创建可写入的段，文件的大小固定为 {@code size}，未写入的部分在支持稀疏文件的文件系统上不占用磁盘空间
+     *
+     * @param file         段文件，不能已存在
+     * @param baseSequence 起始序号
+     * @param createTime   创建时间（毫秒）
+     * @param size         文件大小
+     */
+    static Segment create(Path file, long baseSequence, long createTime, int size, int indexInterval) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, CREATE_NEW, READ, WRITE)) {
+            // 关闭通道后映射依然有效
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(RECORD_SIZE_OFFSET, LocationRecord.SIZE);
+        buffer.putLong(BASE_SEQUENCE_OFFSET, baseSequence);
+        buffer.putLong(CREATE_TIME_OFFSET, createTime);
+        buffer.putInt(COUNT_OFFSET, 0);
+        return new Segment(file, baseSequence, buffer, 0, true, indexInterval);
+    }
+
+    /**
+     * 以只读方式打开已有的段，用于恢复，段头中的已提交记录数之后的记录视为未写入
+     *
+     * @throws IOException 文件不是位置日志的段，或记录长度与当前版本不同
+     */
+    static Segment open(Path file, int indexInterval) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("文件大小无效：" + channel.size());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("不是位置日志的段");
+        }
+        if (buffer.getInt(RECORD_SIZE_OFFSET) != LocationRecord.SIZE) {
+            throw new IOException("记录长度不匹配：" + buffer.getInt(RECORD_SIZE_OFFSET));
+        }
+        int count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || count > (buffer.capacity() - HEADER_SIZE) / LocationRecord.SIZE) {
+            throw new IOException("已提交的记录数无效：" + count);
+        }
+        return new Segment(file, buffer.getLong(BASE_SEQUENCE_OFFSET), buffer, count, false, indexInterval);
+    }
+
+    /**
+     * @return 已提交的记录数
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return 最后一条已提交的记录的下一个序号
+     */
+    long getEndSequence() {
+        return baseSequence + count;
+    }
+
+    /**
+     * @return 还可以写入的记录数，只由写线程调用
+     */
+    int remaining() {
+        return capacity - count - pending;
+    }
+
+    /**
+     * 从 {@code src} 的 {@code offset} 处复制 {@code n} 条记录，复制的记录在 {@linkplain #commit() 提交} 后才可读，只由写线程调用
+     */
+    void write(ByteBuffer src, int offset, int n) {
+        // 编译目标为 Java 8，以 Buffer 调用，避免链接到 Java 9 起协变返回的 ByteBuffer 方法
+        ((Buffer) src).limit(offset + n * LocationRecord.SIZE).position(offset);
+        ((Buffer) writeBuffer).position(offset(count + pending));
+        writeBuffer.put(src);
+        pending += n;
+    }
+
+    /**
+     * 提交已复制的记录：填写各记录的上一条记录、更新索引，再发布已提交的记录数，只由写线程调用
+     */
+    void commit() {
+        int start = count;
+        int end = start + pending;
+        synchronized (index) {
+            for (int i = start; i < end; i++) {
+                indexRecord(i, true);
+            }
+            count = end;
+        }
+        pending = 0;
+        buffer.putInt(COUNT_OFFSET, end);
+    }
+
+    /**
+     * 将映射缓冲区的修改刷新到磁盘，之后不再写入
+     */
+    void seal() {
+        if (writeBuffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 顺序读取段内序号从 {@code from} 开始的已提交记录
+     *
+     * @param from   起始的段内序号
+     * @param max    最大记录数
+     * @param record 复用的记录视图
+     * @return 读取的记录数
+     */
+    int read(int from, int max, LocationRecord record, Consumer<? super LocationRecord> action) {
+        int end = (int) Math.min(count, (long) from + max);
+        for (int i = from; i < end; i++) {
+            record.wrap(buffer, offset(i), baseSequence + i);
+            action.accept(record);
+        }
+        return Math.max(0, end - from);
+    }
+
+    /**
+     * 读取终端在时间范围内的已提交记录，按写入顺序回调
+     *
+     * @param terminalPhoneHigh 终端手机号的高位部分
+     * @param terminalPhoneLow  终端手机号的低位部分
+     * @param from              起始时间（毫秒，含）
+     * @param to                结束时间（毫秒，含）
+     * @param record            复用的记录视图
+     * @return 读取的记录数
+     */
+    int read(int terminalPhoneHigh, long terminalPhoneLow, long from, long to, LocationRecord record, Consumer<? super LocationRecord> action) {
+        // 在锁内取出与时间范围重叠的块，锁外沿链表读取
+        int[] blockEnds;
+        int[] blockSizes;
+        int blocks = 0;
+        synchronized (index) {
+            ensureIndexed();
+            var terminal = index.get(LocationRecord.getIndexKey(terminalPhoneHigh, terminalPhoneLow));
+            if (terminal == null || maxTime < from || minTime > to) {
+                return 0;
+            }
+            blockEnds = new int[terminal.blocks + 1];
+            blockSizes = new int[terminal.blocks + 1];
+            for (int i = 0; i < terminal.blocks; i++) {
+                if (terminal.blockMaxTimes[i] >= from && terminal.blockMinTimes[i] <= to) {
+                    blockEnds[blocks] = terminal.blockEnds[i];
+                    blockSizes[blocks++] = indexInterval;
+                }
+            }
+            int open = terminal.count - terminal.blocks * indexInterval;
+            if (open > 0 && terminal.maxTime >= from && terminal.minTime <= to) {
+                blockEnds[blocks] = terminal.last;
+                blockSizes[blocks++] = open;
+            }
+        }
+        int[] chain = new int[indexInterval];
+        int read = 0;
+        for (int b = 0; b < blocks; b++) {
+            int size = blockSizes[b];
+            int i = blockEnds[b];
+            for (int j = size - 1; j >= 0; j--) {
+                chain[j] = i;
+                i = LocationRecord.getPrev(buffer, offset(i));
+            }
+            for (int j = 0; j < size; j++) {
+                int offset = offset(chain[j]);
+                long time = LocationRecord.getTime(buffer, offset);
+                // 超出 long 表示范围的终端手机号可能与其他终端共用索引的键
+                if (time >= from && time <= to && LocationRecord.isTerminal(buffer, offset, terminalPhoneHigh, terminalPhoneLow)) {
+                    record.wrap(buffer, offset, baseSequence + chain[j]);
+                    action.accept(record);
+                    read++;
+                }
+            }
+        }
+        return read;
+    }
+
+    /**
+     * 为恢复的段建立索引，记录中的上一条记录已在写入时填写，调用方需持有索引的锁
+     */
+    private void ensureIndexed() {
+        if (!indexed) {
+            for (int i = 0; i < count; i++) {
+                indexRecord(i, false);
+            }
+            indexed = true;
+        }
+    }
+
+    private void indexRecord(int i, boolean link) {
+        int offset = offset(i);
+        long key = LocationRecord.getIndexKey(LocationRecord.getTerminalPhoneHigh(buffer, offset), LocationRecord.getTerminalPhone(buffer, offset));
+        long time = LocationRecord.getTime(buffer, offset);
+        var terminal = index.get(key);
+        if (terminal == null) {
+            terminal = new TerminalIndex();
+            index.put(key, terminal);
+        }
+        if (link) {
+            LocationRecord.setPrev(buffer, offset, terminal.last);
+        }
+        terminal.add(i, time, indexInterval);
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+    }
+
+    private static int offset(int i) {
+        return HEADER_SIZE + i * LocationRecord.SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return file.getFileName() + "[" + baseSequence + ", " + getEndSequence() + ")";
+    }
+
+    /**
+     * 终端在段中的稀疏索引，由段的索引锁保护
+     */
+    private static final class TerminalIndex {
+
+        /**
+         * 最后一条记录的段内序号
+         */
+        private int last = -1;
+
+        /**
+         * 记录数
+         */
+        private int count;
+
+        /**
+         * 未满一块的记录的最早和最晚时间
+         */
+        private long minTime = Long.MAX_VALUE;
+
+        private long maxTime = Long.MIN_VALUE;
+
+        /**
+         * 已满的块数，以及各块最后一条记录的段内序号、块内的最早和最晚时间
+         */
+        private int blocks;
+
+        private int[] blockEnds;
+
+        private long[] blockMinTimes;
+
+        private long[] blockMaxTimes;
+
+        private void add(int i, long time, int interval) {
+            last = i;
+            count++;
+            minTime = Math.min(minTime, time);
+            maxTime = Math.max(maxTime, time);
+            if (count % interval != 0) {
+                return;
+            }
+            if (blockEnds == null) {
+                blockEnds = new int[4];
+                blockMinTimes = new long[4];
+                blockMaxTimes = new long[4];
+            } else if (blocks == blockEnds.length) {
+                blockEnds = Arrays.copyOf(blockEnds, blocks * 2);
+                blockMinTimes = Arrays.copyOf(blockMinTimes, blocks * 2);
+                blockMaxTimes = Arrays.copyOf(blockMaxTimes, blocks * 2);
+            }
+            blockEnds[blocks] = i;
+            blockMinTimes[blocks] = minTime;
+            blockMaxTimes[blocks] = maxTime;
+            blocks++;
+            minTime = Long.MAX_VALUE;
+            maxTime = Long.MIN_VALUE;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessHandlerTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    /**
+     * 鉴权码 "123456"
+     */
+    private static final byte[] AUTH_BODY = ByteBufUtil.decodeHexDump("313233343536");
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    /**
+     * 未鉴权的会话丢弃注册与鉴权以外的消息
+     */
+    @Test
+    void notLogin() {
+        var channel = channel(true);
+        assertTrue(writeHeartbeat(channel).isDiscard());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 推迟鉴权检查时，鉴权消息之后、鉴权处理完之前到达的帧放行，由执行通道检查
+     */
+    @Test
+    void deferLoginCheck() {
+        var channel = channel(true);
+        assertFalse(writeAuth(channel).isDiscard());
+        assertFalse(writeHeartbeat(channel).isDiscard());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 不推迟鉴权检查时，鉴权处理完之前到达的帧被丢弃
+     */
+    @Test
+    void checkLoginInEventLoop() {
+        var channel = channel(false);
+        assertFalse(writeAuth(channel).isDiscard());
+        assertTrue(writeHeartbeat(channel).isDiscard());
+        ChannelAttrUtils.getSession(channel.pipeline().firstContext()).setLogin(true);
+        assertFalse(writeHeartbeat(channel).isDiscard());
+        assertFalse(channel.finish());
+    }
+
+    private static EmbeddedChannel channel(boolean deferLoginCheck) {
+        var handler = new AccessHandler();
+        handler.setDeferLoginCheck(deferLoginCheck);
+        return new EmbeddedChannel(handler);
+    }
+
+    private static ByteBufWrapper writeAuth(EmbeddedChannel channel) {
+        return write(channel, Type.TERMINAL_AUTH, 1, AUTH_BODY);
+    }
+
+    private static ByteBufWrapper writeHeartbeat(EmbeddedChannel channel) {
+        return write(channel, Type.TERMINAL_HEARTBEAT, 2, new byte[0]);
+    }
+
+    private static ByteBufWrapper write(EmbeddedChannel channel, Type type, int serialNum, byte[] body) {
+        channel.writeInbound(new ByteBufWrapper(Frames.frame(Version.V2013, type.getValue(), TERMINAL_PHONE, serialNum, 0, 0, body)));
+        ByteBufWrapper wrapper = channel.readInbound();
+        assertEquals(type, wrapper.getType());
+        wrapper.release();
+        return wrapper;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDecoderTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    private static final int MAX_FRAME_LENGTH = 64;
+
+    /**
+     * 消息体中的 0x7e 与 0x7d 被还原，BCC 校验通过
+     */
+    @Test
+    void escapedBody() {
+        var frame = frame(new byte[]{0x7e, 0x01, 0x7d, 0x7d, 0x7e, 0x02, 0x7d});
+        assertDecoded(frame, decode(Frames.escape(frame)));
+    }
+
+    /**
+     * 校验码本身为 0x7e 或 0x7d 时同样被转义
+     */
+    @ParameterizedTest
+    @ValueSource(bytes = {0x7e, 0x7d})
+    void escapedBcc(byte code) {
+        var frame = frameWithBcc(code);
+        var escaped = Frames.escape(frame);
+        assertEquals(0x7d, escaped.getByte(escaped.writerIndex() - 3));
+        assertDecoded(frame, decode(escaped));
+    }
+
+    @Test
+    void badBcc() {
+        var frame = frame(new byte[]{0x01, 0x02});
+        int bccIndex = frame.writerIndex() - 2;
+        frame.setByte(bccIndex, frame.getByte(bccIndex) ^ 0x01);
+        var wrapper = decode(Frames.escape(frame));
+        assertTrue(wrapper.isDiscard());
+        assertTrue(wrapper.getDiscardCause().contains("BCC"), wrapper.getDiscardCause());
+        wrapper.release();
+        frame.release();
+    }
+
+    /**
+     * 超过最大长度的帧，以及超过最大长度仍未找到结束符的数据被丢弃
+     */
+    @Test
+    void oversize() {
+        var channel = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH));
+        var frame = frame(new byte[MAX_FRAME_LENGTH]);
+        channel.writeInbound(Frames.escape(frame));
+        ByteBufWrapper wrapper = channel.readInbound();
+        assertTrue(wrapper.isDiscard());
+        assertEquals("长度溢出", wrapper.getDiscardCause());
+        wrapper.release();
+
+        var unterminated = Frames.escape(frame);
+        unterminated.writerIndex(unterminated.writerIndex() - 1);
+        channel.writeInbound(unterminated);
+        wrapper = channel.readInbound();
+        assertTrue(wrapper.isDiscard());
+        assertEquals("长度溢出", wrapper.getDiscardCause());
+        wrapper.release();
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+        frame.release();
+    }
+
+    /**
+     * 帧跨越多次读取（包括在转义序列中间断开），收齐后输出一帧
+     */
+    @Test
+    void splitAcrossReads() {
+        var frame = frame(new byte[]{0x11, 0x7d, 0x22, 0x7e, 0x33});
+        var escaped = Frames.escape(frame);
+        int escapeIndex = escaped.indexOf(1, escaped.writerIndex(), (byte) 0x7d);
+        var channel = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH));
+        // 第一段带有起始符之前的残余数据，第二段在转义序列中间断开
+        channel.writeInbound(channel.alloc().buffer().writeByte(0x55).writeBytes(escaped, 0, 3));
+        assertNull(channel.readInbound());
+        channel.writeInbound(escaped.retainedSlice(3, escapeIndex + 1 - 3));
+        assertNull(channel.readInbound());
+        channel.writeInbound(escaped.retainedSlice(escapeIndex + 1, escaped.writerIndex() - escapeIndex - 1));
+        escaped.release();
+        assertDecoded(frame, channel.readInbound());
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 一次读取中的多个帧，相邻帧之间可能有连续的两个 0x7e
+     */
+    @Test
+    void multipleFrames() {
+        var first = frame(new byte[]{0x7e});
+        var second = frame(new byte[]{0x7d, 0x00});
+        var escapedFirst = Frames.escape(first);
+        var escapedSecond = Frames.escape(second);
+        var in = escapedFirst.copy().writeBytes(escapedSecond).writeBytes(escapedFirst);
+        escapedFirst.release();
+        escapedSecond.release();
+        var channel = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH));
+        channel.writeInbound(in);
+        assertDecoded(first.copy(), channel.readInbound());
+        assertDecoded(second, channel.readInbound());
+        assertDecoded(first, channel.readInbound());
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 只读缓冲区无法原地还原，复制后转义，输入不被修改
+     */
+    @Test
+    void readOnlyInput() {
+        var frame = frame(new byte[]{0x7e, 0x7d, 0x01});
+        var escaped = Frames.escape(frame);
+        var hex = ByteBufUtil.hexDump(escaped);
+        var wrapper = decode(escaped.retain().asReadOnly());
+        assertEquals(hex, ByteBufUtil.hexDump(escaped));
+        escaped.release();
+        assertDecoded(frame, wrapper);
+    }
+
+    private static ByteBuf frame(byte[] body) {
+        return Frames.frame(Version.V2013, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, 1, 0, 0, body);
+    }
+
+    /**
+     * 构建校验码为 {@code code} 的帧
+     */
+    private static ByteBuf frameWithBcc(byte code) {
+        for (int b = 0; b < 256; b++) {
+            var frame = frame(new byte[]{(byte) b});
+            if (frame.getByte(frame.writerIndex() - 2) == code) {
+                return frame;
+            }
+            frame.release();
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * 解码一次读取中的单个帧
+     */
+    private static ByteBufWrapper decode(ByteBuf in) {
+        var channel = new EmbeddedChannel(new FrameDecoder(MAX_FRAME_LENGTH));
+        channel.writeInbound(in);
+        ByteBufWrapper wrapper = channel.readInbound();
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+        return wrapper;
+    }
+
+    /**
+     * 帧未被丢弃，且与未转义的帧逐字节相同，之后释放两者
+     */
+    private static void assertDecoded(ByteBuf expected, ByteBufWrapper wrapper) {
+        assertFalse(wrapper.isDiscard(), wrapper::getDiscardCause);
+        assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(wrapper.getBuf()));
+        wrapper.release();
+        expected.release();
+    }
+}
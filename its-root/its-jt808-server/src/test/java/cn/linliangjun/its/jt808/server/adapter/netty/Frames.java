@@ -0,0 +1,197 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.uniprotocol.DefinitionLoaderProvider;
+import cn.linliangjun.its.uniprotocol.DefinitionManager;
+import cn.linliangjun.its.uniprotocol.util.CodecUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import lombok.var;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网络适配层测试的公共方法：加载协议定义、构建帧、手动触发的定时器
+ */
+public final class Frames {
+
+    private Frames() {
+    }
+
+    /**
+     * 加载并冻结协议定义，与 Spring 自动配置的做法相同，同一 JVM 中只加载一次
+     */
+    public static synchronized void loadDefinitions() throws Exception {
+        if (DefinitionManager.isFrozen()) {
+            return;
+        }
+        for (var provider : ServiceLoader.load(DefinitionLoaderProvider.class)) {
+            provider.get().load();
+        }
+        DefinitionManager.freeze();
+    }
+
+    /**
+     * 构建未转义的帧，含起始符、校验码与结束符，即帧解码器的输出
+     *
+     * @param total 分包总数，为 0 时不分包
+     * @param num   分包序号
+     */
+    public static ByteBuf frame(Version version, int type, long terminalPhone, int serialNum, int total, int num, byte[] body) {
+        var buf = Unpooled.buffer();
+        buf.writeByte(0x7e);
+        buf.writeShort(type);
+        int properties = body.length;
+        if (total > 0) {
+            properties |= 1 << 13;
+        }
+        if (version == Version.V2019) {
+            properties |= 1 << 14;
+        }
+        buf.writeShort(properties);
+        if (version == Version.V2019) {
+            buf.writeByte(1);
+        }
+        CodecUtils.writeBcd8421(buf, terminalPhone, version == Version.V2019 ? 10 : 6, "终端手机号");
+        buf.writeShort(serialNum);
+        if (total > 0) {
+            buf.writeShort(total);
+            buf.writeShort(num);
+        }
+        buf.writeBytes(body);
+        buf.writeByte(CodecUtils.getBccCode(buf, 1, buf.writerIndex() - 1));
+        buf.writeByte(0x7e);
+        return buf;
+    }
+
+    /**
+     * 转义帧的起始符与结束符之间的内容，得到线路上的字节
+     */
+    public static ByteBuf escape(ByteBuf frame) {
+        var buf = Unpooled.buffer();
+        int end = frame.writerIndex() - 1;
+        buf.writeByte(frame.getByte(frame.readerIndex()));
+        for (int i = frame.readerIndex() + 1; i < end; i++) {
+            byte b = frame.getByte(i);
+            if (b == 0x7e) {
+                buf.writeByte(0x7d).writeByte(0x02);
+            } else if (b == 0x7d) {
+                buf.writeByte(0x7d).writeByte(0x01);
+            } else {
+                buf.writeByte(b);
+            }
+        }
+        buf.writeByte(frame.getByte(end));
+        return buf;
+    }
+
+    /**
+     * 手动触发的定时器，{@linkplain #fire()} 时执行已登记且未取消的任务
+     */
+    public static final class ManualTimer implements Timer {
+
+        private final List<ManualTimeout> timeouts = new ArrayList<>();
+
+        @Override
+        public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+            var timeout = new ManualTimeout(task);
+            timeouts.add(timeout);
+            return timeout;
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+
+        /**
+         * 已登记且未取消的任务数
+         */
+        public int pending() {
+            int pending = 0;
+            for (var timeout : timeouts) {
+                if (!timeout.cancelled) {
+                    pending++;
+                }
+            }
+            return pending;
+        }
+
+        public void fire() throws Exception {
+            var fired = new ArrayList<>(timeouts);
+            timeouts.clear();
+            for (var timeout : fired) {
+                if (!timeout.cancelled) {
+                    timeout.expired = true;
+                    timeout.task.run(timeout);
+                }
+            }
+        }
+
+        private final class ManualTimeout implements Timeout {
+
+            private final TimerTask task;
+
+            private boolean cancelled;
+
+            private boolean expired;
+
+            private ManualTimeout(TimerTask task) {
+                this.task = task;
+            }
+
+            @Override
+            public Timer timer() {
+                return ManualTimer.this;
+            }
+
+            @Override
+            public TimerTask task() {
+                return task;
+            }
+
+            @Override
+            public boolean isExpired() {
+                return expired;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+            @Override
+            public boolean cancel() {
+                if (expired || cancelled) {
+                    return false;
+                }
+                cancelled = true;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.DispatchTable;
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.session.Session;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.net.InetSocketAddress;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2013_2019;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeartbeatHandlerTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    /**
+     * 平台流水号从该值开始，覆盖高、低字节为 0x7d 与 0x7e 的流水号
+     */
+    private static final int FIRST_SERIAL_NUM = 0x7d70;
+
+    private static final int COUNT = 0x200;
+
+    /**
+     * 字节为 0x7e 或 0x7d 的应答流水号
+     */
+    private static final int[] ESCAPED_RESP_SERIAL_NUMS = {0x007e, 0x007d, 0x7e00, 0x7d00, 0x7e7e, 0x7d7d, 0x7e7d, 0x7d7e};
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    /**
+     * 快速路径的应答与编解码器编码的平台通用应答逐字节相同，包括需要转义的流水号与校验码
+     */
+    @ParameterizedTest
+    @EnumSource(value = Version.class, names = {"V2013", "V2019"})
+    void sameAsCodec(Version version) {
+        var channel = new EmbeddedChannel(new HeartbeatHandler());
+        var session = new Session(channel);
+        session.setTerminalPhone(TERMINAL_PHONE, null);
+        skipSerialNums(session);
+
+        int escapedCodes = 0;
+        for (int i = 0; i < COUNT + ESCAPED_RESP_SERIAL_NUMS.length; i++) {
+            int respSerialNum = i < COUNT ? i * 0x0101 & 0xffff : ESCAPED_RESP_SERIAL_NUMS[i - COUNT];
+            channel.writeInbound(heartbeat(version, session, respSerialNum, null));
+            ByteBuf actual = channel.readOutbound();
+            var expected = encode(version, FIRST_SERIAL_NUM + i, respSerialNum);
+            assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(actual), () -> "应答流水号 " + respSerialNum);
+            if (expected.getByte(expected.writerIndex() - 3) == 0x7d) {
+                escapedCodes++;
+            }
+            expected.release();
+            actual.release();
+        }
+        // 校验码本身需要转义的应答同样被覆盖
+        assertTrue(escapedCodes > 0);
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * UDP 会话的应答发往终端最后一次发送数据报的地址
+     */
+    @Test
+    void datagram() {
+        var channel = new EmbeddedChannel(new HeartbeatHandler());
+        var sender = new InetSocketAddress("127.0.0.1", 10001);
+        var session = new Session(channel, TERMINAL_PHONE, null, sender);
+        skipSerialNums(session);
+
+        channel.writeInbound(heartbeat(Version.V2019, session, 0x7e7d, sender));
+        AddressedEnvelope<ByteBuf, InetSocketAddress> envelope = channel.readOutbound();
+        assertEquals(sender, envelope.recipient());
+        var expected = encode(Version.V2019, FIRST_SERIAL_NUM, 0x7e7d);
+        assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(envelope.content()));
+        expected.release();
+        envelope.release();
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 分包的心跳交给下游
+     */
+    @Test
+    void partial() {
+        var channel = new EmbeddedChannel(new HeartbeatHandler());
+        var session = new Session(channel);
+        session.setTerminalPhone(TERMINAL_PHONE, null);
+        var wrapper = new ByteBufWrapper(Frames.frame(Version.V2013, Type.TERMINAL_HEARTBEAT.getValue(), TERMINAL_PHONE, 1, 2, 1, new byte[0]));
+        wrapper.setType(Type.TERMINAL_HEARTBEAT);
+        wrapper.setSession(session);
+        channel.writeInbound(wrapper);
+        assertSame(wrapper, channel.readInbound());
+        assertNull(channel.readOutbound());
+        wrapper.release();
+        assertFalse(channel.finish());
+    }
+
+    private static void skipSerialNums(Session session) {
+        for (int i = 0; i < FIRST_SERIAL_NUM; i++) {
+            session.nextSerialNum();
+        }
+    }
+
+    private static ByteBufWrapper heartbeat(Version version, Session session, int serialNum, InetSocketAddress sender) {
+        var wrapper = new ByteBufWrapper(Frames.frame(version, Type.TERMINAL_HEARTBEAT.getValue(), TERMINAL_PHONE, serialNum, 0, 0, new byte[0]));
+        wrapper.setType(Type.TERMINAL_HEARTBEAT);
+        wrapper.setSession(session);
+        wrapper.setSender(sender);
+        return wrapper;
+    }
+
+    private static ByteBuf encode(Version version, int serialNum, int respSerialNum) {
+        var message = new PlatformGenericRespMessage_2013_2019(version);
+        message.setResult(PlatformGenericRespMessage_2013_2019.Result.SUCCESS_ACK);
+        message.setEncryption(Jt808Message.Encryption.NONE);
+        message.setTerminalPhone(TERMINAL_PHONE);
+        message.setPartial(false);
+        message.setSerialNum(serialNum & 0xffff);
+        message.setRespSerialNum(respSerialNum);
+        message.setRespType(Type.TERMINAL_HEARTBEAT);
+        return DispatchTable.getInstance().getCodec(version, Type.PLATFORM_GENERIC_RESP.getValue()).encode(message);
+    }
+}
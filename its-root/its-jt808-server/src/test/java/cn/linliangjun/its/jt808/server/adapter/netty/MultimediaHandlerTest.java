@@ -0,0 +1,179 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadMessage;
+import cn.linliangjun.its.jt808.protocol.message.MultimediaDataUploadRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultimediaHandlerTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    /**
+     * 多媒体数据 ID 1、图像、JPEG、平台下发指令、通道 1，以及位置基本信息
+     */
+    private static final byte[] HEADER = ByteBufUtil.decodeHexDump("00000001" + "00" + "00" + "00" + "01"
+            + "00000000" + "00000002" + "01c9c380" + "07270e00" + "000a" + "0014" + "001e" + "231018120000");
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    /**
+     * 乱序的分包收齐后保存为多媒体文件，应答并交给下游
+     */
+    @Test
+    void complete() throws IOException {
+        var channel = channel(4, 1 << 20);
+        write(channel, 10, 3, 3);
+        write(channel, 10, 3, 1);
+        write(channel, 10, 3, 2);
+
+        MultimediaDataUploadMessage message = channel.readInbound();
+        assertEquals(1, message.getMediaId());
+        var file = directory.resolve(Long.toString(TERMINAL_PHONE)).resolve("1.jpg");
+        assertEquals(file, message.getFile());
+        assertArrayEquals(data(1, 2, 3), Files.readAllBytes(file));
+        MultimediaDataUploadRespMessage resp = channel.readOutbound();
+        assertEquals(1, resp.getMediaId());
+        assertTrue(resp.getPackageIds().isEmpty());
+        assertEquals(0, tempFileCount());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 保存多媒体文件失败时不交给下游，应答要求终端重传全部数据包
+     */
+    @Test
+    void completeFailed() throws IOException {
+        // 多媒体文件的位置被非空目录占用，无法保存
+        var file = directory.resolve(Long.toString(TERMINAL_PHONE)).resolve("1.jpg");
+        Files.createDirectories(file);
+        Files.createFile(file.resolve("occupied"));
+
+        var channel = channel(4, 1 << 20);
+        write(channel, 10, 3, 3);
+        write(channel, 10, 3, 1);
+        write(channel, 10, 3, 2);
+
+        assertNull(channel.readInbound());
+        MultimediaDataUploadRespMessage resp = channel.readOutbound();
+        assertEquals(1, resp.getMediaId());
+        assertEquals(Arrays.asList(1, 2, 3), resp.getPackageIds());
+        assertEquals(0, tempFileCount());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 进行中的上传数达到上限时拒绝新的上传
+     */
+    @Test
+    void maxUploads() throws IOException {
+        var channel = channel(1, 1 << 20);
+        write(channel, 10, 3, 2);
+        assertNull(channel.readInbound());
+        write(channel, 20, 3, 2);
+        ByteBufWrapper rejected = channel.readInbound();
+        assertTrue(rejected.isDiscard());
+        rejected.release();
+        assertEquals(1, tempFileCount());
+        assertFalse(channel.finish());
+        assertEquals(0, tempFileCount());
+    }
+
+    /**
+     * 已写入的字节数超过上限时丢弃上传并删除临时文件，其他上传释放的字节数可再次使用
+     */
+    @Test
+    void maxBytes() throws IOException {
+        var channel = channel(4, data(2).length + data(3).length - 1);
+        write(channel, 10, 3, 2);
+        write(channel, 10, 3, 3);
+        assertNull(channel.readInbound());
+        assertEquals(0, tempFileCount());
+
+        write(channel, 20, 3, 3);
+        assertEquals(1, tempFileCount());
+        assertFalse(channel.finish());
+        assertEquals(0, tempFileCount());
+    }
+
+    private EmbeddedChannel channel(int maxUploads, long maxBytes) {
+        var channel = new EmbeddedChannel(new MultimediaHandler(directory, maxUploads, maxBytes, null, 0, 0));
+        var session = ChannelAttrUtils.getSession(channel.pipeline().firstContext());
+        session.setVersion(Version.V2013);
+        session.setTerminalPhone(TERMINAL_PHONE, null);
+        return channel;
+    }
+
+    /**
+     * 写入第 {@code num} 包，第一包包含多媒体数据上传的消息头
+     */
+    private static void write(EmbeddedChannel channel, int firstSerialNum, int total, int num) {
+        var out = new ByteArrayOutputStream();
+        if (num == 1) {
+            out.write(HEADER, 0, HEADER.length);
+        }
+        var data = data(num);
+        out.write(data, 0, data.length);
+        var wrapper = new ByteBufWrapper(Frames.frame(Version.V2013, Type.MULTIMEDIA_DATA_UPLOAD.getValue(), TERMINAL_PHONE,
+                firstSerialNum + num - 1, total, num, out.toByteArray()));
+        wrapper.setType(Type.MULTIMEDIA_DATA_UPLOAD);
+        channel.writeInbound(wrapper);
+    }
+
+    /**
+     * 各分包的多媒体数据，各包长度不同
+     */
+    private static byte[] data(int... nums) {
+        var out = new ByteArrayOutputStream();
+        for (var num : nums) {
+            var data = new byte[100 * num + 7];
+            Arrays.fill(data, (byte) (0x7c + num));
+            out.write(data, 0, data.length);
+        }
+        return out.toByteArray();
+    }
+
+    private long tempFileCount() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".part")).count();
+        }
+    }
+}
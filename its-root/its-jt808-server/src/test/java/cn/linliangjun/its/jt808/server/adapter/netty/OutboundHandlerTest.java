@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties.UnwritablePolicy;
+import io.netty.channel.DefaultAddressedEnvelope;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static cn.linliangjun.its.jt808.protocol.message.PlatformGenericRespMessage.PlatformGenericRespMessage_2013_2019;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHandlerTest {
+
+    private static final InetSocketAddress TERMINAL_A = new InetSocketAddress("127.0.0.1", 10001);
+
+    private static final InetSocketAddress TERMINAL_B = new InetSocketAddress("127.0.0.1", 10002);
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    /**
+     * 积压超过上限时关闭连接
+     */
+    @Test
+    void close() {
+        var channel = unwritableChannel(new OutboundHandler(UnwritablePolicy.CLOSE, 1));
+        var first = channel.write(message());
+        channel.write(message());
+        assertFalse(channel.isOpen());
+        assertFalse(first.isSuccess());
+    }
+
+    /**
+     * 数据报连接由所有终端共用，CLOSE 按 DROP 处理，从不关闭
+     */
+    @Test
+    void datagramNeverClosed() {
+        var channel = unwritableChannel(new OutboundHandler(UnwritablePolicy.CLOSE, 1, true));
+        var first = channel.write(envelope(TERMINAL_A));
+        var second = channel.write(envelope(TERMINAL_B));
+        assertTrue(channel.isOpen());
+        assertFalse(first.isDone());
+        assertFalse(second.isSuccess());
+
+        setWritable(channel, true);
+        channel.flush();
+        assertTrue(first.isSuccess());
+        assertEquals(TERMINAL_A, ((DefaultAddressedEnvelope<?, ?>) channel.readOutbound()).recipient());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 数据报只与发往同一地址的同类型消息合并
+     */
+    @Test
+    void coalesceDatagram() {
+        var channel = unwritableChannel(new OutboundHandler(UnwritablePolicy.COALESCE, 8, true));
+        var a1 = channel.write(envelope(TERMINAL_A));
+        var b = channel.write(envelope(TERMINAL_B));
+        var a2 = channel.write(envelope(TERMINAL_A));
+        assertFalse(a1.isSuccess());
+        assertTrue(a1.isDone());
+        assertFalse(b.isDone());
+        assertFalse(a2.isDone());
+
+        setWritable(channel, true);
+        channel.flush();
+        assertEquals(TERMINAL_B, ((DefaultAddressedEnvelope<?, ?>) channel.readOutbound()).recipient());
+        assertEquals(TERMINAL_A, ((DefaultAddressedEnvelope<?, ?>) channel.readOutbound()).recipient());
+        assertNull(channel.readOutbound());
+        assertTrue(b.isSuccess() && a2.isSuccess());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 同类型的消息只保留最新的一条
+     */
+    @Test
+    void coalesce() {
+        var channel = unwritableChannel(new OutboundHandler(UnwritablePolicy.COALESCE, 8));
+        var first = channel.write(message());
+        var last = message();
+        channel.write(last);
+        assertTrue(first.isDone() && !first.isSuccess());
+
+        setWritable(channel, true);
+        channel.flush();
+        assertSame(last, channel.readOutbound());
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    private static EmbeddedChannel unwritableChannel(OutboundHandler handler) {
+        var channel = new EmbeddedChannel(handler);
+        setWritable(channel, false);
+        return channel;
+    }
+
+    private static void setWritable(EmbeddedChannel channel, boolean writable) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+        channel.runPendingTasks();
+    }
+
+    private static PlatformGenericRespMessage_2013_2019 message() {
+        return new PlatformGenericRespMessage_2013_2019(Version.V2013);
+    }
+
+    private static DefaultAddressedEnvelope<Object, InetSocketAddress> envelope(InetSocketAddress recipient) {
+        return new DefaultAddressedEnvelope<>(message(), recipient);
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.jt808.server.adapter.netty;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.PlatformRetransmitRequestMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReassemblyHandlerTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    private static final int FIRST_SERIAL_NUM = 0x7e7d;
+
+    /**
+     * 位置基本信息：报警标志、状态、纬度、经度、高程、速度、方向、时间，分为 3 包
+     */
+    private static final byte[] BODY = ByteBufUtil.decodeHexDump("00000000" + "00000002" + "01c9c380" + "07270e00"
+            + "000a" + "0014" + "001e" + "231018120000");
+
+    private static final int[][] PARTS = {{0, 10}, {10, 20}, {20, 28}};
+
+    /**
+     * 2013 版本的消息头：起始符、消息 ID、消息体属性、终端手机号、消息流水号
+     */
+    private static final int HEADER_LENGTH_V2013 = 1 + 2 + 2 + 6 + 2;
+
+    /**
+     * 第一包计入预算的消息头与分包组开销
+     */
+    private static final int SET_LENGTH_V2013 = HEADER_LENGTH_V2013 + ReassemblyHandler.getSetOverhead(PARTS.length);
+
+    private final Frames.ManualTimer timer = new Frames.ManualTimer();
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    /**
+     * 乱序与重复的分包，重组为与不分包的帧逐字节相同的帧（含校验码）
+     */
+    @ParameterizedTest
+    @EnumSource(value = Version.class, names = {"V2013", "V2019"})
+    void outOfOrderAndDuplicate(Version version) {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(version, budget, 1);
+        write(channel, version, 3);
+        write(channel, version, 1);
+        write(channel, version, 1);
+        assertNull(channel.readInbound());
+        assertTrue(budget.getUsedBytes() > 0);
+        write(channel, version, 2);
+
+        ByteBufWrapper assembled = channel.readInbound();
+        assertNull(channel.readInbound());
+        assertEquals(Type.LOCATION_REPORT, assembled.getType());
+        var expected = Frames.frame(version, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, FIRST_SERIAL_NUM, 0, 0, BODY);
+        assertEquals(ByteBufUtil.hexDump(expected), ByteBufUtil.hexDump(assembled.getBuf()));
+        expected.release();
+        assembled.release();
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, timer.pending());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 重组帧经消息解码器解码为不分包的消息
+     */
+    @Test
+    void decode() {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(Version.V2013, budget, 1, new MessageDecoder());
+        write(channel, Version.V2013, 2);
+        write(channel, Version.V2013, 1);
+        write(channel, Version.V2013, 3);
+
+        Object msg = channel.readInbound();
+        assertInstanceOf(LocationReportMessage.class, msg);
+        var message = (LocationReportMessage) msg;
+        assertFalse(message.isPartial());
+        assertEquals(TERMINAL_PHONE, message.getTerminalPhone());
+        assertEquals(FIRST_SERIAL_NUM, message.getSerialNum());
+        assertEquals(BODY.length, message.getBodyLength());
+        assertEquals(2, message.getStatus());
+        assertEquals(30000000, message.getLatitude());
+        assertEquals(120000000, message.getLongitude());
+        assertEquals(10, message.getAltitude());
+        assertEquals(20, message.getSpeed());
+        assertEquals(30, message.getDirection());
+        ReferenceCountUtil.release(message);
+        assertEquals(0, budget.getUsedBytes());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 超出单个终端的预算时，分包视为未收到；复制的消息头与分包组开销同样计入预算，连接关闭时全部归还
+     */
+    @Test
+    void terminalBudget() {
+        var budget = new ReassemblyBudget(1 << 20, SET_LENGTH_V2013 + 20);
+        var channel = channel(Version.V2013, budget, 1);
+        write(channel, Version.V2013, 1);
+        assertEquals(SET_LENGTH_V2013 + 10, budget.getUsedBytes());
+        write(channel, Version.V2013, 2);
+        assertEquals(SET_LENGTH_V2013 + 20, budget.getUsedBytes());
+        write(channel, Version.V2013, 3);
+        assertEquals(SET_LENGTH_V2013 + 20, budget.getUsedBytes());
+        assertNull(channel.readInbound());
+
+        channel.close();
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    /**
+     * 全局预算由所有连接共享
+     */
+    @Test
+    void globalBudget() {
+        var budget = new ReassemblyBudget(SET_LENGTH_V2013 + 15, 1 << 16);
+        var channel1 = channel(Version.V2013, budget, 1);
+        var channel2 = channel(Version.V2013, budget, 1);
+        write(channel1, Version.V2013, 1);
+        assertEquals(SET_LENGTH_V2013 + 10, budget.getUsedBytes());
+        // 消息头与分包组开销也计入预算，第二个连接的第一包放不下
+        write(channel2, Version.V2013, 3);
+        write(channel1, Version.V2013, 2);
+        assertEquals(SET_LENGTH_V2013 + 10, budget.getUsedBytes());
+
+        channel1.close();
+        assertEquals(0, budget.getUsedBytes());
+        write(channel2, Version.V2013, 3);
+        assertEquals(SET_LENGTH_V2013 + 8, budget.getUsedBytes());
+        channel2.close();
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    /**
+     * 按分包总数分配的消息体数组计入预算，分包总数很大的第一包超出预算时被拒绝
+     */
+    @Test
+    void setOverheadBudget() {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(Version.V2013, budget, 1);
+        var frame = Frames.frame(Version.V2013, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, 1, 0xffff, 1, new byte[10]);
+        var wrapper = new ByteBufWrapper(Unpooled.copiedBuffer(frame));
+        wrapper.setType(Type.LOCATION_REPORT);
+        frame.release();
+        assertTrue(ReassemblyHandler.getSetOverhead(0xffff) > budget.getMaxBytesPerTerminal());
+        channel.writeInbound(wrapper);
+        assertEquals(0, wrapper.getBuf().refCnt());
+        assertNull(channel.readInbound());
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, timer.pending());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 同时重组的消息数达到上限时，新消息的分包被拒绝，已有的消息不受影响
+     */
+    @Test
+    void maxSets() {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(Version.V2013, budget, 1);
+        for (int serialNum = 0; serialNum < 3; serialNum++) {
+            var frame = Frames.frame(Version.V2013, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, serialNum * 10, 2, 1, new byte[10]);
+            var wrapper = new ByteBufWrapper(Unpooled.copiedBuffer(frame));
+            wrapper.setType(Type.LOCATION_REPORT);
+            frame.release();
+            channel.writeInbound(wrapper);
+        }
+        assertEquals(2, timer.pending());
+        assertEquals(2 * (HEADER_LENGTH_V2013 + ReassemblyHandler.getSetOverhead(2) + 10), budget.getUsedBytes());
+        write(channel, Version.V2013, 1);
+        assertNull(channel.readInbound());
+        assertEquals(2, timer.pending());
+
+        channel.close();
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    /**
+     * 超时后请求补传缺失的分包，补传次数用尽后丢弃
+     */
+    @ParameterizedTest
+    @EnumSource(value = Version.class, names = {"V2013", "V2019"})
+    void expire(Version version) throws Exception {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(version, budget, 1);
+        write(channel, version, 1);
+        write(channel, version, 3);
+        assertEquals(1, timer.pending());
+
+        timer.fire();
+        channel.runPendingTasks();
+        Object msg = channel.readOutbound();
+        assertInstanceOf(PlatformRetransmitRequestMessage.class, msg);
+        var request = (PlatformRetransmitRequestMessage) msg;
+        assertEquals(version, request.getVersion());
+        assertEquals(TERMINAL_PHONE, request.getTerminalPhone());
+        assertEquals(FIRST_SERIAL_NUM, request.getOriginalSerialNum());
+        assertEquals(Collections.singletonList(2), request.getPackageNums());
+        assertEquals(1, timer.pending());
+
+        timer.fire();
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+        assertEquals(0, budget.getUsedBytes());
+        assertEquals(0, timer.pending());
+
+        // 丢弃后迟到的分包重新开始重组
+        write(channel, version, 2);
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    /**
+     * 2011 版本没有补传请求，超时后直接丢弃
+     */
+    @Test
+    void expireV2011() throws Exception {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(Version.V2011, budget, 1);
+        write(channel, Version.V2011, 2);
+        timer.fire();
+        channel.runPendingTasks();
+        assertNull(channel.readOutbound());
+        assertEquals(0, budget.getUsedBytes());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void invalidPackage() {
+        var budget = new ReassemblyBudget(1 << 20, 1 << 16);
+        var channel = channel(Version.V2013, budget, 1);
+        var wrapper = new ByteBufWrapper(Frames.frame(Version.V2013, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, 1, 3, 4, BODY));
+        wrapper.setType(Type.LOCATION_REPORT);
+        channel.writeInbound(wrapper);
+        ByteBufWrapper discarded = channel.readInbound();
+        assertTrue(discarded.isDiscard());
+        discarded.release();
+        assertEquals(0, budget.getUsedBytes());
+    }
+
+    private EmbeddedChannel channel(Version version, ReassemblyBudget budget, int maxRetries, ChannelHandler... handlers) {
+        var channel = new EmbeddedChannel(new ReassemblyHandler(budget, timer, 0, maxRetries, 2));
+        channel.pipeline().addLast(handlers);
+        var session = ChannelAttrUtils.getSession(channel.pipeline().firstContext());
+        session.setVersion(version);
+        session.setTerminalPhone(TERMINAL_PHONE, null);
+        return channel;
+    }
+
+    /**
+     * 写入第 {@code num} 包，消息流水号为第一包的流水号加分包序号减 1；
+     * 帧位于刚好容纳它的缓冲区中，避免触发复制
+     */
+    private static void write(EmbeddedChannel channel, Version version, int num) {
+        var part = Arrays.copyOfRange(BODY, PARTS[num - 1][0], PARTS[num - 1][1]);
+        var frame = Frames.frame(version, Type.LOCATION_REPORT.getValue(), TERMINAL_PHONE, (FIRST_SERIAL_NUM + num - 1) & 0xffff,
+                PARTS.length, num, part);
+        ByteBuf buf = Unpooled.copiedBuffer(frame);
+        frame.release();
+        var wrapper = new ByteBufWrapper(buf);
+        wrapper.setType(Type.LOCATION_REPORT);
+        channel.writeInbound(wrapper);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    /**
+     * 线程退出后，其记录器并入汇总，指标不变
+     */
+    @Test
+    void retireRecorderOnThreadExit() throws Exception {
+        var metrics = new PipelineMetrics();
+        var registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+        var threadFactory = new DefaultThreadFactory("pipeline-metrics-test");
+        for (int i = 0; i < 3; i++) {
+            var thread = threadFactory.newThread(() -> {
+                long start = metrics.start();
+                metrics.recordFramesPerRead(2);
+                metrics.recordFrameBytes(100);
+                metrics.stop(PipelineMetrics.Stage.FRAME_DECODER, start);
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(1, metrics.getRecorderCount());
+        var handler = registry.get("its.jt808.pipeline.handler").tag("stage", "frame-decoder").functionTimer();
+        assertEquals(3, handler.count());
+        assertEquals(3, registry.get("its.jt808.pipeline.reads").functionCounter().count());
+        assertEquals(300, registry.get("its.jt808.pipeline.frame.bytes").functionCounter().count());
+        assertEquals(2, registry.get("its.jt808.pipeline.read.frames.max").gauge().value());
+    }
+}
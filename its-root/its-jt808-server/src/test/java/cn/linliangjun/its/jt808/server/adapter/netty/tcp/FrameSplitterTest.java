@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty.tcp;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.ByteBufWrapper;
+import cn.linliangjun.its.jt808.server.adapter.netty.Frames;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameSplitterTest {
+
+    private static final int MAX_FRAME_LENGTH = 64;
+
+    /**
+     * 切片与入站缓冲区共享引用计数，下游释放切片后入站缓冲区随之释放
+     */
+    @Test
+    void sliceLifetime() {
+        var in = wire(0);
+        var channel = new EmbeddedChannel(new FrameSplitter(MAX_FRAME_LENGTH, FrameSplitter.Mode.SLICE));
+        channel.writeInbound(in);
+        ByteBufWrapper wrapper = channel.readInbound();
+        assertFalse(wrapper.isDiscard());
+        assertSame(in, wrapper.getBuf().unwrap());
+        assertEquals(1, in.refCnt());
+        wrapper.release();
+        assertEquals(0, in.refCnt());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void multipleFramesInOneRead() {
+        var frames = new ArrayList<ByteBuf>();
+        var in = Unpooled.buffer();
+        for (int i = 0; i < 3; i++) {
+            var frame = wire(i);
+            frames.add(frame.copy());
+            in.writeBytes(frame);
+            frame.release();
+        }
+        var channel = new EmbeddedChannel(new FrameSplitter(MAX_FRAME_LENGTH, FrameSplitter.Mode.SLICE));
+        channel.writeInbound(in);
+        for (var frame : frames) {
+            ByteBufWrapper wrapper = channel.readInbound();
+            assertFalse(wrapper.isDiscard(), wrapper::getDiscardCause);
+            assertEquals(ByteBufUtil.hexDump(frame), ByteBufUtil.hexDump(wrapper.getBuf()));
+            wrapper.release();
+            frame.release();
+        }
+        assertNull(channel.readInbound());
+        assertEquals(0, in.refCnt());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 以随机位置切分的数据流（含半包、溢出、过短的帧），两种模式的输出逐字节相同
+     */
+    @Test
+    void sliceMatchesCopy() {
+        var stream = Unpooled.buffer();
+        for (int i = 0; i < 50; i++) {
+            var frame = wire(i);
+            stream.writeBytes(frame);
+            frame.release();
+            if (i % 7 == 0) {
+                stream.writeBytes(new byte[]{0x7e, 0x01, 0x02, 0x7e});
+            }
+            if (i % 11 == 0) {
+                stream.writeByte(0x7e).writeZero(MAX_FRAME_LENGTH).writeByte(0x7e);
+            }
+        }
+        var random = new Random(808);
+        var chunks = new ArrayList<Integer>();
+        for (int remaining = stream.readableBytes(); remaining > 0; ) {
+            int len = Math.min(remaining, 1 + random.nextInt(48));
+            chunks.add(len);
+            remaining -= len;
+        }
+        var copy = split(FrameSplitter.Mode.COPY, stream, chunks);
+        var slice = split(FrameSplitter.Mode.SLICE, stream, chunks);
+        stream.release();
+        assertEquals(copy, slice);
+        assertTrue(copy.size() > 50);
+    }
+
+    /**
+     * 以指定的块长度依次入站，返回输出的帧（十六进制，丢弃的帧附带原因）
+     */
+    private static List<String> split(FrameSplitter.Mode mode, ByteBuf stream, List<Integer> chunks) {
+        var channel = new EmbeddedChannel(new FrameSplitter(MAX_FRAME_LENGTH, mode));
+        int index = stream.readerIndex();
+        for (int len : chunks) {
+            channel.writeInbound(stream.copy(index, len));
+            index += len;
+        }
+        var frames = new ArrayList<String>();
+        ByteBufWrapper wrapper;
+        while ((wrapper = channel.readInbound()) != null) {
+            var hex = ByteBufUtil.hexDump(wrapper.getBuf());
+            frames.add(wrapper.isDiscard() ? wrapper.getDiscardCause() + ":" + hex : hex);
+            wrapper.release();
+        }
+        assertFalse(channel.finish());
+        return frames;
+    }
+
+    /**
+     * 转义后的帧，序号不同则消息体不同，部分包含转义
+     */
+    private static ByteBuf wire(int serial) {
+        var body = new byte[serial % 5];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) (0x7c + i + serial);
+        }
+        var frame = Frames.frame(Version.V2013, Type.LOCATION_REPORT.getValue(), 13912345678L, serial, 0, 0, body);
+        var escaped = Frames.escape(frame);
+        frame.release();
+        return escaped;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.adapter.netty.udp;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.ByteBufWrapper;
+import cn.linliangjun.its.jt808.server.adapter.netty.Frames;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import lombok.var;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatagramAccessHandlerTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    /**
+     * 鉴权码 "123456"
+     */
+    private static final byte[] AUTH_BODY = ByteBufUtil.decodeHexDump("313233343536");
+
+    private static final InetSocketAddress RECIPIENT = new InetSocketAddress("127.0.0.1", 6808);
+
+    private static final InetSocketAddress SENDER = new InetSocketAddress("127.0.0.1", 10001);
+
+    private static final InetSocketAddress OTHER_SENDER = new InetSocketAddress("127.0.0.1", 10002);
+
+    private SessionRegistry registry;
+
+    private EmbeddedChannel channel;
+
+    @BeforeAll
+    static void init() throws Exception {
+        Frames.loadDefinitions();
+    }
+
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry();
+        channel = new EmbeddedChannel(new DatagramDecoder(1024), new DatagramAccessHandler(registry));
+    }
+
+    /**
+     * 没有会话的终端发送注册与鉴权以外的数据报，丢弃且不创建会话
+     */
+    @Test
+    void noSessionBeforeEnroll() {
+        var wrapper = writeHeartbeat(SENDER);
+        assertTrue(wrapper.isDiscard());
+        assertEquals("终端未鉴权", wrapper.getDiscardCause());
+        assertEquals(0, registry.size());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void authCreatesSession() {
+        var wrapper = writeAuth(SENDER);
+        assertFalse(wrapper.isDiscard());
+        var session = registry.get(TERMINAL_PHONE);
+        assertNotNull(session);
+        assertSame(session, wrapper.getSession());
+        assertTrue(session.isDatagram());
+        assertEquals(SENDER, session.getRemoteAddress());
+        assertTrue(writeHeartbeat(SENDER).isDiscard());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 未鉴权的会话随注册与鉴权数据报更新地址，其他数据报不改变地址
+     */
+    @Test
+    void addressBeforeLogin() {
+        writeAuth(SENDER);
+        var session = registry.get(TERMINAL_PHONE);
+        writeHeartbeat(OTHER_SENDER);
+        assertEquals(SENDER, session.getRemoteAddress());
+        writeAuth(OTHER_SENDER);
+        assertEquals(OTHER_SENDER, session.getRemoteAddress());
+        assertFalse(channel.finish());
+    }
+
+    /**
+     * 已鉴权的会话只在重新鉴权通过后更新地址
+     */
+    @Test
+    void addressAfterLogin() {
+        writeAuth(SENDER);
+        var session = registry.get(TERMINAL_PHONE);
+        session.setLogin(true);
+
+        var wrapper = writeHeartbeat(OTHER_SENDER);
+        assertFalse(wrapper.isDiscard());
+        assertSame(session, wrapper.getSession());
+        assertEquals(SENDER, session.getRemoteAddress());
+
+        writeAuth(OTHER_SENDER);
+        assertEquals(SENDER, session.getRemoteAddress());
+        session.setLogin(true);
+        assertEquals(OTHER_SENDER, session.getRemoteAddress());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void channelInactive() {
+        writeAuth(SENDER);
+        var session = registry.get(TERMINAL_PHONE);
+        channel.close();
+        assertEquals(0, registry.size());
+        assertFalse(session.isActive());
+    }
+
+    private ByteBufWrapper writeAuth(InetSocketAddress sender) {
+        return write(Type.TERMINAL_AUTH, 1, AUTH_BODY, sender);
+    }
+
+    private ByteBufWrapper writeHeartbeat(InetSocketAddress sender) {
+        return write(Type.TERMINAL_HEARTBEAT, 2, new byte[0], sender);
+    }
+
+    private ByteBufWrapper write(Type type, int serialNum, byte[] body, InetSocketAddress sender) {
+        var frame = Frames.frame(Version.V2013, type.getValue(), TERMINAL_PHONE, serialNum, 0, 0, body);
+        var escaped = Frames.escape(frame);
+        frame.release();
+        channel.writeInbound(new DatagramPacket(escaped, RECIPIENT, sender));
+        ByteBufWrapper wrapper = channel.readInbound();
+        assertEquals(type, wrapper.getType());
+        wrapper.release();
+        return wrapper;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.dispatch;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import cn.linliangjun.its.jt808.protocol.message.TerminalAuthMessage;
+import cn.linliangjun.its.jt808.protocol.message.TerminalHeartbeatMessage;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.handler.annotation.Header;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static cn.linliangjun.its.jt808.server.dispatch.MessageDispatcher.REQUEST_CHANNEL_PREFIX;
+import static cn.linliangjun.its.jt808.server.dispatch.MessageDispatcher.RESPONSE_CHANNEL;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageDispatcherTest {
+
+    /**
+     * 参数顺序与 (ctx, message) 不同的端点经重排后调用，返回值写入连接；没有输出通道的端点返回值被丢弃
+     */
+    @Test
+    void dispatch() {
+        try (var context = new AnnotationConfigApplicationContext(Endpoints.class, MessageDispatcher.class)) {
+            var dispatcher = context.getBean(MessageDispatcher.class);
+            var endpoints = context.getBean(Endpoints.class);
+            var channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+            var ctx = channel.pipeline().firstContext();
+
+            var heartbeat = new TerminalHeartbeatMessage(Version.V2013);
+            dispatcher.dispatch(ctx, heartbeat);
+            assertEquals(1, endpoints.invocations.size());
+            assertSame(ctx, endpoints.invocations.get(0)[0]);
+            assertSame(heartbeat, endpoints.invocations.get(0)[1]);
+            assertEquals("heartbeat", channel.readOutbound());
+
+            var location = new LocationReportMessage(Version.V2013);
+            dispatcher.dispatch(ctx, location);
+            assertEquals(2, endpoints.invocations.size());
+            assertSame(location, endpoints.invocations.get(1)[1]);
+            assertNull(channel.readOutbound());
+
+            // 没有端点的消息类型
+            dispatcher.dispatch(ctx, new TerminalAuthMessage.TerminalAuthMessage_2011_2013(Version.V2013));
+            assertEquals(2, endpoints.invocations.size());
+            assertNull(channel.readOutbound());
+            assertFalse(channel.finish());
+        }
+    }
+
+    /**
+     * 同一消息类型存在多个端点时启动失败
+     */
+    @Test
+    void duplicateEndpoint() {
+        var e = assertThrows(IllegalStateException.class,
+                () -> new AnnotationConfigApplicationContext(Endpoints.class, DuplicateEndpoints.class, MessageDispatcher.class).close());
+        assertTrue(e.getMessage().contains("0x0002"), e.getMessage());
+    }
+
+    @MessageEndpoint
+    static class Endpoints {
+
+        private final List<Object[]> invocations = new ArrayList<>();
+
+        @ServiceActivator(inputChannel = REQUEST_CHANNEL_PREFIX + "0x0002", outputChannel = RESPONSE_CHANNEL)
+        public String heartbeat(TerminalHeartbeatMessage message, @Header("ctx") ChannelHandlerContext ctx) {
+            invocations.add(new Object[]{ctx, message});
+            return "heartbeat";
+        }
+
+        @ServiceActivator(inputChannel = REQUEST_CHANNEL_PREFIX + "0x0200")
+        public Jt808Message location(LocationReportMessage message) {
+            invocations.add(new Object[]{null, message});
+            return message;
+        }
+    }
+
+    @MessageEndpoint
+    static class DuplicateEndpoints {
+
+        @ServiceActivator(inputChannel = REQUEST_CHANNEL_PREFIX + "0x0002")
+        public void heartbeat(TerminalHeartbeatMessage message) {
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.dispatch;
+
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedExecutorTest {
+
+    @Test
+    void discard() throws Exception {
+        var executor = new StripedExecutor(1, 1, Jt808ServerProperties.OverflowPolicy.DISCARD, false);
+        var latch = new CountDownLatch(1);
+        assertTrue(executor.execute(1, () -> await(latch)));
+        waitUntil(() -> executor.getQueuedCount() == 0);
+        assertTrue(executor.execute(1, () -> {
+        }));
+        assertFalse(executor.execute(1, () -> {
+        }));
+        latch.countDown();
+        executor.shutdown();
+    }
+
+    /**
+     * BLOCK 策略下等待入队时执行器关闭：任务要么被执行，要么被拒绝，不会滞留在队列中
+     */
+    @Test
+    void blockDuringShutdown() throws Exception {
+        var executor = new StripedExecutor(1, 1, Jt808ServerProperties.OverflowPolicy.BLOCK, false);
+        var latch = new CountDownLatch(1);
+        assertTrue(executor.execute(1, () -> await(latch)));
+        waitUntil(() -> executor.getQueuedCount() == 0);
+        assertTrue(executor.execute(1, () -> {
+        }));
+
+        var ran = new AtomicBoolean();
+        var accepted = new AtomicBoolean();
+        var submitter = new Thread(() -> accepted.set(executor.execute(1, () -> ran.set(true))));
+        submitter.start();
+        waitUntil(() -> submitter.getState() == Thread.State.WAITING);
+        executor.shutdown();
+        latch.countDown();
+        submitter.join(5000);
+        assertFalse(submitter.isAlive());
+
+        if (accepted.get()) {
+            waitUntil(ran::get);
+        } else {
+            Thread.sleep(100);
+            assertFalse(ran.get());
+        }
+        assertEquals(0, executor.getQueuedCount());
+    }
+
+    @Test
+    void rejectAfterShutdown() {
+        var executor = new StripedExecutor(2, 1, Jt808ServerProperties.OverflowPolicy.BLOCK, false);
+        executor.shutdown();
+        assertFalse(executor.execute(1, () -> {
+        }));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "等待超时");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.downlink;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import cn.linliangjun.its.jt808.protocol.message.TerminalGenericRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.TerminalRegisterRespMessage;
+import cn.linliangjun.its.jt808.protocol.message.Type;
+import cn.linliangjun.its.jt808.server.adapter.netty.Frames;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import cn.linliangjun.its.jt808.server.session.Session;
+import cn.linliangjun.its.jt808.server.session.SessionRegistry;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownlinkServiceTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    private final SessionRegistry sessionRegistry = new SessionRegistry();
+
+    private final Frames.ManualTimer timer = new Frames.ManualTimer();
+
+    private final DownlinkService service = new DownlinkService(sessionRegistry, timer, new Jt808ServerProperties());
+
+    @Test
+    void respond() {
+        var channel = new EmbeddedChannel();
+        register(channel);
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        assertFalse(future.isDone());
+        assertEquals(1, service.getPendingCount());
+        assertEquals(1, timer.pending());
+        Jt808Message message = channel.readOutbound();
+        assertEquals(TERMINAL_PHONE, message.getTerminalPhone());
+
+        assertTrue(service.complete(createResp(message.getSerialNum())));
+        assertEquals(TerminalGenericRespMessage.Result.SUCCESS_ACK, future.getNow(null));
+        assertEquals(0, service.getPendingCount());
+        assertEquals(0, timer.pending());
+        // 重复的应答
+        assertFalse(service.complete(createResp(message.getSerialNum())));
+    }
+
+    @Test
+    void timeout() throws Exception {
+        var channel = new EmbeddedChannel();
+        register(channel);
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        Jt808Message message = channel.readOutbound();
+        timer.fire();
+        assertCause(TimeoutException.class, future);
+        assertEquals(0, service.getPendingCount());
+        // 超时之后的应答
+        assertFalse(service.complete(createResp(message.getSerialNum())));
+    }
+
+    @Test
+    void writeFailure() {
+        var channel = new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                promise.setFailure(new IOException("写出失败"));
+            }
+        });
+        register(channel);
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        assertCause(DownlinkException.class, future);
+        assertEquals(0, service.getPendingCount());
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void cancel() {
+        var channel = new EmbeddedChannel();
+        register(channel);
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        Jt808Message message = channel.readOutbound();
+        assertTrue(future.cancel(false));
+        assertEquals(0, service.getPendingCount());
+        assertEquals(0, timer.pending());
+        assertFalse(service.complete(createResp(message.getSerialNum())));
+        assertThrows(CancellationException.class, () -> future.getNow(null));
+    }
+
+    @Test
+    void offline() {
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        assertCause(DownlinkException.class, future);
+        var channel = new EmbeddedChannel();
+        register(channel);
+        channel.close();
+        assertCause(DownlinkException.class, service.send(TERMINAL_PHONE, createMessage()));
+        assertEquals(0, service.getPendingCount());
+        assertEquals(0, timer.pending());
+    }
+
+    /**
+     * 超时任务在指令登记到表中之前已执行时，指令仍以超时完成，不会遗留在表中
+     */
+    @Test
+    void timeoutBeforePublish() {
+        var expiringTimer = new Timer() {
+            @Override
+            public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+                var timeout = timer.newTimeout(task, delay, unit);
+                try {
+                    timer.fire();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return timeout;
+            }
+
+            @Override
+            public Set<Timeout> stop() {
+                return timer.stop();
+            }
+        };
+        var service = new DownlinkService(sessionRegistry, expiringTimer, new Jt808ServerProperties());
+        var channel = new EmbeddedChannel();
+        register(channel);
+        var future = service.send(TERMINAL_PHONE, createMessage());
+        assertCause(TimeoutException.class, future);
+        assertEquals(0, service.getPendingCount());
+        assertNull(channel.readOutbound());
+    }
+
+    /**
+     * 登记超时的同时收到应答：指令尚未发布，应答不会完成指令并遗留超时任务
+     */
+    @Test
+    void respondWhileSchedulingTimeout() {
+        var message = createMessage();
+        var completed = new boolean[1];
+        var service = new DownlinkService[1];
+        var respondingTimer = new Timer() {
+            @Override
+            public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+                completed[0] = service[0].complete(createResp(message.getSerialNum()));
+                return timer.newTimeout(task, delay, unit);
+            }
+
+            @Override
+            public Set<Timeout> stop() {
+                return timer.stop();
+            }
+        };
+        service[0] = new DownlinkService(sessionRegistry, respondingTimer, new Jt808ServerProperties());
+        var channel = new EmbeddedChannel();
+        register(channel);
+        var future = service[0].send(TERMINAL_PHONE, message);
+        assertFalse(completed[0]);
+        assertFalse(future.isDone());
+        assertEquals(1, timer.pending());
+        assertTrue(service[0].complete(createResp(message.getSerialNum())));
+        assertTrue(future.isDone());
+        assertEquals(0, timer.pending());
+    }
+
+    private void register(EmbeddedChannel channel) {
+        var session = new Session(channel);
+        session.setTerminalPhone(TERMINAL_PHONE, null);
+        session.setLogin(true);
+        sessionRegistry.bind(session);
+    }
+
+    private static TerminalRegisterRespMessage createMessage() {
+        var message = new TerminalRegisterRespMessage(Version.V2013);
+        message.setRespSerialNum(1);
+        message.setResult(TerminalRegisterRespMessage.Result.SUCCESS);
+        message.setAuthKey("a1b2c3d4e5f6");
+        return message;
+    }
+
+    private static TerminalGenericRespMessage createResp(int respSerialNum) {
+        var message = new TerminalGenericRespMessage(Version.V2013);
+        message.setTerminalPhone(TERMINAL_PHONE);
+        message.setRespSerialNum(respSerialNum);
+        message.setRespType(Type.TERMINAL_REGISTER_RESP);
+        message.setResult(TerminalGenericRespMessage.Result.SUCCESS_ACK);
+        return message;
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, CompletableFuture<?> future) {
+        assertTrue(future.isDone());
+        var e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(expected, e.getCause());
+    }
+}
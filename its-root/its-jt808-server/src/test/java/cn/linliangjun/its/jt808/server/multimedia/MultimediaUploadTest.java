@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.multimedia;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultimediaUploadTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 分包按序号顺序到达，临时文件直接重命名为多媒体文件
+     */
+    @Test
+    void ordered() throws IOException {
+        var upload = MultimediaUpload.create(directory, 3);
+        write(upload, 1, 2, 3);
+        assertTrue(upload.isComplete());
+        assertEquals(packages(1, 2, 3).length, upload.getDataLength());
+
+        var target = directory.resolve("13912345678").resolve("1.jpg");
+        assertEquals(target, upload.complete(target));
+        assertArrayEquals(packages(1, 2, 3), Files.readAllBytes(target));
+        assertEquals(0, tempFileCount());
+    }
+
+    /**
+     * 分包乱序到达，按分包序号整理到多媒体文件
+     */
+    @Test
+    void unordered() throws IOException {
+        var upload = MultimediaUpload.create(directory, 4);
+        write(upload, 3, 1, 4, 2);
+        var target = directory.resolve("1.jpg");
+        upload.complete(target);
+        assertArrayEquals(packages(1, 2, 3, 4), Files.readAllBytes(target));
+        assertEquals(0, tempFileCount());
+    }
+
+    /**
+     * 临时文件被截断时，整理无进展，抛出异常而不是一直重试
+     */
+    @Test
+    void truncated() throws IOException {
+        var upload = MultimediaUpload.create(directory, 2);
+        write(upload, 2, 1);
+        try (Stream<Path> files = Files.list(directory);
+             var channel = FileChannel.open(files.findFirst().orElseThrow(IllegalStateException::new), StandardOpenOption.WRITE)) {
+            channel.truncate(data(2).length);
+        }
+        assertThrows(IOException.class, () -> upload.complete(directory.resolve("1.jpg")));
+        assertEquals(0, tempFileCount());
+    }
+
+    @Test
+    void missingNums() throws IOException {
+        var upload = MultimediaUpload.create(directory, 6);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), upload.getMissingNums(Integer.MAX_VALUE));
+        write(upload, 2, 5);
+        assertTrue(upload.isReceived(2));
+        assertFalse(upload.isReceived(1));
+        assertEquals(2, upload.getReceivedCount());
+        assertEquals(Arrays.asList(1, 3, 4, 6), upload.getMissingNums(Integer.MAX_VALUE));
+        assertEquals(Arrays.asList(1, 3), upload.getMissingNums(2));
+        assertThrows(IllegalStateException.class, () -> upload.complete(directory.resolve("1.jpg")));
+        upload.close();
+    }
+
+    /**
+     * 放弃上传时删除临时文件
+     */
+    @Test
+    void close() throws IOException {
+        var upload = MultimediaUpload.create(directory, 2);
+        write(upload, 1);
+        assertEquals(1, tempFileCount());
+        upload.close();
+        assertEquals(0, tempFileCount());
+    }
+
+    private static void write(MultimediaUpload upload, int... nums) throws IOException {
+        for (var num : nums) {
+            var data = data(num);
+            // 数据位于缓冲区中间，写入不应改变读写索引
+            ByteBuf buf = Unpooled.directBuffer().writeZero(3).writeBytes(data).writeZero(2);
+            upload.write(num, buf, 3, data.length);
+            assertEquals(3 + data.length + 2, buf.readableBytes());
+            buf.release();
+        }
+    }
+
+    /**
+     * 第 {@code num} 包的多媒体数据，各包长度不同
+     */
+    private static byte[] data(int num) {
+        var data = new byte[100 * num + 7];
+        Arrays.fill(data, (byte) num);
+        return data;
+    }
+
+    private static byte[] packages(int... nums) {
+        var out = new ByteArrayOutputStream();
+        for (var num : nums) {
+            var data = data(num);
+            out.write(data, 0, data.length);
+        }
+        return out.toByteArray();
+    }
+
+    private long tempFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".part")).count();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.session;
+
+import cn.linliangjun.its.jt808.server.adapter.netty.Frames;
+import cn.linliangjun.its.jt808.server.configure.Jt808ServerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionReaperTest {
+
+    private final SessionRegistry sessionRegistry = new SessionRegistry();
+
+    private final Frames.ManualTimer timer = new Frames.ManualTimer();
+
+    private final Jt808ServerProperties properties = new Jt808ServerProperties();
+
+    private final SessionReaper reaper = new SessionReaper(sessionRegistry, timer, properties);
+
+    /**
+     * 定时清理关闭并移除空闲超时的会话，保留仍有数据的会话，之后继续调度
+     */
+    @Test
+    void sweepIdleSessions() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        reaper.bindTo(registry);
+        long now = System.currentTimeMillis();
+        long idleTimeout = properties.getIdleTimeout().toMillis();
+        var idle = createSession(13900000001L, now - idleTimeout - 1000);
+        var active = createSession(13900000002L, now);
+        var udp = new Session(new EmbeddedChannel(), 13900000003L, null, null);
+        udp.touch(now - idleTimeout - 1000);
+        sessionRegistry.register(udp);
+
+        reaper.init();
+        assertEquals(1, timer.pending());
+        timer.fire();
+        assertFalse(idle.getChannel().isActive());
+        assertFalse(udp.isActive());
+        assertNull(sessionRegistry.get(13900000001L));
+        assertNull(sessionRegistry.get(13900000003L));
+        assertTrue(active.isActive());
+        assertSame(active, sessionRegistry.get(13900000002L));
+        assertEquals(2, registry.get("its.jt808.reaper.closed").tag("cause", "idle-timeout").functionCounter().count());
+
+        // 继续调度下一次清理，停止后不再调度
+        assertEquals(1, timer.pending());
+        reaper.destroy();
+        timer.fire();
+        assertEquals(0, timer.pending());
+    }
+
+    @Test
+    void authTimeout() throws Exception {
+        long now = System.currentTimeMillis();
+        var unauthenticated = createSession(13900000001L, now);
+        var authenticated = createSession(13900000002L, now);
+        authenticated.setLogin(true);
+        reaper.watch(unauthenticated);
+        reaper.watch(authenticated);
+        assertEquals(2, timer.pending());
+
+        timer.fire();
+        assertFalse(unauthenticated.isActive());
+        assertNull(sessionRegistry.get(13900000001L));
+        assertTrue(authenticated.isActive());
+        assertSame(authenticated, sessionRegistry.get(13900000002L));
+    }
+
+    private Session createSession(long terminalPhone, long lastReadTime) {
+        var session = new Session(new EmbeddedChannel());
+        session.setTerminalPhone(terminalPhone, null);
+        session.touch(lastReadTime);
+        assertTrue(sessionRegistry.register(session));
+        return session;
+    }
+}
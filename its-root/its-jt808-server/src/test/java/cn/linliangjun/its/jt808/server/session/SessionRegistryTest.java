@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.session;
+
+import cn.linliangjun.its.jt808.protocol.message.Jt808Message;
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRegistryTest {
+
+    private static final long TERMINAL_PHONE = 13912345678L;
+
+    /**
+     * 超出 long 表示范围的终端手机号（20 位）
+     */
+    private static final String OVERSIZED_TERMINAL_PHONE = "98765432109876543210";
+
+    private final SessionRegistry registry = new SessionRegistry();
+
+    @Test
+    void registerBindAndRemove() {
+        var session = createSession(TERMINAL_PHONE, null);
+        assertTrue(registry.register(session));
+        assertSame(session, registry.get(TERMINAL_PHONE));
+        assertEquals(1, registry.size());
+
+        // 重复登记、绑定同一会话
+        assertTrue(registry.register(session));
+        session.setLogin(true);
+        assertNull(registry.bind(session));
+        assertEquals(1, registry.size());
+
+        var collected = new ArrayList<Session>();
+        registry.forEach(collected::add);
+        assertEquals(1, collected.size());
+        assertSame(session, collected.get(0));
+
+        assertTrue(registry.remove(session));
+        assertFalse(registry.remove(session));
+        assertNull(registry.get(TERMINAL_PHONE));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void unknownTerminalPhone() {
+        var session = new Session(new EmbeddedChannel());
+        assertThrows(IllegalArgumentException.class, () -> registry.register(session));
+        assertThrows(IllegalArgumentException.class, () -> registry.bind(session));
+        assertFalse(registry.remove(session));
+        assertNull(registry.get(Session.UNKNOWN_TERMINAL_PHONE));
+    }
+
+    /**
+     * 注册不顶替已鉴权且可用的会话，鉴权（绑定）则顶替旧会话；旧会话关闭时不会移除新会话
+     */
+    @Test
+    void replaceBinding() {
+        var old = createSession(TERMINAL_PHONE, null);
+        assertTrue(registry.register(old));
+        var unauthenticated = createSession(TERMINAL_PHONE, null);
+        // 旧会话未鉴权，可被顶替
+        assertTrue(registry.register(unauthenticated));
+        assertSame(unauthenticated, registry.get(TERMINAL_PHONE));
+
+        unauthenticated.setLogin(true);
+        var session = createSession(TERMINAL_PHONE, null);
+        assertFalse(registry.register(session));
+        assertSame(unauthenticated, registry.get(TERMINAL_PHONE));
+
+        session.setLogin(true);
+        assertSame(unauthenticated, registry.bind(session));
+        assertSame(session, registry.get(TERMINAL_PHONE));
+        assertFalse(registry.remove(unauthenticated));
+        assertFalse(registry.remove(old));
+        assertSame(session, registry.get(TERMINAL_PHONE));
+
+        // 已鉴权的会话失效后可被顶替
+        session.getChannel().close();
+        var next = createSession(TERMINAL_PHONE, null);
+        assertTrue(registry.register(next));
+        assertSame(next, registry.get(TERMINAL_PHONE));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void leadingZeros() {
+        var session = createSession(TERMINAL_PHONE, null);
+        registry.register(session);
+        assertSame(session, registry.get("13912345678"));
+        assertSame(session, registry.get("013912345678"));
+        assertSame(session, registry.get("00000013912345678"));
+        assertNull(registry.get("1391234567"));
+        assertNull(registry.get(""));
+        assertNull(registry.get("0139-1234567"));
+        assertNull(registry.get("0"));
+    }
+
+    @Test
+    void oversizedTerminalPhone() {
+        var session = createSession(Jt808Message.OVERSIZED_TERMINAL_PHONE, OVERSIZED_TERMINAL_PHONE);
+        assertTrue(registry.register(session));
+        assertSame(session, registry.get(OVERSIZED_TERMINAL_PHONE));
+        assertSame(session, registry.get("00" + OVERSIZED_TERMINAL_PHONE));
+        assertNull(registry.get(Jt808Message.OVERSIZED_TERMINAL_PHONE));
+        assertEquals(1, registry.size());
+
+        session.setLogin(true);
+        var next = createSession(Jt808Message.OVERSIZED_TERMINAL_PHONE, OVERSIZED_TERMINAL_PHONE);
+        assertFalse(registry.register(next));
+        assertSame(session, registry.bind(next));
+        assertFalse(registry.remove(session));
+        assertTrue(registry.remove(next));
+        assertNull(registry.get(OVERSIZED_TERMINAL_PHONE));
+        assertEquals(0, registry.size());
+    }
+
+    private static Session createSession(long terminalPhone, String terminalPhoneNum) {
+        var session = new Session(new EmbeddedChannel());
+        assertTrue(session.setTerminalPhone(terminalPhone, terminalPhoneNum));
+        return session;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationLogTest {
+
+    private static final long TERMINAL_A = 13912345678L;
+
+    private static final long TERMINAL_B = 13800000000L;
+
+    private static final long TIME = 1_700_000_000_000L;
+
+    /**
+     * 每个段容纳的记录数
+     */
+    private static final int SEGMENT_RECORDS = 10;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 按时间范围读取跨越多个块与多个段，终端上报的时间不单调，结果与逐条过滤相同且按写入顺序
+     */
+    @Test
+    void readTimeRange() throws Exception {
+        var log = newLocationLog(SEGMENT_RECORDS);
+        var expected = new ArrayList<Integer>();
+        long from = TIME + 5_000, to = TIME + 12_000;
+        int count = 0;
+        for (int i = 0; i < 60; i++) {
+            long time = TIME + (i * 7 % 30) * 1000L;
+            append(log, message(TERMINAL_A, i, time));
+            count++;
+            if (time >= from && time <= to) {
+                expected.add(i);
+            }
+            if (i % 2 == 0) {
+                append(log, message(TERMINAL_B, -i, time));
+                count++;
+            }
+        }
+        awaitEndSequence(log, count);
+
+        var actual = new ArrayList<Integer>();
+        long[] lastSequence = {-1};
+        assertEquals(expected.size(), log.read(TERMINAL_A, from, to, record -> {
+            assertEquals(TERMINAL_A, record.getTerminalPhone());
+            assertTrue(record.getSequence() > lastSequence[0]);
+            lastSequence[0] = record.getSequence();
+            actual.add(record.getLatitude());
+        }));
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), log.read(Long.toString(TERMINAL_A), from, to, record -> {
+        }));
+        assertEquals(30, log.read(TERMINAL_B, TIME, TIME + 30_000, record -> assertTrue(record.getLatitude() <= 0)));
+        assertEquals(0, log.read(TERMINAL_A, TIME + 30_000, Long.MAX_VALUE, record -> fail()));
+        log.close();
+    }
+
+    /**
+     * 写线程运行时追踪，按序号顺序读到全部记录，不重复、不遗漏
+     */
+    @Test
+    void tail() throws Exception {
+        var log = newLocationLog(1000);
+        int count = 20_000;
+        var appender = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                append(log, message(TERMINAL_A, i, TIME + i));
+            }
+        });
+        appender.start();
+
+        var tailer = log.tail(0);
+        int[] next = {0};
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (next[0] < count && System.nanoTime() < deadline) {
+            tailer.poll(256, record -> {
+                assertEquals(next[0], record.getSequence());
+                assertEquals(next[0], record.getLatitude());
+                next[0]++;
+            });
+        }
+        appender.join();
+        assertEquals(count, next[0]);
+        assertEquals(count, tailer.getSequence());
+        assertEquals(0, tailer.poll(256, record -> fail()));
+        log.close();
+    }
+
+    /**
+     * 字段非法的位置被丢弃，不会阻塞写线程，其后的位置照常写入
+     */
+    @Test
+    void malformed() throws Exception {
+        var log = newLocationLog(SEGMENT_RECORDS);
+        assertFalse(log.append(RecordRingTest.malformedMessage()));
+        append(log, message(TERMINAL_A, 1, TIME));
+        awaitEndSequence(log, 1);
+        var latitudes = new ArrayList<Integer>();
+        assertEquals(1, log.read(TERMINAL_A, TIME, TIME, record -> latitudes.add(record.getLatitude())));
+        assertEquals(range(1, 2), latitudes);
+        log.close();
+    }
+
+    /**
+     * 重启后恢复已有的段；无法恢复的段被隔离，新的段越过其序号，不会因重名而无法创建
+     */
+    @Test
+    void recover() throws Exception {
+        var log = newLocationLog(SEGMENT_RECORDS);
+        for (int i = 0; i < 25; i++) {
+            append(log, message(TERMINAL_A, i, TIME + i));
+        }
+        awaitEndSequence(log, 25);
+        log.close();
+
+        var corrupt = directory.resolve(String.format("%020d.loc", 20));
+        try (var channel = FileChannel.open(corrupt, WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), 0);
+        }
+
+        log = newLocationLog(SEGMENT_RECORDS);
+        assertFalse(Files.exists(corrupt));
+        assertTrue(Files.exists(corrupt.resolveSibling(corrupt.getFileName() + ".corrupt")));
+        assertEquals(0, log.getStartSequence());
+        assertEquals(20 + SEGMENT_RECORDS, log.getEndSequence());
+        for (int i = 25; i < 30; i++) {
+            append(log, message(TERMINAL_A, i, TIME + i));
+        }
+        awaitEndSequence(log, 20 + SEGMENT_RECORDS + 5);
+        assertTrue(Files.exists(directory.resolve(String.format("%020d.loc", 20 + SEGMENT_RECORDS))));
+        log.close();
+
+        // 再次重启，恢复全部可读的段
+        log = newLocationLog(SEGMENT_RECORDS);
+        var sequences = new ArrayList<Long>();
+        var latitudes = new ArrayList<Integer>();
+        log.tail(0).poll(Integer.MAX_VALUE, record -> {
+            sequences.add(record.getSequence());
+            latitudes.add(record.getLatitude());
+        });
+        assertEquals(25, sequences.size());
+        assertEquals(19L, sequences.get(19));
+        assertEquals(30L, sequences.get(20));
+        assertEquals(range(0, 20, 25, 30), latitudes);
+        assertEquals(25, log.read(TERMINAL_A, TIME, TIME + 30, record -> {
+        }));
+        log.close();
+    }
+
+    private LocationLog newLocationLog(int segmentRecords) throws IOException {
+        return new LocationLog(directory, Segment.HEADER_SIZE + (long) segmentRecords * LocationRecord.SIZE, Duration.ofHours(1), 64, 3);
+    }
+
+    /**
+     * 入队，队列已满时等待写线程取出
+     */
+    private static void append(LocationLog log, LocationReportMessage message) {
+        while (!log.append(message)) {
+            Thread.yield();
+        }
+    }
+
+    private static void awaitEndSequence(LocationLog log, long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (log.getEndSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(sequence, log.getEndSequence());
+    }
+
+    private static LocationReportMessage message(long terminalPhone, int latitude, long time) {
+        var message = new LocationReportMessage(Version.V2013);
+        message.setTerminalPhone(terminalPhone);
+        message.setLatitude(latitude);
+        message.setTime(time);
+        return message;
+    }
+
+    private static List<Integer> range(int... bounds) {
+        var list = new ArrayList<Integer>();
+        for (int i = 0; i < bounds.length; i += 2) {
+            for (int j = bounds[i]; j < bounds[i + 1]; j++) {
+                list.add(j);
+            }
+        }
+        return list;
+    }
+}
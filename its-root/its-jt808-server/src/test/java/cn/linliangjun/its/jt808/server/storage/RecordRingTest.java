@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cn.linliangjun.its.jt808.server.storage;
+
+import cn.linliangjun.its.jt808.protocol.Version;
+import cn.linliangjun.its.jt808.protocol.message.LocationReportMessage;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordRingTest {
+
+    /**
+     * 队列已满时拒绝入队，归还槽位后可以继续入队，序号折返到队列开头
+     */
+    @Test
+    void wrapAround() {
+        var ring = new RecordRing(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(message(i)));
+        }
+        assertFalse(ring.offer(message(4)));
+        assertEquals(4, ring.size());
+        assertEquals(4, ring.available(0, Integer.MAX_VALUE));
+        assertEquals(2, ring.available(0, 2));
+
+        ring.release(3);
+        assertEquals(3, ring.head());
+        for (int i = 4; i < 7; i++) {
+            assertTrue(ring.offer(message(i)));
+        }
+        assertFalse(ring.offer(message(7)));
+        // 序号 3 ~ 6 位于槽位 3、0、1、2
+        assertEquals(4, ring.available(3, Integer.MAX_VALUE));
+        assertEquals(0, ring.slot(4));
+        var record = new LocationRecord();
+        for (long sequence = 3; sequence < 7; sequence++) {
+            record.wrap(ring.buffer(), ring.slot(sequence) * LocationRecord.SIZE, sequence);
+            assertEquals(sequence, record.getLatitude());
+        }
+        // 已消费的旧序号不会被当作已发布
+        assertEquals(0, ring.available(7, Integer.MAX_VALUE));
+        ring.release(7);
+        assertEquals(0, ring.size());
+    }
+
+    /**
+     * 读取字段失败的位置不占用序号，其后的位置仍可入队并被消费
+     */
+    @Test
+    void malformed() {
+        var ring = new RecordRing(4);
+        assertThrows(NumberFormatException.class, () -> ring.offer(malformedMessage()));
+        assertEquals(0, ring.size());
+        assertTrue(ring.offer(message(1)));
+        assertEquals(1, ring.available(0, Integer.MAX_VALUE));
+        var record = new LocationRecord();
+        record.wrap(ring.buffer(), ring.slot(0) * LocationRecord.SIZE, 0);
+        assertEquals(1, record.getLatitude());
+        assertEquals(13912345678L, record.getTerminalPhone());
+    }
+
+    /**
+     * 与消息视图一样，时间在读取时才解析，格式非法时抛出异常
+     */
+    static LocationReportMessage malformedMessage() {
+        var message = new LocationReportMessage(Version.V2013) {
+            @Override
+            public long getTime() {
+                throw new NumberFormatException("日期时间超出范围");
+            }
+        };
+        message.setTerminalPhone(13912345678L);
+        return message;
+    }
+
+    private static LocationReportMessage message(int i) {
+        var message = new LocationReportMessage(Version.V2013);
+        message.setTerminalPhone(13912345678L);
+        message.setLatitude(i);
+        return message;
+    }
+}
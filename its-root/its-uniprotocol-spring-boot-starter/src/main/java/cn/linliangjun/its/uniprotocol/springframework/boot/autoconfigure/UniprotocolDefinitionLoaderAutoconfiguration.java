@@ -17,6 +17,7 @@
 package cn.linliangjun.its.uniprotocol.springframework.boot.autoconfigure;
 
 import cn.linliangjun.its.uniprotocol.DefinitionLoaderProvider;
+import cn.linliangjun.its.uniprotocol.DefinitionManager;
 import lombok.extern.slf4j.Slf4j;
 import lombok.var;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
@@ -34,5 +35,6 @@ public class UniprotocolDefinitionLoaderAutoconfiguration {
             var loader = provider.get();
             loader.load();
         }
+        DefinitionManager.freeze();
     }
 }
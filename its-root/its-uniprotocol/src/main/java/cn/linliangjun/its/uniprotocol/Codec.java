@@ -35,6 +35,24 @@ public interface Codec<P extends ProtocolDefinition, M> {
      */
     ByteBuf encode(M message);
 
+    /**
+     * 编码，并将结果写入指定的字节缓冲区
+     *
+     * <p>默认实现先调用 {@linkplain #encode(Object)}，再将结果复制到 {@code out} 中，实现类可以覆盖该方法以直接写入 {@code out}
+     *
+     * @param message 消息对象
+     * @param out     输出字节缓冲区
+     * @throws CodecException 编码异常
+     */
+    default void encode(M message, ByteBuf out) {
+        ByteBuf buf = encode(message);
+        try {
+            out.writeBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
     /**
      * 解码
      *
@@ -44,4 +62,34 @@ public interface Codec<P extends ProtocolDefinition, M> {
      * @throws CodecException 解码异常
      */
     M decode(P protocolDefinition, ByteBuf buf);
+
+    /**
+     * 以视图方式解码，消息字段在首次访问时才解析
+     *
+     * <p>默认实现与 {@linkplain #decode} 相同。返回的消息若实现了 {@linkplain io.netty.util.ReferenceCounted}，
+     * 则持有 {@code buf} 的切片，使用完毕后必须释放
+     *
+     * @param protocolDefinition 协议
+     * @param buf                字节缓冲区
+     * @return 消息对象
+     * @throws CodecException 解码异常
+     */
+    default M decodeView(P protocolDefinition, ByteBuf buf) {
+        return decode(protocolDefinition, buf);
+    }
+
+    /**
+     * 解码到对象池中的消息
+     *
+     * <p>默认实现与 {@linkplain #decode} 相同。实现类可以从对象池中获取消息，此时调用方使用完毕后应按消息类型约定的方式交还，
+     * 交还后不能再持有该消息
+     *
+     * @param protocolDefinition 协议
+     * @param buf                字节缓冲区
+     * @return 消息对象
+     * @throws CodecException 解码异常
+     */
+    default M decodePooled(P protocolDefinition, ByteBuf buf) {
+        return decode(protocolDefinition, buf);
+    }
 }
@@ -18,20 +18,28 @@ package cn.linliangjun.its.uniprotocol;
 
 import cn.hutool.core.lang.Assert;
 import lombok.extern.slf4j.Slf4j;
-import lombok.var;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 协议管理器
  *
+ * <p>定义保存在静态字段中，整个进程共享一份。{@linkplain #freeze() 冻结}同样是进程级别且不可撤销的：
+ * 冻结后注册任何定义都会抛出 {@linkplain IllegalStateException}，已构建的{@linkplain DispatchTable 分发表}
+ * 因此不会与已注册的定义不一致。同一进程中的多个应用上下文（例如测试）应只加载并冻结一次。
+ *
  * @author linliangjun
  */
 @Slf4j
 public final class DefinitionManager {
 
-    private static final Set<ProtocolDefinition> PROTOCOLS = new HashSet<>();
+    private static final Map<ProtocolDefinition, ProtocolDefinition> PROTOCOLS = new HashMap<>();
+
+    /**
+     * 是否已冻结，冻结后不再允许注册定义
+     */
+    private static volatile boolean frozen;
 
     /**
      * 注册协议定义
@@ -40,11 +48,12 @@ public final class DefinitionManager {
      */
     public static void registerProtocolDefinition(ProtocolDefinition definition) {
         Assert.notNull(definition, "协议定义不能为 null");
-        if (PROTOCOLS.contains(definition)) {
+        checkNotFrozen();
+        if (PROTOCOLS.containsKey(definition)) {
             throw new DuplicateDefinitionException(String.format("协议定义 %s 已注册，无法再次注册", definition));
         }
         // 注册协议一般是串行的，因此并未使用同步代码
-        PROTOCOLS.add(definition);
+        PROTOCOLS.put(definition, definition);
         log.info("注册协议定义 {}", definition);
     }
 
@@ -55,15 +64,11 @@ public final class DefinitionManager {
      * @return 已注册的协议定义（可能为 {@code null}）
      */
     public static ProtocolDefinition getProtocolDefinition(ProtocolDefinition definition) {
-        for (var item : PROTOCOLS) {
-            if (item.equals(definition)) {
-                return item;
-            }
-        }
-        return null;
+        return PROTOCOLS.get(definition);
     }
 
     public static void registerMessageDefinition(ProtocolDefinition protocolDefinition, MessageDefinition messageDefinition) {
+        checkNotFrozen();
         ProtocolDefinition p1 = getProtocolDefinition(protocolDefinition);
         if (p1 == null) {
             throw new DefinitionNotFoundException(String.format("协议定义 %s 尚未注册，无法为其注册消息定义", protocolDefinition));
@@ -78,4 +83,24 @@ public final class DefinitionManager {
         }
         return protocolDefinition.getMessageDefinition(messageId);
     }
+
+    /**
+     * 冻结，所有定义加载完成后调用，此后可以据此构建 {@linkplain DispatchTable 分发表}
+     *
+     * <p>重复调用没有副作用；冻结无法撤销，之后的注册都会抛出 {@linkplain IllegalStateException}
+     */
+    public static void freeze() {
+        frozen = true;
+        log.info("协议定义已冻结，共 {} 个", PROTOCOLS.size());
+    }
+
+    public static boolean isFrozen() {
+        return frozen;
+    }
+
+    private static void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("协议定义已冻结，无法再注册定义");
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.uniprotocol;
+
+import lombok.var;
+
+/**
+ * 分发表
+ *
+ * <p>在协议定义{@linkplain DefinitionManager#freeze() 冻结}后一次性构建，构建后不可变。
+ * 以（协议下标，消息 ID）为索引，通过扁平数组直接定位消息定义及其编解码器单例，查询时不加锁、不产生对象。
+ *
+ * <p>消息 ID 的取值范围为 {@code [0, 0xffff]}，按高 8 位分页，未使用的页不分配内存。
+ *
+ * @author linliangjun
+ */
+public class DispatchTable {
+
+    private static final int MAX_MESSAGE_ID = 0xffff;
+
+    private static final int PAGE_BITS = 8;
+
+    private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+    private final ProtocolDefinition[] protocolDefinitions;
+
+    /**
+     * 消息定义，下标依次为：协议下标、页号、页内偏移
+     */
+    private final MessageDefinition[][][] messageDefinitions;
+
+    /**
+     * 构建分发表
+     *
+     * @param protocolDefinitions 协议定义，其下标即为查询时的协议下标
+     * @throws IllegalStateException 协议定义尚未冻结
+     */
+    protected DispatchTable(ProtocolDefinition... protocolDefinitions) {
+        if (!DefinitionManager.isFrozen()) {
+            throw new IllegalStateException("协议定义尚未冻结，无法构建分发表");
+        }
+        int len = protocolDefinitions.length;
+        this.protocolDefinitions = protocolDefinitions.clone();
+        this.messageDefinitions = new MessageDefinition[len][][];
+        for (int i = 0; i < len; i++) {
+            var pages = new MessageDefinition[(MAX_MESSAGE_ID >>> PAGE_BITS) + 1][];
+            messageDefinitions[i] = pages;
+            var registered = DefinitionManager.getProtocolDefinition(protocolDefinitions[i]);
+            if (registered == null) {
+                continue;
+            }
+            for (var definition : registered.getMessageDefinitions()) {
+                int id = definition.getId();
+                if (id < 0 || id > MAX_MESSAGE_ID) {
+                    throw new IllegalArgumentException(String.format("消息 ID 超出范围：%#x", id));
+                }
+                var page = pages[id >>> PAGE_BITS];
+                if (page == null) {
+                    page = new MessageDefinition[PAGE_MASK + 1];
+                    pages[id >>> PAGE_BITS] = page;
+                }
+                page[id & PAGE_MASK] = definition;
+            }
+        }
+    }
+
+    /**
+     * 获取构建时传入的协议定义
+     *
+     * @param index 协议下标
+     */
+    public ProtocolDefinition getProtocolDefinition(int index) {
+        return protocolDefinitions[index];
+    }
+
+    /**
+     * 获取消息定义（可能为 {@code null}）
+     *
+     * @param index     协议下标
+     * @param messageId 消息 ID
+     */
+    public MessageDefinition getMessageDefinition(int index, int messageId) {
+        if ((messageId & ~MAX_MESSAGE_ID) != 0) {
+            return null;
+        }
+        var page = messageDefinitions[index][messageId >>> PAGE_BITS];
+        return page == null ? null : page[messageId & PAGE_MASK];
+    }
+
+    /**
+     * 获取编解码器单例（可能为 {@code null}）
+     *
+     * @param index     协议下标
+     * @param messageId 消息 ID
+     */
+    public <P extends ProtocolDefinition, M> Codec<P, M> getCodec(int index, int messageId) {
+        var definition = getMessageDefinition(index, messageId);
+        return definition == null ? null : definition.getCodec();
+    }
+}
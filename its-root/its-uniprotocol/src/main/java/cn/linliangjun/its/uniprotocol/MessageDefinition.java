@@ -19,28 +19,37 @@ package cn.linliangjun.its.uniprotocol;
 import cn.hutool.core.util.ReflectUtil;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
-@RequiredArgsConstructor
+/**
+ * 消息定义
+ *
+ * @author linliangjun
+ */
 public class MessageDefinition {
 
-    @NonNull
     @Getter
     private final Integer id;
 
-    @NonNull
     @Getter
     private final String name;
 
-    @NonNull
     @Getter
     private final Class<?> messageClass;
 
-    @NonNull
-    private final Class<?> codecClass;
+    /**
+     * 编解码器，每个消息定义仅实例化一次，因此编解码器必须是线程安全的
+     */
+    private final Codec<?, ?> codec;
+
+    public MessageDefinition(@NonNull Integer id, @NonNull String name, @NonNull Class<?> messageClass, @NonNull Class<?> codecClass) {
+        this.id = id;
+        this.name = name;
+        this.messageClass = messageClass;
+        this.codec = (Codec<?, ?>) ReflectUtil.newInstance(codecClass);
+    }
 
     @SuppressWarnings("unchecked")
     public <P extends ProtocolDefinition, M> Codec<P, M> getCodec() {
-        return (Codec<P, M>) ReflectUtil.newInstance(codecClass);
+        return (Codec<P, M>) codec;
     }
 }
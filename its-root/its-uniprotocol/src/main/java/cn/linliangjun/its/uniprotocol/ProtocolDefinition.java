@@ -18,6 +18,8 @@ package cn.linliangjun.its.uniprotocol;
 
 import lombok.*;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -58,7 +60,19 @@ public class ProtocolDefinition {
         return messageMap.get(id);
     }
 
+    public Collection<MessageDefinition> getMessageDefinitions() {
+        return Collections.unmodifiableCollection(messageMap.values());
+    }
+
+    /**
+     * 添加消息定义，一般通过 {@linkplain DefinitionManager#registerMessageDefinition} 调用
+     *
+     * @throws IllegalStateException 协议定义已冻结
+     */
     public void addMessageDefinition(MessageDefinition definition) {
+        if (DefinitionManager.isFrozen()) {
+            throw new IllegalStateException("协议定义已冻结，无法再注册定义");
+        }
         messageMap.put(definition.getId(), definition);
     }
 }
@@ -26,6 +26,51 @@ import java.util.List;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public final class CodecUtils {
 
+    /**
+     * BCD 8421 码到十进制数（0 ~ 99）的映射表，非法的 BCD 码映射为 -1
+     */
+    private static final byte[] BCD_TO_DECIMAL = new byte[256];
+
+    /**
+     * 十进制数（0 ~ 99）到 BCD 8421 码的映射表
+     */
+    private static final byte[] DECIMAL_TO_BCD = new byte[100];
+
+    /**
+     * 平年中每月第一天之前的天数，下标为月份（1 ~ 12）
+     */
+    private static final int[] DAYS_BEFORE_MONTH = {0, 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    /**
+     * 平年中每月的天数，下标为月份（1 ~ 12）
+     */
+    private static final int[] DAYS_OF_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    /**
+     * 公元 1 年至 1969 年的闰年数
+     */
+    private static final int LEAP_YEARS_BEFORE_1970 = 1969 / 4 - 1969 / 100 + 1969 / 400;
+
+    /**
+     * 每个字节均为 0x01 的字
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    /**
+     * 每个字节均为 0x7f 的字
+     */
+    private static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+    static {
+        for (int i = 0; i < BCD_TO_DECIMAL.length; i++) {
+            int high = i >>> 4, low = i & 0x0f;
+            BCD_TO_DECIMAL[i] = (byte) (high > 9 || low > 9 ? -1 : high * 10 + low);
+        }
+        for (int i = 0; i < DECIMAL_TO_BCD.length; i++) {
+            DECIMAL_TO_BCD[i] = (byte) (i / 10 << 4 | i % 10);
+        }
+    }
+
     public static void writeFixedLenBytes(ByteBuf buf, byte[] bytes, int len, String fieldName) {
         if (len != bytes.length) {
             throw new CodecException(String.format("%s 的字节长度与预期不符合（%d != %d）", fieldName, bytes.length, len));
@@ -102,6 +147,241 @@ public final class CodecUtils {
         return sb.toString();
     }
 
+    /**
+     * 读取 BCD 8421 码，并转换为十进制数
+     *
+     * @param buf 字节缓冲区
+     * @param len 字节长度
+     * @return 十进制数，不保留前导 0
+     * @throws NumberFormatException 非 BCD 码数据，或超出 {@code long} 的表示范围
+     */
+    public static long readBcd8421(ByteBuf buf, int len) {
+        long value = getBcd8421(buf, buf.readerIndex(), len);
+        buf.skipBytes(len);
+        return value;
+    }
+
+    /**
+     * 获取指定位置的 BCD 8421 码，并转换为十进制数，不改变读索引
+     *
+     * @param buf   字节缓冲区
+     * @param index 起始位置
+     * @param len   字节长度
+     * @return 十进制数，不保留前导 0
+     * @throws NumberFormatException 非 BCD 码数据，或超出 {@code long} 的表示范围
+     */
+    public static long getBcd8421(ByteBuf buf, int index, int len) {
+        long value = getBcd8421(buf, index, len, -1);
+        if (value < 0) {
+            throw new NumberFormatException("BCD 码超出 long 的表示范围");
+        }
+        return value;
+    }
+
+    /**
+     * 获取指定位置的 BCD 8421 码，并转换为十进制数，不改变读索引；超出 {@code long} 的表示范围时返回 {@code overflowValue}，
+     * 调用方可以此改用 {@linkplain #getBcd8421String} 读取
+     *
+     * @param buf           字节缓冲区
+     * @param index         起始位置
+     * @param len           字节长度
+     * @param overflowValue 超出表示范围时的返回值，应为负数
+     * @return 十进制数，不保留前导 0
+     * @throws NumberFormatException 非 BCD 码数据
+     */
+    public static long getBcd8421(ByteBuf buf, int index, int len, long overflowValue) {
+        long value = 0;
+        boolean overflow = false;
+        for (int i = index; i < index + len; i++) {
+            int b = buf.getUnsignedByte(i);
+            int n = BCD_TO_DECIMAL[b];
+            if (n < 0) {
+                throw new NumberFormatException(String.format("非 BCD 码数据：%#04x", b));
+            }
+            // 溢出后仍需检查余下的字节是否为 BCD 码
+            if (overflow || value > (Long.MAX_VALUE - n) / 100) {
+                overflow = true;
+                continue;
+            }
+            value = value * 100 + n;
+        }
+        return overflow ? overflowValue : value;
+    }
+
+    /**
+     * 获取指定位置的 BCD 8421 码，并转换为十进制字符串，不改变读索引，适用于可能超出 {@code long} 表示范围的 BCD 码
+     *
+     * @param buf   字节缓冲区
+     * @param index 起始位置
+     * @param len   字节长度
+     * @return 十进制字符串，不保留前导 0，全为 0 时返回 "0"
+     * @throws NumberFormatException 非 BCD 码数据
+     */
+    public static String getBcd8421String(ByteBuf buf, int index, int len) {
+        var chars = new char[len * 2];
+        for (int i = 0; i < len; i++) {
+            int b = buf.getUnsignedByte(index + i);
+            if (BCD_TO_DECIMAL[b] < 0) {
+                throw new NumberFormatException(String.format("非 BCD 码数据：%#04x", b));
+            }
+            chars[i * 2] = (char) ('0' + (b >>> 4));
+            chars[i * 2 + 1] = (char) ('0' + (b & 0x0f));
+        }
+        int start = 0;
+        while (start < chars.length - 1 && chars[start] == '0') {
+            start++;
+        }
+        return new String(chars, start, chars.length - start);
+    }
+
+    /**
+     * 将十进制数转换为定长的 BCD 8421 码并写入，高位补 0
+     *
+     * @param buf       字节缓冲区
+     * @param value     十进制数
+     * @param len       字节长度
+     * @param fieldName 字段名称
+     */
+    public static void writeBcd8421(ByteBuf buf, long value, int len, String fieldName) {
+        if (value < 0) {
+            throw new CodecException(String.format("%s 不能为负数（%d）", fieldName, value));
+        }
+        int writerIndex = buf.writerIndex();
+        buf.ensureWritable(len);
+        long remain = value;
+        for (int i = writerIndex + len - 1; i >= writerIndex; i--) {
+            buf.setByte(i, DECIMAL_TO_BCD[(int) (remain % 100)]);
+            remain /= 100;
+        }
+        if (remain != 0) {
+            throw new CodecException(String.format("%s 超出最大长度限制（%d 超过 %d 字节）", fieldName, value, len));
+        }
+        buf.writerIndex(writerIndex + len);
+    }
+
+    /**
+     * 将十进制字符串转换为定长的 BCD 8421 码并写入，高位补 0，适用于可能超出 {@code long} 表示范围的十进制数
+     *
+     * @param buf       字节缓冲区
+     * @param decimal   十进制字符串
+     * @param len       字节长度
+     * @param fieldName 字段名称
+     */
+    public static void writeBcd8421(ByteBuf buf, String decimal, int len, String fieldName) {
+        int start = 0;
+        while (start < decimal.length() - 1 && decimal.charAt(start) == '0') {
+            start++;
+        }
+        int digits = decimal.length() - start;
+        if (digits > len * 2) {
+            throw new CodecException(String.format("%s 超出最大长度限制（%s 超过 %d 字节）", fieldName, decimal, len));
+        }
+        int writerIndex = buf.writerIndex();
+        buf.ensureWritable(len);
+        // 从最低位开始，每两位数字写一个字节
+        int end = decimal.length();
+        for (int i = writerIndex + len - 1; i >= writerIndex; i--) {
+            int low = end > start ? digit(decimal, --end, fieldName) : 0;
+            int high = end > start ? digit(decimal, --end, fieldName) : 0;
+            buf.setByte(i, high << 4 | low);
+        }
+        buf.writerIndex(writerIndex + len);
+    }
+
+    private static int digit(String decimal, int index, String fieldName) {
+        int n = decimal.charAt(index) - '0';
+        if (n < 0 || n > 9) {
+            throw new CodecException(String.format("%s 不是十进制字符串（%s）", fieldName, decimal));
+        }
+        return n;
+    }
+
+    /**
+     * 读取 BCD[6] 格式（YY-MM-DD-hh-mm-ss，年份为 20YY）的时间，并转换为时间戳
+     *
+     * @param buf              字节缓冲区
+     * @param zoneOffsetMillis 时间所在时区相对 UTC 的偏移（毫秒）
+     * @return 时间戳（毫秒）
+     * @throws NumberFormatException 非 BCD 码数据，或日期时间超出范围
+     */
+    public static long readBcdDateTime(ByteBuf buf, long zoneOffsetMillis) {
+        long value = getBcdDateTime(buf, buf.readerIndex(), zoneOffsetMillis);
+        buf.skipBytes(6);
+        return value;
+    }
+
+    /**
+     * 获取指定位置的 BCD[6] 格式的时间，并转换为时间戳，不改变读索引
+     *
+     * <p>逐字节查表得到年月日时分秒，再按公历直接计算距 1970-01-01 的天数，不创建任何对象
+     *
+     * @param buf              字节缓冲区
+     * @param index            起始位置
+     * @param zoneOffsetMillis 时间所在时区相对 UTC 的偏移（毫秒）
+     * @return 时间戳（毫秒）
+     * @throws NumberFormatException 非 BCD 码数据，或日期时间超出范围
+     */
+    public static long getBcdDateTime(ByteBuf buf, int index, long zoneOffsetMillis) {
+        int year = getBcd8421Byte(buf, index) + 2000;
+        int month = getBcd8421Byte(buf, index + 1);
+        int day = getBcd8421Byte(buf, index + 2);
+        int hour = getBcd8421Byte(buf, index + 3);
+        int minute = getBcd8421Byte(buf, index + 4);
+        int second = getBcd8421Byte(buf, index + 5);
+        boolean leap = (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+        if (month < 1 || month > 12 || day < 1 || day > DAYS_OF_MONTH[month] + (leap && month == 2 ? 1 : 0)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw new NumberFormatException(String.format("日期时间超出范围：%d-%02d-%02d %02d:%02d:%02d", year, month, day, hour, minute, second));
+        }
+        // 公元 1 年至 year - 1 年的闰年数，减去 1970 年之前的，即 1970 年至 year - 1 年的闰年数
+        int y = year - 1;
+        int leapYears = y / 4 - y / 100 + y / 400 - LEAP_YEARS_BEFORE_1970;
+        long epochDay = (year - 1970) * 365L + leapYears + DAYS_BEFORE_MONTH[month] + (leap && month > 2 ? 1 : 0) + day - 1;
+        return ((epochDay * 24 + hour) * 60 + minute) * 60_000L + second * 1000L - zoneOffsetMillis;
+    }
+
+    /**
+     * 将时间戳转换为 BCD[6] 格式（YY-MM-DD-hh-mm-ss）的时间并写入，毫秒部分被舍弃
+     *
+     * @param buf              字节缓冲区
+     * @param epochMillis      时间戳（毫秒）
+     * @param zoneOffsetMillis 时间所在时区相对 UTC 的偏移（毫秒）
+     * @param fieldName        字段名称
+     */
+    public static void writeBcdDateTime(ByteBuf buf, long epochMillis, long zoneOffsetMillis, String fieldName) {
+        long seconds = Math.floorDiv(epochMillis + zoneOffsetMillis, 1000L);
+        long epochDay = Math.floorDiv(seconds, 86400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86400L);
+        // 由天数计算公历日期，以 0000-03-01 为起点，使闰日位于每年的末尾
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 2000 || year > 2099) {
+            throw new CodecException(String.format("%s 超出 BCD[6] 的表示范围（%d 年）", fieldName, year));
+        }
+        buf.writeByte(DECIMAL_TO_BCD[(int) (year - 2000)]);
+        buf.writeByte(DECIMAL_TO_BCD[month]);
+        buf.writeByte(DECIMAL_TO_BCD[day]);
+        buf.writeByte(DECIMAL_TO_BCD[secondOfDay / 3600]);
+        buf.writeByte(DECIMAL_TO_BCD[secondOfDay / 60 % 60]);
+        buf.writeByte(DECIMAL_TO_BCD[secondOfDay % 60]);
+    }
+
+    private static int getBcd8421Byte(ByteBuf buf, int index) {
+        int b = buf.getUnsignedByte(index);
+        int n = BCD_TO_DECIMAL[b];
+        if (n < 0) {
+            throw new NumberFormatException(String.format("非 BCD 码数据：%#04x", b));
+        }
+        return n;
+    }
+
     /**
      * 获取 BCC 校验码
      */
@@ -113,6 +393,84 @@ public final class CodecUtils {
         return code;
     }
 
+    /**
+     * 获取 BCC 校验码，每次读取 8 个字节（一个 {@code long}）进行异或，最后将 8 个字节折叠为 1 个字节，不足 8 字节的尾部逐字节处理
+     *
+     * <p>结果与 {@linkplain #getBccCode} 一致
+     */
+    public static byte getBccCodeSwar(ByteBuf buf, int start, int len) {
+        int end = start + len;
+        int i = start;
+        long word = 0;
+        for (; i <= end - Long.BYTES; i += Long.BYTES) {
+            word ^= buf.getLong(i);
+        }
+        word ^= word >>> 32;
+        word ^= word >>> 16;
+        word ^= word >>> 8;
+        byte code = (byte) word;
+        for (; i < end; i++) {
+            code ^= buf.getByte(i);
+        }
+        return code;
+    }
+
+    /**
+     * 获取指定字节在 {@code [fromIndex, toIndex)} 中的全部位置，按升序追加到 {@code indexes}
+     *
+     * <p>每次读取 8 个字节，与目标字节逐字节比较后，相等的字节得到 0x80、其余得到 0x00，再通过前导 0 的个数定位；不足 8 字节的尾部逐字节处理。
+     * 结果与 {@linkplain #getIndexes} 一致
+     *
+     * @param buf       字节缓冲区
+     * @param fromIndex 起始位置（含）
+     * @param toIndex   截止位置（不含）
+     * @param b         目标字节
+     * @param indexes   位置列表，不会被清空
+     */
+    public static void getIndexesSwar(ByteBuf buf, int fromIndex, int toIndex, byte b, IntList indexes) {
+        long pattern = (b & 0xffL) * ONES;
+        int i = fromIndex;
+        for (; i <= toIndex - Long.BYTES; i += Long.BYTES) {
+            long matches = matches(buf.getLong(i), pattern);
+            while (matches != 0) {
+                int n = Long.numberOfLeadingZeros(matches);
+                indexes.add(i + (n >>> 3));
+                matches &= ~(Long.MIN_VALUE >>> n);
+            }
+        }
+        for (; i < toIndex; i++) {
+            if (buf.getByte(i) == b) {
+                indexes.add(i);
+            }
+        }
+    }
+
+    /**
+     * 统计指定字节在 {@code [fromIndex, toIndex)} 中出现的次数，做法同 {@linkplain #getIndexesSwar}
+     */
+    public static int countSwar(ByteBuf buf, int fromIndex, int toIndex, byte b) {
+        long pattern = (b & 0xffL) * ONES;
+        int count = 0;
+        int i = fromIndex;
+        for (; i <= toIndex - Long.BYTES; i += Long.BYTES) {
+            count += Long.bitCount(matches(buf.getLong(i), pattern));
+        }
+        for (; i < toIndex; i++) {
+            if (buf.getByte(i) == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 逐字节比较，与 {@code pattern} 相等的字节得到 0x80，其余字节得到 0x00（不存在跨字节的进位，因此没有误报）
+     */
+    private static long matches(long word, long pattern) {
+        long x = word ^ pattern;
+        return ~((x & LOW_BITS) + LOW_BITS | x | LOW_BITS);
+    }
+
     public static List<Integer> getIndexes(ByteBuf buf, byte b) {
         List<Integer> list = new ArrayList<>();
         int formIndex = buf.readerIndex(), toIndex = buf.writerIndex();
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.linliangjun.its.uniprotocol.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.var;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodecUtilsTest {
+
+    private static final byte FLAG = 0x7e;
+
+    private static final byte ESCAPE = 0x7d;
+
+    /**
+     * 与目标字节仅有一位不同的字节，最容易使逐字节比较产生借位或误报
+     */
+    private static final byte[] NEIGHBORS = {0x7f, 0x7c, (byte) 0xfe, (byte) 0xfd, (byte) 0xff, 0x00, 0x3e, 0x5d};
+
+    /**
+     * 目标字节位于每一个位置，覆盖各种起始对齐与长度（0 ~ 16，含不足 8 字节的尾部）
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void everyPosition(boolean direct) {
+        for (var target : new byte[]{FLAG, ESCAPE}) {
+            for (int offset = 0; offset < 8; offset++) {
+                for (int len = 0; len <= 16; len++) {
+                    for (var neighbor : NEIGHBORS) {
+                        for (int pos = -1; pos < len; pos++) {
+                            var bytes = new byte[offset + len + 8];
+                            for (int i = 0; i < bytes.length; i++) {
+                                bytes[i] = neighbor;
+                            }
+                            // 区间外的目标字节不应被统计
+                            bytes[bytes.length - 1] = target;
+                            if (offset > 0) {
+                                bytes[offset - 1] = target;
+                            }
+                            if (pos >= 0) {
+                                bytes[offset + pos] = target;
+                            }
+                            assertSwar(bytes, direct, offset, offset + len, target);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void allTargets(boolean direct) {
+        for (var target : new byte[]{FLAG, ESCAPE}) {
+            for (int len = 0; len <= 64; len++) {
+                var bytes = new byte[len];
+                for (int i = 0; i < len; i++) {
+                    bytes[i] = target;
+                }
+                var buf = buffer(bytes, direct);
+                assertEquals(len, CodecUtils.countSwar(buf, 0, len, target));
+                assertEquals(0, CodecUtils.countSwar(buf, 0, len, (byte) (target ^ 0x03)));
+                buf.release();
+                assertSwar(bytes, direct, 0, len, FLAG);
+                assertSwar(bytes, direct, 0, len, ESCAPE);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void random(boolean direct) {
+        var random = new Random(808);
+        for (int round = 0; round < 2000; round++) {
+            var bytes = new byte[random.nextInt(64)];
+            for (int i = 0; i < bytes.length; i++) {
+                // 约一半为转义相关的字节
+                bytes[i] = random.nextBoolean() ? (byte) (0x7c + random.nextInt(4)) : (byte) random.nextInt(256);
+            }
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+            int to = from + random.nextInt(bytes.length - from + 1);
+            assertSwar(bytes, direct, from, to, FLAG);
+            assertSwar(bytes, direct, from, to, ESCAPE);
+        }
+    }
+
+    /**
+     * 每月的最后一天（含闰年的 2 月 29 日）有效，其后一天超出范围
+     */
+    @Test
+    void bcdDateTime() {
+        for (var date = LocalDate.of(2000, 1, 1); date.getYear() < 2100; date = date.plusMonths(1)) {
+            var last = date.withDayOfMonth(date.lengthOfMonth());
+            var buf = bcdDateTime(last.getYear() - 2000, last.getMonthValue(), last.getDayOfMonth());
+            assertEquals(last.atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli(), CodecUtils.getBcdDateTime(buf, 0, 0), last::toString);
+            buf.release();
+            var invalid = bcdDateTime(last.getYear() - 2000, last.getMonthValue(), last.getDayOfMonth() + 1);
+            assertThrows(NumberFormatException.class, () -> CodecUtils.getBcdDateTime(invalid, 0, 0), last::toString);
+            invalid.release();
+        }
+    }
+
+    private static ByteBuf bcdDateTime(int year, int month, int day) {
+        var hex = String.format("%02d%02d%02d000000", year, month, day);
+        return Unpooled.wrappedBuffer(ByteBufUtil.decodeHexDump(hex));
+    }
+
+    private static void assertSwar(byte[] bytes, boolean direct, int from, int to, byte target) {
+        var buf = buffer(bytes, direct);
+        try {
+            var expected = indexes(buf, from, to, target);
+            var actual = new IntList();
+            CodecUtils.getIndexesSwar(buf, from, to, target, actual);
+            assertEquals(expected.size(), actual.size(), () -> message(buf, from, to, target));
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), actual.get(i), () -> message(buf, from, to, target));
+            }
+            assertEquals(expected.size(), CodecUtils.countSwar(buf, from, to, target), () -> message(buf, from, to, target));
+            assertEquals(CodecUtils.getBccCode(buf, from, to - from), CodecUtils.getBccCodeSwar(buf, from, to - from),
+                    () -> message(buf, from, to, target));
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * 逐字节查找，作为 SWAR 实现的参照
+     */
+    private static List<Integer> indexes(ByteBuf buf, int from, int to, byte target) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (buf.getByte(i) == target) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    private static ByteBuf buffer(byte[] bytes, boolean direct) {
+        var buf = direct ? Unpooled.directBuffer(bytes.length) : Unpooled.buffer(bytes.length);
+        return buf.writeBytes(bytes);
+    }
+
+    private static String message(ByteBuf buf, int from, int to, byte target) {
+        return String.format("[%d, %d) 查找 %#04x：%s", from, to, target, ByteBufUtil.hexDump(buf, 0, buf.writerIndex()));
+    }
+}